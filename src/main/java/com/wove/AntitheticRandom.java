@@ -0,0 +1,26 @@
+package com.wove;
+
+import java.util.Random;
+
+/**
+ * Random number generator that produces the mirror image of an ordinary
+ * Random with the same seed.  Every random bit is flipped, so each uniform
+ * u from nextDouble() becomes 1-u (less one ulp).  A Deck shuffled with this
+ * deals the antithetic shoe of a Deck shuffled with new Random(seed).
+ */
+class AntitheticRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * creates the antithetic counterpart of new Random(seed)
+     * @param seed seed of the generator being mirrored
+     */
+    public AntitheticRandom(long seed){
+        super(seed);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return ~super.next(bits) & (int)((1L << bits) - 1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.wove;
+
+import java.util.Set;
+
+/**
+ * The standard multi-deck basic strategy for a dealer who stands on all 17's
+ * with doubling allowed after splits.  It only looks at the player's hand and
+ * the dealer's face up card, never at cards that have already been played.
+ */
+class BasicStrategy implements Strategy {
+
+    @Override
+    public PlayerAction chooseAction(Hand hand, Card dealerUpCard, double trueCount, Set<PlayerAction> availableActions) {
+        PlayerAction action = idealAction(hand, dealerUpCard.getMinValue(), availableActions.contains(PlayerAction.SPLIT));
+        if(availableActions.contains(action)){
+            return action;
+        }
+        //doubling is not allowed so fall back to what the chart says to do otherwise
+        if(action == PlayerAction.DOUBLE_DOWN && availableActions.contains(PlayerAction.HIT)){
+            boolean softEighteen = hand.isSoft() && hand.getValue() == 18;
+            return softEighteen ? PlayerAction.STAND : PlayerAction.HIT;
+        }
+        return PlayerAction.STAND;
+    }
+
+    /**
+     * looks up the chart action for a hand, ignoring whether doubling or hitting is allowed
+     * @param hand the hand being played
+     * @param upCard value of the dealer's face up card.  1 is an ace
+     * @param maySplit whether the hand may be split
+     * @return the action basic strategy recommends
+     */
+    static PlayerAction idealAction(Hand hand, int upCard, boolean maySplit) {
+        if(maySplit){
+            PlayerAction pairAction = pairAction(hand.getCard(0).getMinValue(), upCard);
+            if(pairAction != null){
+                return pairAction;
+            }
+        }
+        int total = hand.getValue();
+        if(hand.isSoft()){
+            return softAction(total, upCard);
+        }
+        return hardAction(total, upCard);
+    }
+
+    /**
+     * chart lookup for a pair
+     * @param pairValue value of one card of the pair.  1 is an ace
+     * @param upCard value of the dealer's face up card.  1 is an ace
+     * @return SPLIT if the pair should be split, otherwise null so the hand is played by its total
+     */
+    private static PlayerAction pairAction(int pairValue, int upCard) {
+        boolean split;
+        switch (pairValue) {
+            case 1:
+            case 8:
+                split = true;
+                break;
+            case 9:
+                split = upCard != 1 && upCard != 7 && upCard != 10;
+                break;
+            case 7:
+            case 3:
+            case 2:
+                split = upCard >= 2 && upCard <= 7;
+                break;
+            case 6:
+                split = upCard >= 2 && upCard <= 6;
+                break;
+            case 4:
+                split = upCard == 5 || upCard == 6;
+                break;
+            default:
+                split = false;
+        }
+        return split ? PlayerAction.SPLIT : null;
+    }
+
+    /**
+     * chart lookup for a soft total
+     * @param total hand total counting one ace as 11
+     * @param upCard value of the dealer's face up card.  1 is an ace
+     * @return the recommended action
+     */
+    private static PlayerAction softAction(int total, int upCard) {
+        if(total >= 19){
+            return PlayerAction.STAND;
+        }
+        if(total == 18){
+            if(upCard >= 3 && upCard <= 6){
+                return PlayerAction.DOUBLE_DOWN;
+            }
+            return upCard == 2 || upCard == 7 || upCard == 8 ? PlayerAction.STAND : PlayerAction.HIT;
+        }
+        int lowestDoubleCard;
+        if(total == 17){
+            lowestDoubleCard = 3;
+        }else if(total >= 15){
+            lowestDoubleCard = 4;
+        }else{
+            lowestDoubleCard = 5;
+        }
+        return upCard >= lowestDoubleCard && upCard <= 6 ? PlayerAction.DOUBLE_DOWN : PlayerAction.HIT;
+    }
+
+    /**
+     * chart lookup for a hard total
+     * @param total hand total
+     * @param upCard value of the dealer's face up card.  1 is an ace
+     * @return the recommended action
+     */
+    private static PlayerAction hardAction(int total, int upCard) {
+        if(total >= 17){
+            return PlayerAction.STAND;
+        }
+        if(total >= 13){
+            return upCard >= 2 && upCard <= 6 ? PlayerAction.STAND : PlayerAction.HIT;
+        }
+        if(total == 12){
+            return upCard >= 4 && upCard <= 6 ? PlayerAction.STAND : PlayerAction.HIT;
+        }
+        if(total == 11){
+            return upCard == 1 ? PlayerAction.HIT : PlayerAction.DOUBLE_DOWN;
+        }
+        if(total == 10){
+            return upCard >= 2 && upCard <= 9 ? PlayerAction.DOUBLE_DOWN : PlayerAction.HIT;
+        }
+        if(total == 9){
+            return upCard >= 3 && upCard <= 6 ? PlayerAction.DOUBLE_DOWN : PlayerAction.HIT;
+        }
+        return PlayerAction.HIT;
+    }
+}
@@ -12,6 +12,12 @@ class Card {
     public static final int ASCII_REPRESENTATION_WIDTH = 4;
     /** The height of the card's representation in the terminal */
     public static final int ASCII_REPRESENTATION_HEIGHT = 4;
+    /** number of distinct cards in a standard deck.  Card codes range from 0 to this minus one */
+    public static final int NUMBER_OF_CODES = 52;
+    /** all ranks, cached because values() copies the array every call */
+    private static final Rank RANKS[] = Rank.values();
+    /** all suits, cached because values() copies the array every call */
+    private static final Suit SUITS[] = Suit.values();
     /** suit of the card */
     private final Suit suit;
     /** rank of the card */
@@ -58,6 +64,19 @@ class Card {
         return rank.getValue();
     }
 
+    /**
+     * gets what this card adds to the Hi-Lo running count: +1 for two
+     * through six, 0 for seven through nine and -1 for tens and aces
+     * @return the Hi-Lo value of this card
+     */
+    public int getHiLoValue() {
+        int value = rank.getValue();
+        if(value >= 2 && value <= 6){
+            return 1;
+        }
+        return value >= 7 && value <= 9 ? 0 : -1;
+    }
+
     /**
      * determines if this card is an ace
      * @return if this card is an ace
@@ -128,6 +147,32 @@ class Card {
         return rank;
     }
 
+    /**
+     * getter for card's suit
+     * @return card's suit
+     */
+    public Suit getSuit() {
+        return suit;
+    }
+
+    /**
+     * gets a number identifying this card's rank and suit.  Used wherever cards
+     * are stored compactly.
+     * @return a code between 0 and NUMBER_OF_CODES-1
+     */
+    public int getCode() {
+        return rank.ordinal() * SUITS.length + suit.ordinal();
+    }
+
+    /**
+     * creates a face up card from its code
+     * @param code code returned by getCode()
+     * @return a new card with that rank and suit
+     */
+    public static Card fromCode(int code) {
+        return new Card(RANKS[code / SUITS.length], SUITS[code % SUITS.length]);
+    }
+
     /**
      * enum representing a card's suit
      */
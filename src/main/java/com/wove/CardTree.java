@@ -0,0 +1,297 @@
+package com.wove;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * List of cards that can insert and remove at any position in logarithmic
+ * time.  It is an implicit treap: a binary tree ordered by list position,
+ * kept balanced by random node priorities, where every node knows the size
+ * of its subtree.  Nodes are kept in parallel arrays rather than objects.
+ */
+class CardTree extends AbstractList<Card> {
+    /** node index meaning no node */
+    private static final int NIL = 0;
+
+    /** source of node priorities */
+    private final Random priorities;
+    /** left child of each node */
+    private int left[];
+    /** right child of each node */
+    private int right[];
+    /** nodes in the subtree of each node */
+    private int subtreeSize[];
+    /** heap priority of each node */
+    private int priority[];
+    /** card held by each node */
+    private Card cards[];
+    /** unused nodes, linked through left[] */
+    private int freeNodes;
+    /** nodes ever allocated, including NIL */
+    private int allocated;
+    /** root of the tree */
+    private int root;
+    /** results of split(), since Java cannot return two values */
+    private int splitLeft, splitRight;
+
+    /**
+     * creates an empty list
+     * @param capacity cards the list is expected to hold.  It grows past this if needed
+     */
+    public CardTree(int capacity){
+        priorities = new Random();
+        left = new int[capacity + 1];
+        right = new int[capacity + 1];
+        subtreeSize = new int[capacity + 1];
+        priority = new int[capacity + 1];
+        cards = new Card[capacity + 1];
+        allocated = 1;
+    }
+
+    @Override
+    public int size() {
+        return subtreeSize[root];
+    }
+
+    @Override
+    public Card get(int index) {
+        checkIndex(index, size());
+        int node = root;
+        while(true){
+            int leftSize = subtreeSize[left[node]];
+            if(index < leftSize){
+                node = left[node];
+            }else if(index == leftSize){
+                return cards[node];
+            }else{
+                index -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    /**
+     * walks the cards in order in linear time, where the iterator of
+     * AbstractList would look up every card from the root
+     * @return an iterator over the cards.  It does not support remove()
+     */
+    @Override
+    public Iterator<Card> iterator() {
+        return new Iterator<Card>() {
+            /** nodes whose card is still to come, the next one last */
+            private int stack[] = new int[64];
+            /** nodes on the stack */
+            private int depth;
+            /** modCount of the list when the iterator was made */
+            private final int expectedModCount = modCount;
+
+            {
+                pushLeftPath(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return depth > 0;
+            }
+
+            @Override
+            public Card next() {
+                if(modCount != expectedModCount){
+                    throw new ConcurrentModificationException();
+                }
+                if(depth == 0){
+                    throw new NoSuchElementException();
+                }
+                int node = stack[--depth];
+                pushLeftPath(right[node]);
+                return cards[node];
+            }
+
+            /**
+             * pushes a node and every left child below it
+             * @param node the node.  NIL pushes nothing
+             */
+            private void pushLeftPath(int node){
+                for(; node != NIL; node = left[node]){
+                    if(depth == stack.length){
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = node;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void add(int index, Card card) {
+        checkIndex(index, size() + 1);
+        int node = newNode(card);
+        split(root, index);
+        int rest = splitRight;
+        root = merge(merge(splitLeft, node), rest);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Card> added) {
+        return addAll(size(), added);
+    }
+
+    /**
+     * inserts many cards in time linear in their number.  The new cards are
+     * built into a treap of their own, each one taking the last card with a
+     * lower priority as its left child, and then merged in.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends Card> added) {
+        checkIndex(index, size() + 1);
+        //right edge of the treap built so far, from its root down
+        int edge[] = new int[64];
+        int depth = 0;
+        for(Card card : added){
+            int node = newNode(card);
+            int below = NIL;
+            while(depth > 0 && priority[edge[depth - 1]] < priority[node]){
+                below = edge[--depth];
+                update(below);
+            }
+            left[node] = below;
+            if(depth > 0){
+                right[edge[depth - 1]] = node;
+            }
+            if(depth == edge.length){
+                edge = Arrays.copyOf(edge, depth * 2);
+            }
+            edge[depth++] = node;
+        }
+        if(depth == 0){
+            return false;
+        }
+        while(depth > 1){
+            update(edge[--depth]);
+        }
+        update(edge[0]);
+        split(root, index);
+        int rest = splitRight;
+        root = merge(merge(splitLeft, edge[0]), rest);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Card remove(int index) {
+        checkIndex(index, size());
+        split(root, index);
+        int before = splitLeft;
+        split(splitRight, 1);
+        int removed = splitLeft;
+        root = merge(before, splitRight);
+        Card card = cards[removed];
+        cards[removed] = null;
+        left[removed] = freeNodes;
+        freeNodes = removed;
+        modCount++;
+        return card;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(cards, null);
+        root = NIL;
+        freeNodes = NIL;
+        allocated = 1;
+        modCount++;
+    }
+
+    /**
+     * splits a subtree into its first count cards and the rest, left in
+     * splitLeft and splitRight
+     * @param node root of the subtree
+     * @param count number of cards to go left
+     */
+    private void split(int node, int count){
+        if(node == NIL){
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+        if(subtreeSize[left[node]] >= count){
+            split(left[node], count);
+            left[node] = splitRight;
+            update(node);
+            splitRight = node;
+        }else{
+            split(right[node], count - subtreeSize[left[node]] - 1);
+            right[node] = splitLeft;
+            update(node);
+            splitLeft = node;
+        }
+    }
+
+    /**
+     * joins two subtrees where every card of a comes before every card of b
+     * @param a root of the first subtree
+     * @param b root of the second subtree
+     * @return root of the joined tree
+     */
+    private int merge(int a, int b){
+        if(a == NIL){
+            return b;
+        }
+        if(b == NIL){
+            return a;
+        }
+        if(priority[a] > priority[b]){
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private void update(int node){
+        subtreeSize[node] = subtreeSize[left[node]] + subtreeSize[right[node]] + 1;
+    }
+
+    /**
+     * takes an unused node, growing the arrays if there is none
+     * @param card card the node holds
+     * @return the node
+     */
+    private int newNode(Card card){
+        int node;
+        if(freeNodes != NIL){
+            node = freeNodes;
+            freeNodes = left[node];
+        }else{
+            if(allocated == cards.length){
+                int capacity = cards.length * 2;
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                subtreeSize = Arrays.copyOf(subtreeSize, capacity);
+                priority = Arrays.copyOf(priority, capacity);
+                cards = Arrays.copyOf(cards, capacity);
+            }
+            node = allocated++;
+        }
+        left[node] = NIL;
+        right[node] = NIL;
+        subtreeSize[node] = 1;
+        priority[node] = priorities.nextInt();
+        cards[node] = card;
+        return node;
+    }
+
+    private static void checkIndex(int index, int bound){
+        if(index < 0 || index >= bound){
+            throw new IndexOutOfBoundsException("index " + index + ", size " + bound);
+        }
+    }
+}
@@ -49,4 +49,19 @@ class CasinoRules {
     public static final int MAX_NUMBER_PLAYERS = 7;
 
     public static final int STARTING_MONEY = 1000;
+
+    public static final int PERFECT_PAIR_PAYOUT = 25;
+    public static final int COLORED_PAIR_PAYOUT = 12;
+    public static final int MIXED_PAIR_PAYOUT = 6;
+    public static final String PERFECT_PAIRS_STRING = "Perfect Pairs pays " + PERFECT_PAIR_PAYOUT + ", "
+            + COLORED_PAIR_PAYOUT + " or " + MIXED_PAIR_PAYOUT + " to 1 on a perfect, colored or mixed pair.";
+
+    public static final int SUITED_TRIPS_PAYOUT = 100;
+    public static final int STRAIGHT_FLUSH_PAYOUT = 40;
+    public static final int THREE_OF_A_KIND_PAYOUT = 30;
+    public static final int STRAIGHT_PAYOUT = 10;
+    public static final int FLUSH_PAYOUT = 5;
+    public static final String TWENTY_ONE_PLUS_THREE_STRING = "21+3 pays " + SUITED_TRIPS_PAYOUT + ", "
+            + STRAIGHT_FLUSH_PAYOUT + ", " + THREE_OF_A_KIND_PAYOUT + ", " + STRAIGHT_PAYOUT + " or " + FLUSH_PAYOUT
+            + " to 1 on suited trips, straight flush, trips, straight or flush.";
 }
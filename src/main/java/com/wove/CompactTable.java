@@ -0,0 +1,186 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The complete state of a Table packed into a handful of primitive arrays,
+ * for keeping many idle tables in memory.  A Table holds hundreds of small
+ * objects (a linked list node and a Card for every card in the shoe, lists
+ * of hands and cards for every seat) while a compact table is a few hundred
+ * bytes, most of them the remaining shoe at one byte per card.
+ *
+ * A table is compacted with compact() once it goes idle and turned back into
+ * a playable Table with inflate() when it is needed again.  Player names are
+ * shared with the original players, not copied.
+ */
+class CompactTable {
+    /** bit set on a card code while the card is face down */
+    private static final int FACE_DOWN = 0x80;
+    /** hand flag for hands that came from a split */
+    private static final int SPLIT_FLAG = 1;
+    /** hand flag for natural blackjacks */
+    private static final int NATURAL_FLAG = 2;
+
+    /** cards left in the shoe, top first */
+    private final byte shoe[];
+    /** Hi-Lo running count of the cards dealt from the shoe */
+    private final int runningCount;
+    /** seed of the shoe's source of randomness once the table is inflated */
+    private final long shuffleSeed;
+    /** name of the player in each seat */
+    private final String names[];
+    /** money of the player in each seat */
+    private final int money[];
+    /** splits this round of the player in each seat */
+    private final byte splits[];
+    /**
+     * every hand of the dealer and then of each seat.  For the dealer and each
+     * seat: number of hands, then for each hand its bet as four bytes, its flags,
+     * number of cards and card codes
+     */
+    private final byte hands[];
+    /** seat whose turn it is */
+    private final byte currentPlayer;
+    /** hand of that seat being played */
+    private final byte currentHand;
+    /** whether the round has been settled */
+    private final boolean roundOver;
+    /** whether the dealer's hole card came from the shoe still being dealt */
+    private final boolean holeCardFromCurrentShoe;
+
+    /**
+     * packs a table.  The table must not be used afterwards, since the seed of
+     * its deck's randomness is handed on to the compact copy.
+     * @param table the table to pack
+     */
+    public CompactTable(Table table){
+        Deck deck = table.getDeck();
+        int codes[] = deck.getCardCodes();
+        shoe = new byte[codes.length];
+        for(int i = 0; i < codes.length; i++){
+            shoe[i] = (byte) codes[i];
+        }
+        runningCount = deck.getRunningCount();
+        shuffleSeed = deck.takeSeed();
+        List<Player> players = table.getPlayers();
+        names = new String[players.size()];
+        money = new int[players.size()];
+        splits = new byte[players.size()];
+        Hand dealerHand = table.getDealer().getHand();
+        int size = dealerHand == null ? 1 : encodedSize(dealerHand.numberOfCards()) + 1;
+        for(int i = 0; i < names.length; i++){
+            Player player = players.get(i);
+            names[i] = player.getName();
+            money[i] = player.getMoney();
+            splits[i] = (byte) player.getNumberOfSplits();
+            size++;
+            for(Hand hand : player.getHands()){
+                size += encodedSize(hand.numberOfCards());
+            }
+        }
+        hands = new byte[size];
+        int position = dealerHand == null ? put(0, 0) : encode(dealerHand, put(0, 1));
+        for(Player player : players){
+            position = put(position, player.getHands().size());
+            for(Hand hand : player.getHands()){
+                position = encode(hand, position);
+            }
+        }
+        currentPlayer = (byte) table.getCurrentPlayerIndex();
+        currentHand = (byte) table.getCurrentHandIndex();
+        roundOver = table.isRoundOver();
+        holeCardFromCurrentShoe = table.getDealer().isHoleCardFromCurrentShoe();
+    }
+
+    /**
+     * rebuilds a playable table in exactly the packed state
+     * @return the new table
+     */
+    public Table inflate(){
+        int codes[] = new int[shoe.length];
+        for(int i = 0; i < shoe.length; i++){
+            codes[i] = shoe[i];
+        }
+        List<Player> players = new ArrayList<>();
+        for(int i = 0; i < names.length; i++){
+            players.add(new Player(names[i], money[i]));
+        }
+        Table table = new Table(players, new Deck(codes, runningCount, new Random(shuffleSeed)));
+        int position[] = {0};
+        Hand dealerHand = hands[position[0]++] == 0 ? null : decode(position);
+        for(int i = 0; i < names.length; i++){
+            List<Hand> seatHands = new ArrayList<>();
+            for(int h = hands[position[0]++]; h > 0; h--){
+                seatHands.add(decode(position));
+            }
+            players.get(i).restoreHands(seatHands, splits[i]);
+        }
+        table.restoreRound(dealerHand, holeCardFromCurrentShoe, currentPlayer, currentHand, roundOver);
+        return table;
+    }
+
+    /**
+     * gets the bytes one hand takes in the hands array
+     * @param numberOfCards cards in the hand
+     * @return bytes of the encoded hand
+     */
+    private static int encodedSize(int numberOfCards){
+        return 4 + 1 + 1 + numberOfCards;
+    }
+
+    /**
+     * writes a hand into the hands array
+     * @param hand the hand
+     * @param position where to write it
+     * @return the position after the hand
+     */
+    private int encode(Hand hand, int position){
+        int bet = hand.getBet();
+        for(int shift = 24; shift >= 0; shift -= 8){
+            position = put(position, bet >>> shift);
+        }
+        int flags = (hand.isSplitHand() ? SPLIT_FLAG : 0) | (hand.isNaturalBlackJack() ? NATURAL_FLAG : 0);
+        position = put(position, flags);
+        position = put(position, hand.numberOfCards());
+        for(int i = 0; i < hand.numberOfCards(); i++){
+            Card card = hand.getCard(i);
+            position = put(position, card.getCode() | (card.isVisible() ? 0 : FACE_DOWN));
+        }
+        return position;
+    }
+
+    /**
+     * reads a hand from the hands array
+     * @param position where the hand starts.  Moved past the hand
+     * @return the hand
+     */
+    private Hand decode(int position[]){
+        int bet = 0;
+        for(int i = 0; i < 4; i++){
+            bet = (bet << 8) | (hands[position[0]++] & 0xff);
+        }
+        int flags = hands[position[0]++];
+        int numberOfCards = hands[position[0]++];
+        Hand hand = new Hand(bet);
+        for(int i = 0; i < numberOfCards; i++){
+            int code = hands[position[0]++] & 0xff;
+            Card card = Card.fromCode(code & ~FACE_DOWN);
+            card.setVisibility((code & FACE_DOWN) == 0);
+            hand.addCard(card);
+        }
+        if((flags & SPLIT_FLAG) != 0){
+            hand.setSplitHand();
+        }
+        if((flags & NATURAL_FLAG) != 0){
+            hand.setNaturalBlackJack();
+        }
+        return hand;
+    }
+
+    private int put(int position, int value){
+        hands[position] = (byte) value;
+        return position + 1;
+    }
+}
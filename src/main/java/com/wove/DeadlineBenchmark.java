@@ -0,0 +1,116 @@
+package com.wove;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plays tables over HTTP with decision deadlines where one seat at every
+ * table has walked away.  The first seat acts at once, the second thinks for
+ * a while and the third never acts, so every one of its decisions waits for
+ * the deadline.  Reports the rounds each table manages per hour and the
+ * decision latencies of the seats at the first table.
+ */
+class DeadlineBenchmark {
+    /** finds the seat whose turn it is in a table's JSON */
+    private static final Pattern CURRENT_PLAYER = Pattern.compile("\"currentPlayer\":(\\d+)");
+    /** how long the second seat thinks */
+    private static final long THINK_MILLIS = 100;
+    /** how often a client looks at a table while waiting on the idle seat */
+    private static final long POLL_MILLIS = 25;
+
+    /**
+     * runs the benchmark.
+     * usage: deadline-benchmark [tables] [seconds] [timeout milliseconds] [stand|bot]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]) throws IOException, InterruptedException {
+        int numberOfTables = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        long timeoutMillis = args.length > 3 ? Long.parseLong(args[3]) : 500;
+        DecisionClock.DefaultAction defaultAction = args.length > 4
+                ? DecisionClock.DefaultAction.valueOf(args[4].toUpperCase()) : DecisionClock.DefaultAction.STAND;
+
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 512);
+        ExecutorService serverExecutor = Executors.newCachedThreadPool();
+        TableServer server = new TableServer(0, serverExecutor);
+        server.setDecisionDeadlines(wheel, timeoutMillis, timeoutMillis / 2, defaultAction);
+        server.start();
+        final String base = "http://localhost:" + server.getPort() + "/tables";
+        final AtomicLong rounds = new AtomicLong();
+        final AtomicLong warningsSeen = new AtomicLong();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService clients = Executors.newFixedThreadPool(numberOfTables);
+        for(int t = 0; t < numberOfTables; t++){
+            final String table = base + "/" + (t + 1);
+            TableServerBenchmark.request("POST", base + "?names=Fast,Slow,Idle");
+            clients.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try{
+                        while(System.nanoTime() < end){
+                            String state = TableServerBenchmark.request("POST", table + "/bets?amounts=10,10,10");
+                            while(!state.contains("\"roundOver\":true")){
+                                Matcher seat = CURRENT_PLAYER.matcher(state);
+                                seat.find();
+                                switch(Integer.parseInt(seat.group(1))){
+                                    case 0:
+                                        state = stand(table, state);
+                                        break;
+                                    case 1:
+                                        Thread.sleep(THINK_MILLIS);
+                                        state = stand(table, state);
+                                        break;
+                                    default:
+                                        Thread.sleep(POLL_MILLIS);
+                                        state = TableServerBenchmark.request("GET", table);
+                                        if(state.contains("\"warning\":true")){
+                                            warningsSeen.incrementAndGet();
+                                        }
+                                        break;
+                                }
+                            }
+                            rounds.incrementAndGet();
+                        }
+                    }catch (IOException e){
+                        System.out.println(table + ": " + e.getMessage());
+                    }catch (InterruptedException e){
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        System.out.printf("%d tables, %dms deadline, %s when it passes: %.0f rounds per table per hour, "
+                        + "%d warnings seen while polling%n", numberOfTables, timeoutMillis,
+                defaultAction.name().toLowerCase(), rounds.get() * 3600.0 / seconds / numberOfTables,
+                warningsSeen.get());
+        System.out.println(TableServerBenchmark.request("GET", base + "/1/decisions"));
+        server.stop();
+        serverExecutor.shutdown();
+        wheel.stop();
+    }
+
+    /**
+     * stands on the current hand.  If the deadline got there first the
+     * request is refused, and the table is read again instead.
+     * @param table url of the table
+     * @param state last known state of the table
+     * @return the new state of the table
+     */
+    private static String stand(String table, String state) throws IOException {
+        try{
+            return TableServerBenchmark.request("POST", table + "/actions?action=STAND");
+        }catch (IOException e){
+            if(e.getMessage().startsWith("status 409")){
+                return TableServerBenchmark.request("GET", table);
+            }
+            throw e;
+        }
+    }
+}
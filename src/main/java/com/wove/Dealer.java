@@ -2,28 +2,115 @@ package com.wove;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * class to represent the dealer in Blackjack
  */
 class Dealer extends HandHolder{
+    /** source of table identifiers */
+    private static final AtomicInteger TABLE_IDS = new AtomicInteger(1);
+
+    /** identifies this dealer's table in flight recorder events */
+    private int tableId;
     /** reference to the players at the table */
     private final List<Player> players;
     /** the dealer's hand */
     private Hand hand;
+    /** shoe of the deck the hole card was dealt from, see Deck.getShoeNumber() */
+    private long holeCardShoe;
     /** the deck of cards.  Composed of more than one standard deck*/
     private final Deck deck;
     /** a reference to the person the dealer will give the next card to
      * used when dealing cards only.  Not when hitting */
     private HandHolder currentHandHolderBeingDealt;
+    /** ledger every round is settled into. null if there is none */
+    private HouseLedger ledger;
+    /** money of each player before their bet this round, used to settle into the ledger */
+    private long moneyBeforeRound[];
+    /** leaderboard updated with every player's money after each round. null if there is none */
+    private Leaderboard leaderboard;
 
     /**
      * creates a new instance of a dealer who has a reference to each player
      * @param players players the dealer deals to
      */
     public Dealer(List<Player> players){
+        this(players, new Deck());
+    }
+
+    /**
+     * creates a new instance of a dealer who deals from the given deck
+     * @param players players the dealer deals to
+     * @param deck the deck of cards to deal from
+     */
+    public Dealer(List<Player> players, Deck deck){
         this.players = players;
-        deck = new Deck();
+        this.deck = deck;
+        this.tableId = TABLE_IDS.getAndIncrement();
+        deck.setTableId(tableId);
+    }
+
+    /**
+     * creates a copy of a dealer that only holds a hand, for drawing a table
+     * apart from the game.  It has no deck, so it cannot deal, and no table
+     * id, so it takes none from the tables being played
+     * @param players players whose hands are drawn next to the dealer's
+     * @param hand the dealer's hand.  null before the first round
+     */
+    Dealer(List<Player> players, Hand hand){
+        this.players = players;
+        this.deck = null;
+        this.hand = hand;
+    }
+
+    /**
+     * getter for the identifier of this dealer's table in flight recorder events
+     * @return the table identifier
+     */
+    public int getTableId() {
+        return tableId;
+    }
+
+    /**
+     * gives the dealer the table id of a table restored from a snapshot, so
+     * its flight recorder events carry the same id as before.  Tables created
+     * afterwards get ids above it
+     * @param tableId the table identifier
+     */
+    void restoreTableId(int tableId){
+        this.tableId = tableId;
+        deck.setTableId(tableId);
+        while(true){
+            int next = TABLE_IDS.get();
+            if(next > tableId || TABLE_IDS.compareAndSet(next, tableId + 1)){
+                break;
+            }
+        }
+    }
+
+    /**
+     * getter for the deck the dealer deals from
+     * @return the deck
+     */
+    Deck getDeck() {
+        return deck;
+    }
+
+    /**
+     * makes the dealer settle every round into a shared ledger
+     * @param ledger the ledger
+     */
+    void setLedger(HouseLedger ledger){
+        this.ledger = ledger;
+    }
+
+    /**
+     * makes the dealer post every player's money to a leaderboard after each round
+     * @param leaderboard the leaderboard
+     */
+    void setLeaderboard(Leaderboard leaderboard){
+        this.leaderboard = leaderboard;
     }
 
     /**
@@ -81,6 +168,15 @@ class Dealer extends HandHolder{
         return hand;
     }
 
+    /**
+     * gets the dealer's face up card.  The first card the dealer deals
+     * themself is face down, so this is the second card.
+     * @return the dealer's face up card
+     */
+    public Card getUpCard() {
+        return hand.getCard(1);
+    }
+
     @Override
     public List<Hand> getHands() {
         List<Hand> hands = new LinkedList<>();
@@ -107,8 +203,11 @@ class Dealer extends HandHolder{
         int dealerHandValue = hand.getValue();
         boolean dealerBust = hand.isBust();
 
+        boolean recordSettlements = FlightEvents.isEnabled(FlightEvents.Kind.SETTLEMENT);
         //Iterate through every player's hands
-        for (Player player : players){
+        for (int seat = 0; seat < players.size(); seat++){
+            Player player = players.get(seat);
+            int paid = 0;
             for (Hand playerHand : player.getHands()){
                 if(hasBlackjack()) {
                     if (playerHand.getValue() < dealerHandValue) {
@@ -128,16 +227,73 @@ class Dealer extends HandHolder{
                     }
                 }
                 player.addMoney(playerHand.getBet());
+                paid += playerHand.getBet();
+            }
+            if(recordSettlements){
+                FlightEvents.record(FlightEvents.Kind.SETTLEMENT, tableId, seat, paid);
+            }
+        }
+        if(ledger != null && moneyBeforeRound != null){
+            settleIntoLedger();
+        }
+        if(leaderboard != null){
+            for(Player player : players){
+                leaderboard.update(player.getName(), player.getMoney());
             }
         }
     }
 
+    /**
+     * settles what each player won or lost this round into the ledger
+     */
+    private void settleIntoLedger(){
+        String names[] = new String[players.size()];
+        long winnings[] = new long[players.size()];
+        for(int i = 0; i < players.size(); i++){
+            Player player = players.get(i);
+            names[i] = player.getName();
+            winnings[i] = player.getMoney() - moneyBeforeRound[i];
+        }
+        ledger.settleRound(names, winnings);
+    }
+
     /**
      * initialize the dealer for the new round
      */
     public void startRound() {
         hand = new Hand(0);
         currentHandHolderBeingDealt = players.get(0);
+        if(ledger != null){
+            //players have already placed their bets, so add them back
+            moneyBeforeRound = new long[players.size()];
+            for(int i = 0; i < players.size(); i++){
+                Player player = players.get(i);
+                moneyBeforeRound[i] = player.getMoney() + player.getHands().get(0).getBet()
+                        + player.getOpenSideBetStakes();
+            }
+        }
+    }
+
+    /**
+     * replaces the dealer's hand once all cards of a round have been handed
+     * out, used when a dealer is rebuilt from a copy
+     * @param hand the dealer's hand.  null if no round has been played
+     * @param holeCardFromCurrentShoe false if the hole card was dealt before the deck last reshuffled
+     */
+    void restoreHand(Hand hand, boolean holeCardFromCurrentShoe) {
+        this.hand = hand;
+        this.holeCardShoe = deck.getShoeNumber() - (holeCardFromCurrentShoe ? 0 : 1);
+        currentHandHolderBeingDealt = players.isEmpty() ? null : players.get(0);
+    }
+
+    /**
+     * determines if the hole card was dealt from the shoe the deck is dealing
+     * now.  A round that runs into the cut card reshuffles after the hole card
+     * is dealt, and the new shoe's running count never included it.
+     * @return false if the deck has reshuffled since the hole card was dealt
+     */
+    public boolean isHoleCardFromCurrentShoe() {
+        return holeCardShoe == deck.getShoeNumber();
     }
 
     /**
@@ -162,9 +318,14 @@ class Dealer extends HandHolder{
         if(currentHandHolderBeingDealt.equals(this) && hand.numberOfCards() == 0){
             Card card = deck.getCard();
             card.setVisibility(false);
+            holeCardShoe = deck.getShoeNumber();
             currentHand.addCard(card);
         }else {
             currentHand.addCard(deck.getCard());
+            //the up card is the last card dealt, so every side bet can be settled now
+            if(currentHandHolderBeingDealt.equals(this)){
+                settleSideBets();
+            }
         }
         //if dealer just dealt himself, deal player 1 again
         if(currentHandHolderBeingDealt.equals(this)){
@@ -181,6 +342,23 @@ class Dealer extends HandHolder{
         }
     }
 
+    /**
+     * settles the open side bets of every player on their first two cards and the up card
+     */
+    private void settleSideBets() {
+        int upCard = getUpCard().getCode();
+        for(Player player : players){
+            for(SideBet sideBet : SideBet.values()){
+                if(player.isSideBetOpen(sideBet)){
+                    Hand playerHand = player.getHands().get(0);
+                    int payout = sideBet.payout(playerHand.getCard(0).getCode(), playerHand.getCard(1).getCode(), upCard);
+                    int stake = player.getSideBet(sideBet);
+                    player.settleSideBet(sideBet, payout == 0 ? 0 : stake * (payout + 1));
+                }
+            }
+        }
+    }
+
     /**
      * Pay each player who has a natural blackjack the appropriate amount
      */
@@ -0,0 +1,285 @@
+package com.wove;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every decision at a table a deadline, so one seat that stops
+ * responding cannot hold up everyone else.  Each decision arms a warning and
+ * an expiry on a shared TimerWheel.  If the expiry fires before anyone acts,
+ * the default action is played for the seat and the table moves on.  How
+ * long every seat takes to decide is kept in a histogram per seat.
+ *
+ * The table object is the lock: call every method while holding it, as the
+ * timer tasks do.
+ *
+ * A game that waits for each decision itself, like the terminal game, uses
+ * a clock without a table or wheel: it calls start() as a decision begins,
+ * waits no longer than getMillisLeft() and calls runOut() if that reaches 0.
+ */
+class DecisionClock {
+
+    /**
+     * what is played for a seat that runs out of time
+     */
+    enum DefaultAction {
+        /** stand on the hand */
+        STAND,
+        /** whatever basic strategy would do */
+        BOT
+    }
+
+    /** the table, which is also the lock.  null for a game that waits on its decisions itself */
+    private final Table table;
+    /** wheel the deadlines are scheduled on.  null without a table */
+    private final TimerWheel wheel;
+    /** name of the player in each seat */
+    private final String names[];
+    /** time a seat has to decide */
+    private final long timeoutMillis;
+    /** how long before the deadline the warning is given */
+    private final long warningMillis;
+    /** what is played when time runs out */
+    private final DefaultAction defaultAction;
+    /** strategy used for DefaultAction.BOT */
+    private final Strategy bot;
+    /** decision latency of each seat */
+    private final LatencyHistogram seatLatencies[];
+    /** decisions made by the default action for each seat */
+    private final long timedOut[];
+    /** number of the decision currently armed.  Timer tasks for older decisions do nothing */
+    private long decision;
+    /** whether a decision is being timed */
+    private boolean pending;
+    /** seat of the armed decision */
+    private int decisionSeat;
+    /** when the armed decision started */
+    private long decisionStartNanos;
+    /** whether the warning of the armed decision has been given */
+    private boolean warned;
+    /** pending warning of the armed decision */
+    private TimerWheel.Timeout warning;
+    /** pending expiry of the armed decision */
+    private TimerWheel.Timeout expiry;
+
+    /**
+     * creates a clock for a table.  Call rearm() whenever the table may be waiting on a new decision
+     * @param table the table
+     * @param wheel wheel to schedule deadlines on, shared with other tables
+     * @param timeoutMillis time a seat has to decide
+     * @param warningMillis how long before the deadline to warn the seat
+     * @param defaultAction what to play when time runs out
+     */
+    public DecisionClock(Table table, TimerWheel wheel, long timeoutMillis, long warningMillis,
+                         DefaultAction defaultAction){
+        this(table, wheel, table.getPlayers(), timeoutMillis, warningMillis, defaultAction);
+    }
+
+    /**
+     * creates a clock for a game that waits on its decisions itself.  Call
+     * start() whenever a decision begins
+     * @param players the players of the game
+     * @param timeoutMillis time a seat has to decide
+     * @param warningMillis how long before the deadline to warn the seat
+     * @param defaultAction what to play when time runs out
+     */
+    public DecisionClock(List<Player> players, long timeoutMillis, long warningMillis,
+                         DefaultAction defaultAction){
+        this(null, null, players, timeoutMillis, warningMillis, defaultAction);
+    }
+
+    private DecisionClock(Table table, TimerWheel wheel, List<Player> players, long timeoutMillis,
+                          long warningMillis, DefaultAction defaultAction){
+        if(timeoutMillis <= 0 || warningMillis < 0 || warningMillis > timeoutMillis){
+            throw new IllegalArgumentException("the warning must come within a positive timeout");
+        }
+        this.table = table;
+        this.wheel = wheel;
+        this.timeoutMillis = timeoutMillis;
+        this.warningMillis = warningMillis;
+        this.defaultAction = defaultAction;
+        this.bot = new BasicStrategy();
+        int seats = players.size();
+        names = new String[seats];
+        for(int i = 0; i < seats; i++){
+            names[i] = players.get(i).getName();
+        }
+        seatLatencies = new LatencyHistogram[seats];
+        for(int i = 0; i < seats; i++){
+            seatLatencies[i] = new LatencyHistogram();
+        }
+        timedOut = new long[seats];
+    }
+
+    /**
+     * cancels the deadline of the last decision and, if the table is waiting
+     * on a player, starts the deadline of the new one
+     */
+    public void rearm(){
+        if(warning != null){
+            warning.cancel();
+            expiry.cancel();
+            warning = null;
+            expiry = null;
+        }
+        final long armed = ++decision;
+        pending = false;
+        if(table.isRoundOver()){
+            return;
+        }
+        start(table.getCurrentPlayerIndex());
+        warning = wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (table){
+                    if(armed == decision){
+                        warned = true;
+                    }
+                }
+            }
+        }, timeoutMillis - warningMillis, TimeUnit.MILLISECONDS);
+        expiry = wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (table){
+                    if(armed == decision){
+                        expire();
+                    }
+                }
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * starts timing a decision of a seat
+     * @param seat the seat
+     */
+    public void start(int seat){
+        decisionSeat = seat;
+        decisionStartNanos = System.nanoTime();
+        warned = false;
+        pending = true;
+    }
+
+    /**
+     * records that the seat decided in time.  Call after the action was
+     * performed.  Does nothing if the seat already ran out of time
+     */
+    public void decided(){
+        if(pending){
+            seatLatencies[decisionSeat].record(System.nanoTime() - decisionStartNanos);
+        }
+        if(table != null){
+            rearm();
+        }else{
+            pending = false;
+        }
+    }
+
+    /**
+     * plays the default action for the seat that ran out of time
+     */
+    private void expire(){
+        table.performAction(runOut(table.getCurrentHand(), table.getDealer().getUpCard(), table.getTrueCount(),
+                table.getAvailableActions()));
+        rearm();
+    }
+
+    /**
+     * records that the seat of the current decision ran out of time and
+     * chooses the default action for it
+     * @param hand the hand being decided on
+     * @param dealerUpCard the dealer's face up card
+     * @param trueCount the true count the seat could know
+     * @param availableActions actions allowed on the hand
+     * @return the action to play
+     */
+    public PlayerAction runOut(Hand hand, Card dealerUpCard, double trueCount, Set<PlayerAction> availableActions){
+        PlayerAction action = PlayerAction.STAND;
+        if(defaultAction == DefaultAction.BOT){
+            action = bot.chooseAction(hand, dealerUpCard, trueCount, availableActions);
+        }
+        timedOut[decisionSeat]++;
+        seatLatencies[decisionSeat].record(System.nanoTime() - decisionStartNanos);
+        pending = false;
+        return action;
+    }
+
+    /**
+     * getter for how long before the deadline a seat is warned
+     * @return the warning time in milliseconds
+     */
+    public long getWarningMillis(){
+        return warningMillis;
+    }
+
+    /**
+     * gets the time left for the current decision
+     * @return milliseconds until the default action is played, or -1 if no decision is pending
+     */
+    public long getMillisLeft(){
+        if(!pending || (table != null && table.isRoundOver())){
+            return -1;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - decisionStartNanos);
+        return Math.max(0, timeoutMillis - elapsed);
+    }
+
+    /**
+     * determines if the current decision is close to its deadline
+     * @return whether the warning has been given
+     */
+    public boolean isWarned(){
+        return warned;
+    }
+
+    /**
+     * writes the deadline of the current decision as members of the table's JSON object
+     * @param json where to write them
+     */
+    public void writeDeadline(JsonWriter json){
+        long left = getMillisLeft();
+        if(left >= 0){
+            json.name("millisLeft").value(left);
+            json.name("warning").value(warned);
+        }
+    }
+
+    /**
+     * prints every seat's decision latency percentiles and timeouts, one seat a line
+     * @param out where to print them
+     */
+    public void printLatencies(PrintStream out){
+        for(int i = 0; i < seatLatencies.length; i++){
+            LatencyHistogram latencies = seatLatencies[i];
+            out.printf("%-10s %4d decisions, %3d timed out, p50 %.1fs, p99 %.1fs, max %.1fs%n", names[i],
+                    latencies.getCount(), timedOut[i], latencies.getPercentile(50) / 1e9,
+                    latencies.getPercentile(99) / 1e9, latencies.getPercentile(100) / 1e9);
+        }
+    }
+
+    /**
+     * writes every seat's decision latency percentiles and timeouts
+     * @param json where to write them
+     */
+    public void writeLatencies(JsonWriter json){
+        json.beginObject();
+        json.name("timeoutMillis").value(timeoutMillis);
+        json.name("seats").beginArray();
+        for(int i = 0; i < seatLatencies.length; i++){
+            LatencyHistogram latencies = seatLatencies[i];
+            json.beginObject();
+            json.name("name").value(names[i]);
+            json.name("decisions").value(latencies.getCount());
+            json.name("timedOut").value(timedOut[i]);
+            json.name("p50Micros").value(latencies.getPercentile(50) / 1000);
+            json.name("p99Micros").value(latencies.getPercentile(99) / 1000);
+            json.name("maxMicros").value(latencies.getPercentile(100) / 1000);
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+    }
+}
@@ -1,8 +1,9 @@
 package com.wove;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * class representing the deck of all cards used by the dealer.  May contain
@@ -11,6 +12,13 @@ import java.util.List;
  *
  * Also an important thing to note is that this deck auto resets and shuffles
  * when there are only 25% of the original cards left.
+ *
+ * A deck can instead model a continuous shuffling machine.  Then it never
+ * resets; the cards of every round are put back at random positions with
+ * returnCard() and drawing and returning both take logarithmic time.
+ *
+ * A deck can also take its shoes from a ShoePool, which shuffles them in the
+ * background.  Reaching the cut card then only swaps in the next shoe.
  */
 class Deck {
     /** Number of cards in a standard playing deck */
@@ -18,22 +26,209 @@ class Deck {
     /** number of cards in our combined deck */
     public static final int CARDS_PER_SUPER_DECK = CARDS_PER_SINGLE_DECK * CasinoRules.NUMBER_OF_DECKS;
     /** list holding all cards in deck. The first card in the list is the top of the deck */
-    private final List<Card> cards;
+    private List<Card> cards;
+    /** source of randomness for every shuffle of this deck */
+    private final Random random;
+    /** Hi-Lo running count of the cards dealt since the last shuffle and not returned */
+    private int runningCount;
+    /** whether dealt cards are returned at random positions instead of reshuffling the deck */
+    private final boolean continuousShuffling;
+    /** where new shoes come from when this deck runs low. null to reshuffle in place */
+    private final ShoePool pool;
+    /** table the deck deals at, for flight recorder events */
+    private int tableId;
+    /** whether every new shoe is shuffled from a seed of its own, see seedShoes() */
+    private boolean seededShoes;
+    /** seed the next shoe is shuffled from.  Only used when seededShoes is set */
+    private long nextShoeSeed;
+    /** told about every new shoe.  null if the shoes are not being recorded */
+    private ShoeRecorder recorder;
+    /** shoes started since the deck was created, the first one being 0 */
+    private long shoeNumber;
 
     /**
      * create a new deck object with no cards in it.
      */
     public Deck(){
-        cards = new LinkedList<>();
+        this(new Random());
+    }
+
+    /**
+     * creates a new shuffled deck that draws all of its shuffles from the given
+     * random source.  Two decks made from identically seeded sources deal the
+     * exact same cards, which lets simulations compare strategies on the same shoes.
+     * @param random source of randomness used for shuffling
+     */
+    public Deck(Random random){
+        this(random, false);
+    }
+
+    /**
+     * creates a deck that takes every shoe, including the first, from a pool
+     * of shoes shuffled in the background
+     * @param pool the pool
+     */
+    public Deck(ShoePool pool){
+        this.random = new Random();
+        this.continuousShuffling = false;
+        this.pool = pool;
+        cards = pool.take();
+    }
+
+    /**
+     * creates a new shuffled deck, optionally modelling a continuous shuffling machine
+     * @param random source of randomness used for shuffling
+     * @param continuousShuffling whether dealt cards are returned with returnCard()
+     *                            instead of the deck being reshuffled when it runs low
+     */
+    public Deck(Random random, boolean continuousShuffling){
+        this.random = random;
+        this.continuousShuffling = continuousShuffling;
+        this.pool = null;
+        cards = continuousShuffling ? new CardTree(CARDS_PER_SUPER_DECK) : new LinkedList<Card>();
         resetDeck();
         shuffleDeck();
     }
 
+    /**
+     * creates a deck that deals exactly the given cards first, for replaying a
+     * recorded shoe.  Once it runs low it resets and shuffles like any other deck.
+     * @param cardCodes codes of the cards from the top of the deck down
+     * @param random source of randomness used for later shuffles
+     */
+    public Deck(int cardCodes[], Random random){
+        this(cardCodes, 0, random);
+    }
+
+    /**
+     * creates a deck that continues a shoe part way through, with the given
+     * cards left and the given count of the cards already dealt
+     * @param cardCodes codes of the cards left from the top of the deck down
+     * @param runningCount Hi-Lo running count of the cards already dealt
+     * @param random source of randomness used for later shuffles
+     */
+    public Deck(int cardCodes[], int runningCount, Random random){
+        this(cardCodes, runningCount, random, false);
+    }
+
+    /**
+     * creates a deck that continues a shoe part way through, optionally as a
+     * continuous shuffling machine holding exactly the given cards
+     * @param cardCodes codes of the cards left from the top of the deck down
+     * @param runningCount Hi-Lo running count of the cards already dealt
+     * @param random source of randomness used for later shuffles
+     * @param continuousShuffling whether dealt cards are returned with returnCard()
+     */
+    public Deck(int cardCodes[], int runningCount, Random random, boolean continuousShuffling){
+        this.random = random;
+        this.continuousShuffling = continuousShuffling;
+        this.pool = null;
+        this.runningCount = runningCount;
+        Card restored[] = new Card[cardCodes.length];
+        for(int i = 0; i < cardCodes.length; i++){
+            restored[i] = Card.fromCode(cardCodes[i]);
+        }
+        cards = continuousShuffling ? new CardTree(CARDS_PER_SUPER_DECK) : new LinkedList<Card>();
+        cards.addAll(Arrays.asList(restored));
+    }
+
+    /**
+     * takes a seed from this deck's source of randomness.  A deck rebuilt with
+     * new Random(seed) shuffles just as unpredictably as this one would have.
+     * @return a seed for the source of randomness of a copy of this deck
+     */
+    public long takeSeed(){
+        return random.nextLong();
+    }
+
+    /**
+     * like takeSeed() but leaves this deck usable: its source of randomness is
+     * reseeded with the seed it hands out, so this deck and a copy rebuilt with
+     * new Random(seed) go on to shuffle exactly alike
+     * @return a seed for the source of randomness of a copy of this deck
+     */
+    public long forkSeed(){
+        long seed = random.nextLong();
+        random.setSeed(seed);
+        return seed;
+    }
+
+    /**
+     * makes every later shoe shuffle from a seed of its own instead of from
+     * this deck's source of randomness.  Each shoe's seed is drawn from the
+     * shoe before it, so a deck given just the seed of one shoe deals that
+     * shoe and every shoe after it exactly like this one.
+     * @param firstSeed seed of the next shoe
+     */
+    void seedShoes(long firstSeed){
+        if(pool != null || continuousShuffling){
+            throw new IllegalStateException("only a deck that shuffles its own shoes can seed them");
+        }
+        seededShoes = true;
+        nextShoeSeed = firstSeed;
+    }
+
+    /**
+     * determines if every new shoe is shuffled from a seed of its own
+     * @return whether seedShoes() has been called
+     */
+    boolean hasSeededShoes(){
+        return seededShoes;
+    }
+
+    /**
+     * getter for the seed the next shoe will be shuffled from
+     * @return the seed.  Only meaningful if hasSeededShoes()
+     */
+    long getNextShoeSeed(){
+        return nextShoeSeed;
+    }
+
+    /**
+     * has a recorder told about every new shoe.  The deck must have seeded shoes
+     * @param recorder the recorder
+     */
+    void setShoeRecorder(ShoeRecorder recorder){
+        this.recorder = recorder;
+    }
+
+    /**
+     * gets the codes of the cards left in the deck, from the top down.  Used
+     * to record a shoe so it can be replayed later.
+     * @return the card codes
+     */
+    public int[] getCardCodes(){
+        int codes[] = new int[cards.size()];
+        int i = 0;
+        for(Card card : cards){
+            codes[i++] = card.getCode();
+        }
+        return codes;
+    }
+
+    /**
+     * adds the cards left in the deck to counts by value, without copying the deck
+     * @param counts counts indexed by value, 1 for aces and 10 for tens
+     */
+    void countRemaining(int counts[]){
+        for(Card card : cards){
+            counts[card.getMinValue()]++;
+        }
+    }
+
     /**
      * add all cards to the deck
      */
     private void resetDeck(){
         cards.clear();
+        addAllCards(cards);
+    }
+
+    /**
+     * adds one of every card of every deck to a list
+     * @param cards the list
+     */
+    private static void addAllCards(List<Card> cards){
         for(int i = 0; i < CasinoRules.NUMBER_OF_DECKS; i++){
             for(Card.Rank rank : Card.Rank.values()){
                 for(Card.Suit suit : Card.Suit.values()){
@@ -47,8 +242,41 @@ class Deck {
      * shuffle all the cards in this deck
      */
     private void shuffleDeck(){
-        Collections.shuffle(cards);
+        shuffle(cards, random);
+    }
 
+    /**
+     * creates a full shoe, shuffled
+     * @param random source of randomness for the shuffle
+     * @return the shoe, top card first
+     */
+    static List<Card> shuffledShoe(Random random){
+        List<Card> shoe = new LinkedList<>();
+        addAllCards(shoe);
+        shuffle(shoe, random);
+        return shoe;
+    }
+
+    /**
+     * shuffles a list of cards in place
+     * @param cards the cards
+     * @param random source of randomness for the shuffle
+     */
+    private static void shuffle(List<Card> cards, Random random){
+        /*
+        Fisher-Yates on an array copy.  The swap position is taken from nextDouble()
+        rather than nextInt(bound) so that it is monotone in the underlying random
+        number, which is what lets an AntitheticRandom produce the mirrored shoe.
+         */
+        Card shuffled[] = cards.toArray(new Card[cards.size()]);
+        for(int i = shuffled.length - 1; i > 0; i--){
+            int j = (int)(random.nextDouble() * (i + 1));
+            Card temp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = temp;
+        }
+        cards.clear();
+        cards.addAll(Arrays.asList(shuffled));
     }
 
     /**
@@ -56,11 +284,96 @@ class Deck {
      * @return the top card of the deck.
      */
     public Card getCard(){
-        if(cards.size() < CARDS_PER_SUPER_DECK  / 4){
-            resetDeck();
-            shuffleDeck();
+        if(continuousShuffling){
+            if(cards.isEmpty()){
+                throw new IllegalStateException("every card is out of the shuffling machine");
+            }
+        }else if(cards.size() < CARDS_PER_SUPER_DECK  / 4){
+            Object event = FlightEvents.begin(FlightEvents.Kind.RESHUFFLE);
+            int cardsLeft = cards.size();
+            if(pool != null){
+                cards = pool.take();
+            }else if(seededShoes){
+                long seed = nextShoeSeed;
+                Random shoeRandom = new Random(seed);
+                resetDeck();
+                shuffle(cards, shoeRandom);
+                nextShoeSeed = shoeRandom.nextLong();
+                if(recorder != null){
+                    recorder.shoeShuffled(seed);
+                }
+            }else{
+                resetDeck();
+                shuffleDeck();
+            }
+            runningCount = 0;
+            shoeNumber++;
+            if(event != null){
+                FlightEvents.commit(event, tableId, cardsLeft, pool != null);
+            }
+        }
+        Card card = cards.remove(0);
+        runningCount += card.getHiLoValue();
+        return card;
+    }
+
+    /**
+     * getter for the number of the shoe being dealt.  Cards dealt while the
+     * number was the same came from the same shoe; the running count only
+     * covers cards dealt from the current shoe.
+     * @return shoes started before the current one since the deck was created
+     */
+    public long getShoeNumber(){
+        return shoeNumber;
+    }
+
+    /**
+     * sets the table the deck deals at, for flight recorder events
+     * @param tableId the table identifier
+     */
+    void setTableId(int tableId){
+        this.tableId = tableId;
+    }
+
+    /**
+     * determines if this deck models a continuous shuffling machine
+     * @return whether cards must be returned with returnCard()
+     */
+    public boolean isContinuousShuffling(){
+        return continuousShuffling;
+    }
+
+    /**
+     * puts a dealt card back into a continuous shuffling machine at a random
+     * position.  The card is unseen again, so it leaves the running count.
+     * @param card the card, which must have come from this deck
+     */
+    public void returnCard(Card card){
+        if(!continuousShuffling){
+            throw new IllegalStateException("only a continuous shuffling machine takes cards back");
         }
-        return cards.remove(0);
+        card.setVisibility(true);
+        cards.add(random.nextInt(cards.size() + 1), card);
+        runningCount -= card.getHiLoValue();
+    }
+
+    /**
+     * gets the Hi-Lo running count of every card dealt since the deck was
+     * last shuffled, including cards that are still face down.  Cards put back
+     * into a continuous shuffling machine no longer count, so its count is 0
+     * between rounds.
+     * @return the running count
+     */
+    public int getRunningCount(){
+        return runningCount;
+    }
+
+    /**
+     * gets the number of cards left before the deck would be shuffled
+     * @return number of cards left in the deck
+     */
+    public int cardsRemaining(){
+        return cards.size();
     }
 
 }
@@ -0,0 +1,291 @@
+package com.wove;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the best action for each hand against each dealer face up card at
+ * every true count, under the rules in CasinoRules.
+ *
+ * For a cell (a starting hand and a face up card) and a true count, many
+ * count-conditioned shoes are built: half the shoe is removed with a Hi-Lo
+ * running count that gives exactly that true count for the remaining half.
+ * Each candidate first action is played on the very same shoe, with basic
+ * strategy for any later decisions, so the comparison between candidates is
+ * not drowned out by shoe to shoe noise.  Cells are spread over a fork/join pool.
+ */
+class DeviationOptimizer {
+    /** decks left in a count-conditioned shoe */
+    static final int DECKS_REMAINING = 2;
+    /** bet placed on every evaluated hand */
+    private static final int BET = 10;
+
+    /** shoes evaluated per cell and true count */
+    private final int trials;
+    /** seed every shoe is derived from */
+    private final long seed;
+
+    /**
+     * creates an optimizer
+     * @param trials shoes evaluated per cell and true count
+     * @param seed seed every shoe is derived from
+     */
+    public DeviationOptimizer(int trials, long seed){
+        this.trials = trials;
+        this.seed = seed;
+    }
+
+    /**
+     * finds the best actions for the standard set of cells: hard 8 to 17,
+     * soft 13 to 20 and every pair, against every face up card
+     * @param pool pool to evaluate the cells on
+     * @return the best actions by true count
+     */
+    public DeviationTable optimize(ForkJoinPool pool){
+        List<int[]> cells = new ArrayList<>();
+        for(int upCard = 1; upCard <= RoundStatistics.NUMBER_OF_UP_CARDS; upCard++){
+            //hard totals are made of a ten and the rest, or a two and the rest below 12
+            for(int total = 8; total <= 11; total++){
+                cells.add(new int[]{total - 2, 2, upCard});
+            }
+            for(int total = 12; total <= 17; total++){
+                cells.add(new int[]{10, total - 10, upCard});
+            }
+            for(int total = 13; total <= 20; total++){
+                cells.add(new int[]{1, total - 11, upCard});
+            }
+            for(int pair = 1; pair <= 10; pair++){
+                cells.add(new int[]{pair, pair, upCard});
+            }
+        }
+        DeviationTable table = new DeviationTable();
+        pool.invoke(new CellTask(cells, 0, cells.size(), table));
+        return table;
+    }
+
+    /**
+     * evaluates one cell at every true count and stores the best actions
+     * @param first value of the player's first card. 1 is an ace
+     * @param second value of the player's second card. 1 is an ace
+     * @param upCard value of the dealer's face up card. 1 is an ace
+     * @param table where to store the best actions
+     */
+    void optimizeCell(int first, int second, int upCard, DeviationTable table){
+        int playerCodes[] = {codeOf(first, Card.Suit.DIAMONDS), codeOf(second, Card.Suit.HEARTS)};
+        int upCode = codeOf(upCard, Card.Suit.SPADES);
+        PlayerAction candidates[] = first == second
+                ? new PlayerAction[]{PlayerAction.STAND, PlayerAction.HIT, PlayerAction.DOUBLE_DOWN, PlayerAction.SPLIT}
+                : new PlayerAction[]{PlayerAction.STAND, PlayerAction.HIT, PlayerAction.DOUBLE_DOWN};
+        int category = -1;
+        for(int count = DeviationTable.MIN_TRUE_COUNT; count <= DeviationTable.MAX_TRUE_COUNT; count++){
+            RunningStatistics results[] = new RunningStatistics[candidates.length];
+            for(int c = 0; c < candidates.length; c++){
+                results[c] = new RunningStatistics();
+            }
+            long cellSeed = Simulation.trialSeed(seed, ((long) upCode * 64 + playerCodes[0]) * 64 + playerCodes[1]);
+            for(int trial = 0; trial < trials; trial++){
+                Random random = new Random(Simulation.trialSeed(cellSeed, (long) trial * 64 + count));
+                int shoe[] = conditionedShoe(playerCodes, upCode, count, random);
+                for(int c = 0; c < candidates.length; c++){
+                    results[c].add(play(shoe, candidates[c], random));
+                }
+            }
+            int best = 0;
+            for(int c = 1; c < candidates.length; c++){
+                if(results[c].getMean() > results[best].getMean()){
+                    best = c;
+                }
+            }
+            if(category < 0){
+                category = DeviationTable.handCategory(handOf(playerCodes), first == second);
+            }
+            table.set(category, upCard, count, candidates[best]);
+        }
+    }
+
+    /**
+     * builds a shoe with the given cards on top and the rest conditioned on a true count
+     * @param playerCodes the player's two card codes
+     * @param upCode the dealer's face up card code
+     * @param trueCount true count of the remaining shoe
+     * @param random source of randomness
+     * @return card codes in dealing order: player, dealer hole card, player, dealer face up, rest of shoe.
+     *         The cards missing from the shoe and the three dealt face up have a running count of
+     *         trueCount * DECKS_REMAINING
+     */
+    int[] conditionedShoe(int playerCodes[], int upCode, int trueCount, Random random){
+        List<Integer> low = new ArrayList<>();
+        List<Integer> neutral = new ArrayList<>();
+        List<Integer> high = new ArrayList<>();
+        boolean taken[] = new boolean[3];
+        int tableCodes[] = {playerCodes[0], playerCodes[1], upCode};
+        int tableCount = 0;
+        for(int code : tableCodes){
+            tableCount += Card.fromCode(code).getHiLoValue();
+        }
+        for(int d = 0; d < CasinoRules.NUMBER_OF_DECKS; d++){
+            for(int code = 0; code < Card.NUMBER_OF_CODES; code++){
+                boolean onTable = false;
+                for(int t = 0; t < tableCodes.length && !onTable; t++){
+                    if(!taken[t] && tableCodes[t] == code){
+                        taken[t] = true;
+                        onTable = true;
+                    }
+                }
+                if(onTable){
+                    continue;
+                }
+                int hiLo = Card.fromCode(code).getHiLoValue();
+                (hiLo > 0 ? low : hiLo == 0 ? neutral : high).add(code);
+            }
+        }
+        Collections.shuffle(low, random);
+        Collections.shuffle(neutral, random);
+        Collections.shuffle(high, random);
+        //remove half the shoe so that the running count of the removed cards and the cards on the
+        //table, all of which a player has seen, gives the wanted true count
+        int removed = Deck.CARDS_PER_SUPER_DECK - DECKS_REMAINING * Deck.CARDS_PER_SINGLE_DECK;
+        int removedNeutral = neutral.size() * removed / (low.size() + neutral.size() + high.size());
+        int runningCount = trueCount * DECKS_REMAINING - tableCount;
+        if((removed - removedNeutral + runningCount) % 2 != 0){
+            //low and high cards can only make an even count together, so one more neutral card goes
+            removedNeutral++;
+        }
+        int removedLow = (removed - removedNeutral + runningCount) / 2;
+        int removedHigh = removed - removedNeutral - removedLow;
+        List<Integer> rest = new ArrayList<>();
+        rest.addAll(low.subList(removedLow, low.size()));
+        rest.addAll(neutral.subList(removedNeutral, neutral.size()));
+        rest.addAll(high.subList(removedHigh, high.size()));
+        Collections.shuffle(rest, random);
+        int shoe[] = new int[rest.size() + 3];
+        shoe[0] = playerCodes[0];
+        shoe[1] = rest.get(0);
+        shoe[2] = playerCodes[1];
+        shoe[3] = upCode;
+        for(int i = 1; i < rest.size(); i++){
+            shoe[i + 3] = rest.get(i);
+        }
+        return shoe;
+    }
+
+    /**
+     * plays one round from a shoe with a forced first action
+     * @param shoe card codes in dealing order
+     * @param firstAction action taken on the starting hand
+     * @param random source of randomness should the deck need a shuffle
+     * @return money won by the player in base bets
+     */
+    private double play(int shoe[], PlayerAction firstAction, Random random){
+        List<Player> players = new ArrayList<>();
+        Player player = new Player("Optimizer", Simulation.SIMULATED_BANKROLL);
+        players.add(player);
+        Table table = new Table(players, new Deck(shoe, random));
+        table.playRound(new int[]{BET}, new Strategy[]{new ForcedFirstAction(firstAction)});
+        return (double)(player.getMoney() - Simulation.SIMULATED_BANKROLL) / BET;
+    }
+
+    /**
+     * gets a card code for a card value
+     * @param value card value. 1 is an ace and 10 a ten
+     * @param suit suit of the card
+     * @return the card code
+     */
+    private static int codeOf(int value, Card.Suit suit){
+        return new Card(Card.Rank.values()[value - 1], suit).getCode();
+    }
+
+    /**
+     * creates a hand holding the given cards
+     * @param codes card codes
+     * @return the hand
+     */
+    private static Hand handOf(int codes[]){
+        Hand hand = new Hand(BET);
+        for(int code : codes){
+            hand.addCard(Card.fromCode(code));
+        }
+        return hand;
+    }
+
+    /**
+     * plays the given action on the first decision and basic strategy after that
+     */
+    private static class ForcedFirstAction implements Strategy {
+        /** action for the first decision */
+        private final PlayerAction firstAction;
+        /** strategy for every later decision */
+        private final BasicStrategy basicStrategy = new BasicStrategy();
+        /** whether the first decision has been made */
+        private boolean decided;
+
+        ForcedFirstAction(PlayerAction firstAction){
+            this.firstAction = firstAction;
+        }
+
+        @Override
+        public PlayerAction chooseAction(Hand hand, Card dealerUpCard, double trueCount, Set<PlayerAction> availableActions) {
+            if(!decided){
+                decided = true;
+                return firstAction;
+            }
+            return basicStrategy.chooseAction(hand, dealerUpCard, trueCount, availableActions);
+        }
+    }
+
+    /**
+     * evaluates a range of cells, splitting it in half until single cells remain
+     */
+    private class CellTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** all cells as player card, player card, face up card */
+        private final List<int[]> cells;
+        /** first cell of the range */
+        private final int from;
+        /** end of the range, exclusive */
+        private final int to;
+        /** where to store the best actions */
+        private final DeviationTable table;
+
+        CellTask(List<int[]> cells, int from, int to, DeviationTable table){
+            this.cells = cells;
+            this.from = from;
+            this.to = to;
+            this.table = table;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from == 1){
+                int cell[] = cells.get(from);
+                optimizeCell(cell[0], cell[1], cell[2], table);
+                return;
+            }
+            int middle = (from + to) / 2;
+            invokeAll(new CellTask(cells, from, middle, table), new CellTask(cells, middle, to, table));
+        }
+    }
+
+    /**
+     * computes a deviation table from the command line.
+     * usage: deviations file [trials] [threads]
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the table cannot be written
+     */
+    static void runFromCommandLine(String args[]) throws IOException {
+        int trials = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        DeviationTable table = new DeviationOptimizer(trials, System.currentTimeMillis()).optimize(new ForkJoinPool(threads));
+        table.write(Paths.get(args[1]));
+        System.out.printf("deviation table written in %.2fs%n", (System.nanoTime() - start) / 1e9);
+    }
+}
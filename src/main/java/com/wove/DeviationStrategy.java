@@ -0,0 +1,33 @@
+package com.wove;
+
+import java.util.Set;
+
+/**
+ * Basic strategy that switches to the best action for the current true
+ * count wherever a DeviationTable has an entry.
+ */
+class DeviationStrategy implements Strategy {
+    /** best actions by true count */
+    private final DeviationTable table;
+    /** strategy for hands the table does not cover */
+    private final BasicStrategy basicStrategy;
+
+    /**
+     * creates a strategy that follows the given table
+     * @param table best actions by true count
+     */
+    public DeviationStrategy(DeviationTable table){
+        this.table = table;
+        this.basicStrategy = new BasicStrategy();
+    }
+
+    @Override
+    public PlayerAction chooseAction(Hand hand, Card dealerUpCard, double trueCount, Set<PlayerAction> availableActions) {
+        boolean maySplit = availableActions.contains(PlayerAction.SPLIT);
+        PlayerAction action = table.get(DeviationTable.handCategory(hand, maySplit), dealerUpCard.getMinValue(), trueCount);
+        if(action != null && availableActions.contains(action)){
+            return action;
+        }
+        return basicStrategy.chooseAction(hand, dealerUpCard, trueCount, availableActions);
+    }
+}
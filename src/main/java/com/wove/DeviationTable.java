@@ -0,0 +1,169 @@
+package com.wove;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The best action for a hand against a dealer face up card at each true
+ * count, as found by DeviationOptimizer.  Hands are grouped into categories
+ * numbered like RoundStatistics.handType(): pairs, soft totals and hard totals.
+ *
+ * Table files hold one hand and face up card per line followed by the
+ * letter of the best action at every true count from MIN_TRUE_COUNT to
+ * MAX_TRUE_COUNT, for example:
+ *   hard 16 10 H H H H H S S S S S S
+ * Lines starting with # are ignored.
+ */
+class DeviationTable {
+    /** lowest true count the table distinguishes.  Lower counts use this one */
+    public static final int MIN_TRUE_COUNT = -5;
+    /** highest true count the table distinguishes.  Higher counts use this one */
+    public static final int MAX_TRUE_COUNT = 5;
+
+    /** best action by hand category, face up card and true count.  null where unknown */
+    private final PlayerAction actions[][][];
+
+    /**
+     * creates an empty table
+     */
+    public DeviationTable(){
+        actions = new PlayerAction[RoundStatistics.NUMBER_OF_HAND_TYPES][RoundStatistics.NUMBER_OF_UP_CARDS]
+                [MAX_TRUE_COUNT - MIN_TRUE_COUNT + 1];
+    }
+
+    /**
+     * gets the best action
+     * @param category hand category, see handCategory()
+     * @param upCard value of the dealer's face up card. 1 is an ace
+     * @param trueCount the true count.  Rounded to the nearest count in the table
+     * @return the best action.  null if the table has no entry
+     */
+    public PlayerAction get(int category, int upCard, double trueCount){
+        if(category < 0){
+            return null;
+        }
+        long count = Math.round(trueCount);
+        count = Math.max(MIN_TRUE_COUNT, Math.min(MAX_TRUE_COUNT, count));
+        return actions[category][upCard - 1][(int) count - MIN_TRUE_COUNT];
+    }
+
+    /**
+     * sets the best action
+     * @param category hand category, see handCategory()
+     * @param upCard value of the dealer's face up card. 1 is an ace
+     * @param trueCount true count between MIN_TRUE_COUNT and MAX_TRUE_COUNT
+     * @param action the best action
+     */
+    public void set(int category, int upCard, int trueCount, PlayerAction action){
+        actions[category][upCard - 1][trueCount - MIN_TRUE_COUNT] = action;
+    }
+
+    /**
+     * finds the category of a hand of any number of cards
+     * @param hand the hand
+     * @param maySplit whether the hand may be split.  Only then is it played as a pair
+     * @return the category, numbered like RoundStatistics.handType().  -1 for hands over 20
+     */
+    public static int handCategory(Hand hand, boolean maySplit){
+        if(maySplit){
+            return hand.getCard(0).getMinValue() - 1;
+        }
+        int total = hand.getValue();
+        if(hand.isSoft()){
+            return 10 + (total - 12);
+        }
+        return total <= 20 ? 20 + (total - 4) : -1;
+    }
+
+    /**
+     * reads a table file
+     * @param path the file
+     * @return the table
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static DeviationTable read(Path path) throws IOException {
+        DeviationTable table = new DeviationTable();
+        try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)){
+            String line;
+            while((line = reader.readLine()) != null){
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")){
+                    continue;
+                }
+                String fields[] = line.split("\\s+");
+                if(fields.length != 3 + MAX_TRUE_COUNT - MIN_TRUE_COUNT + 1){
+                    throw new IOException("malformed deviation line: " + line);
+                }
+                try {
+                    int category = parseCategory(fields[0], fields[1]);
+                    int upCard = parseCardValue(fields[2]);
+                    for(int count = MIN_TRUE_COUNT; count <= MAX_TRUE_COUNT; count++){
+                        table.set(category, upCard, count, PlayerAction.fromLetter(fields[3 + count - MIN_TRUE_COUNT].charAt(0)));
+                    }
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("malformed deviation line: " + line, e);
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * writes every complete entry of the table to a table file
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)){
+            writer.write("# hand, dealer card, best action at true counts " + MIN_TRUE_COUNT + " to " + MAX_TRUE_COUNT);
+            writer.newLine();
+            for(int category = 0; category < actions.length; category++){
+                for(int upCard = 1; upCard <= RoundStatistics.NUMBER_OF_UP_CARDS; upCard++){
+                    PlayerAction byCount[] = actions[category][upCard - 1];
+                    if(byCount[0] == null){
+                        continue;
+                    }
+                    StringBuilder line = new StringBuilder(RoundStatistics.handTypeName(category));
+                    line.append(' ').append(upCard == 1 ? "A" : String.valueOf(upCard));
+                    for(PlayerAction action : byCount){
+                        line.append(' ').append(action.getLetter());
+                    }
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * parses a category name written by RoundStatistics.handTypeName()
+     * @param kind "pair", "soft" or "hard"
+     * @param value the pair card or the total
+     * @return the category
+     */
+    private static int parseCategory(String kind, String value){
+        switch (kind) {
+            case "pair":
+                return parseCardValue(value) - 1;
+            case "soft":
+                return 10 + (Integer.parseInt(value) - 12);
+            case "hard":
+                return 20 + (Integer.parseInt(value) - 4);
+            default:
+                throw new IllegalArgumentException("unknown hand kind: " + kind);
+        }
+    }
+
+    /**
+     * parses a card value where an ace is written as A
+     * @param value the value
+     * @return the value with 1 for an ace
+     */
+    private static int parseCardValue(String value){
+        return value.equals("A") ? 1 : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,492 @@
+package com.wove;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+/**
+ * Spreads a house edge simulation over several processes, on this machine or
+ * others.  A coordinator splits the trials into ranges of consecutive trial
+ * numbers and hands them to the worker processes that connect to it.  A
+ * worker plays every trial of a range from the same per trial seed
+ * Simulation uses, against the rules in CasinoRules, and sends the
+ * statistics of the range back.
+ *
+ * The coordinator keeps the statistics of every range and merges them in
+ * range order only once all of them are in.  A range is always played the
+ * same way whichever process plays it, so the result does not depend on how
+ * many workers there were, which of them played what or which of them failed:
+ * it is bit for bit the result of playing the ranges one after another in a
+ * single process.  A worker that disconnects or stops answering loses its
+ * range, which goes back in the queue for another worker.
+ */
+class DistributedSimulation {
+    /** first thing a worker sends, so anything else connecting is turned away */
+    private static final int MAGIC = 0x424A5753;
+    /** range number that tells a worker there is nothing more to play */
+    private static final int STOP = -1;
+    /** default number of trials in a range */
+    private static final int DEFAULT_TRIALS_PER_RANGE = 500;
+    /** how long a worker may take to play a range before it is considered failed */
+    private static final int RANGE_TIMEOUT_MILLIS = 120000;
+    /** how long a worker keeps trying to reach a coordinator that is not listening yet */
+    private static final long CONNECT_PATIENCE_MILLIS = 10000;
+
+    /** players at each simulated table */
+    private final int numberOfPlayers;
+    /** bet every player makes each round */
+    private final int bet;
+    /** rounds played in each trial */
+    private final int roundsPerTrial;
+    /** name of the strategy every player follows, see Simulation.strategyNamed() */
+    private final String strategyName;
+    /** seed of the whole run */
+    private final long seed;
+    /** number of trials to play */
+    private final long trials;
+    /** number of trials in each range */
+    private final int trialsPerRange;
+
+    /**
+     * describes a run
+     * @param numberOfPlayers players at each simulated table
+     * @param bet bet every player makes each round
+     * @param roundsPerTrial rounds played in each trial
+     * @param strategyName name of the strategy every player follows, see Simulation.strategyNamed()
+     * @param seed seed of the whole run
+     * @param trials number of trials to play
+     * @param trialsPerRange number of trials handed to a worker at a time
+     */
+    public DistributedSimulation(int numberOfPlayers, int bet, int roundsPerTrial, String strategyName, long seed,
+                                 long trials, int trialsPerRange){
+        if(trials <= 0 || trialsPerRange <= 0){
+            throw new IllegalArgumentException("there must be trials to play");
+        }
+        this.numberOfPlayers = numberOfPlayers;
+        this.bet = bet;
+        this.roundsPerTrial = roundsPerTrial;
+        this.strategyName = strategyName;
+        this.seed = seed;
+        this.trials = trials;
+        this.trialsPerRange = trialsPerRange;
+    }
+
+    /**
+     * gets the number of ranges the trials are split into
+     * @return number of ranges
+     */
+    public int getNumberOfRanges(){
+        return (int) ((trials + trialsPerRange - 1) / trialsPerRange);
+    }
+
+    /**
+     * statistics of the trials of one or more ranges
+     */
+    static class Partial {
+        /** house edge of each trial */
+        private final RunningStatistics trialEdges;
+        /** net win of each seat in each round */
+        private final RoundStatistics rounds;
+
+        /**
+         * creates empty statistics
+         */
+        Partial(){
+            this(new RunningStatistics(), new RoundStatistics());
+        }
+
+        /**
+         * wraps existing statistics
+         * @param trialEdges house edge of each trial
+         * @param rounds net win of each seat in each round
+         */
+        private Partial(RunningStatistics trialEdges, RoundStatistics rounds){
+            this.trialEdges = trialEdges;
+            this.rounds = rounds;
+        }
+
+        /**
+         * adds the trials of other statistics to these ones
+         * @param other statistics to merge in.  Not modified
+         */
+        void merge(Partial other){
+            trialEdges.merge(other.trialEdges);
+            rounds.merge(other.rounds);
+        }
+
+        /**
+         * writes these statistics exactly
+         * @param out where to write them
+         * @throws IOException if they cannot be written
+         */
+        void write(DataOutput out) throws IOException {
+            trialEdges.write(out);
+            rounds.write(out);
+        }
+
+        /**
+         * reads statistics written by write()
+         * @param in where to read them from
+         * @return the statistics
+         * @throws IOException if they cannot be read
+         */
+        static Partial read(DataInput in) throws IOException {
+            return new Partial(RunningStatistics.read(in), RoundStatistics.read(in));
+        }
+
+        /**
+         * gets a checksum of the exact bits of these statistics, to tell at a glance whether two runs agree
+         * @return the checksum
+         */
+        long digest(){
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                write(new DataOutputStream(bytes));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            return crc.getValue();
+        }
+
+        /**
+         * getter for the house edge of each trial
+         * @return house edge of each trial
+         */
+        RunningStatistics getTrialEdges(){
+            return trialEdges;
+        }
+
+        /**
+         * getter for the net win of each seat in each round
+         * @return net win of each seat in each round
+         */
+        RoundStatistics getRounds(){
+            return rounds;
+        }
+    }
+
+    /**
+     * plays every trial of a range, in order
+     * @param range the range number
+     * @return statistics of the range
+     * @throws IOException if the strategy cannot be loaded
+     */
+    Partial playRange(int range) throws IOException {
+        Simulation simulation = new Simulation(numberOfPlayers, bet, roundsPerTrial);
+        Strategy strategy = Simulation.strategyNamed(strategyName);
+        StatisticsCollector collector = new StatisticsCollector(Integer.MAX_VALUE);
+        StatisticsCollector.Recorder recorder = collector.newRecorder();
+        RunningStatistics trialEdges = new RunningStatistics();
+        long first = (long) range * trialsPerRange;
+        long last = Math.min(trials, first + trialsPerRange);
+        for(long trial = first; trial < last; trial++){
+            trialEdges.add(simulation.playTrial(strategy, new Random(Simulation.trialSeed(seed, trial)), recorder));
+        }
+        recorder.publish();
+        return new Partial(trialEdges, collector.snapshot());
+    }
+
+    /**
+     * plays every range in this process, one after another
+     * @return statistics of the whole run
+     * @throws IOException if the strategy cannot be loaded
+     */
+    public Partial runLocally() throws IOException {
+        Partial total = new Partial();
+        for(int range = 0; range < getNumberOfRanges(); range++){
+            total.merge(playRange(range));
+        }
+        return total;
+    }
+
+    /**
+     * hands the ranges out to the workers that connect to a server socket and
+     * waits until every range has been played.  Workers may come and go while
+     * the run goes on.  The server socket is closed when done.
+     * @param server socket workers connect to
+     * @param progressSeconds how often to print progress
+     * @return statistics of the whole run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Partial coordinate(final ServerSocket server, int progressSeconds) throws InterruptedException {
+        final int numberOfRanges = getNumberOfRanges();
+        final BlockingQueue<Integer> pending = new LinkedBlockingQueue<>();
+        for(int range = 0; range < numberOfRanges; range++){
+            pending.add(range);
+        }
+        final AtomicReferenceArray<Partial> results = new AtomicReferenceArray<>(numberOfRanges);
+        final CountDownLatch done = new CountDownLatch(numberOfRanges);
+        final AtomicInteger workers = new AtomicInteger();
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(!server.isClosed()){
+                    final Socket socket;
+                    try {
+                        socket = server.accept();
+                    } catch (IOException e) {
+                        //closed once every range is in
+                        return;
+                    }
+                    final int worker = workers.incrementAndGet();
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            serveWorker(socket, worker, pending, results, done);
+                        }
+                    }, "worker " + worker);
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }, "coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        while(!done.await(progressSeconds, TimeUnit.SECONDS)){
+            System.out.println((numberOfRanges - done.getCount()) + " of " + numberOfRanges + " ranges played, "
+                    + workers.get() + " workers so far");
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            //nothing more to accept either way
+        }
+        Partial total = new Partial();
+        for(int range = 0; range < numberOfRanges; range++){
+            total.merge(results.get(range));
+        }
+        return total;
+    }
+
+    /**
+     * keeps one worker busy until every range is in.  If the worker fails the
+     * range it was playing goes back in the queue.
+     * @param socket connection to the worker
+     * @param worker number of the worker, for messages
+     * @param pending ranges nobody is playing
+     * @param results statistics of each range played so far
+     * @param done counted down once for each range played
+     */
+    private void serveWorker(Socket socket, int worker, BlockingQueue<Integer> pending,
+                             AtomicReferenceArray<Partial> results, CountDownLatch done){
+        Integer range = null;
+        try {
+            socket.setSoTimeout(RANGE_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if(in.readInt() != MAGIC || !in.readUTF().equals(rulesFingerprint())){
+                System.out.println("worker " + worker + " turned away: it does not play the same rules");
+                return;
+            }
+            while(true){
+                range = pending.poll(100, TimeUnit.MILLISECONDS);
+                if(range == null){
+                    if(done.getCount() == 0){
+                        out.writeInt(STOP);
+                        out.flush();
+                        return;
+                    }
+                    continue;
+                }
+                writeTask(out, range);
+                out.flush();
+                if(in.readInt() != range){
+                    throw new IOException("answered for the wrong range");
+                }
+                Partial partial = Partial.read(in);
+                if(results.compareAndSet(range, null, partial)){
+                    done.countDown();
+                }
+                range = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            if(range != null){
+                System.out.println("worker " + worker + " failed (" + e + "), range " + range + " reassigned");
+                pending.add(range);
+            }
+        } catch (InterruptedException e) {
+            if(range != null){
+                pending.add(range);
+            }
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already gone
+            }
+        }
+    }
+
+    /**
+     * sends a worker everything it needs to play a range
+     * @param out stream to the worker
+     * @param range the range number
+     * @throws IOException if the worker cannot be reached
+     */
+    private void writeTask(DataOutputStream out, int range) throws IOException {
+        out.writeInt(range);
+        out.writeInt(numberOfPlayers);
+        out.writeInt(bet);
+        out.writeInt(roundsPerTrial);
+        out.writeUTF(strategyName);
+        out.writeLong(seed);
+        out.writeLong(trials);
+        out.writeInt(trialsPerRange);
+    }
+
+    /**
+     * connects to a coordinator and plays the ranges it hands out until it says stop
+     * @param host host of the coordinator
+     * @param port port of the coordinator
+     * @param failAfter ranges to play before dropping dead in the middle of the next one, to try out
+     *                  reassignment.  Negative to never fail
+     * @return number of ranges played
+     * @throws IOException if the coordinator cannot be reached or goes away
+     * @throws InterruptedException if interrupted while waiting for the coordinator to start listening
+     */
+    static int work(String host, int port, int failAfter) throws IOException, InterruptedException {
+        Socket socket = connect(host, port);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeUTF(rulesFingerprint());
+            out.flush();
+            int played = 0;
+            for(int range = in.readInt(); range != STOP; range = in.readInt()){
+                DistributedSimulation run = new DistributedSimulation(in.readInt(), in.readInt(), in.readInt(),
+                        in.readUTF(), in.readLong(), in.readLong(), in.readInt());
+                if(played == failAfter){
+                    return played;
+                }
+                Partial partial = run.playRange(range);
+                out.writeInt(range);
+                partial.write(out);
+                out.flush();
+                played++;
+            }
+            return played;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * connects to a coordinator, waiting a little for one that is still starting
+     * @param host host of the coordinator
+     * @param port port of the coordinator
+     * @return the connection
+     * @throws IOException if the coordinator cannot be reached
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        long giveUp = System.currentTimeMillis() + CONNECT_PATIENCE_MILLIS;
+        while(true){
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if(System.currentTimeMillis() > giveUp){
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    /**
+     * describes the rules every process must agree on for their results to be merged
+     * @return the description
+     */
+    static String rulesFingerprint(){
+        return CasinoRules.NUMBER_OF_DECKS + ";" + CasinoRules.BLACKJACK_PAYOUT + ";"
+                + CasinoRules.MAX_NUMBER_OF_SPLITS + ";" + CasinoRules.DEALER_STAND_RULE_STRING + ";"
+                + CasinoRules.DOUBLE_DOWN_RULE + ";" + CasinoRules.MIN_BET + ";" + CasinoRules.MAX_BET;
+    }
+
+    /**
+     * starts worker processes on this machine running the same classes as this one
+     * @param count number of workers
+     * @param port port of the coordinator
+     * @return the processes
+     * @throws IOException if a process cannot be started
+     */
+    private static List<Process> startLocalWorkers(int count, int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Main.class.getName(),
+                    "work", "localhost", Integer.toString(port)).inheritIO().start());
+        }
+        return processes;
+    }
+
+    /**
+     * coordinates or works on a distributed simulation from the command line.
+     * usage: coordinate [strategy] [trials] [port] [local workers] [seed] [check]
+     * or:    work [host] [port] [fail after ranges]
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the socket cannot be opened
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static void runFromCommandLine(String args[]) throws IOException, InterruptedException {
+        if(args[0].equals("work")){
+            String host = args.length > 1 ? args[1] : "localhost";
+            int port = args.length > 2 ? Integer.parseInt(args[2]) : 9090;
+            int failAfter = args.length > 3 ? Integer.parseInt(args[3]) : -1;
+            work(host, port, failAfter);
+            return;
+        }
+        String strategyName = args.length > 1 ? args[1] : "basic";
+        long trials = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 9090;
+        int localWorkers = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : System.currentTimeMillis();
+        boolean check = args.length > 6 && args[6].equals("check");
+        //fail early on a bad strategy name rather than in every worker
+        Simulation.strategyNamed(strategyName);
+        DistributedSimulation run = new DistributedSimulation(1, 10, 100, strategyName, seed, trials,
+                DEFAULT_TRIALS_PER_RANGE);
+        ServerSocket server = new ServerSocket(port);
+        System.out.println("Coordinating " + run.getNumberOfRanges() + " ranges of seed " + seed + " on port "
+                + server.getLocalPort());
+        List<Process> processes = startLocalWorkers(localWorkers, server.getLocalPort());
+        long start = System.nanoTime();
+        Partial total = run.coordinate(server, 5);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for(Process process : processes){
+            process.waitFor();
+        }
+        RunningStatistics edges = total.getTrialEdges();
+        System.out.printf("house edge %.5f +- %.5f over %d trials, %.0f rounds per second%n", edges.getMean(),
+                Simulation.Z_95 * edges.getStandardError(), edges.getCount(),
+                total.getRounds().getPayout().getCount() / seconds);
+        total.getRounds().writeReport(System.out);
+        System.out.printf("result digest %016x%n", total.digest());
+        if(check){
+            Partial local = run.runLocally();
+            System.out.printf("single process digest %016x: %s%n", local.digest(),
+                    local.digest() == total.digest() ? "identical" : "DIFFERENT");
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.wove;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that FlatTable plays exactly like the reference Table, Player and
+ * Dealer classes.  Both are dealt the same seeded shoes and play basic
+ * strategy, and after every round each player's money and the cards left in
+ * the shoe must agree.  Shoes are verified in parallel.  At the first
+ * divergence every thread stops and the round is shrunk to the fewest seats
+ * and cards that still diverge, so it can be replayed on its own.
+ */
+class EngineVerifier {
+    /** bet every player places every round */
+    private static final int BET = 10;
+    /** rounds dealt from each seeded shoe, enough for several reshuffles */
+    private static final int ROUNDS_PER_SHOE = 1000;
+
+    /** number of players at both tables */
+    private final int players;
+
+    /**
+     * a round the engines disagree on, shrunk as far as it still diverges
+     */
+    static class Divergence {
+        /** seed of the shoe it was found in */
+        private final long seed;
+        /** round of that shoe, counting from 0 */
+        private final int round;
+        /** fewest players the round still diverges with */
+        private int seats;
+        /** shortest shoe the round still diverges on, top card first.  Later shuffles use the seed.
+         * null if the round cannot be replayed from its cards alone */
+        private int cardCodes[];
+
+        private Divergence(long seed, int round){
+            this.seed = seed;
+            this.round = round;
+        }
+
+        /**
+         * gets the seed of the shoe the divergence was found in
+         * @return the seed
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * gets the round of the shoe that diverged
+         * @return the round, counting from 0
+         */
+        public int getRound() {
+            return round;
+        }
+
+        /**
+         * gets the fewest players the round still diverges with
+         * @return the number of players
+         */
+        public int getSeats() {
+            return seats;
+        }
+
+        /**
+         * determines if the round was shrunk to a shoe of its own.  It cannot be
+         * if the shoe is reshuffled before the round is over, since the shuffle
+         * depends on every shuffle of the shoe before it
+         * @return whether toRecordedShoe() reproduces the divergence
+         */
+        public boolean isShrunk() {
+            return cardCodes != null;
+        }
+
+        /**
+         * gets the shortest shoe the round still diverges on as a shoe of one round
+         * @return the shoe.  Only valid if isShrunk()
+         */
+        public RecordedShoe toRecordedShoe(){
+            return new RecordedShoe(seed, cardCodes, 1);
+        }
+    }
+
+    /**
+     * creates a verifier
+     * @param players number of players at both tables
+     */
+    public EngineVerifier(int players){
+        this.players = players;
+    }
+
+    /**
+     * deals one seeded shoe to both engines
+     * @param seed seed of the shoe
+     * @return the first round they disagree on, or -1 if they agree on every round
+     */
+    public int verifyShoe(long seed){
+        Table reference = referenceTable(players, new Deck(new Random(seed)));
+        FlatTable candidate = new FlatTable(players, Simulation.SIMULATED_BANKROLL, new Random(seed));
+        Strategy strategies[] = basicStrategies(players);
+        int bets[] = bets(players);
+        for(int round = 0; round < ROUNDS_PER_SHOE; round++){
+            reference.playRound(bets, strategies);
+            candidate.playRound(BET);
+            if(!agree(reference, candidate)){
+                return round;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * verifies shoes on many threads until the given number of rounds has been
+     * played or the engines disagree
+     * @param rounds rounds to verify
+     * @param threads number of threads
+     * @param firstSeed seed of the first shoe.  Later shoes use the following seeds
+     * @return the shrunk divergence in the shoe with the lowest seed, or null if the engines always agreed
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public Divergence verify(long rounds, int threads, final long firstSeed) throws InterruptedException {
+        final long shoes = (rounds + ROUNDS_PER_SHOE - 1) / ROUNDS_PER_SHOE;
+        final AtomicLong nextShoe = new AtomicLong();
+        final AtomicReference<Divergence> first = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for(int t = 0; t < threads; t++){
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for(long shoe = nextShoe.getAndIncrement(); shoe < shoes && first.get() == null;
+                        shoe = nextShoe.getAndIncrement()){
+                        int round = verifyShoe(firstSeed + shoe);
+                        if(round < 0){
+                            continue;
+                        }
+                        Divergence divergence = new Divergence(firstSeed + shoe, round);
+                        //keep the lowest seed so the report does not depend on thread timing
+                        Divergence current;
+                        do{
+                            current = first.get();
+                        }while((current == null || current.seed > divergence.seed)
+                                && !first.compareAndSet(current, divergence));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        Divergence divergence = first.get();
+        if(divergence != null){
+            shrink(divergence);
+        }
+        return divergence;
+    }
+
+    /**
+     * shrinks a divergence to the fewest players and the fewest cards
+     * that still diverge within a single round
+     * @param divergence the divergence, whose seed and round are known
+     */
+    private void shrink(Divergence divergence){
+        //deal the shoe up to the diverging round again to see which cards it started from
+        Table reference = referenceTable(players, new Deck(new Random(divergence.seed)));
+        Strategy strategies[] = basicStrategies(players);
+        int bets[] = bets(players);
+        for(int round = 0; round < divergence.round; round++){
+            reference.playRound(bets, strategies);
+        }
+        int cardCodes[] = reference.getDeck().getCardCodes();
+        divergence.seats = players;
+        if(!roundDiverges(cardCodes, players, divergence.seed)){
+            return;
+        }
+        divergence.cardCodes = cardCodes;
+        for(int seats = 1; seats < players; seats++){
+            if(roundDiverges(cardCodes, seats, divergence.seed)){
+                divergence.seats = seats;
+                break;
+            }
+        }
+        //a deck reshuffles once a quarter is left, so shoes any shorter are never dealt from
+        for(int length = Deck.CARDS_PER_SUPER_DECK / 4; length < cardCodes.length; length++){
+            int shorter[] = Arrays.copyOf(cardCodes, length);
+            if(roundDiverges(shorter, divergence.seats, divergence.seed)){
+                divergence.cardCodes = shorter;
+                break;
+            }
+        }
+    }
+
+    /**
+     * plays a single round on both engines starting from the given cards
+     * @param cardCodes codes of the cards from the top of the shoe down
+     * @param seats number of players
+     * @param reshuffleSeed seed of any reshuffle during the round
+     * @return whether the engines disagree on the round
+     */
+    private static boolean roundDiverges(int cardCodes[], int seats, long reshuffleSeed){
+        Table reference = referenceTable(seats, new Deck(cardCodes, new Random(reshuffleSeed)));
+        FlatTable candidate = new FlatTable(seats, Simulation.SIMULATED_BANKROLL, cardCodes, new Random(reshuffleSeed));
+        reference.playRound(bets(seats), basicStrategies(seats));
+        candidate.playRound(BET);
+        return !agree(reference, candidate);
+    }
+
+    /**
+     * compares what both engines have left after a round
+     * @param reference the reference table
+     * @param candidate the candidate table
+     * @return whether every player's money and the cards left are the same
+     */
+    private static boolean agree(Table reference, FlatTable candidate){
+        if(reference.getDeck().cardsRemaining() != candidate.cardsRemaining()){
+            return false;
+        }
+        List<Player> players = reference.getPlayers();
+        for(int s = 0; s < players.size(); s++){
+            if(players.get(s).getMoney() != candidate.getMoney(s)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * describes what both engines made of a diverging round
+     * @param divergence the divergence
+     * @return what each player won that round and the cards left by each engine, then the reference's hands
+     */
+    private String describe(Divergence divergence){
+        Table reference;
+        FlatTable candidate;
+        if(divergence.isShrunk()){
+            reference = referenceTable(divergence.seats, new Deck(divergence.cardCodes, new Random(divergence.seed)));
+            candidate = new FlatTable(divergence.seats, Simulation.SIMULATED_BANKROLL, divergence.cardCodes,
+                    new Random(divergence.seed));
+        }else{
+            reference = referenceTable(players, new Deck(new Random(divergence.seed)));
+            candidate = new FlatTable(players, Simulation.SIMULATED_BANKROLL, new Random(divergence.seed));
+            for(int round = 0; round < divergence.round; round++){
+                reference.playRound(bets(players), basicStrategies(players));
+                candidate.playRound(BET);
+            }
+        }
+        int seats = divergence.seats;
+        long referenceBefore[] = new long[seats];
+        long candidateBefore[] = new long[seats];
+        for(int s = 0; s < seats; s++){
+            referenceBefore[s] = reference.getPlayers().get(s).getMoney();
+            candidateBefore[s] = candidate.getMoney(s);
+        }
+        reference.playRound(bets(seats), basicStrategies(seats));
+        candidate.playRound(BET);
+        StringBuilder referenceLine = new StringBuilder("reference won");
+        StringBuilder candidateLine = new StringBuilder("candidate won");
+        for(int s = 0; s < seats; s++){
+            referenceLine.append(' ').append(reference.getPlayers().get(s).getMoney() - referenceBefore[s]);
+            candidateLine.append(' ').append(candidate.getMoney(s) - candidateBefore[s]);
+        }
+        referenceLine.append(", ").append(reference.getDeck().cardsRemaining()).append(" cards left");
+        candidateLine.append(", ").append(candidate.cardsRemaining()).append(" cards left");
+        List<Hand> dealt = new ArrayList<>();
+        for(Player player : reference.getPlayers()){
+            dealt.addAll(player.getHands());
+        }
+        dealt.add(reference.getDealer().getHand());
+        StringBuilder hands = new StringBuilder("reference hands");
+        for(Hand hand : dealt){
+            hands.append(" [");
+            for(int c = 0; c < hand.numberOfCards(); c++){
+                hands.append(c == 0 ? "" : " ").append(hand.getCard(c));
+            }
+            hands.append(']');
+        }
+        return referenceLine + "\n" + candidateLine + "\n" + hands;
+    }
+
+    /**
+     * creates a reference table of players with the simulated bankroll
+     * @param seats number of players
+     * @param deck deck to deal from
+     * @return the table
+     */
+    private static Table referenceTable(int seats, Deck deck){
+        List<Player> players = new ArrayList<>();
+        for(int s = 0; s < seats; s++){
+            players.add(new Player("Seat " + (s + 1), Simulation.SIMULATED_BANKROLL));
+        }
+        return new Table(players, deck);
+    }
+
+    private static Strategy[] basicStrategies(int seats){
+        Strategy strategies[] = new Strategy[seats];
+        Arrays.fill(strategies, new BasicStrategy());
+        return strategies;
+    }
+
+    private static int[] bets(int seats){
+        int bets[] = new int[seats];
+        Arrays.fill(bets, BET);
+        return bets;
+    }
+
+    /**
+     * verifies the candidate engine from the command line.
+     * usage: verify [rounds] [players] [threads] [divergence file]
+     * @param args command line arguments, starting with the mode
+     * @throws InterruptedException if interrupted while verifying
+     * @throws IOException if the divergence file cannot be written
+     */
+    static void runFromCommandLine(String args[]) throws InterruptedException, IOException {
+        long rounds = args.length > 1 ? Long.parseLong(args[1]) : 10000000;
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        Path file = Paths.get(args.length > 4 ? args[4] : "divergence.txt");
+        long start = System.nanoTime();
+        EngineVerifier verifier = new EngineVerifier(players);
+        Divergence divergence = verifier.verify(rounds, threads, 1);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if(divergence == null){
+            System.out.printf("%d rounds of %d players verified in %.1fs (%.0f rounds/s): the engines agree%n",
+                    rounds, players, seconds, rounds / seconds);
+            return;
+        }
+        System.out.printf("engines disagree on round %d of shoe %d after %.1fs%n", divergence.getRound(),
+                divergence.getSeed(), seconds);
+        if(divergence.isShrunk()){
+            System.out.printf("shrunk to %d players and %d cards, written to %s%n", divergence.getSeats(),
+                    divergence.cardCodes.length, file);
+            RecordedShoe.write(file, Collections.singletonList(divergence.toRecordedShoe()));
+        }else{
+            System.out.printf("the shoe is reshuffled during that round, so it can only be replayed from shoe %d%n",
+                    divergence.getSeed());
+        }
+        System.out.println(verifier.describe(divergence));
+    }
+}
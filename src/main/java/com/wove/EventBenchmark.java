@@ -0,0 +1,172 @@
+package com.wove;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures what publishing to an EventRing costs the thread playing a table.
+ * Three consumers listen: metrics counting events and summing settlements,
+ * a journal writing every event out as text, and a deliberately slow
+ * renderer that is allowed to miss events.  First events are published in a
+ * tight loop, reporting nanoseconds and bytes allocated per event; then real
+ * rounds are played, and the settlements the metrics consumer saw are checked
+ * against the players' money.
+ */
+class EventBenchmark {
+
+    /**
+     * counts events by type and sums the settlements
+     */
+    private static class Metrics implements EventRing.Handler {
+        /** events seen of each type */
+        private final long counts[] = new long[GameEvent.Type.values().length];
+        /** sum of every settlement amount */
+        private final AtomicLong settled = new AtomicLong();
+
+        @Override
+        public void onEvent(GameEvent event, boolean endOfBatch) {
+            counts[event.getType().ordinal()]++;
+            if(event.getType() == GameEvent.Type.SETTLEMENT){
+                settled.lazySet(settled.get() + event.getAmount());
+            }
+        }
+    }
+
+    /**
+     * gets the bytes the current thread has allocated so far
+     * @return the bytes allocated, or 0 if the JVM cannot tell
+     */
+    private static long allocatedBytes(){
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean){
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * creates a ring with the three benchmark consumers
+     * @param metrics handler of the metrics consumer
+     * @param consumers filled with the consumers in the order metrics, journal, renderer
+     * @return the started ring
+     */
+    private static EventRing newRing(Metrics metrics, List<EventRing.Consumer> consumers){
+        final PrintStream journal = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, false);
+        EventRing ring = new EventRing();
+        consumers.add(ring.addConsumer("metrics", 4096, metrics, EventRing.WaitStrategy.YIELD,
+                EventRing.Backpressure.BLOCK));
+        consumers.add(ring.addConsumer("journal", 4096, new EventRing.Handler() {
+            @Override
+            public void onEvent(GameEvent event, boolean endOfBatch) {
+                journal.println(event);
+                if(endOfBatch){
+                    journal.flush();
+                }
+            }
+        }, EventRing.WaitStrategy.SLEEP, EventRing.Backpressure.BLOCK));
+        consumers.add(ring.addConsumer("renderer", 256, new EventRing.Handler() {
+            @Override
+            public void onEvent(GameEvent event, boolean endOfBatch) {
+                if(endOfBatch){
+                    //a terminal redraw takes a while
+                    LockSupport.parkNanos(200000);
+                }
+            }
+        }, EventRing.WaitStrategy.SLEEP, EventRing.Backpressure.DROP));
+        ring.start();
+        return ring;
+    }
+
+    /**
+     * prints how much each consumer handled and missed
+     * @param consumers the consumers, in the order metrics, journal, renderer
+     */
+    private static void printConsumers(List<EventRing.Consumer> consumers){
+        String names[] = {"metrics", "journal", "renderer"};
+        for(int i = 0; i < names.length; i++){
+            EventRing.Consumer consumer = consumers.get(i);
+            System.out.printf("  %-8s handled %d, dropped %d, producer waited %d times%n", names[i],
+                    consumer.getHandled(), consumer.getDropped(), consumer.getProducerWaits());
+        }
+    }
+
+    /**
+     * runs the benchmark.
+     * usage: events-benchmark [events] [rounds]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]) throws InterruptedException, IOException {
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 5000000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+
+        List<EventRing.Consumer> consumers = new ArrayList<>();
+        EventRing ring = newRing(new Metrics(), consumers);
+        //warm up the publishing path first
+        for(int i = 0; i < count / 10; i++){
+            ring.publish(GameEvent.Type.CARD_DEALT, i, 0, 0, i % Card.NUMBER_OF_CODES, false, null, 0);
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes();
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        for(int i = 0; i < count; i++){
+            ring.publish(GameEvent.Type.CARD_DEALT, i, 0, 0, i % Card.NUMBER_OF_CODES, false, null, 0);
+        }
+        long elapsed = System.nanoTime() - start;
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = allocatedBytes() - allocatedBefore;
+        ring.close();
+        //wall time includes waiting on the blocking consumers, which share the processors
+        System.out.printf("%d events to 3 consumers: %.1f ns producer CPU and %.1f ns wall time per publish, "
+                + "%.4f bytes allocated per publish%n", count, (double) cpu / count, (double) elapsed / count,
+                (double) allocated / count);
+        printConsumers(consumers);
+
+        consumers.clear();
+        Metrics metrics = new Metrics();
+        ring = newRing(metrics, consumers);
+        List<Player> players = new ArrayList<>();
+        for(int s = 0; s < 3; s++){
+            players.add(new Player("Seat " + (s + 1), Simulation.SIMULATED_BANKROLL));
+        }
+        Table table = new Table(players, new Deck(new Random(1)));
+        table.setEventRing(ring);
+        Strategy strategies[] = new Strategy[players.size()];
+        int bets[] = new int[players.size()];
+        Arrays.fill(strategies, new BasicStrategy());
+        Arrays.fill(bets, 10);
+        start = System.nanoTime();
+        for(int r = 0; r < rounds; r++){
+            table.playRound(bets, strategies);
+        }
+        elapsed = System.nanoTime() - start;
+        ring.close();
+        long won = 0;
+        for(Player player : players){
+            won += player.getMoney() - (long) Simulation.SIMULATED_BANKROLL;
+        }
+        System.out.printf("%d rounds at %.0f rounds/s; settlements seen by metrics total %d, players actually won %d%n",
+                rounds, rounds / (elapsed / 1e9), metrics.settled.get(), won);
+        for(GameEvent.Type type : GameEvent.Type.values()){
+            System.out.printf("  %-16s %d%n", type, metrics.counts[type.ordinal()]);
+        }
+        printConsumers(consumers);
+    }
+}
@@ -0,0 +1,268 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Carries GameEvents from the thread playing a table to consumers on their
+ * own threads, so renderers, journals and metrics never slow a round down.
+ *
+ * Every consumer has its own preallocated ring of events written by the
+ * single producer and read by the consumer's thread.  Publishing copies the
+ * event into each consumer's next slot and moves that ring's tail forward
+ * with an ordered write; nothing is allocated and nothing is locked.  When a
+ * ring is full its backpressure policy decides whether the producer waits
+ * for the consumer or the consumer misses the event.  Giving each consumer
+ * its own copy means a consumer that is allowed to fall behind can never
+ * read a slot while it is being overwritten.
+ *
+ * Consumers are added before start() and publish() must only be called from
+ * one thread.
+ */
+class EventRing {
+
+    /**
+     * receives events on a consumer's thread
+     */
+    interface Handler {
+        /**
+         * handles one event.  The event is reused once this returns.
+         * @param event the event
+         * @param endOfBatch whether no more events are waiting right now,
+         *                   a good time to flush anything buffered
+         */
+        void onEvent(GameEvent event, boolean endOfBatch);
+    }
+
+    /**
+     * how a consumer waits for events
+     */
+    enum WaitStrategy {
+        /** keeps checking.  Lowest latency, but burns a core */
+        BUSY_SPIN,
+        /** gives up the processor between checks */
+        YIELD,
+        /** spins briefly, then sleeps a little longer each time up to a millisecond */
+        SLEEP;
+
+        /**
+         * waits once
+         * @param idleCount checks in a row that found nothing
+         */
+        void idle(int idleCount){
+            switch(this){
+                case YIELD:
+                    Thread.yield();
+                    break;
+                case SLEEP:
+                    if(idleCount < 100){
+                        Thread.yield();
+                    }else{
+                        LockSupport.parkNanos(Math.min(1000000L, 1000L * (idleCount - 99)));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * what happens when a consumer's ring is full
+     */
+    enum Backpressure {
+        /** the producer waits until the consumer makes room.  No event is lost */
+        BLOCK,
+        /** the consumer misses the event and the producer goes on */
+        DROP
+    }
+
+    /** every consumer */
+    private final List<Consumer> consumers;
+    /** consumers as an array, fixed by start() */
+    private Consumer started[];
+
+    /**
+     * creates a ring with no consumers
+     */
+    public EventRing(){
+        consumers = new ArrayList<>();
+    }
+
+    /**
+     * adds a consumer
+     * @param name name of the consumer's thread
+     * @param capacity events the consumer may fall behind by, rounded up to a power of two
+     * @param handler what the consumer does with each event
+     * @param waitStrategy how the consumer waits for events
+     * @param backpressure what happens when the consumer falls capacity events behind
+     * @return the consumer
+     */
+    public Consumer addConsumer(String name, int capacity, Handler handler, WaitStrategy waitStrategy,
+                                Backpressure backpressure){
+        if(started != null){
+            throw new IllegalStateException("consumers must be added before the ring is started");
+        }
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        Consumer consumer = new Consumer(name, capacity, handler, waitStrategy, backpressure);
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    /**
+     * starts every consumer's thread
+     */
+    public void start(){
+        started = consumers.toArray(new Consumer[consumers.size()]);
+        for(Consumer consumer : started){
+            consumer.thread.start();
+        }
+    }
+
+    /**
+     * stops every consumer once it has handled everything published to it
+     */
+    public void close() throws InterruptedException {
+        for(Consumer consumer : started){
+            consumer.running = false;
+        }
+        for(Consumer consumer : started){
+            consumer.thread.join();
+        }
+    }
+
+    /**
+     * publishes an event to every consumer.  Only ever call this from one thread.
+     */
+    public void publish(GameEvent.Type type, long round, int seat, int hand, int cardCode, boolean faceDown,
+                        PlayerAction action, long amount){
+        for(Consumer consumer : started){
+            long sequence = consumer.tailCache;
+            if(sequence - consumer.headCache >= consumer.slots.length){
+                consumer.headCache = consumer.head.get();
+                if(sequence - consumer.headCache >= consumer.slots.length){
+                    if(consumer.backpressure == Backpressure.DROP){
+                        consumer.dropped.lazySet(consumer.dropped.get() + 1);
+                        continue;
+                    }
+                    int idleCount = 0;
+                    while(sequence - consumer.headCache >= consumer.slots.length){
+                        Thread.yield();
+                        idleCount++;
+                        consumer.headCache = consumer.head.get();
+                    }
+                    consumer.producerWaits += idleCount;
+                }
+            }
+            consumer.slots[(int) sequence & consumer.mask].set(type, round, seat, hand, cardCode, faceDown, action,
+                    amount);
+            consumer.tailCache = sequence + 1;
+            consumer.tail.lazySet(sequence + 1);
+        }
+    }
+
+    /**
+     * a consumer and the ring of events waiting for it
+     */
+    static class Consumer {
+        /** the events, reused */
+        private final GameEvent slots[];
+        /** slots.length - 1 */
+        private final int mask;
+        /** sequence of the next event the consumer will read */
+        private final AtomicLong head = new AtomicLong();
+        /** sequence of the next event the producer will write */
+        private final AtomicLong tail = new AtomicLong();
+        /** producer's copy of tail */
+        private long tailCache;
+        /** producer's last look at head */
+        private long headCache;
+        /** events the consumer missed because its ring was full */
+        private final AtomicLong dropped = new AtomicLong();
+        /** times the producer yielded waiting for room.  Only the producer writes this */
+        private volatile long producerWaits;
+        /** events handled */
+        private final AtomicLong handled = new AtomicLong();
+        /** what happens when the ring is full */
+        private final Backpressure backpressure;
+        /** the consumer's thread */
+        private final Thread thread;
+        /** false once the ring is closed */
+        private volatile boolean running = true;
+
+        private Consumer(String name, int capacity, final Handler handler, final WaitStrategy waitStrategy,
+                         Backpressure backpressure){
+            int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+            slots = new GameEvent[size];
+            for(int i = 0; i < size; i++){
+                slots[i] = new GameEvent();
+            }
+            mask = size - 1;
+            this.backpressure = backpressure;
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    consume(handler, waitStrategy);
+                }
+            }, name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * handles events until the ring is closed and nothing is left
+         * @param handler what to do with each event
+         * @param waitStrategy how to wait when there is nothing to do
+         */
+        private void consume(Handler handler, WaitStrategy waitStrategy){
+            long next = head.get();
+            int idleCount = 0;
+            while(true){
+                boolean stopping = !running;
+                long available = tail.get();
+                if(available == next){
+                    if(stopping){
+                        return;
+                    }
+                    waitStrategy.idle(idleCount++);
+                    continue;
+                }
+                idleCount = 0;
+                for(long sequence = next; sequence < available; sequence++){
+                    handler.onEvent(slots[(int) sequence & mask], sequence == available - 1);
+                }
+                handled.lazySet(handled.get() + available - next);
+                next = available;
+                head.lazySet(next);
+            }
+        }
+
+        /**
+         * waits until the consumer has handled every event published to it so
+         * far, for a producer that is about to share something with it, like
+         * the terminal.  Only ever call this from the producing thread.
+         * @param waitStrategy how to wait
+         */
+        public void awaitHandled(WaitStrategy waitStrategy){
+            int idleCount = 0;
+            while(head.get() < tailCache){
+                waitStrategy.idle(idleCount++);
+            }
+        }
+
+        public long getHandled(){
+            return handled.get();
+        }
+
+        public long getDropped(){
+            return dropped.get();
+        }
+
+        public long getProducerWaits(){
+            return producerWaits;
+        }
+    }
+}
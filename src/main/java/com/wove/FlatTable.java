@@ -0,0 +1,407 @@
+package com.wove;
+
+import java.util.Random;
+
+/**
+ * A table of basic strategy players that keeps every hand in flat int
+ * arrays instead of Hand, Card and Player objects, so a round allocates
+ * nothing.  It is meant to play exactly like a Table of BasicStrategy players
+ * dealing from a Deck, quirks included: the dealer stops once they beat every
+ * hand, doubling takes the new total bet from the player, split hands are paid
+ * for by the casino and the shoe is reshuffled in the middle of a round once a
+ * quarter of it is left.  EngineVerifier checks that it does.
+ */
+class FlatTable {
+    /** number of suits, which card codes are grouped by */
+    private static final int SUITS = Card.Suit.values().length;
+    /** most hands a player can have in a round */
+    private static final int MAX_HANDS = CasinoRules.MAX_NUMBER_OF_SPLITS + 1;
+    /** basic strategy for a hard total, by total and dealer up card */
+    private static final PlayerAction HARD[][] = new PlayerAction[22][11];
+    /** basic strategy for a soft total, by total and dealer up card */
+    private static final PlayerAction SOFT[][] = new PlayerAction[22][11];
+    /** whether basic strategy splits a pair, by the value of one card and the dealer up card */
+    private static final boolean SPLIT[][] = new boolean[11][11];
+
+    static {
+        Card.Rank ranks[] = Card.Rank.values();
+        for(int upCard = 1; upCard <= 10; upCard++){
+            for(int total = 2; total <= 21; total++){
+                Hand hand = new Hand(0);
+                if(total <= 10){
+                    hand.addCard(new Card(ranks[total - 1], Card.Suit.SPADES));
+                }else if(total < 21){
+                    //two cards without an ace
+                    int first = Math.min(10, total - 2);
+                    hand.addCard(new Card(ranks[first - 1], Card.Suit.SPADES));
+                    hand.addCard(new Card(ranks[total - first - 1], Card.Suit.SPADES));
+                }else{
+                    hand.addCard(new Card(Card.Rank.TEN, Card.Suit.SPADES));
+                    hand.addCard(new Card(Card.Rank.FIVE, Card.Suit.SPADES));
+                    hand.addCard(new Card(Card.Rank.SIX, Card.Suit.SPADES));
+                }
+                HARD[total][upCard] = BasicStrategy.idealAction(hand, upCard, false);
+            }
+            for(int total = 11; total <= 21; total++){
+                Hand hand = new Hand(0);
+                hand.addCard(new Card(Card.Rank.ACE, Card.Suit.SPADES));
+                if(total > 11){
+                    hand.addCard(new Card(ranks[total - 12], Card.Suit.SPADES));
+                }
+                SOFT[total][upCard] = BasicStrategy.idealAction(hand, upCard, false);
+            }
+            for(int value = 1; value <= 10; value++){
+                Hand hand = new Hand(0);
+                hand.addCard(new Card(ranks[value - 1], Card.Suit.SPADES));
+                hand.addCard(new Card(ranks[value - 1], Card.Suit.HEARTS));
+                SPLIT[value][upCard] = BasicStrategy.idealAction(hand, upCard, true) == PlayerAction.SPLIT;
+            }
+        }
+    }
+
+    /** codes of the cards in the shoe.  Cards before next have been dealt */
+    private final int shoe[];
+    /** position of the top card of the shoe */
+    private int next;
+    /** source of randomness for every shuffle */
+    private final Random random;
+    /** number of players */
+    private final int seats;
+    /** money of each player */
+    private final int money[];
+    /** number of hands of each player */
+    private final int hands[];
+    /** number of splits of each player this round */
+    private final int splits[];
+    /** bet on each hand, MAX_HANDS per seat */
+    private final int bets[];
+    /** total of each hand counting aces as 1 */
+    private final int hardTotals[];
+    /** whether each hand holds an ace */
+    private final boolean aces[];
+    /** number of cards in each hand */
+    private final int cardCounts[];
+    /** rank of the first and second card of each hand, for splitting */
+    private final int firstRanks[], secondRanks[];
+    /** whether each hand came from a split */
+    private final boolean splitHands[];
+    /** whether each hand is a natural blackjack */
+    private final boolean naturals[];
+    /** dealer's total counting aces as 1 */
+    private int dealerHard;
+    /** whether the dealer holds an ace */
+    private boolean dealerAce;
+    /** value of the dealer's face up card */
+    private int upCard;
+
+    /**
+     * creates a table dealing from a freshly shuffled shoe, as new Deck(random) does
+     * @param seats number of players
+     * @param money money every player starts with
+     * @param random source of randomness for every shuffle
+     */
+    public FlatTable(int seats, int money, Random random){
+        this(seats, money, null, random);
+    }
+
+    /**
+     * creates a table dealing the given cards first, as new Deck(cardCodes, random) does
+     * @param seats number of players
+     * @param money money every player starts with
+     * @param cardCodes codes of the cards from the top of the shoe down.  null for a shuffled shoe
+     * @param random source of randomness for later shuffles
+     */
+    public FlatTable(int seats, int money, int cardCodes[], Random random){
+        this.seats = seats;
+        this.random = random;
+        this.shoe = new int[Deck.CARDS_PER_SUPER_DECK];
+        this.money = new int[seats];
+        this.hands = new int[seats];
+        this.splits = new int[seats];
+        this.bets = new int[seats * MAX_HANDS];
+        this.hardTotals = new int[seats * MAX_HANDS];
+        this.aces = new boolean[seats * MAX_HANDS];
+        this.cardCounts = new int[seats * MAX_HANDS];
+        this.firstRanks = new int[seats * MAX_HANDS];
+        this.secondRanks = new int[seats * MAX_HANDS];
+        this.splitHands = new boolean[seats * MAX_HANDS];
+        this.naturals = new boolean[seats * MAX_HANDS];
+        for(int s = 0; s < seats; s++){
+            this.money[s] = money;
+        }
+        if(cardCodes == null){
+            reshuffle();
+        }else{
+            next = shoe.length - cardCodes.length;
+            System.arraycopy(cardCodes, 0, shoe, next, cardCodes.length);
+        }
+    }
+
+    /**
+     * getter for a player's money
+     * @param seat the player's seat
+     * @return the player's money
+     */
+    public int getMoney(int seat){
+        return money[seat];
+    }
+
+    /**
+     * gets the number of cards left in the shoe
+     * @return the cards left
+     */
+    public int cardsRemaining(){
+        return shoe.length - next;
+    }
+
+    /**
+     * plays a whole round with every player betting the same
+     * @param bet bet of every player
+     */
+    public void playRound(int bet){
+        for(int s = 0; s < seats; s++){
+            money[s] -= bet;
+            hands[s] = 1;
+            splits[s] = 0;
+            clearHand(s * MAX_HANDS, bet);
+        }
+        dealerHard = 0;
+        dealerAce = false;
+        for(int pass = 0; pass < 2; pass++){
+            for(int s = 0; s < seats; s++){
+                addCard(s * MAX_HANDS, drawCard());
+            }
+            int card = drawCard();
+            dealerHard += value(card);
+            dealerAce |= rank(card) == 0;
+            upCard = value(card);
+        }
+        if(total(dealerHard, dealerAce) == 21){
+            for(int s = 0; s < seats; s++){
+                int hand = s * MAX_HANDS;
+                if(total(hardTotals[hand], aces[hand]) < 21){
+                    bets[hand] = 0;
+                }
+                money[s] += bets[hand];
+            }
+            return;
+        }
+        for(int s = 0; s < seats; s++){
+            int hand = s * MAX_HANDS;
+            if(total(hardTotals[hand], aces[hand]) == 21){
+                naturals[hand] = true;
+                bets[hand] += (int) (bets[hand] * CasinoRules.BLACKJACK_PAYOUT);
+            }
+        }
+        for(int s = 0; s < seats; s++){
+            for(int h = 0; h < hands[s]; h++){
+                playHand(s, s * MAX_HANDS + h);
+            }
+        }
+        while(dealerMustHit()){
+            int card = drawCard();
+            dealerHard += value(card);
+            dealerAce |= rank(card) == 0;
+        }
+        collectBets();
+    }
+
+    /**
+     * plays one hand to the end with basic strategy
+     * @param seat seat of the player
+     * @param hand index of the hand
+     */
+    private void playHand(int seat, int hand){
+        if(naturals[hand]){
+            return;
+        }
+        while(true){
+            boolean canHit = !(splitHands[hand] && firstRanks[hand] == 0 && cardCounts[hand] == 2);
+            boolean maySplit = splits[seat] < CasinoRules.MAX_NUMBER_OF_SPLITS && cardCounts[hand] == 2
+                    && firstRanks[hand] == secondRanks[hand];
+            boolean mayDouble = cardCounts[hand] == 2 && canHit;
+            PlayerAction action = chooseAction(hand, canHit, maySplit, mayDouble);
+            if(action == PlayerAction.HIT){
+                addCard(hand, drawCard());
+            }else if(action == PlayerAction.DOUBLE_DOWN){
+                //see Player.doubleDown
+                bets[hand] += Math.min(money[seat], bets[hand]);
+                money[seat] -= Math.min(money[seat], bets[hand]);
+                addCard(hand, drawCard());
+            }else if(action == PlayerAction.SPLIT){
+                splits[seat]++;
+                int newHand = seat * MAX_HANDS + hands[seat]++;
+                int rank = secondRanks[hand];
+                clearHand(newHand, bets[hand]);
+                splitHands[newHand] = true;
+                addCard(newHand, rank * SUITS);
+                int firstRank = firstRanks[hand];
+                clearHand(hand, bets[hand]);
+                splitHands[hand] = true;
+                addCard(hand, firstRank * SUITS);
+            }
+            if(action == PlayerAction.STAND || action == PlayerAction.DOUBLE_DOWN || hardTotals[hand] > 21){
+                return;
+            }
+        }
+    }
+
+    /**
+     * picks the action BasicStrategy would for a hand
+     * @param hand index of the hand
+     * @param canHit whether HIT is allowed
+     * @param maySplit whether SPLIT is allowed
+     * @param mayDouble whether DOUBLE_DOWN is allowed
+     * @return the action
+     */
+    private PlayerAction chooseAction(int hand, boolean canHit, boolean maySplit, boolean mayDouble){
+        if(maySplit && SPLIT[value(firstRanks[hand] * SUITS)][upCard]){
+            return PlayerAction.SPLIT;
+        }
+        int total = total(hardTotals[hand], aces[hand]);
+        boolean soft = total != hardTotals[hand];
+        PlayerAction action = soft ? SOFT[total][upCard] : HARD[total][upCard];
+        if(action == PlayerAction.STAND || (action == PlayerAction.HIT && canHit)
+                || (action == PlayerAction.DOUBLE_DOWN && mayDouble)){
+            return action;
+        }
+        if(action == PlayerAction.DOUBLE_DOWN && canHit){
+            return soft && total == 18 ? PlayerAction.STAND : PlayerAction.HIT;
+        }
+        return PlayerAction.STAND;
+    }
+
+    /**
+     * decides whether the dealer draws again, as Dealer.mustHit does
+     * @return whether the dealer must hit
+     */
+    private boolean dealerMustHit(){
+        if(dealerHard > 21){
+            return false;
+        }
+        int dealerTotal = total(dealerHard, dealerAce);
+        for(int s = 0; s < seats; s++){
+            for(int h = 0; h < hands[s]; h++){
+                int hand = s * MAX_HANDS + h;
+                if(hardTotals[hand] <= 21 && total(hardTotals[hand], aces[hand]) > dealerTotal){
+                    return dealerTotal < 17;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * pays or takes every bet, as Dealer.collectBets does
+     */
+    private void collectBets(){
+        int dealerTotal = total(dealerHard, dealerAce);
+        for(int s = 0; s < seats; s++){
+            for(int h = 0; h < hands[s]; h++){
+                int hand = s * MAX_HANDS + h;
+                int total = total(hardTotals[hand], aces[hand]);
+                if(naturals[hand]){
+                    //already paid
+                }else if(dealerHard > 21){
+                    if(hardTotals[hand] <= 21){
+                        bets[hand] *= 2;
+                    }
+                }else if(dealerTotal > total){
+                    bets[hand] = 0;
+                }else if(dealerTotal < total){
+                    bets[hand] *= 2;
+                }
+                money[s] += bets[hand];
+            }
+        }
+    }
+
+    /**
+     * empties a hand
+     * @param hand index of the hand
+     * @param bet bet on the hand
+     */
+    private void clearHand(int hand, int bet){
+        bets[hand] = bet;
+        hardTotals[hand] = 0;
+        aces[hand] = false;
+        cardCounts[hand] = 0;
+        splitHands[hand] = false;
+        naturals[hand] = false;
+    }
+
+    /**
+     * adds a card to a hand, losing its bet if it busts as Hand.addCard does
+     * @param hand index of the hand
+     * @param card code of the card
+     */
+    private void addCard(int hand, int card){
+        int rank = rank(card);
+        if(cardCounts[hand] == 0){
+            firstRanks[hand] = rank;
+        }else if(cardCounts[hand] == 1){
+            secondRanks[hand] = rank;
+        }
+        cardCounts[hand]++;
+        hardTotals[hand] += value(card);
+        aces[hand] |= rank == 0;
+        if(hardTotals[hand] > 21){
+            bets[hand] = 0;
+        }
+    }
+
+    /**
+     * takes the top card of the shoe, reshuffling first if a quarter or less is left as Deck.getCard does
+     * @return code of the card
+     */
+    private int drawCard(){
+        if(shoe.length - next < shoe.length / 4){
+            reshuffle();
+        }
+        return shoe[next++];
+    }
+
+    /**
+     * puts every card back in the shoe in order and shuffles it exactly as Deck does
+     */
+    private void reshuffle(){
+        for(int i = 0; i < shoe.length; i++){
+            shoe[i] = i % Card.NUMBER_OF_CODES;
+        }
+        for(int i = shoe.length - 1; i > 0; i--){
+            int j = (int)(random.nextDouble() * (i + 1));
+            int temp = shoe[i];
+            shoe[i] = shoe[j];
+            shoe[j] = temp;
+        }
+        next = 0;
+    }
+
+    /**
+     * gets the rank of a card
+     * @param card code of the card
+     * @return the ordinal of its Card.Rank.  0 is an ace
+     */
+    private static int rank(int card){
+        return card / SUITS;
+    }
+
+    /**
+     * gets the value of a card counting aces as 1
+     * @param card code of the card
+     * @return the value
+     */
+    private static int value(int card){
+        return Math.min(rank(card) + 1, 10);
+    }
+
+    /**
+     * gets the best total of a hand
+     * @param hard total counting aces as 1
+     * @param ace whether the hand holds an ace
+     * @return the total, counting one ace as 11 if that does not bust
+     */
+    private static int total(int hard, boolean ace){
+        return ace && hard + 10 <= 21 ? hard + 10 : hard;
+    }
+}
@@ -0,0 +1,205 @@
+package com.wove;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Emits Java Flight Recorder events for the phases of the game, so profiles
+ * of a running table can be sliced by round, decision, dealer draw, reshuffle
+ * and settlement.  Every event carries the table and, where there is one, the
+ * seat it is about.
+ *
+ * The game is built for Java 8, which has no jdk.jfr package to compile
+ * against, so the event types are created at run time with
+ * jdk.jfr.EventFactory when the JVM has it (Java 11 and later, and 8u262 and
+ * later).  All of them are disabled by default and record no stack traces.
+ * Enable them in a recording's settings, for example
+ *   -XX:StartFlightRecording:+com.wove.Round#enabled=true,+com.wove.Decision#enabled=true
+ * While an event is disabled, or there is no flight recorder, begin() returns
+ * null after one check.  Callers check for null before passing field values
+ * to commit(), so a disabled event costs no boxing either.
+ */
+class FlightEvents {
+
+    /**
+     * the kinds of event
+     */
+    enum Kind {
+        /** a round from taking the bets until every hand is settled */
+        ROUND("Round", "a round from taking the bets until every hand is settled",
+                new String[]{"table", "round", "players"}, new Class<?>[]{int.class, long.class, int.class}),
+        /** the time a hand waited for its player to choose an action */
+        DECISION("Decision", "time a hand waited for its player to choose an action",
+                new String[]{"table", "seat", "hand", "action"}, new Class<?>[]{int.class, int.class, int.class, String.class}),
+        /** the dealer drawing their cards after every player has finished */
+        DEALER_DRAW("Dealer Draw", "the dealer drawing cards after every hand has been played",
+                new String[]{"table", "cards", "total"}, new Class<?>[]{int.class, int.class, int.class}),
+        /** the shoe being reshuffled or replaced at the cut card */
+        RESHUFFLE("Reshuffle", "the shoe being reshuffled or replaced at the cut card",
+                new String[]{"table", "cardsLeft", "pooled"}, new Class<?>[]{int.class, int.class, boolean.class}),
+        /** money handed to one player when the dealer collects the bets */
+        SETTLEMENT("Settlement", "money handed to a player when bets are collected, stakes included",
+                new String[]{"table", "seat", "paid"}, new Class<?>[]{int.class, int.class, int.class});
+
+        /** label shown by tools */
+        private final String label;
+        /** description shown by tools */
+        private final String description;
+        /** names of the fields, in the order they are set */
+        private final String fieldNames[];
+        /** types of the fields */
+        private final Class<?> fieldTypes[];
+
+        Kind(String label, String description, String fieldNames[], Class<?> fieldTypes[]){
+            this.label = label;
+            this.description = description;
+            this.fieldNames = fieldNames;
+            this.fieldTypes = fieldTypes;
+        }
+
+        /**
+         * gets the name the event type is registered under
+         * @return the name
+         */
+        String eventName(){
+            return "com.wove." + label.replace(" ", "");
+        }
+    }
+
+    /** creates a new event of each kind.  null if there is no flight recorder */
+    private static final MethodHandle NEW_EVENT[];
+    /** tells whether each kind is enabled in any recording */
+    private static final MethodHandle IS_ENABLED[];
+    /** Event.begin() */
+    private static final MethodHandle BEGIN;
+    /** Event.set(int, Object) */
+    private static final MethodHandle SET;
+    /** Event.commit() */
+    private static final MethodHandle COMMIT;
+
+    static {
+        MethodHandle newEvent[] = null, isEnabled[] = null;
+        MethodHandle begin = null, set = null, commit = null;
+        try {
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> typeClass = Class.forName("jdk.jfr.EventType");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodHandle create = lookup.findStatic(factoryClass, "create",
+                    MethodType.methodType(factoryClass, List.class, List.class));
+            MethodHandle factoryNewEvent = lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass));
+            MethodHandle getEventType = lookup.findVirtual(factoryClass, "getEventType", MethodType.methodType(typeClass));
+            MethodHandle typeIsEnabled = lookup.findVirtual(typeClass, "isEnabled", MethodType.methodType(boolean.class));
+            newEvent = new MethodHandle[Kind.values().length];
+            isEnabled = new MethodHandle[Kind.values().length];
+            for(Kind kind : Kind.values()){
+                List<Object> annotations = new ArrayList<>();
+                annotations.add(annotation("Name", kind.eventName()));
+                annotations.add(annotation("Label", kind.label));
+                annotations.add(annotation("Description", kind.description));
+                annotations.add(annotation("Category", new String[]{"Blackjack"}));
+                annotations.add(annotation("Enabled", false));
+                annotations.add(annotation("StackTrace", false));
+                List<Object> fields = new ArrayList<>();
+                Constructor<?> field = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class);
+                for(int f = 0; f < kind.fieldNames.length; f++){
+                    fields.add(field.newInstance(kind.fieldTypes[f], kind.fieldNames[f]));
+                }
+                Object factory = create.invoke(annotations, fields);
+                newEvent[kind.ordinal()] = factoryNewEvent.bindTo(factory);
+                isEnabled[kind.ordinal()] = typeIsEnabled.bindTo(getEventType.invoke(factory));
+            }
+            begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class));
+            set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class));
+            commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class));
+        } catch (Throwable e) {
+            //no flight recorder in this JVM, so every event is off
+            newEvent = null;
+        }
+        NEW_EVENT = newEvent;
+        IS_ENABLED = isEnabled;
+        BEGIN = begin;
+        SET = set;
+        COMMIT = commit;
+    }
+
+    /**
+     * creates a jdk.jfr.AnnotationElement for one of the jdk.jfr annotations
+     * @param name simple name of the annotation
+     * @param value its value
+     * @return the annotation element
+     * @throws ReflectiveOperationException if it cannot be created
+     */
+    private static Object annotation(String name, Object value) throws ReflectiveOperationException {
+        Class<?> type = Class.forName("jdk.jfr." + name);
+        return Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class)
+                .newInstance(type.asSubclass(Annotation.class), value);
+    }
+
+    /**
+     * determines if events of a kind are being recorded
+     * @param kind the kind of event
+     * @return whether a recording has the kind enabled
+     */
+    static boolean isEnabled(Kind kind){
+        if(NEW_EVENT == null){
+            return false;
+        }
+        try {
+            return (boolean) IS_ENABLED[kind.ordinal()].invoke();
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * starts timing an event
+     * @param kind the kind of event
+     * @return the event, to be passed to commit().  null if the kind is not being recorded
+     */
+    static Object begin(Kind kind){
+        if(!isEnabled(kind)){
+            return null;
+        }
+        try {
+            Object event = NEW_EVENT[kind.ordinal()].invoke();
+            BEGIN.invoke(event);
+            return event;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * sets the fields of an event and records it, ending its timing
+     * @param event the event returned by begin().  Nothing is done if it is null
+     * @param values value of each field of the event's kind, in order
+     */
+    static void commit(Object event, Object... values){
+        if(event == null){
+            return;
+        }
+        try {
+            for(int i = 0; i < values.length; i++){
+                SET.invoke(event, i, values[i]);
+            }
+            COMMIT.invoke(event);
+        } catch (Throwable e) {
+            //a failed event must never disturb the game
+        }
+    }
+
+    /**
+     * records an event that takes no time
+     * @param kind the kind of event
+     * @param values value of each field of the kind, in order
+     */
+    static void record(Kind kind, Object... values){
+        commit(begin(kind), values);
+    }
+}
@@ -1,6 +1,13 @@
 package com.wove;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class starts and runs the game of blackjack.
@@ -14,15 +21,76 @@ public class GameController {
 
     /** gameDone determines if the user would no longer like to use this application */
     private boolean gameDone;
+    /** rounds started so far */
+    private long round;
+    /** whether the players are still deciding on their hands this round */
+    private boolean roundInProgress;
+    /** seat of the player deciding.  Only meaningful while a round is in progress */
+    private int currentSeat;
+    /** which of that player's hands is being decided on */
+    private int currentHand;
+    /** file a snapshot of the game is written to before every decision. null for none */
+    private Path checkpoint;
+    /** records the shoes dealt in this game. null if they are not recorded */
+    private ShoeRecorder recorder;
+    /** where everything that happens in the game is published.  null until the game is started */
+    private EventRing events;
+    /** the consumer that draws the table on the terminal */
+    private EventRing.Consumer screen;
+    /** money of each player before their bets this round, used to publish settlements */
+    private long moneyBeforeRound[];
+    /** time a player has for each decision.  0 to wait for as long as it takes */
+    private long decisionTimeoutMillis;
+    /** what is played for a player who runs out of time */
+    private DecisionClock.DefaultAction defaultAction;
+    /** times the decisions once the players are seated.  null without decision deadlines */
+    private DecisionClock clock;
 
     /**
      * Creates an instance of GameController that can be run
      */
     public GameController(){
+        this(new Deck());
+    }
+
+    /**
+     * Creates an instance of GameController that deals from the given deck
+     * @param deck the deck the dealer deals from
+     */
+    GameController(Deck deck){
         this.gameDone = false;
         this.players = new LinkedList<>();
         //pass a reference of the players to the dealer
-        this.dealer = new Dealer(players);
+        this.dealer = new Dealer(players, deck);
+    }
+
+    /**
+     * makes the game write a snapshot of itself to a file before every
+     * decision, so it can be resumed with restore() after a restart
+     * @param checkpoint the file.  Replaced on every decision
+     */
+    void setCheckpoint(Path checkpoint){
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * records every shoe dealt in this game, with the players' bets, until
+     * the players are done
+     * @param log where finished shoes are written
+     */
+    void recordShoes(ShoeRecorder.Log log){
+        recorder = new ShoeRecorder(dealer.getDeck(), log);
+    }
+
+    /**
+     * gives every decision a deadline, after which the default action is
+     * played for the player.  A warning is given when a third of the time is left
+     * @param timeoutMillis time a player has for each decision
+     * @param defaultAction what is played when time runs out
+     */
+    void setDecisionDeadlines(long timeoutMillis, DecisionClock.DefaultAction defaultAction){
+        this.decisionTimeoutMillis = timeoutMillis;
+        this.defaultAction = defaultAction;
     }
 
     /**
@@ -31,50 +99,243 @@ public class GameController {
     public void startGame(){
         //welcome users and get their names
         initGame();
+        startRendering();
+        playRounds();
+    }
+
+    /**
+     * continues a game rebuilt with restore() from where its snapshot was
+     * taken, asking for the decision it was waiting on first
+     */
+    public void resumeGame(){
+        startRendering();
+        playRounds();
+    }
+
+    /**
+     * starts drawing the table on the terminal from the events of the game,
+     * on a thread of its own
+     */
+    private void startRendering(){
+        events = new EventRing();
+        screen = events.addConsumer("terminal renderer", 1024, new TerminalRenderer(players, dealer),
+                EventRing.WaitStrategy.SLEEP, EventRing.Backpressure.BLOCK);
+        events.start();
+        //a round resumed from a checkpoint is settled against the money the players had when it was resumed
+        moneyBeforeRound = new long[players.size()];
+        for(int i = 0; i < players.size(); i++){
+            moneyBeforeRound[i] = players.get(i).getMoney();
+        }
+    }
+
+    /**
+     * waits until the renderer has drawn everything published so far, so the
+     * game can use the terminal itself
+     */
+    private void awaitScreen(){
+        screen.awaitHandled(EventRing.WaitStrategy.SLEEP);
+    }
+
+    /**
+     * plays rounds until the players are done, finishing the round in progress first
+     */
+    private void playRounds(){
+        if(decisionTimeoutMillis > 0){
+            clock = new DecisionClock(players, decisionTimeoutMillis, decisionTimeoutMillis / 3, defaultAction);
+        }
         //loop for each round of Blackjack
         while(!gameDone) {
-            //take bets and hand out cards
-            startRound();
-            //blackjack means the dealer drew an Ace and ten card first time
-            if(dealer.hasBlackjack()) {
-                //tell the users that the round is over and ask if they are done playing
-                gameDone = handleDealerHasBlackjack();
-                continue;
+            if(!roundInProgress){
+                round++;
             }
-            //Pay the players who got blackjack (21 on the first two cards)
-            payPlayersWithBlackjack();
-            //go through each player and ask them what to do
-            for(Player player : players){
-                //loop through each player's hand.  using an index to allow for adding hands on the fly
-                for(int i = 0; i < player.getHands().size(); i++){
-                    PlayerAction action;
-                    Hand hand = player.getHands().get(i);
-                    //skip if the hand is a natural blackjack. those people are done and paid
-                    if(hand.isNaturalBlackJack()){
-                        continue;
-                    }
-                    //loop until no more actions are to be done on a given hand
-                    do {
-                        Set<PlayerAction> availableActions = getAvailableActions(hand, player);
-                        action = UserIO.getPlayerAction(player, hand, players, dealer, availableActions);
-                        performPlayerAction(action, player, hand);
-                        UserIO.clearScreen();
-                        UserIO.printAllHands(hand, players, dealer);
-                    }while(action != PlayerAction.STAND && action != PlayerAction.DOUBLE_DOWN  && !hand.isBust());
+            Object roundEvent = FlightEvents.begin(FlightEvents.Kind.ROUND);
+            if(!roundInProgress){
+                //take bets and hand out cards
+                startRound();
+                //blackjack means the dealer drew an Ace and ten card first time
+                if(dealer.hasBlackjack()) {
+                    //tell the users that the round is over and ask if they are done playing
+                    gameDone = handleDealerHasBlackjack();
+                    endRoundEvent(roundEvent);
+                    continue;
                 }
+                //Pay the players who got blackjack (21 on the first two cards)
+                payPlayersWithBlackjack();
+                roundInProgress = true;
+                currentSeat = 0;
+                currentHand = 0;
             }
+            //go through each player and ask them what to do
+            playHands();
+            roundInProgress = false;
+            awaitScreen();
             UserIO.timeForDealerToDraw(players, dealer);
             //Show the dealer drawing cards
             dealerDraws();
             //dealer evaluates all player's hands and scores them
             dealer.collectBets();
+            publishSettlements();
+            endRoundEvent(roundEvent);
             //show the results and ask if the user wants to play again
+            awaitScreen();
             gameDone = UserIO.isPlayerDone(players, dealer);
         }
 
-        UserIO.thanksForPlaying(players);
+        if(recorder != null){
+            recorder.finish();
+        }
+        try {
+            events.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        UserIO.thanksForPlaying(players, clock);
+    }
+
+    /**
+     * asks every player what to do with each of their hands, starting from
+     * the current seat and hand
+     */
+    private void playHands(){
+        for(; currentSeat < players.size(); currentSeat++, currentHand = 0){
+            Player player = players.get(currentSeat);
+            //loop through each player's hand.  using an index to allow for adding hands on the fly
+            for(; currentHand < player.getHands().size(); currentHand++){
+                PlayerAction action;
+                Hand hand = player.getHands().get(currentHand);
+                //skip if the hand is a natural blackjack. those people are done and paid
+                if(hand.isNaturalBlackJack()){
+                    continue;
+                }
+                //loop until no more actions are to be done on a given hand
+                do {
+                    writeCheckpoint();
+                    Set<PlayerAction> availableActions = getAvailableActions(hand, player);
+                    awaitScreen();
+                    Object decisionEvent = FlightEvents.begin(FlightEvents.Kind.DECISION);
+                    action = UserIO.getPlayerAction(player, currentSeat, hand, players, dealer, availableActions,
+                            clock);
+                    if(decisionEvent != null){
+                        FlightEvents.commit(decisionEvent, dealer.getTableId(), currentSeat, currentHand, action.name());
+                    }
+                    performPlayerAction(action, player, hand);
+                    if(clock != null){
+                        clock.decided();
+                    }
+                }while(action != PlayerAction.STAND && action != PlayerAction.DOUBLE_DOWN  && !hand.isBust());
+            }
+        }
+    }
+
+    /**
+     * writes a snapshot of the game: the deck, every player's money, hands and
+     * bets, the dealer's hand and whose decision is next.  See TableSnapshot
+     * for the layout.  The game stays playable.
+     * @param out buffer in TableSnapshot.BYTE_ORDER.  Its position is moved past the snapshot
+     */
+    void writeSnapshot(ByteBuffer out){
+        TableSnapshot.writeHeader(out, TableSnapshot.GAME);
+        TableSnapshot.writeDeck(dealer.getDeck(), out);
+        TableSnapshot.writeSeats(players, out);
+        TableSnapshot.writeDealer(dealer, out);
+        TableSnapshot.writePosition(out, round, currentSeat, currentHand,
+                (roundInProgress ? 0 : TableSnapshot.ROUND_OVER) | (gameDone ? TableSnapshot.GAME_DONE : 0));
+    }
+
+    /**
+     * rebuilds a game from a snapshot written by writeSnapshot()
+     * @param in buffer in TableSnapshot.BYTE_ORDER at the start of the snapshot
+     * @return the game, ready for resumeGame()
+     * @throws IllegalArgumentException if the buffer does not hold a snapshot of a game
+     */
+    static GameController restore(ByteBuffer in){
+        int version = TableSnapshot.readHeader(in, TableSnapshot.GAME);
+        GameController game = new GameController(TableSnapshot.readDeck(in));
+        TableSnapshot.readSeats(in, game.players);
+        TableSnapshot.readDealer(in, game.dealer, version);
+        game.round = in.getLong();
+        game.currentSeat = in.get();
+        game.currentHand = in.get();
+        int flags = in.get();
+        game.roundInProgress = (flags & TableSnapshot.ROUND_OVER) == 0;
+        game.gameDone = (flags & TableSnapshot.GAME_DONE) != 0;
+        return game;
+    }
+
+    /**
+     * replaces the checkpoint file with a snapshot of the game, if there is one
+     */
+    private void writeCheckpoint(){
+        if(checkpoint == null){
+            return;
+        }
+        ByteBuffer out = ByteBuffer.allocate(TableSnapshot.TYPICAL_MAX_SIZE).order(TableSnapshot.BYTE_ORDER);
+        writeSnapshot(out);
+        //write next to the file and move over it so a crash never leaves half a snapshot
+        Path partial = checkpoint.resolveSibling(checkpoint.getFileName() + ".partial");
+        try {
+            Files.write(partial, Arrays.copyOf(out.array(), out.position()));
+            Files.move(partial, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not write checkpoint " + checkpoint, e);
+        }
+    }
+
+    /**
+     * plays the terminal game, saving it before every decision to a checkpoint
+     * file and resuming from that file if it already exists.  Decisions can
+     * be given a deadline, after which the default action, stand or bot, is
+     * played.  Every shoe dealt can also be appended to a shoe file for the
+     * replay mode.
+     * usage: play [checkpoint file] [decision timeout seconds] [default action] [shoe file]
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the checkpoint file cannot be read or the shoe file cannot be opened
+     */
+    static void runFromCommandLine(String args[]) throws IOException {
+        Path checkpoint = Paths.get(args.length > 1 ? args[1] : "blackjack.save");
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(args.length > 2 ? Long.parseLong(args[2]) : 0);
+        DecisionClock.DefaultAction defaultAction = DecisionClock.DefaultAction.valueOf(
+                (args.length > 3 ? args[3] : "stand").toUpperCase());
+        ShoeRecorder.Log shoes = args.length > 4 ? new ShoeRecorder.Log(Paths.get(args[4])) : null;
+        try {
+            boolean resuming = Files.exists(checkpoint);
+            GameController game;
+            if(resuming){
+                ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(checkpoint)).order(TableSnapshot.BYTE_ORDER);
+                game = restore(in);
+            }else{
+                game = new GameController();
+            }
+            game.setCheckpoint(checkpoint);
+            if(timeoutMillis > 0){
+                game.setDecisionDeadlines(timeoutMillis, defaultAction);
+            }
+            if(shoes != null){
+                game.recordShoes(shoes);
+            }
+            if(resuming){
+                game.resumeGame();
+            }else{
+                game.startGame();
+            }
+        } finally {
+            if(shoes != null){
+                shoes.close();
+            }
+        }
+        //a finished game starts over next time
+        Files.deleteIfExists(checkpoint);
     }
 
+    /**
+     * records the flight recorder event of a settled round
+     * @param roundEvent the event begun when the round started. null if not recorded
+     */
+    private void endRoundEvent(Object roundEvent){
+        if(roundEvent != null){
+            FlightEvents.commit(roundEvent, dealer.getTableId(), round, players.size());
+        }
+    }
 
     /**
      * Initializes a game of blackjack
@@ -94,38 +355,104 @@ public class GameController {
      * Gets the bets of each player
      */
     private void startRound(){
+        awaitScreen();
+        for(int i = 0; i < players.size(); i++){
+            moneyBeforeRound[i] = players.get(i).getMoney();
+        }
         UserIO.clearScreen();
         UserIO.beginRound();
         Map<Player, Integer> bets = UserIO.getBets(players);
-        for(Player player : players){
+        for(int i = 0; i < players.size(); i++){
+            Player player = players.get(i);
+            events.publish(GameEvent.Type.BET, round, i, 0, -1, false, null, bets.get(player));
             //clears the player's old hand and gives them a new hand
             player.newHand(bets.get(player));
         }
+        if(recorder != null){
+            int seatBets[] = new int[players.size()];
+            for(int i = 0; i < seatBets.length; i++){
+                seatBets[i] = bets.get(players.get(i));
+            }
+            recorder.roundStarted(seatBets);
+        }
         handOutCards();
     }
 
     /**
-     * have the dealer hand out the cards one by one and updates the screen
-     * for every new card.
+     * have the dealer hand out the cards and publishes them one by one in
+     * the order they were dealt
      */
     private void handOutCards() {
         dealer.startRound();
         while(!dealer.doneHandingOutCards()){
             dealer.handOutCard();
-            UserIO.clearScreen();
-            UserIO.printAllHands(null, players, dealer);
-            System.out.println();
-            UserIO.pause(800);
+        }
+        for(int c = 0; c < 2; c++){
+            for(int i = 0; i < players.size(); i++){
+                Hand hand = players.get(i).getHands().get(0);
+                events.publish(GameEvent.Type.CARD_DEALT, round, i, 0, hand.getCard(c).getCode(), false, null, 0);
+            }
+            Card card = dealer.getHand().getCard(c);
+            events.publish(GameEvent.Type.CARD_DEALT, round, GameEvent.DEALER_SEAT, 0, card.getCode(),
+                    !card.isVisible(), null, 0);
+        }
+        //side bets are settled on the deal, so show them before anyone plays
+        awaitScreen();
+        if(UserIO.printSideBetResults(players)){
+            UserIO.pause(2000);
         }
     }
 
     /**
      * pay players who have a blackjack.  Blackjack
-     * payout is found in CasinoRules.  Explain what
-     * happened afterwards
+     * payout is found in CasinoRules.
      */
     private void payPlayersWithBlackjack() {
         dealer.payPlayersWithBlackJack();
+        publishBlackjacks();
+    }
+
+    /**
+     * publishes every natural blackjack of the deal, the dealer's last
+     */
+    private void publishBlackjacks(){
+        for(int i = 0; i < players.size(); i++){
+            Hand hand = players.get(i).getHands().get(0);
+            if(hand.isNaturalBlackJack()){
+                events.publish(GameEvent.Type.BLACKJACK, round, i, 0, -1, false, null, hand.getBet());
+            }
+        }
+        if(dealer.getHand().isNaturalBlackJack()){
+            events.publish(GameEvent.Type.BLACKJACK, round, GameEvent.DEALER_SEAT, 0, -1, false, null, 0);
+        }
+    }
+
+    /**
+     * turns the dealer's face down card over and publishes it
+     */
+    private void flipDealerCards(){
+        dealer.flipCards();
+        events.publish(GameEvent.Type.HOLE_CARD_TURNED, round, GameEvent.DEALER_SEAT, 0,
+                dealer.getHand().getCard(0).getCode(), false, null, 0);
+    }
+
+    /**
+     * publishes the card just dealt to a hand of the player deciding
+     * @param hand the hand
+     */
+    private void publishLastCard(Hand hand){
+        events.publish(GameEvent.Type.CARD_DEALT, round, currentSeat, currentHand,
+                hand.getCard(hand.numberOfCards() - 1).getCode(), false, null, 0);
+    }
+
+    /**
+     * publishes what every player won or lost this round
+     */
+    private void publishSettlements(){
+        for(int i = 0; i < players.size(); i++){
+            events.publish(GameEvent.Type.SETTLEMENT, round, i, -1, -1, false, null,
+                    players.get(i).getMoney() - moneyBeforeRound[i]);
+        }
     }
 
     /**
@@ -140,27 +467,37 @@ public class GameController {
                 player.getHands().get(0).setNaturalBlackJack();
             }
         }
+        publishBlackjacks();
         dealer.collectBets();
-        dealer.flipCards();
-        UserIO.clearScreen();
-        UserIO.printAllHands(null, players, dealer);
+        flipDealerCards();
+        publishSettlements();
+        awaitScreen();
         return UserIO.dealerHasBlackjack();
     }
 
     /**
-     * Performs the action the player requested or asks the dealer to do so.
+     * Performs the action the player requested or asks the dealer to do so,
+     * and publishes what happened.
      */
     private void performPlayerAction(PlayerAction action, Player player, Hand hand){
+        events.publish(GameEvent.Type.ACTION_TAKEN, round, currentSeat, currentHand, -1, false, action, 0);
         switch(action){
             case HIT:
                 dealer.hit(hand);
+                publishLastCard(hand);
                 break;
             case DOUBLE_DOWN:
+                int betBefore = hand.getBet();
                 player.doubleDown(hand);
+                events.publish(GameEvent.Type.DOUBLE, round, currentSeat, currentHand, -1, false, null,
+                        hand.getBet() - betBefore);
                 dealer.hit(hand);
+                publishLastCard(hand);
                 break;
             case SPLIT:
                 player.split(hand);
+                events.publish(GameEvent.Type.SPLIT, round, currentSeat, player.getHands().size() - 1, -1, false,
+                        null, 0);
                 break;
         }
     }
@@ -171,7 +508,7 @@ public class GameController {
      * @param player current player
      * @return the available actions
      */
-    private Set<PlayerAction> getAvailableActions(Hand hand, Player player){
+    static Set<PlayerAction> getAvailableActions(Hand hand, Player player){
         Set<PlayerAction> availableActions = new HashSet<>();
         availableActions.add(PlayerAction.STAND);
         if(hand.canHit()){
@@ -187,20 +524,21 @@ public class GameController {
     }
 
     /**
-     * Has the dealer draw his cards one by one updating the screen each time
+     * Has the dealer draw his cards one by one, publishing each of them
      */
     private void dealerDraws(){
-        dealer.flipCards();
-        UserIO.clearScreen();
-        UserIO.printAllHands(dealer.getHand(), players, dealer);
-        System.out.println();
+        Object drawEvent = FlightEvents.begin(FlightEvents.Kind.DEALER_DRAW);
+        int cardsBefore = dealer.getHand().numberOfCards();
+        flipDealerCards();
         while(dealer.mustHit()){
-            UserIO.pause(800);
             dealer.hitDealer();
-            UserIO.clearScreen();
-            UserIO.printAllHands(dealer.getHand(), players, dealer);
-            System.out.println();
+            Hand dealerHand = dealer.getHand();
+            events.publish(GameEvent.Type.DEALER_DRAW, round, GameEvent.DEALER_SEAT, 0,
+                    dealerHand.getCard(dealerHand.numberOfCards() - 1).getCode(), false, null, 0);
+        }
+        if(drawEvent != null){
+            FlightEvents.commit(drawEvent, dealer.getTableId(), dealer.getHand().numberOfCards() - cardsBefore,
+                    dealer.getHand().getValue());
         }
-        UserIO.pause(800);
     }
 }
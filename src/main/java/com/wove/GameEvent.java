@@ -0,0 +1,133 @@
+package com.wove;
+
+/**
+ * Something that happened at a table, as published to an EventRing.  Events
+ * are preallocated in the ring and reused, so a consumer must copy anything
+ * it wants to keep before returning from its handler.  Fields that do not
+ * apply to a type of event are -1, except the action which is null and the
+ * amount which is 0.
+ */
+class GameEvent {
+    /** seat number used for the dealer */
+    public static final int DEALER_SEAT = -1;
+
+    /**
+     * kinds of events
+     */
+    enum Type {
+        /** a player's bet as the round began, before any card was dealt.  amount is the bet */
+        BET,
+        /** a card was dealt to a hand when the round began, or by a hit */
+        CARD_DEALT,
+        /** a player chose an action for a hand */
+        ACTION_TAKEN,
+        /** a hand was split.  hand is the index of the new hand */
+        SPLIT,
+        /** a hand was doubled.  amount is what was added to the bet */
+        DOUBLE,
+        /**
+         * a first hand was a natural blackjack, or the dealer's hand was.
+         * amount is the player's bet once it was paid, which is only the
+         * bet if the dealer also had blackjack
+         */
+        BLACKJACK,
+        /** the dealer turned the face down card over.  cardCode is that card */
+        HOLE_CARD_TURNED,
+        /** the dealer drew a card after the players were done */
+        DEALER_DRAW,
+        /** a player's result for the round.  amount is what they won, negative for a loss */
+        SETTLEMENT
+    }
+
+    /** what happened */
+    private Type type;
+    /** number of the round at the table, starting at 1 */
+    private long round;
+    /** seat of the player, or DEALER_SEAT */
+    private int seat;
+    /** index of the hand among the player's hands */
+    private int hand;
+    /** code of the card, see Card.getCode() */
+    private int cardCode;
+    /** whether the card was dealt face down */
+    private boolean faceDown;
+    /** the action taken */
+    private PlayerAction action;
+    /** money involved */
+    private long amount;
+
+    /**
+     * overwrites every field of this event
+     */
+    void set(Type type, long round, int seat, int hand, int cardCode, boolean faceDown, PlayerAction action,
+             long amount){
+        this.type = type;
+        this.round = round;
+        this.seat = seat;
+        this.hand = hand;
+        this.cardCode = cardCode;
+        this.faceDown = faceDown;
+        this.action = action;
+        this.amount = amount;
+    }
+
+    /**
+     * overwrites every field of this event with those of another
+     * @param other event to copy
+     */
+    void copyFrom(GameEvent other){
+        set(other.type, other.round, other.seat, other.hand, other.cardCode, other.faceDown, other.action, other.amount);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getRound() {
+        return round;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public int getHand() {
+        return hand;
+    }
+
+    public int getCardCode() {
+        return cardCode;
+    }
+
+    public boolean isFaceDown() {
+        return faceDown;
+    }
+
+    public PlayerAction getAction() {
+        return action;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("round ").append(round).append(' ').append(type);
+        text.append(seat == DEALER_SEAT ? " dealer" : " seat " + seat);
+        if(hand >= 0){
+            text.append(" hand ").append(hand);
+        }
+        if(cardCode >= 0){
+            text.append(' ').append(faceDown ? "face down" : Card.fromCode(cardCode).toString());
+        }
+        if(action != null){
+            text.append(' ').append(action);
+        }
+        if(type == Type.BET || type == Type.DOUBLE || type == Type.BLACKJACK || type == Type.SETTLEMENT){
+            text.append(' ').append(amount);
+        }
+        return text.toString();
+    }
+}
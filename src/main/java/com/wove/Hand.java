@@ -39,6 +39,16 @@ class Hand {
         return cards.size();
     }
 
+    /**
+     * gets the card at the given position in this hand.  Position 0 is the
+     * first card dealt.
+     * @param index position of the card
+     * @return the card at that position
+     */
+    public Card getCard(int index){
+        return cards.get(index);
+    }
+
     /**
      * getter for the bet placed on this hand
      * @return bet placed on this hand
@@ -65,6 +75,21 @@ class Hand {
         newHand.splitHand = true;
     }
 
+    /**
+     * determines if this hand came from splitting a pair
+     * @return whether this hand has been split
+     */
+    public boolean isSplitHand(){
+        return splitHand;
+    }
+
+    /**
+     * marks this hand as coming from a split, used when a hand is rebuilt from a copy
+     */
+    void setSplitHand(){
+        splitHand = true;
+    }
+
     /**
      * determines if this hand can be hit.  When a hand of Aces
      * is split, it can only be hit once.
@@ -122,6 +147,20 @@ class Hand {
         return value;
     }
 
+    /**
+     * determines if this hand is soft, meaning an ace is being counted as 11
+     * @return if an ace in this hand is being counted as 11
+     */
+    public boolean isSoft(){
+        int total = 0;
+        boolean hasAce = false;
+        for(Card card : cards){
+            total += card.getMinValue();
+            hasAce |= card.isAce();
+        }
+        return hasAce && total + 10 <= 21;
+    }
+
     /**
      * Add a new card to this hand
      * @param card
@@ -0,0 +1,434 @@
+package com.wove;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Constants describing the hand history archive, and the round it stores.
+ *
+ * Where a round record file keeps a fixed width row per hand, the archive
+ * keeps whole rounds, every card and action included, packed into as few bits
+ * as they need.  The file starts with MAGIC and VERSION.  Rounds follow in
+ * chunks of ROUNDS_PER_CHUNK, each chunk starting with
+ *
+ *   method        int    STORED or DEFLATED
+ *   rawLength     int    bytes of the chunk once inflated
+ *   storedLength  int    bytes of the chunk in the file
+ *
+ * and, once inflated, holding its round count, the bit offset of every
+ * SKIP_INTERVAL-th round and the rounds themselves as a bit stream packed
+ * into little endian longs, least significant bit first.  A round is
+ *
+ *   seats         3 bits
+ *   dealer cards  5 bit count, then a 6 bit card code each
+ *   for every seat:
+ *     bet         1 bit, set if the bet equals the previous bet, else the
+ *                 zigzag varint of the difference.  The bet before the
+ *                 first seat of every skip table round counts as -1
+ *     hands       2 bits, the count less one
+ *     for every hand:
+ *       cards     5 bit count, then a 6 bit card code each
+ *       actions   5 bit count, then a 2 bit PlayerAction ordinal each
+ *       returned  varint, the money given back when the hand was settled
+ *
+ * where a varint is 7 bits of the value at a time, least significant first,
+ * each followed by a bit telling whether more follow.  Round numbers are not
+ * stored: round r is round r % ROUNDS_PER_CHUNK of chunk r / ROUNDS_PER_CHUNK.
+ * After the last chunk comes the index, the file offset of every chunk, and
+ * the file ends with the index offset, the round count and MAGIC.
+ */
+class HandArchiveFormat {
+    /** marks the start and end of an archive */
+    public static final int MAGIC = 0x424A4841;
+    /** version of the layout described above */
+    public static final int VERSION = 1;
+    /** byte order of every value in the file */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    /** rounds in every chunk except possibly the last */
+    public static final int ROUNDS_PER_CHUNK = 1024;
+    /** rounds between entries of a chunk's skip table */
+    public static final int SKIP_INTERVAL = 64;
+    /** chunk method of a chunk stored as is */
+    public static final int STORED = 0;
+    /** chunk method of a chunk compressed with deflate */
+    public static final int DEFLATED = 1;
+    /** bytes of the file header */
+    public static final int HEADER_SIZE = 8;
+    /** bytes before the data of every chunk */
+    public static final int CHUNK_HEADER_SIZE = 12;
+    /** bytes of the file trailer */
+    public static final int TRAILER_SIZE = 8 + 8 + 4;
+    /** bits of a seat count */
+    static final int SEAT_BITS = 3;
+    /** bits of a hand count less one */
+    static final int HAND_BITS = 2;
+    /** bits of a card or action count */
+    static final int COUNT_BITS = 5;
+    /** bits of a card code */
+    static final int CARD_BITS = 6;
+    /** bits of an action */
+    static final int ACTION_BITS = 2;
+    /** most hands a seat can have */
+    public static final int MAX_HANDS = CasinoRules.MAX_NUMBER_OF_SPLITS + 1;
+    /** most cards, or actions, a hand can hold */
+    public static final int MAX_CARDS = (1 << COUNT_BITS) - 1;
+
+    /**
+     * One archived round.  Rounds are filled in and read back in place, so a
+     * whole archive can be written or scanned without allocating per round.
+     */
+    static class Round {
+        /** actions by ordinal */
+        private static final PlayerAction ACTIONS[] = PlayerAction.values();
+
+        /** seats playing the round */
+        private int seats;
+        /** base bet of each seat */
+        private final int bets[] = new int[CasinoRules.MAX_NUMBER_PLAYERS];
+        /** hands of each seat */
+        private final int hands[] = new int[CasinoRules.MAX_NUMBER_PLAYERS];
+        /** cards of each hand, indexed by seat * MAX_HANDS + hand */
+        private final int cardCounts[] = new int[CasinoRules.MAX_NUMBER_PLAYERS * MAX_HANDS];
+        /** card codes of each hand, MAX_CARDS per hand */
+        private final byte cards[] = new byte[CasinoRules.MAX_NUMBER_PLAYERS * MAX_HANDS * MAX_CARDS];
+        /** actions taken on each hand */
+        private final int actionCounts[] = new int[CasinoRules.MAX_NUMBER_PLAYERS * MAX_HANDS];
+        /** action ordinals of each hand, MAX_CARDS per hand */
+        private final byte actions[] = new byte[CasinoRules.MAX_NUMBER_PLAYERS * MAX_HANDS * MAX_CARDS];
+        /** money given back for each hand */
+        private final int returned[] = new int[CasinoRules.MAX_NUMBER_PLAYERS * MAX_HANDS];
+        /** cards of the dealer */
+        private int dealerCardCount;
+        /** card codes of the dealer */
+        private final byte dealerCards[] = new byte[MAX_CARDS];
+
+        /**
+         * empties the round so it can be filled in again
+         */
+        void clear(){
+            seats = 0;
+            dealerCardCount = 0;
+        }
+
+        /**
+         * adds the next seat, which has no hands yet
+         * @param bet base bet of the seat
+         */
+        void addSeat(int bet){
+            if(seats == bets.length){
+                throw new IllegalStateException("too many seats");
+            }
+            bets[seats] = bet;
+            hands[seats] = 0;
+            seats++;
+        }
+
+        /**
+         * adds a hand without cards to the last seat added
+         * @param returnedMoney money given back to the player when the hand was settled
+         */
+        void addHand(int returnedMoney){
+            int seat = seats - 1;
+            if(hands[seat] == MAX_HANDS){
+                throw new IllegalStateException("too many hands");
+            }
+            int hand = seat * MAX_HANDS + hands[seat]++;
+            cardCounts[hand] = 0;
+            actionCounts[hand] = 0;
+            returned[hand] = returnedMoney;
+        }
+
+        /**
+         * adds a card to the last hand added
+         * @param code code of the card, see Card.getCode()
+         */
+        void addCard(int code){
+            int hand = lastHand();
+            if(cardCounts[hand] == MAX_CARDS){
+                throw new IllegalStateException("too many cards");
+            }
+            cards[hand * MAX_CARDS + cardCounts[hand]++] = (byte) code;
+        }
+
+        /**
+         * adds an action to the last hand added
+         * @param action the action taken
+         */
+        void addAction(PlayerAction action){
+            int hand = lastHand();
+            if(actionCounts[hand] == MAX_CARDS){
+                throw new IllegalStateException("too many actions");
+            }
+            actions[hand * MAX_CARDS + actionCounts[hand]++] = (byte) action.ordinal();
+        }
+
+        /**
+         * adds a card to the dealer's hand
+         * @param code code of the card, see Card.getCode()
+         */
+        void addDealerCard(int code){
+            if(dealerCardCount == MAX_CARDS){
+                throw new IllegalStateException("too many cards");
+            }
+            dealerCards[dealerCardCount++] = (byte) code;
+        }
+
+        /**
+         * gets the index of the hand added last
+         * @return index into the per hand arrays
+         */
+        private int lastHand(){
+            int seat = seats - 1;
+            return seat * MAX_HANDS + hands[seat] - 1;
+        }
+
+        public int getSeats() {
+            return seats;
+        }
+
+        public int getBet(int seat) {
+            return bets[seat];
+        }
+
+        public int getHands(int seat) {
+            return hands[seat];
+        }
+
+        public int getCardCount(int seat, int hand) {
+            return cardCounts[seat * MAX_HANDS + hand];
+        }
+
+        public int getCard(int seat, int hand, int index) {
+            return cards[(seat * MAX_HANDS + hand) * MAX_CARDS + index];
+        }
+
+        public int getActionCount(int seat, int hand) {
+            return actionCounts[seat * MAX_HANDS + hand];
+        }
+
+        public PlayerAction getAction(int seat, int hand, int index) {
+            return ACTIONS[actions[(seat * MAX_HANDS + hand) * MAX_CARDS + index]];
+        }
+
+        public int getReturned(int seat, int hand) {
+            return returned[seat * MAX_HANDS + hand];
+        }
+
+        public int getDealerCardCount() {
+            return dealerCardCount;
+        }
+
+        public int getDealerCard(int index) {
+            return dealerCards[index];
+        }
+
+        /**
+         * packs the round onto the end of a bit stream
+         * @param out the bit stream
+         * @param previousBet last bet packed, or -1 at a skip table round
+         * @return last bet of this round
+         */
+        int pack(BitWriter out, int previousBet){
+            out.write(seats, SEAT_BITS);
+            out.write(dealerCardCount, COUNT_BITS);
+            for(int i = 0; i < dealerCardCount; i++){
+                out.write(dealerCards[i], CARD_BITS);
+            }
+            for(int seat = 0; seat < seats; seat++){
+                if(bets[seat] == previousBet){
+                    out.write(1, 1);
+                }else{
+                    out.write(0, 1);
+                    long delta = (long) bets[seat] - previousBet;
+                    out.writeVarint((delta << 1) ^ (delta >> 63));
+                    previousBet = bets[seat];
+                }
+                out.write(hands[seat] - 1, HAND_BITS);
+                for(int h = 0; h < hands[seat]; h++){
+                    int hand = seat * MAX_HANDS + h;
+                    out.write(cardCounts[hand], COUNT_BITS);
+                    for(int i = 0; i < cardCounts[hand]; i++){
+                        out.write(cards[hand * MAX_CARDS + i], CARD_BITS);
+                    }
+                    out.write(actionCounts[hand], COUNT_BITS);
+                    for(int i = 0; i < actionCounts[hand]; i++){
+                        out.write(actions[hand * MAX_CARDS + i], ACTION_BITS);
+                    }
+                    out.writeVarint(returned[hand] & 0xFFFFFFFFL);
+                }
+            }
+            return previousBet;
+        }
+
+        /**
+         * replaces this round with the next one of a bit stream
+         * @param in the bit stream
+         * @param previousBet last bet unpacked, or -1 at a skip table round
+         * @return last bet of this round
+         */
+        int unpack(BitReader in, int previousBet){
+            seats = in.read(SEAT_BITS);
+            dealerCardCount = in.read(COUNT_BITS);
+            for(int i = 0; i < dealerCardCount; i++){
+                dealerCards[i] = (byte) in.read(CARD_BITS);
+            }
+            for(int seat = 0; seat < seats; seat++){
+                if(in.read(1) == 0){
+                    long zigzag = in.readVarint();
+                    previousBet += (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+                }
+                bets[seat] = previousBet;
+                hands[seat] = in.read(HAND_BITS) + 1;
+                for(int h = 0; h < hands[seat]; h++){
+                    int hand = seat * MAX_HANDS + h;
+                    int count = cardCounts[hand] = in.read(COUNT_BITS);
+                    for(int i = 0; i < count; i++){
+                        cards[hand * MAX_CARDS + i] = (byte) in.read(CARD_BITS);
+                    }
+                    count = actionCounts[hand] = in.read(COUNT_BITS);
+                    for(int i = 0; i < count; i++){
+                        actions[hand * MAX_CARDS + i] = (byte) in.read(ACTION_BITS);
+                    }
+                    returned[hand] = (int) in.readVarint();
+                }
+            }
+            return previousBet;
+        }
+    }
+
+    /**
+     * appends values of any width up to 32 bits to a growing array of longs
+     */
+    static class BitWriter {
+        /** the bit stream, least significant bit first */
+        private long words[] = new long[1024];
+        /** bits written */
+        private long position;
+
+        /**
+         * appends the low bits of a value
+         * @param value the value.  Bits above the width are ignored
+         * @param bits width of the value, at most 32
+         */
+        void write(long value, int bits){
+            value &= (1L << bits) - 1;
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            if(word + 1 >= words.length){
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            words[word] |= value << offset;
+            if(offset + bits > 64){
+                words[word + 1] |= value >>> (64 - offset);
+            }
+            position += bits;
+        }
+
+        /**
+         * appends a varint
+         * @param value the value, treated as unsigned
+         */
+        void writeVarint(long value){
+            while((value & ~0x7FL) != 0){
+                write((value & 0x7F) | 0x80, 8);
+                value >>>= 7;
+            }
+            write(value, 8);
+        }
+
+        /**
+         * getter for the number of bits written
+         * @return bits written
+         */
+        long getPosition(){
+            return position;
+        }
+
+        /**
+         * gets the longs holding the bits written so far
+         * @return the backing array.  Only the first (getPosition() + 63) / 64 are used
+         */
+        long[] getWords(){
+            return words;
+        }
+
+        /**
+         * empties the stream
+         */
+        void clear(){
+            Arrays.fill(words, 0, (int) ((position + 63) >>> 6), 0);
+            position = 0;
+        }
+    }
+
+    /**
+     * reads values of any width up to 32 bits from an array of longs
+     */
+    static class BitReader {
+        /** the bit stream, least significant bit first, with a spare long at the end */
+        private long words[];
+        /** next bit to read */
+        private long position;
+
+        /**
+         * creates a reader of an empty stream
+         */
+        BitReader(){
+            words = new long[1];
+        }
+
+        /**
+         * makes sure the backing array holds at least some number of longs plus
+         * a spare one, so reads never need a bounds check of their own
+         * @param length longs the stream will hold
+         * @return the backing array to fill in
+         */
+        long[] reset(int length){
+            if(words.length < length + 1){
+                words = new long[length + 1];
+            }
+            words[length] = 0;
+            position = 0;
+            return words;
+        }
+
+        /**
+         * reads the next value
+         * @param bits width of the value, at most 32
+         * @return the value
+         */
+        int read(int bits){
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            long value = words[word] >>> offset;
+            if(offset + bits > 64){
+                value |= words[word + 1] << (64 - offset);
+            }
+            position += bits;
+            return (int) (value & ((1L << bits) - 1));
+        }
+
+        /**
+         * reads the next varint
+         * @return the value
+         */
+        long readVarint(){
+            long value = 0;
+            for(int shift = 0; ; shift += 7){
+                int group = read(8);
+                value |= (long) (group & 0x7F) << shift;
+                if((group & 0x80) == 0){
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * moves to a bit of the stream
+         * @param position the bit
+         */
+        void seek(long position){
+            this.position = position;
+        }
+    }
+}
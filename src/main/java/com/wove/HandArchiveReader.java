@@ -0,0 +1,225 @@
+package com.wove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads archives written by HandArchiveWriter, either every round in order or
+ * any single round by its number.  The chunk read last is kept unpacked, so
+ * looking up rounds near each other only costs the bits between them, and
+ * the skip table of a chunk bounds that to SKIP_INTERVAL rounds.
+ */
+class HandArchiveReader implements Closeable {
+    /** channel of the file being read */
+    private final FileChannel channel;
+    /** file offset of every chunk */
+    private final long chunkOffsets[];
+    /** total rounds in the file */
+    private final long roundCount;
+    /** inflates the chunks */
+    private final Inflater inflater;
+    /** bit stream of the chunk loaded */
+    private final HandArchiveFormat.BitReader bits;
+    /** bit offset of every SKIP_INTERVAL-th round of the chunk loaded */
+    private int skips[];
+    /** the chunk as stored in the file */
+    private ByteBuffer stored;
+    /** the chunk once inflated */
+    private ByteBuffer raw;
+    /** number of the chunk loaded.  -1 if none is */
+    private int loadedChunk;
+    /** rounds in the chunk loaded */
+    private int roundsInChunk;
+    /** round of the chunk the bit stream is at */
+    private int nextRoundInChunk;
+    /** last bet unpacked since the last skip table round */
+    private int previousBet;
+
+    /**
+     * opens an archive and reads its index
+     * @param path file to read
+     * @throws IOException if the file cannot be read or is not an archive
+     */
+    public HandArchiveReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if(size < HandArchiveFormat.HEADER_SIZE + HandArchiveFormat.TRAILER_SIZE){
+                throw new IOException(path + " is not a hand archive");
+            }
+            ByteBuffer header = read(0, HandArchiveFormat.HEADER_SIZE, null);
+            ByteBuffer trailer = read(size - HandArchiveFormat.TRAILER_SIZE, HandArchiveFormat.TRAILER_SIZE, null);
+            if(header.getInt(0) != HandArchiveFormat.MAGIC || trailer.getInt(16) != HandArchiveFormat.MAGIC){
+                throw new IOException(path + " is not a hand archive");
+            }
+            if(header.getInt(4) != HandArchiveFormat.VERSION){
+                throw new IOException("unsupported hand archive version " + header.getInt(4));
+            }
+            long indexOffset = trailer.getLong(0);
+            roundCount = trailer.getLong(8);
+            chunkOffsets = new long[(int) ((size - HandArchiveFormat.TRAILER_SIZE - indexOffset) / 8)];
+            read(indexOffset, chunkOffsets.length * 8, null).asLongBuffer().get(chunkOffsets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        inflater = new Inflater();
+        bits = new HandArchiveFormat.BitReader();
+        skips = new int[HandArchiveFormat.ROUNDS_PER_CHUNK / HandArchiveFormat.SKIP_INTERVAL];
+        loadedChunk = -1;
+    }
+
+    /**
+     * getter for the total number of rounds
+     * @return total number of rounds
+     */
+    public long getRoundCount() {
+        return roundCount;
+    }
+
+    /**
+     * reads one round
+     * @param round number of the round, counting from 0
+     * @param into where to unpack the round
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    public void readRound(long round, HandArchiveFormat.Round into) throws IOException {
+        if(round < 0 || round >= roundCount){
+            throw new IllegalArgumentException("no round " + round);
+        }
+        int chunk = (int) (round / HandArchiveFormat.ROUNDS_PER_CHUNK);
+        int inChunk = (int) (round % HandArchiveFormat.ROUNDS_PER_CHUNK);
+        if(chunk != loadedChunk){
+            loadChunk(chunk);
+        }
+        int skip = inChunk / HandArchiveFormat.SKIP_INTERVAL;
+        if(inChunk < nextRoundInChunk || skip * HandArchiveFormat.SKIP_INTERVAL > nextRoundInChunk){
+            //jump to the closest round the skip table knows of at or before the one wanted
+            bits.seek(skips[skip]);
+            nextRoundInChunk = skip * HandArchiveFormat.SKIP_INTERVAL;
+        }
+        while(nextRoundInChunk <= inChunk){
+            unpackNext(into);
+        }
+    }
+
+    /**
+     * unpacks every round in order and hands it to the visitor
+     * @param visitor called once per round
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    public void forEachRound(RoundVisitor visitor) throws IOException {
+        HandArchiveFormat.Round round = new HandArchiveFormat.Round();
+        long number = 0;
+        for(int chunk = 0; chunk < chunkOffsets.length; chunk++){
+            loadChunk(chunk);
+            while(nextRoundInChunk < roundsInChunk){
+                unpackNext(round);
+                visitor.visit(number++, round);
+            }
+        }
+    }
+
+    /**
+     * unpacks the round the bit stream is at
+     * @param into where to unpack the round
+     */
+    private void unpackNext(HandArchiveFormat.Round into){
+        if(nextRoundInChunk % HandArchiveFormat.SKIP_INTERVAL == 0){
+            //bets are stored relative to the previous one only within a skip interval
+            previousBet = -1;
+        }
+        previousBet = into.unpack(bits, previousBet);
+        nextRoundInChunk++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * reads and inflates a chunk and moves to its first round
+     * @param chunk number of the chunk
+     * @throws IOException if the file cannot be read or the chunk is damaged
+     */
+    private void loadChunk(int chunk) throws IOException {
+        loadedChunk = -1;
+        ByteBuffer header = read(chunkOffsets[chunk], HandArchiveFormat.CHUNK_HEADER_SIZE, null);
+        int method = header.getInt(0);
+        int rawLength = header.getInt(4);
+        int storedLength = header.getInt(8);
+        stored = read(chunkOffsets[chunk] + HandArchiveFormat.CHUNK_HEADER_SIZE, storedLength, stored);
+        if(method == HandArchiveFormat.DEFLATED){
+            if(raw == null || raw.capacity() < rawLength){
+                raw = ByteBuffer.allocate(rawLength).order(HandArchiveFormat.BYTE_ORDER);
+            }
+            raw.clear();
+            inflater.reset();
+            inflater.setInput(stored.array(), 0, storedLength);
+            try {
+                if(inflater.inflate(raw.array(), 0, rawLength) != rawLength || !inflater.finished()){
+                    throw new IOException("chunk " + chunk + " is damaged");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("chunk " + chunk + " is damaged", e);
+            }
+            raw.limit(rawLength);
+        }else if(method == HandArchiveFormat.STORED){
+            raw = stored;
+            stored = null;
+        }else{
+            throw new IOException("chunk " + chunk + " has unknown method " + method);
+        }
+        roundsInChunk = raw.getInt(0);
+        int skipCount = raw.getInt(4);
+        raw.position(8);
+        raw.asIntBuffer().get(skips, 0, skipCount);
+        raw.position(8 + skipCount * 4);
+        int words = (rawLength - 8 - skipCount * 4) / 8;
+        raw.asLongBuffer().get(bits.reset(words), 0, words);
+        raw.clear();
+        nextRoundInChunk = 0;
+        loadedChunk = chunk;
+    }
+
+    /**
+     * reads part of the file
+     * @param position start of the part
+     * @param size length of the part
+     * @param reuse buffer to read into if it is large enough.  May be null
+     * @return heap buffer in the file's byte order holding exactly the part
+     * @throws IOException if the file cannot be read
+     */
+    private ByteBuffer read(long position, int size, ByteBuffer reuse) throws IOException {
+        ByteBuffer buffer = reuse != null && reuse.capacity() >= size ? reuse
+                : ByteBuffer.allocate(size).order(HandArchiveFormat.BYTE_ORDER);
+        buffer.clear().limit(size);
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position()) < 0){
+                throw new IOException("archive ends early");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * receives the rounds of an archive
+     */
+    interface RoundVisitor {
+        /**
+         * called with each round
+         * @param number number of the round, counting from 0
+         * @param round the round.  Only valid during the call
+         */
+        void visit(long number, HandArchiveFormat.Round round);
+    }
+}
@@ -0,0 +1,176 @@
+package com.wove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes rounds to a hand history archive in the format described in
+ * HandArchiveFormat.  Rounds are packed into a chunk as they come and each
+ * full chunk is compressed and written in one go.
+ */
+class HandArchiveWriter implements Closeable {
+    /** channel of the file being written */
+    private final FileChannel channel;
+    /** whether to try compressing the chunks */
+    private final boolean deflate;
+    /** compresses the chunks */
+    private final Deflater deflater;
+    /** rounds of the chunk being packed */
+    private final HandArchiveFormat.BitWriter bits;
+    /** bit offset of every SKIP_INTERVAL-th round of the chunk being packed */
+    private final int skips[];
+    /** the chunk laid out as it is once inflated */
+    private ByteBuffer raw;
+    /** the chunk compressed */
+    private byte compressed[];
+    /** buffer small values are written through */
+    private final ByteBuffer small;
+    /** file offset of every chunk written */
+    private long chunkOffsets[];
+    /** rounds packed in the current chunk */
+    private int roundsInChunk;
+    /** last bet packed since the last skip table entry */
+    private int previousBet;
+    /** rounds written in total */
+    private long roundCount;
+
+    /**
+     * creates a new file, replacing any existing one, and writes its header
+     * @param path where to write the file
+     * @param deflate whether to compress chunks that get smaller for it
+     * @throws IOException if the file cannot be written
+     */
+    public HandArchiveWriter(Path path, boolean deflate) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.deflate = deflate;
+        deflater = new Deflater(Deflater.BEST_SPEED);
+        bits = new HandArchiveFormat.BitWriter();
+        skips = new int[HandArchiveFormat.ROUNDS_PER_CHUNK / HandArchiveFormat.SKIP_INTERVAL];
+        raw = ByteBuffer.allocate(1 << 16).order(HandArchiveFormat.BYTE_ORDER);
+        compressed = new byte[1 << 16];
+        small = ByteBuffer.allocate(HandArchiveFormat.CHUNK_HEADER_SIZE + HandArchiveFormat.TRAILER_SIZE)
+                .order(HandArchiveFormat.BYTE_ORDER);
+        chunkOffsets = new long[16];
+        small.putInt(HandArchiveFormat.MAGIC).putInt(HandArchiveFormat.VERSION);
+        writeSmall();
+    }
+
+    /**
+     * adds a round to the archive
+     * @param round the round.  Not kept
+     * @throws IOException if a chunk cannot be written
+     */
+    public void writeRound(HandArchiveFormat.Round round) throws IOException {
+        if(roundsInChunk % HandArchiveFormat.SKIP_INTERVAL == 0){
+            skips[roundsInChunk / HandArchiveFormat.SKIP_INTERVAL] = (int) bits.getPosition();
+            //a reader jumping here has not seen the bets before it
+            previousBet = -1;
+        }
+        previousBet = round.pack(bits, previousBet);
+        roundsInChunk++;
+        roundCount++;
+        if(roundsInChunk == HandArchiveFormat.ROUNDS_PER_CHUNK){
+            flushChunk();
+        }
+    }
+
+    /**
+     * getter for the number of rounds written so far
+     * @return number of rounds written
+     */
+    public long getRoundCount() {
+        return roundCount;
+    }
+
+    /**
+     * writes the last chunk, the index and the trailer and closes the file
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushChunk();
+            long indexOffset = channel.position();
+            int chunks = (int) ((roundCount + HandArchiveFormat.ROUNDS_PER_CHUNK - 1) / HandArchiveFormat.ROUNDS_PER_CHUNK);
+            ByteBuffer index = ByteBuffer.allocate(chunks * 8).order(HandArchiveFormat.BYTE_ORDER);
+            index.asLongBuffer().put(chunkOffsets, 0, chunks);
+            while(index.hasRemaining()){
+                channel.write(index);
+            }
+            small.putLong(indexOffset).putLong(roundCount).putInt(HandArchiveFormat.MAGIC);
+            writeSmall();
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    /**
+     * lays out, compresses and writes the rounds packed so far as one chunk
+     * @throws IOException if the chunk cannot be written
+     */
+    private void flushChunk() throws IOException {
+        if(roundsInChunk == 0){
+            return;
+        }
+        int skipCount = (roundsInChunk + HandArchiveFormat.SKIP_INTERVAL - 1) / HandArchiveFormat.SKIP_INTERVAL;
+        int words = (int) ((bits.getPosition() + 63) >>> 6);
+        int rawLength = 8 + skipCount * 4 + words * 8;
+        if(raw.capacity() < rawLength){
+            raw = ByteBuffer.allocate(Integer.highestOneBit(rawLength) * 2).order(HandArchiveFormat.BYTE_ORDER);
+        }
+        raw.clear();
+        raw.putInt(roundsInChunk).putInt(skipCount);
+        raw.asIntBuffer().put(skips, 0, skipCount);
+        raw.position(raw.position() + skipCount * 4);
+        raw.asLongBuffer().put(bits.getWords(), 0, words);
+        int method = HandArchiveFormat.STORED;
+        int storedLength = rawLength;
+        if(deflate){
+            if(compressed.length < rawLength){
+                compressed = new byte[raw.capacity()];
+            }
+            deflater.reset();
+            deflater.setInput(raw.array(), 0, rawLength);
+            deflater.finish();
+            int length = deflater.deflate(compressed, 0, rawLength);
+            //a chunk that does not fit in its raw length is better off stored
+            if(deflater.finished() && length < rawLength){
+                method = HandArchiveFormat.DEFLATED;
+                storedLength = length;
+            }
+        }
+        int chunk = (int) ((roundCount - 1) / HandArchiveFormat.ROUNDS_PER_CHUNK);
+        if(chunk == chunkOffsets.length){
+            chunkOffsets = Arrays.copyOf(chunkOffsets, chunkOffsets.length * 2);
+        }
+        chunkOffsets[chunk] = channel.position();
+        small.putInt(method).putInt(rawLength).putInt(storedLength);
+        writeSmall();
+        ByteBuffer data = ByteBuffer.wrap(method == HandArchiveFormat.DEFLATED ? compressed : raw.array(), 0, storedLength);
+        while(data.hasRemaining()){
+            channel.write(data);
+        }
+        bits.clear();
+        roundsInChunk = 0;
+    }
+
+    /**
+     * writes everything in the small buffer to the file and empties it
+     * @throws IOException if the file cannot be written
+     */
+    private void writeSmall() throws IOException {
+        small.flip();
+        while(small.hasRemaining()){
+            channel.write(small);
+        }
+        small.clear();
+    }
+}
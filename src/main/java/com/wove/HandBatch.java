@@ -0,0 +1,282 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Evaluates many hands at once.  Hands are stored as columns: column j holds
+ * the value of the j-th card of every hand, with aces as 1 and 0 where a
+ * hand has fewer cards.  evaluate() then fills one output column per
+ * property with plain loops over primitive arrays and no branches, the shape
+ * HotSpot's loop vectorizer turns into SIMD instructions on its own.
+ *
+ * Results match Hand.getValue(), isSoft() and isBust() exactly.  Naturals
+ * are two card 21s on hands that did not come from a split.
+ */
+class HandBatch {
+    /** hands held */
+    private int size;
+    /** hands that fit before the columns grow */
+    private int capacity;
+    /** card values by position in the hand, then hand.  Aces are 1, missing cards 0 */
+    private byte cardValues[][];
+    /** 1 for hands that came from a split */
+    private int split[];
+    /** sum of the card values with aces as 1 */
+    private int hardTotal[];
+    /** best total without going over 21, as Hand.getValue() */
+    private int value[];
+    /** 1 if an ace counts as 11 */
+    private int soft[];
+    /** 1 if the hand is over 21 */
+    private int bust[];
+    /** 1 if the hand is a natural blackjack */
+    private int natural[];
+
+    /**
+     * creates an empty batch
+     * @param capacity hands expected.  The batch grows past this if needed
+     */
+    public HandBatch(int capacity){
+        this.capacity = Math.max(capacity, 1);
+        cardValues = new byte[0][];
+        split = new int[this.capacity];
+        hardTotal = new int[this.capacity];
+        value = new int[this.capacity];
+        soft = new int[this.capacity];
+        bust = new int[this.capacity];
+        natural = new int[this.capacity];
+    }
+
+    /**
+     * gets the number of hands in the batch
+     * @return the number of hands
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * removes every hand, keeping the arrays for reuse
+     */
+    public void clear(){
+        for(byte column[] : cardValues){
+            Arrays.fill(column, 0, size, (byte) 0);
+        }
+        size = 0;
+    }
+
+    /**
+     * adds a copy of a hand.  Evaluate the batch again to see its results.
+     * @param hand the hand
+     * @return index of the hand in the batch
+     */
+    public int add(Hand hand){
+        if(size == capacity){
+            grow(capacity * 2);
+        }
+        if(hand.numberOfCards() > cardValues.length){
+            cardValues = Arrays.copyOf(cardValues, hand.numberOfCards());
+            for(int j = 0; j < cardValues.length; j++){
+                if(cardValues[j] == null){
+                    cardValues[j] = new byte[capacity];
+                }
+            }
+        }
+        for(int j = 0; j < hand.numberOfCards(); j++){
+            cardValues[j][size] = (byte) hand.getCard(j).getMinValue();
+        }
+        split[size] = hand.isSplitHand() ? 1 : 0;
+        return size++;
+    }
+
+    /**
+     * computes every property of every hand
+     */
+    public void evaluate(){
+        int n = size;
+        int hardTotal[] = this.hardTotal;
+        int aces[] = soft;
+        int cardCount[] = natural;
+        Arrays.fill(hardTotal, 0, n, 0);
+        Arrays.fill(aces, 0, n, 0);
+        Arrays.fill(cardCount, 0, n, 0);
+        for(byte column[] : cardValues){
+            for(int i = 0; i < n; i++){
+                int v = column[i];
+                hardTotal[i] += v;
+                //1 exactly when v is 1, an ace
+                aces[i] |= ((v ^ 1) - 1) >>> 31;
+                //1 when there is a card here at all
+                cardCount[i] += (-v) >>> 31;
+            }
+        }
+        int value[] = this.value;
+        int bust[] = this.bust;
+        int split[] = this.split;
+        for(int i = 0; i < n; i++){
+            int hard = hardTotal[i];
+            //one ace can count as 11 if that stays at or under 21
+            int isSoft = aces[i] & ((hard - 12) >>> 31);
+            int best = hard + 10 * isSoft;
+            value[i] = best;
+            bust[i] = (21 - best) >>> 31;
+            int twoCards = ((cardCount[i] ^ 2) - 1) >>> 31;
+            int is21 = ((best ^ 21) - 1) >>> 31;
+            //aces and cardCount share arrays with soft and natural, so read before writing
+            soft[i] = isSoft;
+            natural[i] = twoCards & is21 & (split[i] ^ 1);
+        }
+    }
+
+    /**
+     * gets the total of a hand with every ace counted as 1
+     * @param index index of the hand
+     * @return the hard total
+     */
+    public int getHardTotal(int index){
+        return hardTotal[check(index)];
+    }
+
+    /**
+     * gets the largest total of a hand that is not over 21, if any
+     * @param index index of the hand
+     * @return the total
+     */
+    public int getValue(int index){
+        return value[check(index)];
+    }
+
+    /**
+     * determines if a hand counts an ace as 11
+     * @param index index of the hand
+     * @return if the hand is soft
+     */
+    public boolean isSoft(int index){
+        return soft[check(index)] != 0;
+    }
+
+    /**
+     * determines if a hand is over 21
+     * @param index index of the hand
+     * @return if the hand is a bust
+     */
+    public boolean isBust(int index){
+        return bust[check(index)] != 0;
+    }
+
+    /**
+     * determines if a hand is a natural blackjack
+     * @param index index of the hand
+     * @return if the hand is a two card 21 that did not come from a split
+     */
+    public boolean isNatural(int index){
+        return natural[check(index)] != 0;
+    }
+
+    private int check(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("hand " + index + ", batch size " + size);
+        }
+        return index;
+    }
+
+    /**
+     * grows every column
+     * @param newCapacity hands that fit afterwards
+     */
+    private void grow(int newCapacity){
+        for(int j = 0; j < cardValues.length; j++){
+            cardValues[j] = Arrays.copyOf(cardValues[j], newCapacity);
+        }
+        split = Arrays.copyOf(split, newCapacity);
+        hardTotal = Arrays.copyOf(hardTotal, newCapacity);
+        value = Arrays.copyOf(value, newCapacity);
+        soft = Arrays.copyOf(soft, newCapacity);
+        bust = Arrays.copyOf(bust, newCapacity);
+        natural = Arrays.copyOf(natural, newCapacity);
+        capacity = newCapacity;
+    }
+
+    /**
+     * deals random hands, hitting each a random number of times
+     * @param count number of hands
+     * @param random source of randomness
+     * @return the hands
+     */
+    private static List<Hand> randomHands(int count, Random random){
+        Deck deck = new Deck(random);
+        List<Hand> hands = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            Hand hand = new Hand(10);
+            hand.addCard(deck.getCard());
+            hand.addCard(deck.getCard());
+            while(random.nextInt(3) > 0 && !hand.isBust()){
+                hand.addCard(deck.getCard());
+            }
+            if(random.nextInt(10) == 0){
+                hand.setSplitHand();
+            }
+            hands.add(hand);
+        }
+        return hands;
+    }
+
+    /**
+     * checks every hand of an evaluated batch against the Hand it was copied from
+     * @param batch the batch
+     * @param hands the hands, in the order they were added
+     */
+    private static void verify(HandBatch batch, List<Hand> hands){
+        for(int i = 0; i < hands.size(); i++){
+            Hand hand = hands.get(i);
+            boolean natural = hand.numberOfCards() == 2 && hand.getValue() == 21 && !hand.isSplitHand();
+            if(batch.getValue(i) != hand.getValue() || batch.isSoft(i) != hand.isSoft()
+                    || batch.isBust(i) != hand.isBust() || batch.isNatural(i) != natural){
+                throw new IllegalStateException("hand " + i + " (" + hand.getValue() + ", soft " + hand.isSoft()
+                        + ", bust " + hand.isBust() + ", natural " + natural + ") evaluated as ("
+                        + batch.getValue(i) + ", soft " + batch.isSoft(i) + ", bust " + batch.isBust(i)
+                        + ", natural " + batch.isNatural(i) + ")");
+            }
+        }
+    }
+
+    /**
+     * checks the batch evaluator against Hand on random hands and compares their speed.
+     * usage: hand-batch [hands] [repetitions]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]){
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        List<Hand> hands = randomHands(count, new Random());
+        HandBatch batch = new HandBatch(count);
+        for(Hand hand : hands){
+            batch.add(hand);
+        }
+        batch.evaluate();
+        verify(batch, hands);
+        System.out.println(count + " hands match Hand exactly");
+
+        long checksum = 0;
+        long objectNanos = Long.MAX_VALUE;
+        long batchNanos = Long.MAX_VALUE;
+        for(int r = 0; r < repetitions; r++){
+            long start = System.nanoTime();
+            for(Hand hand : hands){
+                checksum += hand.getValue();
+                checksum += hand.isSoft() ? 1 : 0;
+                checksum += hand.isBust() ? 1 : 0;
+            }
+            objectNanos = Math.min(objectNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            batch.evaluate();
+            batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+            checksum += batch.getValue(r % count);
+        }
+        System.out.printf("per hand object: %.2f ns/hand, batch: %.2f ns/hand, %.1fx faster (checksum %d)%n",
+                (double) objectNanos / count, (double) batchNanos / count, (double) objectNanos / batchNanos, checksum);
+    }
+}
@@ -0,0 +1,159 @@
+package com.wove;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Counts values in fixed width buckets between a minimum and a maximum.
+ * Values outside that range land in an underflow or overflow bucket, so the
+ * memory used never grows.  Histograms with the same layout can be merged.
+ */
+class Histogram {
+    /** lower bound of the first bucket */
+    private final double min;
+    /** width of every bucket */
+    private final double bucketWidth;
+    /** count of each bucket.  The first and last entries are underflow and overflow */
+    private final long counts[];
+
+    /**
+     * creates an empty histogram
+     * @param min lower bound of the first bucket
+     * @param max upper bound of the last bucket
+     * @param buckets number of buckets between min and max
+     */
+    public Histogram(double min, double max, int buckets){
+        if(buckets <= 0 || max <= min){
+            throw new IllegalArgumentException("invalid histogram layout");
+        }
+        this.min = min;
+        this.bucketWidth = (max - min) / buckets;
+        this.counts = new long[buckets + 2];
+    }
+
+    /**
+     * creates a histogram with the given layout and counts as they are
+     * @param min lower bound of the first bucket
+     * @param bucketWidth width of every bucket
+     * @param counts count of each bucket, underflow and overflow included.  Not copied
+     */
+    private Histogram(double min, double bucketWidth, long counts[]){
+        this.min = min;
+        this.bucketWidth = bucketWidth;
+        this.counts = counts;
+    }
+
+    /**
+     * counts a value
+     * @param value value to count
+     */
+    public void add(double value){
+        counts[bucketOf(value)]++;
+    }
+
+    /**
+     * adds all counts of another histogram to this one
+     * @param other histogram with the same layout.  Not modified
+     */
+    public void merge(Histogram other){
+        if(other.min != min || other.bucketWidth != bucketWidth || other.counts.length != counts.length){
+            throw new IllegalArgumentException("histograms have different layouts");
+        }
+        for(int i = 0; i < counts.length; i++){
+            counts[i] += other.counts[i];
+        }
+    }
+
+    /**
+     * creates an independent copy of this histogram
+     * @return the copy
+     */
+    public Histogram copy(){
+        //rebuilding the layout from min and max could round to a slightly different width
+        return new Histogram(min, bucketWidth, counts.clone());
+    }
+
+    /**
+     * writes the layout and every count of this histogram
+     * @param out where to write it
+     * @throws IOException if it cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeDouble(min);
+        out.writeDouble(bucketWidth);
+        out.writeInt(counts.length);
+        for(long count : counts){
+            out.writeLong(count);
+        }
+    }
+
+    /**
+     * adds the counts of a histogram written by write() to this one
+     * @param in where to read it from
+     * @throws IOException if it cannot be read
+     * @throws IllegalArgumentException if the histogram read has a different layout
+     */
+    public void mergeFrom(DataInput in) throws IOException {
+        double otherMin = in.readDouble();
+        double otherBucketWidth = in.readDouble();
+        int buckets = in.readInt();
+        if(otherMin != min || otherBucketWidth != bucketWidth || buckets != counts.length){
+            throw new IllegalArgumentException("histograms have different layouts");
+        }
+        for(int i = 0; i < counts.length; i++){
+            counts[i] += in.readLong();
+        }
+    }
+
+    /**
+     * gets the number of buckets including the underflow and overflow buckets
+     * @return number of buckets
+     */
+    public int getNumberOfBuckets(){
+        return counts.length;
+    }
+
+    /**
+     * gets the count of a bucket
+     * @param bucket bucket index. 0 is underflow and getNumberOfBuckets()-1 is overflow
+     * @return number of values in the bucket
+     */
+    public long getCount(int bucket){
+        return counts[bucket];
+    }
+
+    /**
+     * gets the lower bound of a bucket
+     * @param bucket bucket index. 0 is underflow and getNumberOfBuckets()-1 is overflow
+     * @return lower bound of the bucket. Negative infinity for the underflow bucket
+     */
+    public double getBucketLow(int bucket){
+        return bucket == 0 ? Double.NEGATIVE_INFINITY : min + (bucket - 1) * bucketWidth;
+    }
+
+    /**
+     * gets the total number of values counted
+     * @return total number of values counted
+     */
+    public long getTotalCount(){
+        long total = 0;
+        for(long count : counts){
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * finds the bucket a value belongs in
+     * @param value value to look up
+     * @return the bucket index
+     */
+    private int bucketOf(double value){
+        if(value < min){
+            return 0;
+        }
+        long bucket = (long)((value - min) / bucketWidth) + 1;
+        return (int)Math.min(bucket, counts.length - 1);
+    }
+}
@@ -0,0 +1,168 @@
+package com.wove;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * House-wide profit and loss shared by every table in the process, with the
+ * total each player has won from the house.  Dealers settle every round into
+ * it from their own threads.
+ *
+ * Writes never take a lock.  House totals are striped LongAdders and player
+ * totals are AtomicLongs in a concurrent map.  Writes go to the current
+ * epoch; snapshot() starts a new epoch, waits for the few writes still in the
+ * old one to finish and folds the old one into the totals.  Since a round is
+ * settled entirely within one epoch a snapshot never shows half a round, so
+ * the house total is always exactly minus the sum of the player totals.
+ */
+class HouseLedger {
+    /** longs between the writer counters of two stripes, so they sit on different cache lines */
+    private static final int STRIPE_SPACING = 16;
+
+    /** number of writer counter stripes, a power of two */
+    private final int stripes;
+    /** epoch rounds are currently settled into */
+    private volatile Epoch current;
+    /** totals of every epoch folded so far.  Guarded by this */
+    private long houseNet;
+    /** rounds settled in every epoch folded so far.  Guarded by this */
+    private long rounds;
+    /** player totals of every epoch folded so far.  Guarded by this */
+    private final Map<String, Long> balances;
+
+    /**
+     * creates an empty ledger
+     */
+    public HouseLedger(){
+        int wanted = 4 * Runtime.getRuntime().availableProcessors();
+        stripes = Integer.highestOneBit(wanted - 1) << 1;
+        current = new Epoch(stripes);
+        balances = new HashMap<>();
+    }
+
+    /**
+     * settles a round: every player's winnings are added to their total and taken from the house
+     * @param names names of the players, which identify their accounts
+     * @param winnings what each player won from the house this round, negative for losses
+     */
+    public void settleRound(String names[], long winnings[]){
+        int stripe = (int) (Thread.currentThread().getId() & (stripes - 1)) * STRIPE_SPACING;
+        Epoch epoch;
+        while(true){
+            epoch = current;
+            epoch.writers.incrementAndGet(stripe);
+            //if a snapshot retired this epoch before it could see us, move to the new one
+            if(epoch == current){
+                break;
+            }
+            epoch.writers.decrementAndGet(stripe);
+        }
+        long houseWinnings = 0;
+        for(int i = 0; i < names.length; i++){
+            AtomicLong account = epoch.accounts.get(names[i]);
+            if(account == null){
+                AtomicLong created = new AtomicLong();
+                account = epoch.accounts.putIfAbsent(names[i], created);
+                if(account == null){
+                    account = created;
+                }
+            }
+            account.addAndGet(winnings[i]);
+            houseWinnings -= winnings[i];
+        }
+        epoch.houseNet.add(houseWinnings);
+        epoch.rounds.increment();
+        epoch.writers.decrementAndGet(stripe);
+    }
+
+    /**
+     * reads every total as of a single point between rounds.  Writers keep
+     * going while this runs; concurrent snapshots take turns.
+     * @return the totals
+     */
+    public synchronized Snapshot snapshot(){
+        Epoch retired = current;
+        current = new Epoch(stripes);
+        for(int i = 0; i < stripes; i++){
+            while(retired.writers.get(i * STRIPE_SPACING) != 0){
+                Thread.yield();
+            }
+        }
+        houseNet += retired.houseNet.sum();
+        rounds += retired.rounds.sum();
+        for(Map.Entry<String, AtomicLong> entry : retired.accounts.entrySet()){
+            Long balance = balances.get(entry.getKey());
+            balances.put(entry.getKey(), (balance == null ? 0 : balance) + entry.getValue().get());
+        }
+        return new Snapshot(houseNet, rounds, new HashMap<>(balances));
+    }
+
+    /**
+     * everything settled between two snapshots
+     */
+    private static class Epoch {
+        /** settles in progress, one counter per stripe */
+        private final AtomicLongArray writers;
+        /** what the house won */
+        private final LongAdder houseNet = new LongAdder();
+        /** rounds settled */
+        private final LongAdder rounds = new LongAdder();
+        /** what each player won */
+        private final ConcurrentHashMap<String, AtomicLong> accounts = new ConcurrentHashMap<>();
+
+        private Epoch(int stripes){
+            writers = new AtomicLongArray(stripes * STRIPE_SPACING);
+        }
+    }
+
+    /**
+     * totals of a ledger at one point in time
+     */
+    static class Snapshot {
+        /** what the house has won in total */
+        private final long houseNet;
+        /** rounds settled */
+        private final long rounds;
+        /** what each player has won in total */
+        private final Map<String, Long> balances;
+
+        private Snapshot(long houseNet, long rounds, Map<String, Long> balances){
+            this.houseNet = houseNet;
+            this.rounds = rounds;
+            this.balances = Collections.unmodifiableMap(balances);
+        }
+
+        public long getHouseNet() {
+            return houseNet;
+        }
+
+        public long getRounds() {
+            return rounds;
+        }
+
+        /**
+         * gets what each player has won from the house, keyed by name
+         * @return the balances
+         */
+        public Map<String, Long> getBalances() {
+            return balances;
+        }
+
+        /**
+         * checks that the house won exactly what the players lost
+         * @return whether the snapshot balances
+         */
+        public boolean isBalanced(){
+            long players = 0;
+            for(long balance : balances.values()){
+                players += balance;
+            }
+            return houseNet == -players;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.wove;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight into a byte array, with no intermediate objects.
+ * Commas are placed automatically.  Output is pure ASCII; other characters
+ * in strings are written as \\u escapes.
+ */
+class JsonWriter {
+    /** hexadecimal digits for \\u escapes */
+    private static final byte HEX_DIGITS[] = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
+
+    /** the bytes written so far */
+    private byte buffer[];
+    /** number of bytes written */
+    private int size;
+    /** whether the next value needs a comma in front */
+    private boolean needsComma;
+
+    /**
+     * creates an empty writer
+     */
+    public JsonWriter(){
+        buffer = new byte[512];
+    }
+
+    public JsonWriter beginObject(){
+        separate();
+        put('{');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter endObject(){
+        put('}');
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter beginArray(){
+        separate();
+        put('[');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter endArray(){
+        put(']');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * writes the name of the next member of an object
+     * @param name the member name
+     * @return this writer
+     */
+    public JsonWriter name(String name){
+        value(name);
+        put(':');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter value(String value){
+        separate();
+        if(value == null){
+            putAscii("null");
+        }else{
+            put('"');
+            for(int i = 0; i < value.length(); i++){
+                char c = value.charAt(i);
+                if(c == '"' || c == '\\'){
+                    put('\\');
+                    put(c);
+                }else if(c < 0x20 || c > 0x7e){
+                    put('\\');
+                    put('u');
+                    for(int shift = 12; shift >= 0; shift -= 4){
+                        put(HEX_DIGITS[(c >> shift) & 0xf]);
+                    }
+                }else{
+                    put(c);
+                }
+            }
+            put('"');
+        }
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(long value){
+        separate();
+        if(value == Long.MIN_VALUE){
+            putAscii(String.valueOf(value));
+        }else{
+            if(value < 0){
+                put('-');
+                value = -value;
+            }
+            //write the digits backwards into place
+            int digits = 1;
+            for(long rest = value / 10; rest > 0; rest /= 10){
+                digits++;
+            }
+            ensureCapacity(digits);
+            for(int i = size + digits - 1; i >= size; i--){
+                buffer[i] = (byte)('0' + value % 10);
+                value /= 10;
+            }
+            size += digits;
+        }
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(boolean value){
+        separate();
+        putAscii(value ? "true" : "false");
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * getter for the number of bytes written
+     * @return number of bytes written
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * copies the bytes written so far
+     * @return the JSON text as ASCII bytes
+     */
+    public byte[] toByteArray(){
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * writes the bytes written so far to a stream
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * forgets everything written so the writer can be reused
+     */
+    public void reset(){
+        size = 0;
+        needsComma = false;
+    }
+
+    private void separate(){
+        if(needsComma){
+            put(',');
+        }
+    }
+
+    private void putAscii(String text){
+        for(int i = 0; i < text.length(); i++){
+            put(text.charAt(i));
+        }
+    }
+
+    private void put(int b){
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra){
+        if(size + extra > buffer.length){
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.wove;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets whose width grows with the duration, so any
+ * recorded value is known to within about 6% from nanoseconds up to years
+ * in under 8 kilobytes.  Recording is lock free and safe from any number of
+ * threads; percentiles can be read at any time.
+ */
+class LatencyHistogram {
+    /** bits of sub-buckets per power of two */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** sub-buckets per power of two */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** number of powers of two above the first SUB_BUCKETS values, enough for any positive long */
+    private static final int POWERS = 64 - SUB_BUCKET_BITS;
+
+    /** count of each bucket */
+    private final AtomicLongArray counts;
+
+    /**
+     * creates an empty histogram
+     */
+    public LatencyHistogram(){
+        counts = new AtomicLongArray(SUB_BUCKETS + POWERS * (SUB_BUCKETS / 2));
+    }
+
+    /**
+     * counts a duration
+     * @param nanos the duration in nanoseconds.  Negative durations count as 0
+     */
+    public void record(long nanos){
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * adds all counts of another histogram to this one
+     * @param other histogram to merge in.  Not modified
+     */
+    public void merge(LatencyHistogram other){
+        for(int i = 0; i < counts.length(); i++){
+            long count = other.counts.get(i);
+            if(count != 0){
+                counts.addAndGet(i, count);
+            }
+        }
+    }
+
+    /**
+     * gets the total number of durations counted
+     * @return number of durations counted
+     */
+    public long getCount(){
+        long total = 0;
+        for(int i = 0; i < counts.length(); i++){
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * gets the duration below which the given percentage of durations fall
+     * @param percentile percentage between 0 and 100
+     * @return the duration in nanoseconds, rounded up to its bucket.  0 if nothing was counted
+     */
+    public long getPercentile(double percentile){
+        long total = getCount();
+        if(total == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for(int i = 0; i < counts.length(); i++){
+            seen += counts.get(i);
+            if(seen >= rank){
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(counts.length() - 1);
+    }
+
+    /**
+     * writes the common percentiles in milliseconds on one line
+     * @return the percentiles
+     */
+    public String summary(){
+        return String.format("n=%d p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms", getCount(),
+                getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6,
+                getPercentile(99.9) / 1e6, getPercentile(100) / 1e6);
+    }
+
+    /**
+     * finds the bucket of a duration.  Values below SUB_BUCKETS get a bucket
+     * each, larger ones share a bucket with values that have the same top bits.
+     * @param value the duration
+     * @return its bucket
+     */
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int)(value >>> power) - SUB_BUCKETS / 2;
+        return SUB_BUCKETS + (power - 1) * (SUB_BUCKETS / 2) + subBucket;
+    }
+
+    /**
+     * gets the largest duration that falls in a bucket
+     * @param bucket the bucket
+     * @return the largest duration in it
+     */
+    private static long highestValueIn(int bucket){
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int power = (bucket - SUB_BUCKETS) / (SUB_BUCKETS / 2) + 1;
+        long subBucket = (bucket - SUB_BUCKETS) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+        return ((subBucket + 1) << power) - 1;
+    }
+}
@@ -0,0 +1,205 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+
+/**
+ * Live ranking of players by money, shared by every table in the process.
+ *
+ * Players are kept in a concurrent skip list sorted richest first, so the top
+ * of the board is read by walking its head without any locking.  Ranks come
+ * from a Fenwick tree counting players per exact amount of money from 0 to
+ * the money limit, so the players richer than any amount are summed in
+ * logarithmic time however tightly the players are bunched together.  Only
+ * debts, which share the 0 bucket, and fortunes past the limit, which share
+ * the last bucket, are counted one by one.  Updates to one player are atomic
+ * through the concurrent map that holds each player's current entry; updates
+ * to different players run in parallel.  Memory is one entry per player on
+ * the board plus the fixed size tree of 8 bytes per dollar up to the limit;
+ * players that leave should be removed.
+ */
+class Leaderboard {
+    /** number of money buckets, one per dollar from 0 to the money limit */
+    private final int buckets;
+    /** Fenwick tree of player counts per money bucket, 1 based */
+    private final AtomicLongArray tree;
+    /** every player, richest first */
+    private final ConcurrentSkipListSet<Entry> board;
+    /** current entry of each player by name */
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    /**
+     * creates an empty leaderboard
+     * @param maxMoney money at which ranks stop being computed in logarithmic time.
+     *                 Richer players are still ranked correctly, they just share the
+     *                 last bucket and are counted one by one
+     */
+    public Leaderboard(long maxMoney){
+        if(maxMoney <= 0 || maxMoney >= Integer.MAX_VALUE){
+            throw new IllegalArgumentException("money limit must be positive and fit an array");
+        }
+        this.buckets = (int) maxMoney + 1;
+        this.tree = new AtomicLongArray(buckets + 1);
+        this.board = new ConcurrentSkipListSet<>();
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * sets a player's money, adding them to the board if they are not on it
+     * @param name name of the player
+     * @param money their money
+     */
+    public void update(String name, final long money){
+        entries.compute(name, new BiFunction<String, Entry, Entry>() {
+            @Override
+            public Entry apply(String name, Entry old) {
+                if(old != null){
+                    if(old.money == money){
+                        return old;
+                    }
+                    board.remove(old);
+                    addToTree(bucketOf(old.money), -1);
+                }
+                Entry entry = new Entry(name, money);
+                addToTree(bucketOf(money), 1);
+                board.add(entry);
+                return entry;
+            }
+        });
+    }
+
+    /**
+     * takes a player off the board
+     * @param name name of the player
+     */
+    public void remove(String name){
+        entries.computeIfPresent(name, new BiFunction<String, Entry, Entry>() {
+            @Override
+            public Entry apply(String name, Entry old) {
+                board.remove(old);
+                addToTree(bucketOf(old.money), -1);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * gets the number of players on the board
+     * @return the number of players
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * gets the richest players.  Never waits for updates, so a player updated
+     * while this runs may be seen before or after the update.
+     * @param n number of players wanted
+     * @return up to n players, richest first
+     */
+    public List<Entry> top(int n){
+        List<Entry> top = new ArrayList<>(n);
+        Iterator<Entry> iterator = board.iterator();
+        while(top.size() < n && iterator.hasNext()){
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    /**
+     * gets the rank of a player.  Players with the same money share a rank.
+     * @param name name of the player
+     * @return 1 for the richest player, or 0 if the player is not on the board
+     */
+    public long rankOf(String name){
+        Entry entry = entries.get(name);
+        return entry == null ? 0 : rankOf(entry.money);
+    }
+
+    /**
+     * gets the rank a player with the given money would have
+     * @param money the money
+     * @return 1 plus the number of players with more money
+     */
+    public long rankOf(long money){
+        int bucket = bucketOf(money);
+        long richer = prefixCount(buckets) - prefixCount(bucket + 1);
+        if(bucket == buckets - 1 || money < 0){
+            //only the shared end buckets hold players with other amounts of money than this
+            long highest = bucket == buckets - 1 ? Long.MAX_VALUE : 0;
+            richer += board.subSet(new Entry("", highest), true, new Entry("", money), false).size();
+        }
+        return 1 + richer;
+    }
+
+    /**
+     * finds the bucket a sum of money falls in.  Debts fall in the first
+     * bucket and money past the limit in the last
+     * @param money the money
+     * @return index of the bucket
+     */
+    private int bucketOf(long money){
+        if(money <= 0){
+            return 0;
+        }
+        return (int) Math.min(money, buckets - 1);
+    }
+
+    /**
+     * adds to the count of a bucket
+     * @param bucket index of the bucket
+     * @param delta amount to add
+     */
+    private void addToTree(int bucket, long delta){
+        for(int i = bucket + 1; i <= buckets; i += i & -i){
+            tree.addAndGet(i, delta);
+        }
+    }
+
+    /**
+     * counts the players in the first buckets
+     * @param count number of buckets to count
+     * @return players in buckets 0 to count - 1
+     */
+    private long prefixCount(int count){
+        long sum = 0;
+        for(int i = count; i > 0; i -= i & -i){
+            sum += tree.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * a player's place on the board.  Sorted richest first, then by name.
+     */
+    static class Entry implements Comparable<Entry> {
+        /** name of the player */
+        private final String name;
+        /** money of the player */
+        private final long money;
+
+        private Entry(String name, long money){
+            this.name = name;
+            this.money = money;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getMoney() {
+            return money;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byMoney = Long.compare(other.money, money);
+            return byMoney != 0 ? byMoney : name.compareTo(other.name);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the Leaderboard with many writers.  The board is filled with
+ * players, then writer threads change the money of their own share of them
+ * as fast as they can while a reader keeps asking for the top ten and for
+ * ranks.  Afterwards the time of a single rank lookup is measured, ranks
+ * are checked against a plain count and the heap used per player is
+ * reported.  This runs once with money spread evenly up to MAX_MONEY and
+ * once with everyone close to CasinoRules.STARTING_MONEY, as on a real
+ * floor where most players are near their buy in.  Finally a few real
+ * tables post to the board after every round.
+ */
+class LeaderboardBenchmark {
+    /** money the board computes ranks quickly up to */
+    private static final long MAX_MONEY = 1000000;
+    /** standard deviation of the money of the clustered players */
+    private static final int CLUSTER_SPREAD = 100;
+
+    /**
+     * gets the heap in use after collecting garbage
+     * @return bytes in use
+     */
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * runs the benchmark.
+     * usage: leaderboard-benchmark [players] [writer threads] [seconds]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]) throws InterruptedException {
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int writers = args.length > 2 ? Integer.parseInt(args[2]) : 4 * Runtime.getRuntime().availableProcessors();
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : 5;
+
+        measure("uniform", false, players, writers, seconds);
+        measure("clustered", true, players, writers, seconds);
+
+        final List<Player> seated = new ArrayList<>();
+        final Leaderboard tables = new Leaderboard(MAX_MONEY);
+        List<Table> allTables = new ArrayList<>();
+        for(int t = 0; t < 4; t++){
+            List<Player> seats = new ArrayList<>();
+            for(int s = 0; s < CasinoRules.MAX_NUMBER_PLAYERS; s++){
+                seats.add(new Player("Table " + (t + 1) + " seat " + (s + 1), 100000));
+            }
+            seated.addAll(seats);
+            Table table = new Table(seats, new Deck(new Random(t)));
+            table.getDealer().setLeaderboard(tables);
+            allTables.add(table);
+        }
+        Strategy strategies[] = new Strategy[CasinoRules.MAX_NUMBER_PLAYERS];
+        int bets[] = new int[CasinoRules.MAX_NUMBER_PLAYERS];
+        Arrays.fill(strategies, new BasicStrategy());
+        Arrays.fill(bets, 10);
+        for(int round = 0; round < 1000; round++){
+            for(Table table : allTables){
+                table.playRound(bets, strategies);
+            }
+        }
+        Leaderboard.Entry leader = tables.top(1).get(0);
+        System.out.println("after 1000 rounds at 4 tables " + leader.getName() + " leads with $" + leader.getMoney());
+    }
+
+    /**
+     * fills a board, runs the writers and the reader on it and checks its ranks
+     * @param distribution name of the money distribution, for the report
+     * @param clustered whether money is bunched around the starting money instead of spread evenly
+     * @param players players on the board
+     * @param writers writer threads
+     * @param seconds how long the writers run
+     * @throws InterruptedException if interrupted while waiting for the writers
+     */
+    private static void measure(String distribution, boolean clustered, final int players, final int writers,
+                                long seconds) throws InterruptedException {
+        final String names[] = new String[players];
+        final long money[] = new long[players];
+        Random random = new Random(1);
+        long heapBefore = usedHeap();
+        final Leaderboard leaderboard = new Leaderboard(MAX_MONEY);
+        for(int i = 0; i < players; i++){
+            names[i] = "Player " + i;
+            money[i] = clustered ? Math.max(0, Math.round(CasinoRules.STARTING_MONEY + random.nextGaussian() * CLUSTER_SPREAD))
+                    : random.nextInt((int) MAX_MONEY);
+            leaderboard.update(names[i], money[i]);
+        }
+        System.out.printf("%s: %d players on the board, %.0f bytes per player%n", distribution, players,
+                (double) (usedHeap() - heapBefore) / players);
+
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        final AtomicLong updates = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(writers);
+        for(int t = 0; t < writers; t++){
+            final int first = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    //each writer owns every writers-th player, like tables own their seats
+                    Random random = new Random(first);
+                    long count = 0;
+                    while((count & 255) != 0 || System.nanoTime() < deadline){
+                        int i = first + writers * random.nextInt((players - first + writers - 1) / writers);
+                        money[i] = Math.max(0, money[i] + random.nextInt(201) - 100);
+                        leaderboard.update(names[i], money[i]);
+                        count++;
+                    }
+                    updates.addAndGet(count);
+                    done.countDown();
+                }
+            }).start();
+        }
+        long start = System.nanoTime();
+        long reads = 0;
+        while(done.getCount() > 0){
+            leaderboard.top(10);
+            leaderboard.rankOf(names[(int) (reads % players)]);
+            reads++;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d writers: %.0f updates/s while a reader made %.0f top 10 and rank reads/s%n",
+                distribution, writers, updates.get() / elapsed, reads / elapsed);
+
+        long rankStart = System.nanoTime();
+        long checksum = 0;
+        for(int i = 0; i < players; i++){
+            checksum += leaderboard.rankOf(names[i]);
+        }
+        System.out.printf("%s: %.0fns per rank with no writers (checksum %d)%n", distribution,
+                (double) (System.nanoTime() - rankStart) / players, checksum);
+
+        //every rank must equal one plus the number of richer players
+        long sorted[] = money.clone();
+        Arrays.sort(sorted);
+        int wrong = 0;
+        for(int i = 0; i < players; i += Math.max(1, players / 1000)){
+            int richer = players - upperBound(sorted, money[i]);
+            if(leaderboard.rankOf(names[i]) != richer + 1){
+                wrong++;
+            }
+        }
+        System.out.println(distribution + ": " + wrong + " wrong ranks in a sample of 1000");
+    }
+
+    /**
+     * finds the first position in a sorted array holding a larger value
+     * @param sorted the array, ascending
+     * @param value the value
+     * @return the position
+     */
+    private static int upperBound(long sorted[], long value){
+        int low = 0;
+        int high = sorted.length;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(sorted[middle] <= value){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,150 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the HouseLedger under contention.  First one table per thread
+ * plays at full speed, every dealer settling into one shared ledger while a
+ * reporter takes snapshots and checks that each one balances.  Then threads
+ * do nothing but settle rounds, into the ledger and into a ledger that
+ * synchronizes every settle, to show what a single lock would cost.
+ */
+class LedgerBenchmark {
+
+    /**
+     * the ledger a single lock would give, for comparison
+     */
+    private static class SynchronizedLedger {
+        /** what the house has won */
+        private long houseNet;
+        /** what each player has won */
+        private final Map<String, Long> balances = new HashMap<>();
+
+        synchronized void settleRound(String names[], long winnings[]){
+            for(int i = 0; i < names.length; i++){
+                Long balance = balances.get(names[i]);
+                balances.put(names[i], (balance == null ? 0 : balance) + winnings[i]);
+                houseNet -= winnings[i];
+            }
+        }
+    }
+
+    /**
+     * plays one table per thread into a shared ledger, checking snapshots as it goes
+     * @param threads number of tables
+     * @param seconds how long to play
+     */
+    private static void playTables(int threads, long seconds) throws InterruptedException {
+        final HouseLedger ledger = new HouseLedger();
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        final List<Player> allPlayers = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for(int t = 0; t < threads; t++){
+            final List<Player> players = new ArrayList<>();
+            for(int s = 0; s < 3; s++){
+                players.add(new Player("Table " + (t + 1) + " seat " + (s + 1), Simulation.SIMULATED_BANKROLL));
+            }
+            allPlayers.addAll(players);
+            final Table table = new Table(players, new Deck(new Random(t)));
+            table.getDealer().setLedger(ledger);
+            workers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Strategy strategies[] = {new BasicStrategy(), new BasicStrategy(), new BasicStrategy()};
+                    int bets[] = {10, 10, 10};
+                    while(System.nanoTime() < deadline){
+                        table.playRound(bets, strategies);
+                    }
+                }
+            }, "table-" + (t + 1)));
+        }
+        for(Thread worker : workers){
+            worker.start();
+        }
+        long snapshots = 0;
+        long unbalanced = 0;
+        long start = System.nanoTime();
+        while(System.nanoTime() < deadline){
+            Thread.sleep(100);
+            HouseLedger.Snapshot snapshot = ledger.snapshot();
+            snapshots++;
+            if(!snapshot.isBalanced()){
+                unbalanced++;
+            }
+        }
+        for(Thread worker : workers){
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        HouseLedger.Snapshot end = ledger.snapshot();
+        //every player's ledger total must match what actually happened to their money
+        int mismatched = 0;
+        for(Player player : allPlayers){
+            Long balance = end.getBalances().get(player.getName());
+            if(balance == null || balance != player.getMoney() - (long) Simulation.SIMULATED_BANKROLL){
+                mismatched++;
+            }
+        }
+        System.out.printf("%d tables: %.0f rounds/s, house net %d over %d rounds, %d snapshots (%d unbalanced), "
+                        + "%d of %d player totals wrong%n", threads, end.getRounds() / elapsed, end.getHouseNet(),
+                end.getRounds(), snapshots, unbalanced, mismatched, allPlayers.size());
+    }
+
+    /**
+     * settles single player rounds as fast as possible from every thread
+     * @param threads number of threads
+     * @param seconds how long to settle
+     * @param lockFree whether to use the HouseLedger or the synchronized one
+     * @return rounds settled per second
+     */
+    private static double settleOnly(int threads, long seconds, final boolean lockFree) throws InterruptedException {
+        final HouseLedger ledger = new HouseLedger();
+        final SynchronizedLedger synchronizedLedger = new SynchronizedLedger();
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        final AtomicLong settled = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            final String names[] = {"Player " + (t + 1)};
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long winnings[] = {10};
+                    long count = 0;
+                    while((count & 1023) != 0 || System.nanoTime() < deadline){
+                        winnings[0] = -winnings[0];
+                        if(lockFree){
+                            ledger.settleRound(names, winnings);
+                        }else{
+                            synchronizedLedger.settleRound(names, winnings);
+                        }
+                        count++;
+                    }
+                    settled.addAndGet(count);
+                    done.countDown();
+                }
+            }).start();
+        }
+        long start = System.nanoTime();
+        done.await();
+        return settled.get() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * runs the benchmark.
+     * usage: ledger-benchmark [seconds] [threads]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]) throws InterruptedException {
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        playTables(threads, seconds);
+        System.out.printf("settle only, %d threads: lock free %.0f rounds/s, synchronized %.0f rounds/s%n", threads,
+                settleOnly(threads, seconds, true), settleOnly(threads, seconds, false));
+    }
+}
@@ -0,0 +1,415 @@
+package com.wove;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts a TableServer on localhost under the load of many simulated players,
+ * for working out how many players a host can take.  Every simulated player
+ * sits down at a table of their own, bets in chips up to what they have and
+ * plays each hand roughly the way a casual player would, going back to a new
+ * table when they run out of money.  The latency of every request is counted
+ * per operation.
+ *
+ * A simulated player is a session object, not a thread: each step of a session
+ * is one request run on a shared pool of client threads, so thousands of players
+ * need only as many threads as there are requests in flight.  Players can be
+ * driven two ways:
+ *
+ * closed loop: each player waits for the response and then thinks before the
+ * next step, for a time drawn from a log-normal distribution like human
+ * reaction times.  The load is whatever the players and the server sustain.
+ *
+ * open loop: steps are due at a fixed rate whether or not earlier ones have
+ * finished, each taken by a player that is not waiting on a response.  Latency
+ * is measured from when a step was due rather than when a player or a client
+ * thread got to it, so a server that falls behind shows up in the latencies
+ * instead of quietly lowering the rate.
+ */
+class LoadGenerator {
+    /** median time a player takes to find a table, in milliseconds */
+    private static final double JOIN_THINK_MILLIS = 3000;
+    /** median time a player takes to place a bet, in milliseconds */
+    private static final double BET_THINK_MILLIS = 2000;
+    /** median time a player takes to decide on a hand, in milliseconds */
+    private static final double ACTION_THINK_MILLIS = 1200;
+    /** spread of the logarithm of every think time */
+    private static final double THINK_SIGMA = 0.6;
+    /** chip values players bet in */
+    private static final int CHIPS[] = {5, 10, 25, 50, 100};
+
+    /**
+     * the requests a simulated player makes
+     */
+    enum Operation {
+        /** creates a table with the player seated at it */
+        JOIN,
+        /** bets and starts a round */
+        BET,
+        /** plays an action on the current hand */
+        ACTION
+    }
+
+    /** url of the server's tables */
+    private final String base;
+    /** factor every think time is multiplied by.  0 to not think at all */
+    private final double thinkScale;
+    /** latencies of each operation, indexed by ordinal */
+    private final LatencyHistogram latencies[];
+    /** failed requests of each operation, indexed by ordinal */
+    private final AtomicLongArray failures;
+    /** sessions started so far, used to name the players */
+    private final AtomicInteger sessions;
+    /** open loop steps still waiting for a player when the run was over */
+    private long missedSteps;
+    /** time at which no more steps are started, in System.nanoTime() terms */
+    private volatile long end;
+
+    /**
+     * creates a load generator
+     * @param base url of the server's tables, for example http://localhost:8080/tables
+     * @param thinkScale factor every think time is multiplied by.  0 to not think at all
+     */
+    public LoadGenerator(String base, double thinkScale){
+        this.base = base;
+        this.thinkScale = thinkScale;
+        latencies = new LatencyHistogram[Operation.values().length];
+        for(int i = 0; i < latencies.length; i++){
+            latencies[i] = new LatencyHistogram();
+        }
+        failures = new AtomicLongArray(Operation.values().length);
+        sessions = new AtomicInteger();
+    }
+
+    /**
+     * getter for the latencies of an operation
+     * @param operation the operation
+     * @return latencies of every successful request of the operation
+     */
+    public LatencyHistogram getLatencies(Operation operation){
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * getter for the number of failed requests of an operation
+     * @param operation the operation
+     * @return requests that failed or were refused by the server
+     */
+    public long getFailures(Operation operation){
+        return failures.get(operation.ordinal());
+    }
+
+    /**
+     * getter for the steps an open loop never started
+     * @return steps that were due but still waiting for a free player when the run was over
+     */
+    public long getMissedSteps(){
+        return missedSteps;
+    }
+
+    /**
+     * runs players in a closed loop, each thinking between steps
+     * @param players number of simulated players
+     * @param seconds how long to run
+     * @param clientThreads threads that send requests
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public void runClosedLoop(int players, int seconds, int clientThreads) throws InterruptedException {
+        final ScheduledExecutorService clients = Executors.newScheduledThreadPool(clientThreads);
+        end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for(int p = 0; p < players; p++){
+            final Session session = new Session();
+            clients.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if(System.nanoTime() - end >= 0){
+                        return;
+                    }
+                    session.step(System.nanoTime());
+                    clients.schedule(this, session.thinkNanos(), TimeUnit.NANOSECONDS);
+                }
+            //players arrive spread over the time it takes to find a table
+            }, (long) (ThreadLocalRandom.current().nextDouble() * JOIN_THINK_MILLIS * thinkScale * 1e6),
+                    TimeUnit.NANOSECONDS);
+        }
+        for(long wait = end - System.nanoTime(); wait > 0; wait = end - System.nanoTime()){
+            LockSupport.parkNanos(wait);
+        }
+        clients.shutdown();
+        clients.awaitTermination(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * starts steps at a fixed rate whether or not earlier ones have finished
+     * @param players most simulated players to take steps.  A step due while all are
+     *                waiting on a response goes to the first one to get it
+     * @param rate steps to start per second
+     * @param seconds how long to run
+     * @param clientThreads threads that send requests.  Steps wait in a queue when all are busy
+     * @throws InterruptedException if interrupted while waiting for the last steps
+     */
+    public void runOpenLoop(int players, double rate, int seconds, int clientThreads) throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(clientThreads);
+        final ArrayDeque<Session> idle = new ArrayDeque<>();
+        //times steps were due that no player was free to take
+        final ArrayDeque<Long> overdue = new ArrayDeque<>();
+        long start = System.nanoTime();
+        end = start + TimeUnit.SECONDS.toNanos(seconds);
+        double interval = 1e9 / rate;
+        for(long n = 0; ; n++){
+            final long due = start + (long) (n * interval);
+            if(due - end >= 0){
+                break;
+            }
+            for(long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()){
+                LockSupport.parkNanos(wait);
+            }
+            final Session session;
+            synchronized (idle){
+                if(!idle.isEmpty()){
+                    session = idle.poll();
+                }else if(sessions.get() < players){
+                    session = new Session();
+                }else{
+                    overdue.add(due);
+                    continue;
+                }
+            }
+            clients.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long next = due;
+                    while(true){
+                        session.step(next);
+                        synchronized (idle){
+                            Long waiting = overdue.poll();
+                            if(waiting == null){
+                                idle.add(session);
+                                return;
+                            }
+                            next = waiting;
+                        }
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(60, TimeUnit.SECONDS);
+        //steps no player got to in time are counted, not quietly dropped from the rate
+        synchronized (idle){
+            missedSteps += overdue.size();
+            overdue.clear();
+        }
+    }
+
+    /**
+     * one simulated player and the table they sit at
+     */
+    private class Session {
+        /** name the player joins tables under */
+        private final String name;
+        /** id of the player's table.  -1 before they have one */
+        private long tableId = -1;
+        /** the player's money as the server last reported it */
+        private long money;
+        /** whether the round at the table is over */
+        private boolean roundOver = true;
+        /** state of the table as the server last reported it */
+        private String state;
+
+        Session(){
+            name = "Load" + sessions.incrementAndGet();
+        }
+
+        /**
+         * sends the next request of the player
+         * @param due time the step was due to start, which latency is measured from
+         */
+        void step(long due){
+            Operation operation = nextOperation();
+            String url;
+            switch (operation) {
+                case JOIN:
+                    url = base + "?names=" + name;
+                    break;
+                case BET:
+                    url = base + "/" + tableId + "/bets?amounts=" + chooseBet();
+                    break;
+                default:
+                    url = base + "/" + tableId + "/actions?action=" + chooseAction();
+                    break;
+            }
+            try {
+                state = TableServerBenchmark.request("POST", url);
+                latencies[operation.ordinal()].record(System.nanoTime() - due);
+                tableId = longAfter("\"id\":");
+                money = longAfter("\"money\":");
+                roundOver = state.contains("\"roundOver\":true");
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet(operation.ordinal());
+                //start over at a new table rather than guess what state this one is in
+                tableId = -1;
+                roundOver = true;
+            }
+        }
+
+        /**
+         * works out what the player does next
+         * @return the operation of the next step
+         */
+        Operation nextOperation(){
+            if(tableId < 0 || roundOver && money < Math.max(CasinoRules.MIN_BET, 1)){
+                return Operation.JOIN;
+            }
+            return roundOver ? Operation.BET : Operation.ACTION;
+        }
+
+        /**
+         * draws how long the player thinks before their next step
+         * @return the think time in nanoseconds
+         */
+        long thinkNanos(){
+            double median;
+            switch (nextOperation()) {
+                case JOIN:
+                    median = JOIN_THINK_MILLIS;
+                    break;
+                case BET:
+                    median = BET_THINK_MILLIS;
+                    break;
+                default:
+                    median = ACTION_THINK_MILLIS;
+                    break;
+            }
+            double gaussian = ThreadLocalRandom.current().nextGaussian();
+            return (long) (median * Math.exp(THINK_SIGMA * gaussian) * thinkScale * 1e6);
+        }
+
+        /**
+         * picks a bet the way a player stacks chips: a few chips of one value,
+         * never more than they have or the table allows
+         * @return the bet
+         */
+        int chooseBet(){
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long bet = (long) CHIPS[random.nextInt(CHIPS.length)] * (1 + random.nextInt(4));
+            bet = Math.min(bet, Math.min(money, CasinoRules.MAX_BET));
+            return (int) Math.max(bet, CasinoRules.MIN_BET);
+        }
+
+        /**
+         * picks an action for the current hand the way a casual player might:
+         * always hitting a low total, standing on seventeen or more and
+         * wavering in between
+         * @return name of one of the actions the server offers
+         */
+        String chooseAction(){
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String offered = state.substring(state.indexOf("\"actions\":["));
+            offered = offered.substring(0, offered.indexOf(']'));
+            //the dealer's total is hidden until the hands are played, so the
+            //totals shown are the player's, in the order of their hands
+            int from = -1;
+            for(int hand = (int) longAfter("\"currentHand\":"); hand >= 0; hand--){
+                from = state.indexOf("\"value\":", from + 1);
+            }
+            int value = (int) numberAfter(state.substring(from), "\"value\":");
+            if(offered.contains(PlayerAction.SPLIT.name()) && random.nextInt(2) == 0){
+                return PlayerAction.SPLIT.name();
+            }
+            if(value <= 11){
+                if(value >= 9 && offered.contains(PlayerAction.DOUBLE_DOWN.name()) && random.nextInt(3) > 0){
+                    return PlayerAction.DOUBLE_DOWN.name();
+                }
+                return PlayerAction.HIT.name();
+            }
+            if(value <= 16 && offered.contains(PlayerAction.HIT.name()) && random.nextInt(2) == 0){
+                return PlayerAction.HIT.name();
+            }
+            return PlayerAction.STAND.name();
+        }
+
+        /**
+         * reads the first whole number after a key in the table state
+         * @param key the key with its quotes and colon
+         * @return the number
+         */
+        private long longAfter(String key){
+            return numberAfter(state, key);
+        }
+    }
+
+    /**
+     * reads the first whole number after a key in some JSON
+     * @param json the JSON
+     * @param key the key with its quotes and colon
+     * @return the number
+     * @throws IllegalArgumentException if the key is not there
+     */
+    private static long numberAfter(String json, String key){
+        int start = json.indexOf(key);
+        if(start < 0){
+            throw new IllegalArgumentException("no " + key + " in " + json);
+        }
+        start += key.length();
+        int stop = start;
+        while(stop < json.length() && (Character.isDigit(json.charAt(stop)) || json.charAt(stop) == '-')){
+            stop++;
+        }
+        return Long.parseLong(json.substring(start, stop));
+    }
+
+    /**
+     * puts a local server under load from the command line.
+     * usage: load [players] [seconds] [think scale] [steps per second] [client threads] [server threads]
+     * A rate of 0 runs the players in a closed loop; any other rate runs an open loop.
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the server cannot be started
+     * @throws InterruptedException if interrupted while running
+     */
+    static void runFromCommandLine(String args[]) throws IOException, InterruptedException {
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        double thinkScale = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+        double rate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+        int clientThreads = args.length > 5 ? Integer.parseInt(args[5]) : 64;
+        ExecutorService serverExecutor = args.length > 6 ? Executors.newFixedThreadPool(Integer.parseInt(args[6]))
+                : Executors.newCachedThreadPool();
+        TableServer server = new TableServer(0, serverExecutor);
+        server.start();
+        LoadGenerator generator = new LoadGenerator("http://localhost:" + server.getPort() + "/tables", thinkScale);
+        try {
+            if(rate > 0){
+                System.out.printf("open loop of up to %d players at %.0f steps/s for %ds on %d client threads%n",
+                        players, rate, seconds, clientThreads);
+                generator.runOpenLoop(players, rate, seconds, clientThreads);
+            }else{
+                System.out.printf("closed loop of %d players thinking %.2fx human time for %ds on %d client threads%n",
+                        players, thinkScale, seconds, clientThreads);
+                generator.runClosedLoop(players, seconds, clientThreads);
+            }
+        } finally {
+            server.stop();
+            serverExecutor.shutdown();
+        }
+        long total = 0;
+        for(Operation operation : Operation.values()){
+            LatencyHistogram operationLatencies = generator.getLatencies(operation);
+            total += operationLatencies.getCount();
+            System.out.printf("%-6s %8.1f/s %d failed  latency %s%n", operation, (double) operationLatencies.getCount() / seconds,
+                    generator.getFailures(operation), operationLatencies.summary());
+        }
+        System.out.printf("%d players, %.1f requests/s in total%n", generator.sessions.get(), (double) total / seconds);
+        if(rate > 0){
+            System.out.printf("%d steps never started%n", generator.getMissedSteps());
+        }
+    }
+}
@@ -1,12 +1,107 @@
 package com.wove;
 
+import java.io.IOException;
+
 /**
  * Main class that begins execution of the game
  */
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if(args.length > 0){
+            runTool(args);
+            return;
+        }
         GameController game = new GameController();
         game.startGame();
     }
+
+    /**
+     * runs one of the headless tools instead of the game.
+     * The first argument names the tool.
+     * @param args command line arguments
+     */
+    private static void runTool(String[] args) throws InterruptedException, IOException {
+        switch (args[0]) {
+            case "simulate":
+            case "compare":
+            case "stats":
+            case "csm":
+                Simulation.runFromCommandLine(args);
+                break;
+            case "reshuffle-latency":
+                ShoePool.runFromCommandLine(args);
+                break;
+            case "hand-batch":
+                HandBatch.runFromCommandLine(args);
+                break;
+            case "ledger-benchmark":
+                LedgerBenchmark.runFromCommandLine(args);
+                break;
+            case "leaderboard-benchmark":
+                LeaderboardBenchmark.runFromCommandLine(args);
+                break;
+            case "spectate-benchmark":
+                SpectatorBenchmark.runFromCommandLine(args);
+                break;
+            case "events-benchmark":
+                EventBenchmark.runFromCommandLine(args);
+                break;
+            case "deadline-benchmark":
+                DeadlineBenchmark.runFromCommandLine(args);
+                break;
+            case "training":
+            case "advisor-benchmark":
+                StrategyAdvisor.runFromCommandLine(args);
+                break;
+            case "verify":
+                EngineVerifier.runFromCommandLine(args);
+                break;
+            case "coordinate":
+            case "work":
+                DistributedSimulation.runFromCommandLine(args);
+                break;
+            case "side-bets":
+                SideBetAnalyzer.runFromCommandLine(args);
+                break;
+            case "snapshot-benchmark":
+                TableSnapshot.runFromCommandLine(args);
+                break;
+            case "play":
+                GameController.runFromCommandLine(args);
+                break;
+            case "load":
+                LoadGenerator.runFromCommandLine(args);
+                break;
+            case "export":
+            case "scan":
+            case "archive":
+            case "archive-scan":
+                RoundExporter.runFromCommandLine(args);
+                break;
+            case "shoes":
+            case "replay":
+                ReplayEngine.runFromCommandLine(args);
+                break;
+            case "deviations":
+                DeviationOptimizer.runFromCommandLine(args);
+                break;
+            case "tournament":
+                Tournament.runFromCommandLine(args);
+                break;
+            case "serve":
+            case "server-benchmark":
+                TableServerBenchmark.runFromCommandLine(args);
+                break;
+            case "drive":
+            case "drive-script":
+                ScriptedDriver.runFromCommandLine(args);
+                break;
+            case "footprint":
+                TableFootprint.runFromCommandLine(args);
+                break;
+            default:
+                System.out.println("Unknown mode: " + args[0]);
+        }
+    }
 }
@@ -0,0 +1,19 @@
+package com.wove;
+
+import java.util.Set;
+
+/**
+ * Strategy that plays exactly like the dealer: hit until the hand reaches
+ * 17 and never double down or split.  Useful as a baseline to compare
+ * other strategies against.
+ */
+class MimicDealerStrategy implements Strategy {
+
+    @Override
+    public PlayerAction chooseAction(Hand hand, Card dealerUpCard, double trueCount, Set<PlayerAction> availableActions) {
+        if(CasinoRules.dealerHitPolicy(hand) && availableActions.contains(PlayerAction.HIT)){
+            return PlayerAction.HIT;
+        }
+        return PlayerAction.STAND;
+    }
+}
@@ -17,16 +17,29 @@ class Player extends HandHolder{
     /** Number of times the player has split this round.
      * They may only split so many times */
     private int numberOfSplits;
+    /** stake on each side bet this round, indexed by SideBet ordinal */
+    private final int sideBets[] = new int[SideBet.values().length];
+    /** money each side bet gave back when settled.  -1 while a stake is still open */
+    private final int sideBetReturns[] = new int[SideBet.values().length];
 
     /**
      * creates a new player with the given name
      * @param name name of player
      */
     public Player(String name) {
+        this(name, CasinoRules.STARTING_MONEY);
+    }
+
+    /**
+     * creates a new player with the given name and bankroll
+     * @param name name of player
+     * @param money money the player starts with
+     */
+    public Player(String name, int money) {
         this.name = name;
         this.hands = new LinkedList<>();
         this.numberOfSplits = 0;
-        this.money = CasinoRules.STARTING_MONEY;
+        this.money = money;
     }
 
     /**
@@ -86,6 +99,92 @@ class Player extends HandHolder{
         hands.add(splitHand);
     }
 
+    /**
+     * replaces the player's hands and split count, used when a player
+     * is rebuilt from a copy
+     * @param hands the player's hands
+     * @param numberOfSplits number of times the player has split this round
+     */
+    void restoreHands(List<Hand> hands, int numberOfSplits) {
+        this.hands.clear();
+        this.hands.addAll(hands);
+        this.numberOfSplits = numberOfSplits;
+    }
+
+    /**
+     * puts back a side bet, used when a player is rebuilt from a copy.  The
+     * player's money is left alone since it already has the stake taken out
+     * @param sideBet the side bet
+     * @param amount the stake.  0 for none
+     * @param returned money the bet gave back.  -1 if it is still open
+     */
+    void restoreSideBet(SideBet sideBet, int amount, int returned) {
+        sideBets[sideBet.ordinal()] = amount;
+        sideBetReturns[sideBet.ordinal()] = returned;
+    }
+
+    /**
+     * places a side bet for the coming round, replacing the one of the last round
+     * @param sideBet the side bet
+     * @param amount the stake, taken from the player's money.  0 for none
+     */
+    public void placeSideBet(SideBet sideBet, int amount) {
+        money -= amount;
+        sideBets[sideBet.ordinal()] = amount;
+        sideBetReturns[sideBet.ordinal()] = amount > 0 ? -1 : 0;
+    }
+
+    /**
+     * getter for the stake on a side bet this round
+     * @param sideBet the side bet
+     * @return the stake.  0 if none was placed
+     */
+    public int getSideBet(SideBet sideBet) {
+        return sideBets[sideBet.ordinal()];
+    }
+
+    /**
+     * determines if a side bet has a stake that has not been settled yet
+     * @param sideBet the side bet
+     * @return true if the side bet is still open
+     */
+    public boolean isSideBetOpen(SideBet sideBet) {
+        return sideBetReturns[sideBet.ordinal()] < 0;
+    }
+
+    /**
+     * gets the sum of the stakes of every open side bet
+     * @return the stakes not settled yet
+     */
+    public int getOpenSideBetStakes() {
+        int stakes = 0;
+        for(int i = 0; i < sideBets.length; i++){
+            if(sideBetReturns[i] < 0){
+                stakes += sideBets[i];
+            }
+        }
+        return stakes;
+    }
+
+    /**
+     * settles an open side bet
+     * @param sideBet the side bet
+     * @param returned money given back to the player, stake included.  0 if the bet lost
+     */
+    public void settleSideBet(SideBet sideBet, int returned) {
+        sideBetReturns[sideBet.ordinal()] = returned;
+        money += returned;
+    }
+
+    /**
+     * getter for what a settled side bet gave back
+     * @param sideBet the side bet
+     * @return money given back, stake included.  -1 if it is still open
+     */
+    public int getSideBetReturn(SideBet sideBet) {
+        return sideBetReturns[sideBet.ordinal()];
+    }
+
     /**
      * add the winnings to the player's money
      * @param winnings the cash to be added to the player's money
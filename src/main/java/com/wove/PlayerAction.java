@@ -6,4 +6,28 @@ package com.wove;
  */
 public enum PlayerAction {
     SPLIT, DOUBLE_DOWN, HIT, STAND;
+
+    /** letters of the actions in declaration order */
+    private static final String LETTERS = "PDHS";
+
+    /**
+     * gets the single letter used when actions are stored as text
+     * @return the letter of this action
+     */
+    public char getLetter() {
+        return LETTERS.charAt(ordinal());
+    }
+
+    /**
+     * looks up an action by its letter
+     * @param letter letter returned by getLetter()
+     * @return the action
+     */
+    public static PlayerAction fromLetter(char letter) {
+        int index = LETTERS.indexOf(letter);
+        if(index < 0){
+            throw new IllegalArgumentException("no action has letter " + letter);
+        }
+        return values()[index];
+    }
 }
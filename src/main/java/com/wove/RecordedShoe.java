@@ -0,0 +1,279 @@
+package com.wove;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A shoe that was dealt at a table, recorded so it can be dealt again.
+ * Either the seed the shoe was shuffled from or the explicit order of its
+ * cards is stored, together with the number of rounds dealt from it.
+ *
+ * Shoes recorded at a real table by a ShoeRecorder also keep the bets of
+ * every seat in every round, the running count the shoe started with and
+ * the number of its cards dealt in the round that ran into the cut card of
+ * the shoe before.  Their decks shuffle each later shoe from a seed of its
+ * own (see Deck.seedShoes()) so a round running into the cut card deals the
+ * same new shoe on replay as it did at the table.
+ *
+ * Shoe files hold one shoe per line:
+ *   seed [rounds] [seed] [options]
+ *   cards [rounds] [reshuffle seed] [options] [card code] [card code] ...
+ * where the options of shoes recorded at a table are
+ *   bets=[seat bet],[seat bet]/[seat bet],[seat bet]/...  one group per round,
+ *       or a single group if every round had the same bets
+ *   count=[running count]  skip=[cards already dealt]
+ * Lines starting with # are ignored.
+ */
+class RecordedShoe {
+    /** seed the whole shoe was shuffled from, or of later reshuffles for explicit shoes */
+    private final long seed;
+    /** explicit card order from the top down.  null if the shoe is recorded by seed */
+    private final int cardCodes[];
+    /** rounds dealt from the shoe */
+    private final int rounds;
+    /** bet of every seat in every round.  null if the shoe was not recorded at a table */
+    private final int bets[][];
+    /** running count of the deck when the shoe started */
+    private final int runningCount;
+    /** cards of the shoe dealt before its first round, by the round that reshuffled */
+    private final int skip;
+
+    /**
+     * records a shoe by the seed it was shuffled from
+     * @param seed seed of the shoe's Random
+     * @param rounds rounds dealt from the shoe
+     */
+    public RecordedShoe(long seed, int rounds){
+        this(seed, null, rounds);
+    }
+
+    /**
+     * records a shoe by the order of its cards
+     * @param reshuffleSeed seed used once the recorded cards run low
+     * @param cardCodes codes of the cards from the top down
+     * @param rounds rounds dealt from the shoe
+     */
+    public RecordedShoe(long reshuffleSeed, int cardCodes[], int rounds){
+        this.seed = reshuffleSeed;
+        this.cardCodes = cardCodes;
+        this.rounds = rounds;
+        this.bets = null;
+        this.runningCount = 0;
+        this.skip = 0;
+    }
+
+    /**
+     * records a shoe dealt at a table whose deck seeds its shoes
+     * @param seed seed of the shoe, or of the next shoe for explicit shoes
+     * @param cardCodes codes of the cards from the top down.  null if the shoe is recorded by seed
+     * @param runningCount running count of the deck when the shoe started
+     * @param skip cards of the shoe dealt before its first round
+     * @param bets bet of every seat in every round dealt from the shoe
+     */
+    public RecordedShoe(long seed, int cardCodes[], int runningCount, int skip, int bets[][]){
+        this.seed = seed;
+        this.cardCodes = cardCodes;
+        this.rounds = bets.length;
+        this.bets = bets;
+        this.runningCount = runningCount;
+        this.skip = skip;
+    }
+
+    /**
+     * getter for the number of rounds dealt from this shoe
+     * @return rounds dealt from this shoe
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * getter for the number of seats that played this shoe
+     * @return seats at the table, 0 if the shoe was not recorded at a table
+     */
+    public int getSeats(){
+        return bets == null ? 0 : bets[0].length;
+    }
+
+    /**
+     * getter for the bets of one round
+     * @param round round of the shoe, from 0
+     * @return bet of every seat, null if the shoe was not recorded at a table
+     */
+    public int[] getBets(int round){
+        return bets == null ? null : bets[round];
+    }
+
+    /**
+     * creates a deck that deals this shoe's cards in the recorded order.  The
+     * deck of a shoe recorded at a table has already dealt the cards of the
+     * round that ran into the previous shoe's cut card.
+     * @return a new deck
+     */
+    public Deck newDeck(){
+        if(bets == null){
+            if(cardCodes == null){
+                return new Deck(new Random(seed));
+            }
+            return new Deck(cardCodes, new Random(seed));
+        }
+        // an empty deck reshuffles on its first card, from the seed it is given
+        Deck deck = new Deck(cardCodes == null ? new int[0] : cardCodes, runningCount, new Random(seed));
+        deck.seedShoes(seed);
+        for(int i = 0; i < skip; i++){
+            deck.getCard();
+        }
+        return deck;
+    }
+
+    /**
+     * formats this shoe as a line of a shoe file
+     * @return the line, without a line separator
+     */
+    String toLine(){
+        StringBuilder line = new StringBuilder();
+        line.append(cardCodes == null ? "seed " : "cards ").append(rounds).append(' ').append(seed);
+        if(bets != null){
+            line.append(" bets=");
+            boolean same = true;
+            for(int round = 1; round < bets.length; round++){
+                same &= Arrays.equals(bets[round], bets[0]);
+            }
+            for(int round = 0; round < (same ? 1 : bets.length); round++){
+                if(round > 0){
+                    line.append('/');
+                }
+                for(int seat = 0; seat < bets[round].length; seat++){
+                    line.append(seat > 0 ? "," : "").append(bets[round][seat]);
+                }
+            }
+            if(runningCount != 0){
+                line.append(" count=").append(runningCount);
+            }
+            if(skip != 0){
+                line.append(" skip=").append(skip);
+            }
+        }
+        if(cardCodes != null){
+            for(int code : cardCodes){
+                line.append(' ').append(code);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * parses a line of a shoe file
+     * @param line the line, trimmed
+     * @return the shoe
+     * @throws IOException if the line is malformed
+     */
+    static RecordedShoe parse(String line) throws IOException {
+        String fields[] = line.split("\\s+");
+        try {
+            int rounds = Integer.parseInt(fields[1]);
+            long seed = Long.parseLong(fields[2]);
+            int bets[][] = null;
+            int runningCount = 0;
+            int skip = 0;
+            int next = 3;
+            for(; next < fields.length && fields[next].indexOf('=') > 0; next++){
+                String value = fields[next].substring(fields[next].indexOf('=') + 1);
+                if(fields[next].startsWith("bets=")){
+                    bets = parseBets(value, rounds);
+                }else if(fields[next].startsWith("count=")){
+                    runningCount = Integer.parseInt(value);
+                }else if(fields[next].startsWith("skip=")){
+                    skip = Integer.parseInt(value);
+                }else{
+                    throw new IOException("unknown shoe option: " + fields[next]);
+                }
+            }
+            int codes[] = null;
+            if(fields[0].equals("cards")){
+                codes = new int[fields.length - next];
+                for(int i = 0; i < codes.length; i++){
+                    codes[i] = Integer.parseInt(fields[i + next]);
+                }
+            }else if(!fields[0].equals("seed")){
+                throw new IOException("unknown shoe type: " + fields[0]);
+            }
+            if(bets != null){
+                return new RecordedShoe(seed, codes, runningCount, skip, bets);
+            }
+            return new RecordedShoe(seed, codes, rounds);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("malformed shoe line: " + line, e);
+        }
+    }
+
+    /**
+     * parses the bets option of a shoe line
+     * @param value text after bets=
+     * @param rounds rounds dealt from the shoe
+     * @return bet of every seat in every round
+     * @throws IOException if the number of rounds or seats does not match
+     */
+    private static int[][] parseBets(String value, int rounds) throws IOException {
+        String groups[] = value.split("/");
+        if(groups.length != 1 && groups.length != rounds){
+            throw new IOException("bets of " + groups.length + " rounds for a shoe of " + rounds);
+        }
+        int bets[][] = new int[rounds][];
+        for(int round = 0; round < rounds; round++){
+            String seats[] = groups[groups.length == 1 ? 0 : round].split(",");
+            bets[round] = new int[seats.length];
+            for(int seat = 0; seat < seats.length; seat++){
+                bets[round][seat] = Integer.parseInt(seats[seat]);
+            }
+            if(seats.length != bets[0].length){
+                throw new IOException("rounds of a shoe bet for different numbers of seats");
+            }
+        }
+        return bets;
+    }
+
+    /**
+     * reads a shoe file
+     * @param path the file
+     * @return the shoes in file order
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static List<RecordedShoe> read(Path path) throws IOException {
+        List<RecordedShoe> shoes = new ArrayList<>();
+        try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)){
+            String line;
+            while((line = reader.readLine()) != null){
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")){
+                    continue;
+                }
+                shoes.add(parse(line));
+            }
+        }
+        return shoes;
+    }
+
+    /**
+     * writes shoes to a shoe file
+     * @param path the file
+     * @param shoes shoes to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, List<RecordedShoe> shoes) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)){
+            for(RecordedShoe shoe : shoes){
+                writer.write(shoe.toLine());
+                writer.newLine();
+            }
+        }
+    }
+}
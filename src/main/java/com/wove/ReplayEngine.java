@@ -0,0 +1,161 @@
+package com.wove;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays recorded shoes through a decision policy to find out what it would
+ * have earned on exactly the cards that were dealt.  Every replay deals from a
+ * real Deck in the recorded order and plays real Table rounds, so splits and
+ * double downs shift which cards later hands and players receive exactly as
+ * they would have at the table.  Shoes are independent and replayed in parallel.
+ *
+ * Shoes recorded at a real table are replayed with the seats and bets they
+ * were dealt to; other shoes use the engine's default seats and bet.
+ */
+class ReplayEngine {
+    /** number of players seated at a replayed table, unless the shoe recorded its own */
+    private final int numberOfPlayers;
+    /** bet each player places every round, unless the shoe recorded its own */
+    private final int bet;
+
+    /**
+     * creates a replay engine
+     * @param numberOfPlayers number of players seated at a table replaying a shoe without recorded bets
+     * @param bet bet every player places every round of a shoe without recorded bets
+     */
+    public ReplayEngine(int numberOfPlayers, int bet){
+        this.numberOfPlayers = numberOfPlayers;
+        this.bet = bet;
+    }
+
+    /**
+     * replays one shoe
+     * @param shoe the recorded shoe
+     * @param strategy strategy every player follows
+     * @return money won by all players together.  Negative if they lost
+     */
+    public long replay(RecordedShoe shoe, Strategy strategy){
+        int seats = shoe.getSeats() > 0 ? shoe.getSeats() : numberOfPlayers;
+        List<Player> players = new ArrayList<>();
+        Strategy strategies[] = new Strategy[seats];
+        int defaultBets[] = new int[seats];
+        for(int i = 0; i < seats; i++){
+            players.add(new Player("Replay " + (i + 1), Simulation.SIMULATED_BANKROLL));
+            strategies[i] = strategy;
+            defaultBets[i] = bet;
+        }
+        Table table = new Table(players, shoe.newDeck());
+        for(int round = 0; round < shoe.getRounds(); round++){
+            int bets[] = shoe.getBets(round);
+            table.playRound(bets != null ? bets : defaultBets, strategies);
+        }
+        long net = 0;
+        for(Player player : players){
+            net += player.getMoney() - Simulation.SIMULATED_BANKROLL;
+        }
+        return net;
+    }
+
+    /**
+     * adds up the bets placed on a shoe before any doubling or splitting
+     * @param shoe the recorded shoe
+     * @return the total of every seat's bet in every round
+     */
+    long totalBets(RecordedShoe shoe){
+        if(shoe.getSeats() == 0){
+            return (long) bet * numberOfPlayers * shoe.getRounds();
+        }
+        long total = 0;
+        for(int round = 0; round < shoe.getRounds(); round++){
+            for(int seatBet : shoe.getBets(round)){
+                total += seatBet;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * replays every shoe through two strategies in parallel
+     * @param shoes recorded shoes
+     * @param a first strategy
+     * @param b second strategy
+     * @param threads number of threads to replay on
+     * @return per shoe differences in player winnings, a minus b, per unit bet
+     * @throws InterruptedException if interrupted while waiting for the replays
+     */
+    public RunningStatistics compare(List<RecordedShoe> shoes, final Strategy a, final Strategy b, int threads)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Double>> differences = new ArrayList<>();
+            for(final RecordedShoe shoe : shoes){
+                differences.add(executor.submit(new Callable<Double>() {
+                    @Override
+                    public Double call() {
+                        double staked = Math.max(1, totalBets(shoe));
+                        return (replay(shoe, a) - replay(shoe, b)) / staked;
+                    }
+                }));
+            }
+            RunningStatistics statistics = new RunningStatistics();
+            for(Future<Double> difference : differences){
+                statistics.add(difference.get());
+            }
+            return statistics;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("replay failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * records or replays shoes from the command line.
+     * usage: shoes file [count] [seed|cards]
+     * or:    replay file [strategyA] [strategyB] [threads] [seats] [bet]
+     * Seats and bet only apply to shoes that were not recorded at a table.
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the shoe file cannot be read or written
+     * @throws InterruptedException if interrupted while replaying
+     */
+    static void runFromCommandLine(String args[]) throws IOException, InterruptedException {
+        Path path = Paths.get(args[1]);
+        if(args[0].equals("shoes")){
+            int count = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+            boolean explicit = args.length > 3 && args[3].equals("cards");
+            Random random = new Random();
+            List<RecordedShoe> shoes = new ArrayList<>();
+            for(int i = 0; i < count; i++){
+                long seed = random.nextLong();
+                if(explicit){
+                    shoes.add(new RecordedShoe(random.nextLong(), new Deck(new Random(seed)).getCardCodes(), 30));
+                }else{
+                    shoes.add(new RecordedShoe(seed, 30));
+                }
+            }
+            RecordedShoe.write(path, shoes);
+            return;
+        }
+        List<RecordedShoe> shoes = RecordedShoe.read(path);
+        Strategy a = Simulation.strategyNamed(args.length > 2 ? args[2] : "dealer");
+        Strategy b = Simulation.strategyNamed(args.length > 3 ? args[3] : "basic");
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        int seats = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        int bet = args.length > 6 ? Integer.parseInt(args[6]) : 10;
+        RunningStatistics differences = new ReplayEngine(seats, bet).compare(shoes, a, b, threads);
+        System.out.printf("%d shoes replayed in %.2fs%n", shoes.size(), (System.nanoTime() - start) / 1e9);
+        System.out.printf("strategy A minus strategy B: %.4f +/- %.4f per unit bet%n",
+                differences.getMean(), Simulation.Z_95 * differences.getStandardError());
+    }
+}
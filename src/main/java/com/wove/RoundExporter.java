@@ -0,0 +1,285 @@
+package com.wove;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Plays simulated rounds and exports a row for every hand played to a
+ * columnar round record file.
+ */
+class RoundExporter {
+    /** number of players at the table */
+    private final int numberOfPlayers;
+    /** bet each player places every round */
+    private final int bet;
+    /** rounds played from each shoe */
+    private final int roundsPerTrial;
+
+    /**
+     * creates an exporter
+     * @param numberOfPlayers number of players at the table
+     * @param bet bet every player places every round
+     * @param roundsPerTrial rounds played from each shoe
+     */
+    public RoundExporter(int numberOfPlayers, int bet, int roundsPerTrial){
+        this.numberOfPlayers = numberOfPlayers;
+        this.bet = bet;
+        this.roundsPerTrial = roundsPerTrial;
+    }
+
+    /**
+     * plays trials with the same shoes as Simulation and writes every hand
+     * @param strategy strategy every player follows
+     * @param seed seed of the run
+     * @param trials number of trials to play
+     * @param writer where to write the hands
+     * @throws IOException if the records cannot be written
+     */
+    public void export(Strategy strategy, long seed, long trials, RoundRecordWriter writer) throws IOException {
+        ActionLog log = new ActionLog(strategy);
+        List<Player> players = new ArrayList<>();
+        Strategy strategies[] = new Strategy[numberOfPlayers];
+        int bets[] = new int[numberOfPlayers];
+        for(int i = 0; i < numberOfPlayers; i++){
+            players.add(new Player("Sim " + (i + 1), Simulation.SIMULATED_BANKROLL));
+            strategies[i] = log;
+            bets[i] = bet;
+        }
+        long round = 0;
+        for(long trial = 0; trial < trials; trial++){
+            Table table = new Table(players, new Deck(new Random(Simulation.trialSeed(seed, trial))));
+            for(int r = 0; r < roundsPerTrial; r++){
+                table.playRound(bets, strategies);
+                int upCard = table.getDealer().getUpCard().getCode();
+                for(int seat = 0; seat < numberOfPlayers; seat++){
+                    Player player = players.get(seat);
+                    List<Hand> hands = player.getHands();
+                    for(int h = 0; h < hands.size(); h++){
+                        Hand hand = hands.get(h);
+                        int secondCard = hand.numberOfCards() > 1 ? hand.getCard(1).getCode() : -1;
+                        writer.writeHand(round, seat, h, hand.getCard(0).getCode(), secondCard, upCard,
+                                log.actionsOf(hand), bet, hand.getBet());
+                    }
+                    player.addMoney(Simulation.SIMULATED_BANKROLL - player.getMoney());
+                }
+                log.clear();
+                round++;
+            }
+        }
+    }
+
+    /**
+     * plays trials with the same shoes as Simulation and archives every round
+     * with all of its cards and actions
+     * @param strategy strategy every player follows
+     * @param seed seed of the run
+     * @param trials number of trials to play
+     * @param writer where to write the rounds
+     * @return number of hands played, which is the number of rows a round record file of the same rounds has
+     * @throws IOException if the archive cannot be written
+     */
+    public long archive(Strategy strategy, long seed, long trials, HandArchiveWriter writer) throws IOException {
+        ActionLog log = new ActionLog(strategy);
+        List<Player> players = new ArrayList<>();
+        Strategy strategies[] = new Strategy[numberOfPlayers];
+        int bets[] = new int[numberOfPlayers];
+        for(int i = 0; i < numberOfPlayers; i++){
+            players.add(new Player("Sim " + (i + 1), Simulation.SIMULATED_BANKROLL));
+            strategies[i] = log;
+            bets[i] = bet;
+        }
+        HandArchiveFormat.Round round = new HandArchiveFormat.Round();
+        long hands = 0;
+        for(long trial = 0; trial < trials; trial++){
+            Table table = new Table(players, new Deck(new Random(Simulation.trialSeed(seed, trial))));
+            for(int r = 0; r < roundsPerTrial; r++){
+                table.playRound(bets, strategies);
+                round.clear();
+                Hand dealerHand = table.getDealer().getHand();
+                for(int i = 0; i < dealerHand.numberOfCards(); i++){
+                    round.addDealerCard(dealerHand.getCard(i).getCode());
+                }
+                for(Player player : players){
+                    round.addSeat(bet);
+                    for(Hand hand : player.getHands()){
+                        round.addHand(hand.getBet());
+                        for(int i = 0; i < hand.numberOfCards(); i++){
+                            round.addCard(hand.getCard(i).getCode());
+                        }
+                        String actions = log.actionsOf(hand);
+                        for(int i = 0; i < actions.length(); i++){
+                            round.addAction(PlayerAction.fromLetter(actions.charAt(i)));
+                        }
+                        hands++;
+                    }
+                    player.addMoney(Simulation.SIMULATED_BANKROLL - player.getMoney());
+                }
+                writer.writeRound(round);
+                log.clear();
+            }
+        }
+        return hands;
+    }
+
+    /**
+     * strategy wrapper that remembers the actions taken on every hand of the round
+     */
+    private static class ActionLog implements Strategy {
+        /** the strategy actually deciding */
+        private final Strategy strategy;
+        /** actions taken on each hand this round */
+        private final Map<Hand, StringBuilder> actions = new IdentityHashMap<>();
+
+        ActionLog(Strategy strategy){
+            this.strategy = strategy;
+        }
+
+        @Override
+        public PlayerAction chooseAction(Hand hand, Card dealerUpCard, double trueCount, Set<PlayerAction> availableActions) {
+            PlayerAction action = strategy.chooseAction(hand, dealerUpCard, trueCount, availableActions);
+            StringBuilder handActions = actions.get(hand);
+            if(handActions == null){
+                handActions = new StringBuilder();
+                actions.put(hand, handActions);
+            }
+            handActions.append(action.getLetter());
+            return action;
+        }
+
+        /**
+         * gets the actions taken on a hand
+         * @param hand the hand
+         * @return one letter per action. Empty if the hand needed no decision
+         */
+        String actionsOf(Hand hand){
+            StringBuilder handActions = actions.get(hand);
+            return handActions == null ? "" : handActions.toString();
+        }
+
+        /**
+         * forgets the actions of the round
+         */
+        void clear(){
+            actions.clear();
+        }
+    }
+
+    /**
+     * exports or scans round records or hand archives from the command line.
+     * usage: export file [trials] [players]
+     * or:    scan file
+     * or:    archive file [trials] [players] [deflate|stored]
+     * or:    archive-scan file [lookups]
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the file cannot be written or read
+     */
+    static void runFromCommandLine(String args[]) throws IOException {
+        Path path = Paths.get(args[1]);
+        if(args[0].startsWith("archive")){
+            runArchive(args, path);
+            return;
+        }
+        long start = System.nanoTime();
+        long rows;
+        if(args[0].equals("export")){
+            long trials = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+            int players = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+            try(RoundRecordWriter writer = new RoundRecordWriter(path)){
+                new RoundExporter(players, 10, 100).export(new BasicStrategy(), System.currentTimeMillis(), trials, writer);
+                rows = writer.getRowCount();
+            }
+        }else{
+            try(RoundRecordReader reader = new RoundRecordReader(path)){
+                final long totals[] = new long[2];
+                final long actionCounts[] = new long[reader.getNumberOfActionSequences()];
+                reader.forEachBlock(new RoundRecordReader.BlockVisitor() {
+                    @Override
+                    public void visit(RoundRecordReader.Block block) {
+                        for(int row = 0; row < block.getRowCount(); row++){
+                            totals[0] += block.getBet(row);
+                            totals[1] += block.getReturned(row);
+                            actionCounts[block.getActions(row)]++;
+                        }
+                    }
+                });
+                rows = reader.getRowCount();
+                System.out.println("base bets " + totals[0] + ", returned " + totals[1]);
+                for(int i = 0; i < actionCounts.length; i++){
+                    System.out.println("'" + reader.getActions(i) + "' " + actionCounts[i]);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d rows in %.2fs (%.0f rows/s)%n", rows, seconds, rows / seconds);
+    }
+
+    /**
+     * writes or scans a hand archive from the command line
+     * @param args command line arguments, starting with the mode
+     * @param path the archive
+     * @throws IOException if the archive cannot be written or read
+     */
+    private static void runArchive(String args[], Path path) throws IOException {
+        if(args[0].equals("archive")){
+            long trials = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+            int players = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+            boolean deflate = args.length <= 4 || !args[4].equals("stored");
+            long start = System.nanoTime();
+            long hands, rounds;
+            try(HandArchiveWriter writer = new HandArchiveWriter(path, deflate)){
+                hands = new RoundExporter(players, 10, 100).archive(new BasicStrategy(), System.currentTimeMillis(),
+                        trials, writer);
+                rounds = writer.getRoundCount();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long size = Files.size(path);
+            //a round record file has a fixed width row per hand, without the cards past the second
+            long recordSize = RoundRecordFormat.HEADER_SIZE + RoundRecordFormat.TRAILER_SIZE
+                    + hands * RoundRecordFormat.ROW_WIDTH;
+            System.out.printf("%d rounds, %d hands in %.2fs: %d bytes, %.2f bytes per round, %.1f times smaller"
+                    + " than a round record file of the same hands%n", rounds, hands, seconds, size,
+                    (double) size / rounds, (double) recordSize / size);
+            return;
+        }
+        int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        try(HandArchiveReader reader = new HandArchiveReader(path)){
+            final long totals[] = new long[3];
+            long start = System.nanoTime();
+            reader.forEachRound(new HandArchiveReader.RoundVisitor() {
+                @Override
+                public void visit(long number, HandArchiveFormat.Round round) {
+                    for(int seat = 0; seat < round.getSeats(); seat++){
+                        for(int hand = 0; hand < round.getHands(seat); hand++){
+                            totals[0] += round.getBet(seat);
+                            totals[1] += round.getReturned(seat, hand);
+                            totals[2] += round.getCardCount(seat, hand);
+                        }
+                    }
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long size = Files.size(path);
+            System.out.println("base bets " + totals[0] + ", returned " + totals[1] + ", player cards " + totals[2]);
+            System.out.printf("scanned %d rounds in %.3fs: %.0f rounds/s, %.0f MB/s of archive%n",
+                    reader.getRoundCount(), seconds, reader.getRoundCount() / seconds, size / seconds / 1e6);
+            Random random = new Random();
+            HandArchiveFormat.Round round = new HandArchiveFormat.Round();
+            LatencyHistogram latencies = new LatencyHistogram();
+            for(int i = 0; i < lookups; i++){
+                long number = (long) (random.nextDouble() * reader.getRoundCount());
+                long lookupStart = System.nanoTime();
+                reader.readRound(number, round);
+                latencies.record(System.nanoTime() - lookupStart);
+            }
+            System.out.println("random round lookup " + latencies.summary());
+        }
+    }
+}
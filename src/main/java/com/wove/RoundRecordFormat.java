@@ -0,0 +1,50 @@
+package com.wove;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constants describing the columnar round record file.
+ *
+ * The file starts with MAGIC and VERSION.  Rows, one per played hand, are
+ * stored in blocks.  A block starts with its row count followed by each
+ * column stored contiguously in the order below, every value fixed width:
+ *
+ *   round       long   round number within the export
+ *   seat        byte   seat of the player
+ *   hand        byte   index of the hand among the player's hands
+ *   firstCard   byte   card code of the hand's first card
+ *   secondCard  byte   card code of the hand's second card, -1 if it only has one
+ *   upCard      byte   card code of the dealer's face up card
+ *   actions     int    index into the action dictionary
+ *   bet         int    base bet on the hand
+ *   returned    int    money given back to the player when the hand was settled
+ *
+ * After the last block comes the action dictionary: its size, then every
+ * entry as a length prefixed string of PlayerAction letters.  The
+ * file ends with the dictionary offset, the total row count and MAGIC.
+ */
+class RoundRecordFormat {
+    /** marks the start and end of a round record file */
+    public static final int MAGIC = 0x424A5243;
+    /** version of the layout described above */
+    public static final int VERSION = 1;
+    /** byte order of every value in the file */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    /** rows in every block except possibly the last */
+    public static final int ROWS_PER_BLOCK = 1 << 16;
+    /** bytes of one row summed over all columns */
+    public static final int ROW_WIDTH = 8 + 5 + 4 * 3;
+    /** bytes of the file header */
+    public static final int HEADER_SIZE = 8;
+    /** bytes of the file trailer */
+    public static final int TRAILER_SIZE = 8 + 8 + 4;
+
+    /**
+     * gets the size of a block
+     * @param rows rows in the block
+     * @return bytes of the block including its row count
+     */
+    public static long blockSize(int rows){
+        return 4 + (long) rows * ROW_WIDTH;
+    }
+}
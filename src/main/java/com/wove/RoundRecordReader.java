@@ -0,0 +1,200 @@
+package com.wove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads files written by RoundRecordWriter.  Blocks are memory mapped one at
+ * a time so files of any size can be scanned without copying them onto the heap.
+ */
+class RoundRecordReader implements Closeable {
+    /** channel of the file being read */
+    private final FileChannel channel;
+    /** action sequences by dictionary index */
+    private final String actionDictionary[];
+    /** offset of the dictionary, which is where the blocks end */
+    private final long blocksEnd;
+    /** total rows in the file */
+    private final long rowCount;
+
+    /**
+     * opens a file and reads its dictionary
+     * @param path file to read
+     * @throws IOException if the file cannot be read or is not a round record file
+     */
+    public RoundRecordReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if(size < RoundRecordFormat.HEADER_SIZE + RoundRecordFormat.TRAILER_SIZE){
+                throw new IOException(path + " is not a round record file");
+            }
+            ByteBuffer header = map(0, RoundRecordFormat.HEADER_SIZE);
+            ByteBuffer trailer = map(size - RoundRecordFormat.TRAILER_SIZE, RoundRecordFormat.TRAILER_SIZE);
+            if(header.getInt(0) != RoundRecordFormat.MAGIC || trailer.getInt(16) != RoundRecordFormat.MAGIC){
+                throw new IOException(path + " is not a round record file");
+            }
+            if(header.getInt(4) != RoundRecordFormat.VERSION){
+                throw new IOException("unsupported round record version " + header.getInt(4));
+            }
+            blocksEnd = trailer.getLong(0);
+            rowCount = trailer.getLong(8);
+            ByteBuffer dictionary = map(blocksEnd, size - RoundRecordFormat.TRAILER_SIZE - blocksEnd);
+            actionDictionary = new String[dictionary.getInt()];
+            for(int i = 0; i < actionDictionary.length; i++){
+                byte bytes[] = new byte[dictionary.getShort()];
+                dictionary.get(bytes);
+                actionDictionary[i] = new String(bytes, StandardCharsets.US_ASCII);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * getter for the total number of rows
+     * @return total number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * looks up an action sequence
+     * @param actionIndex value of the actions column
+     * @return the actions, one letter each, see PlayerAction.getLetter()
+     */
+    public String getActions(int actionIndex) {
+        return actionDictionary[actionIndex];
+    }
+
+    /**
+     * getter for the size of the action dictionary
+     * @return number of distinct action sequences
+     */
+    public int getNumberOfActionSequences() {
+        return actionDictionary.length;
+    }
+
+    /**
+     * maps every block in turn and hands it to the visitor
+     * @param visitor called once per block
+     * @throws IOException if the file cannot be read
+     */
+    public void forEachBlock(BlockVisitor visitor) throws IOException {
+        long position = RoundRecordFormat.HEADER_SIZE;
+        while(position < blocksEnd){
+            int rows = map(position, 4).getInt(0);
+            long size = RoundRecordFormat.blockSize(rows);
+            visitor.visit(new Block(map(position, size), rows));
+            position += size;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * maps part of the file read only
+     * @param position start of the part
+     * @param size length of the part
+     * @return the mapped part in the file's byte order
+     */
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(RoundRecordFormat.BYTE_ORDER);
+        return buffer;
+    }
+
+    /**
+     * receives the blocks of a file
+     */
+    interface BlockVisitor {
+        /**
+         * called with each block
+         * @param block the block.  Only valid during the call
+         */
+        void visit(Block block);
+    }
+
+    /**
+     * column access to one mapped block
+     */
+    static class Block {
+        /** the mapped block */
+        private final ByteBuffer buffer;
+        /** rows in the block */
+        private final int rows;
+        /** start of every column */
+        private final int roundStart, seatStart, handStart, firstCardStart, secondCardStart, upCardStart,
+                actionsStart, betStart, returnedStart;
+
+        /**
+         * creates access to a mapped block
+         * @param buffer the block including its row count
+         * @param rows rows in the block
+         */
+        Block(ByteBuffer buffer, int rows){
+            this.buffer = buffer;
+            this.rows = rows;
+            roundStart = 4;
+            seatStart = roundStart + rows * 8;
+            handStart = seatStart + rows;
+            firstCardStart = handStart + rows;
+            secondCardStart = firstCardStart + rows;
+            upCardStart = secondCardStart + rows;
+            actionsStart = upCardStart + rows;
+            betStart = actionsStart + rows * 4;
+            returnedStart = betStart + rows * 4;
+        }
+
+        public int getRowCount() {
+            return rows;
+        }
+
+        public long getRound(int row) {
+            return buffer.getLong(roundStart + row * 8);
+        }
+
+        public int getSeat(int row) {
+            return buffer.get(seatStart + row);
+        }
+
+        public int getHandIndex(int row) {
+            return buffer.get(handStart + row);
+        }
+
+        public int getFirstCard(int row) {
+            return buffer.get(firstCardStart + row);
+        }
+
+        public int getSecondCard(int row) {
+            return buffer.get(secondCardStart + row);
+        }
+
+        public int getUpCard(int row) {
+            return buffer.get(upCardStart + row);
+        }
+
+        public int getActions(int row) {
+            return buffer.getInt(actionsStart + row * 4);
+        }
+
+        public int getBet(int row) {
+            return buffer.getInt(betStart + row * 4);
+        }
+
+        public int getReturned(int row) {
+            return buffer.getInt(returnedStart + row * 4);
+        }
+    }
+}
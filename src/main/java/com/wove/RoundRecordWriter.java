@@ -0,0 +1,187 @@
+package com.wove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes per hand round records in the columnar format described in
+ * RoundRecordFormat.  Rows are gathered into primitive column arrays and a
+ * whole block is written at once through a direct buffer.
+ */
+class RoundRecordWriter implements Closeable {
+    /** channel of the file being written */
+    private final FileChannel channel;
+    /** direct buffer a whole block is assembled in */
+    private final ByteBuffer buffer;
+    /** index of every action sequence seen so far */
+    private final Map<String, Integer> actionIndices;
+    /** action sequences in index order */
+    private final List<String> actionDictionary;
+    /** columns of the block being gathered */
+    private final long rounds[];
+    private final byte seats[];
+    private final byte handIndices[];
+    private final byte firstCards[];
+    private final byte secondCards[];
+    private final byte upCards[];
+    private final int actions[];
+    private final int bets[];
+    private final int returned[];
+    /** rows gathered in the current block */
+    private int rowsInBlock;
+    /** rows written in total */
+    private long rowCount;
+
+    /**
+     * creates a new file, replacing any existing one, and writes its header
+     * @param path where to write the file
+     * @throws IOException if the file cannot be written
+     */
+    public RoundRecordWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        int rows = RoundRecordFormat.ROWS_PER_BLOCK;
+        buffer = ByteBuffer.allocateDirect((int) RoundRecordFormat.blockSize(rows)).order(RoundRecordFormat.BYTE_ORDER);
+        actionIndices = new HashMap<>();
+        actionDictionary = new ArrayList<>();
+        rounds = new long[rows];
+        seats = new byte[rows];
+        handIndices = new byte[rows];
+        firstCards = new byte[rows];
+        secondCards = new byte[rows];
+        upCards = new byte[rows];
+        actions = new int[rows];
+        bets = new int[rows];
+        returned = new int[rows];
+        buffer.putInt(RoundRecordFormat.MAGIC).putInt(RoundRecordFormat.VERSION);
+        writeBuffer();
+    }
+
+    /**
+     * adds the record of one hand
+     * @param round round number
+     * @param seat seat of the player
+     * @param handIndex index of the hand among the player's hands
+     * @param firstCard code of the hand's first card
+     * @param secondCard code of the hand's second card
+     * @param upCard code of the dealer's face up card
+     * @param actionSequence actions taken on the hand, one letter each, see PlayerAction.getLetter()
+     * @param bet base bet on the hand
+     * @param returnedMoney money given back to the player when the hand was settled
+     * @throws IOException if the block cannot be written
+     */
+    public void writeHand(long round, int seat, int handIndex, int firstCard, int secondCard, int upCard,
+                          String actionSequence, int bet, int returnedMoney) throws IOException {
+        Integer actionIndex = actionIndices.get(actionSequence);
+        if(actionIndex == null){
+            actionIndex = actionDictionary.size();
+            actionIndices.put(actionSequence, actionIndex);
+            actionDictionary.add(actionSequence);
+        }
+        int row = rowsInBlock;
+        rounds[row] = round;
+        seats[row] = (byte) seat;
+        handIndices[row] = (byte) handIndex;
+        firstCards[row] = (byte) firstCard;
+        secondCards[row] = (byte) secondCard;
+        upCards[row] = (byte) upCard;
+        actions[row] = actionIndex;
+        bets[row] = bet;
+        returned[row] = returnedMoney;
+        rowsInBlock++;
+        rowCount++;
+        if(rowsInBlock == rounds.length){
+            flushBlock();
+        }
+    }
+
+    /**
+     * getter for the number of rows written so far
+     * @return number of rows written
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * writes the last block, the dictionary and the trailer and closes the file
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+            long dictionaryOffset = channel.position();
+            buffer.putInt(actionDictionary.size());
+            for(String sequence : actionDictionary){
+                byte bytes[] = sequence.getBytes(StandardCharsets.US_ASCII);
+                if(buffer.remaining() < 2 + bytes.length){
+                    writeBuffer();
+                }
+                buffer.putShort((short) bytes.length).put(bytes);
+            }
+            if(buffer.remaining() < RoundRecordFormat.TRAILER_SIZE){
+                writeBuffer();
+            }
+            buffer.putLong(dictionaryOffset).putLong(rowCount).putInt(RoundRecordFormat.MAGIC);
+            writeBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * writes the gathered rows as one block
+     * @throws IOException if the block cannot be written
+     */
+    private void flushBlock() throws IOException {
+        if(rowsInBlock == 0){
+            return;
+        }
+        int rows = rowsInBlock;
+        buffer.putInt(rows);
+        buffer.asLongBuffer().put(rounds, 0, rows);
+        buffer.position(buffer.position() + rows * 8);
+        buffer.put(seats, 0, rows);
+        buffer.put(handIndices, 0, rows);
+        buffer.put(firstCards, 0, rows);
+        buffer.put(secondCards, 0, rows);
+        buffer.put(upCards, 0, rows);
+        putInts(actions, rows);
+        putInts(bets, rows);
+        putInts(returned, rows);
+        writeBuffer();
+        rowsInBlock = 0;
+    }
+
+    /**
+     * bulk copies the start of an int column into the buffer
+     * @param column the column
+     * @param rows number of values to copy
+     */
+    private void putInts(int column[], int rows){
+        buffer.asIntBuffer().put(column, 0, rows);
+        buffer.position(buffer.position() + rows * 4);
+    }
+
+    /**
+     * writes everything in the buffer to the file and empties it
+     * @throws IOException if the file cannot be written
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,227 @@
+package com.wove;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Constant memory summary of simulated rounds.  Tracks the net win of each
+ * seat per round overall, by the type of the seat's first two cards and by
+ * the dealer's face up card, plus a histogram of the net win per round.
+ * Amounts are in units of the base bet.
+ */
+class RoundStatistics {
+    /** number of distinct starting hand types, see handType() */
+    public static final int NUMBER_OF_HAND_TYPES = 37;
+    /** number of distinct dealer face up card values, ace through ten */
+    public static final int NUMBER_OF_UP_CARDS = 10;
+    /** largest net win or loss in base bets the histogram resolves */
+    private static final int HISTOGRAM_RANGE = 8;
+    /** histogram buckets per base bet */
+    private static final int HISTOGRAM_BUCKETS_PER_BET = 2;
+
+    /** net win per seat per round */
+    private final RunningStatistics payout;
+    /** distribution of the net win per seat per round */
+    private final Histogram payoutHistogram;
+    /** net win per seat per round by starting hand type */
+    private final RunningStatistics byHandType[];
+    /** net win per seat per round by dealer face up card */
+    private final RunningStatistics byUpCard[];
+
+    /**
+     * creates empty statistics
+     */
+    public RoundStatistics(){
+        this(new RunningStatistics());
+    }
+
+    /**
+     * creates statistics with the given overall net win and nothing else recorded
+     * @param payout net win per seat per round
+     */
+    private RoundStatistics(RunningStatistics payout){
+        this.payout = payout;
+        payoutHistogram = new Histogram(-HISTOGRAM_RANGE, HISTOGRAM_RANGE, 2 * HISTOGRAM_RANGE * HISTOGRAM_BUCKETS_PER_BET);
+        byHandType = new RunningStatistics[NUMBER_OF_HAND_TYPES];
+        for(int i = 0; i < byHandType.length; i++){
+            byHandType[i] = new RunningStatistics();
+        }
+        byUpCard = new RunningStatistics[NUMBER_OF_UP_CARDS];
+        for(int i = 0; i < byUpCard.length; i++){
+            byUpCard[i] = new RunningStatistics();
+        }
+    }
+
+    /**
+     * records the result of one seat for one round
+     * @param handType type of the seat's first two cards, see handType()
+     * @param upCard value of the dealer's face up card. 1 is an ace
+     * @param netWin money won by the seat this round in base bets.  Negative if lost
+     */
+    public void record(int handType, int upCard, double netWin){
+        payout.add(netWin);
+        payoutHistogram.add(netWin);
+        byHandType[handType].add(netWin);
+        byUpCard[upCard - 1].add(netWin);
+    }
+
+    /**
+     * adds all rounds of other statistics to these ones
+     * @param other statistics to merge in.  Not modified
+     */
+    public void merge(RoundStatistics other){
+        payout.merge(other.payout);
+        payoutHistogram.merge(other.payoutHistogram);
+        for(int i = 0; i < byHandType.length; i++){
+            byHandType[i].merge(other.byHandType[i]);
+        }
+        for(int i = 0; i < byUpCard.length; i++){
+            byUpCard[i].merge(other.byUpCard[i]);
+        }
+    }
+
+    /**
+     * writes these statistics exactly, see RunningStatistics.write()
+     * @param out where to write them
+     * @throws IOException if they cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        payout.write(out);
+        payoutHistogram.write(out);
+        for(RunningStatistics statistics : byHandType){
+            statistics.write(out);
+        }
+        for(RunningStatistics statistics : byUpCard){
+            statistics.write(out);
+        }
+    }
+
+    /**
+     * reads statistics written by write()
+     * @param in where to read them from
+     * @return the statistics
+     * @throws IOException if they cannot be read
+     */
+    public static RoundStatistics read(DataInput in) throws IOException {
+        RoundStatistics statistics = new RoundStatistics(RunningStatistics.read(in));
+        statistics.payoutHistogram.mergeFrom(in);
+        for(int i = 0; i < statistics.byHandType.length; i++){
+            statistics.byHandType[i] = RunningStatistics.read(in);
+        }
+        for(int i = 0; i < statistics.byUpCard.length; i++){
+            statistics.byUpCard[i] = RunningStatistics.read(in);
+        }
+        return statistics;
+    }
+
+    /**
+     * creates an independent copy of these statistics
+     * @return the copy
+     */
+    public RoundStatistics copy(){
+        RoundStatistics copy = new RoundStatistics();
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * getter for the net win per seat per round
+     * @return net win per seat per round
+     */
+    public RunningStatistics getPayout() {
+        return payout;
+    }
+
+    /**
+     * getter for the distribution of the net win per seat per round
+     * @return distribution of the net win per seat per round
+     */
+    public Histogram getPayoutHistogram() {
+        return payoutHistogram;
+    }
+
+    /**
+     * gets the net win per seat per round for one starting hand type
+     * @param handType starting hand type, see handType()
+     * @return the statistics of that hand type
+     */
+    public RunningStatistics getByHandType(int handType) {
+        return byHandType[handType];
+    }
+
+    /**
+     * gets the net win per seat per round for one dealer face up card
+     * @param upCard value of the dealer's face up card. 1 is an ace
+     * @return the statistics of that face up card
+     */
+    public RunningStatistics getByUpCard(int upCard) {
+        return byUpCard[upCard - 1];
+    }
+
+    /**
+     * classifies a two card starting hand.  Pairs come first, then soft
+     * totals 12 to 21 and then hard totals 4 to 20.
+     * @param hand a hand with its first two cards
+     * @return the hand type, between 0 and NUMBER_OF_HAND_TYPES-1
+     */
+    public static int handType(Hand hand){
+        int first = hand.getCard(0).getMinValue();
+        int second = hand.getCard(1).getMinValue();
+        if(first == second){
+            return first - 1;
+        }
+        if(first == 1 || second == 1){
+            return 10 + (first + second + 10 - 12);
+        }
+        return 20 + (first + second - 4);
+    }
+
+    /**
+     * gets a readable name for a starting hand type
+     * @param handType starting hand type, see handType()
+     * @return name of the hand type
+     */
+    public static String handTypeName(int handType){
+        if(handType < 10){
+            int value = handType + 1;
+            return "pair " + (value == 1 ? "A" : String.valueOf(value));
+        }
+        if(handType < 20){
+            return "soft " + (handType - 10 + 12);
+        }
+        return "hard " + (handType - 20 + 4);
+    }
+
+    /**
+     * writes all statistics as comma separated lines
+     * @param out where to write them
+     */
+    public void writeReport(PrintStream out){
+        out.println("group,rounds,mean,variance");
+        writeLine(out, "all", payout);
+        for(int i = 0; i < byHandType.length; i++){
+            if(byHandType[i].getCount() > 0){
+                writeLine(out, handTypeName(i), byHandType[i]);
+            }
+        }
+        for(int upCard = 1; upCard <= byUpCard.length; upCard++){
+            writeLine(out, "dealer " + (upCard == 1 ? "A" : String.valueOf(upCard)), byUpCard[upCard - 1]);
+        }
+        out.println("net win from,rounds");
+        for(int i = 0; i < payoutHistogram.getNumberOfBuckets(); i++){
+            out.println(payoutHistogram.getBucketLow(i) + "," + payoutHistogram.getCount(i));
+        }
+    }
+
+    /**
+     * writes one line of the report
+     * @param out where to write it
+     * @param group name of the group
+     * @param statistics statistics of the group
+     */
+    private static void writeLine(PrintStream out, String group, RunningStatistics statistics){
+        out.println(group + "," + statistics.getCount() + "," + statistics.getMean() + "," + statistics.getVariance());
+    }
+}
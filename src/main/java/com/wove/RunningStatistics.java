@@ -0,0 +1,113 @@
+package com.wove;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Keeps the count, mean and variance of a stream of numbers in constant
+ * memory using Welford's online algorithm.  Statistics gathered separately,
+ * for example on different threads, can be merged without loss.
+ */
+class RunningStatistics {
+    /** number of values added */
+    private long count;
+    /** mean of the values added */
+    private double mean;
+    /** sum of squared differences from the mean */
+    private double squaredDifferences;
+
+    /**
+     * adds a new value to the statistics
+     * @param value value to add
+     */
+    public void add(double value){
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        squaredDifferences += delta * (value - mean);
+    }
+
+    /**
+     * adds all values of other statistics to these ones
+     * @param other statistics to merge in.  Not modified
+     */
+    public void merge(RunningStatistics other){
+        if(other.count == 0){
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        squaredDifferences += other.squaredDifferences + delta * delta * ((double) count * other.count / total);
+        count = total;
+    }
+
+    /**
+     * creates an independent copy of these statistics
+     * @return the copy
+     */
+    public RunningStatistics copy(){
+        RunningStatistics copy = new RunningStatistics();
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * writes these statistics exactly, so read() gives back statistics that
+     * merge and report the same down to the last bit
+     * @param out where to write them
+     * @throws IOException if they cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeDouble(mean);
+        out.writeDouble(squaredDifferences);
+    }
+
+    /**
+     * reads statistics written by write()
+     * @param in where to read them from
+     * @return the statistics
+     * @throws IOException if they cannot be read
+     */
+    public static RunningStatistics read(DataInput in) throws IOException {
+        RunningStatistics statistics = new RunningStatistics();
+        statistics.count = in.readLong();
+        statistics.mean = in.readDouble();
+        statistics.squaredDifferences = in.readDouble();
+        return statistics;
+    }
+
+    /**
+     * getter for the number of values added
+     * @return number of values added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * getter for the mean of the values added
+     * @return mean of the values added
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * gets the sample variance of the values added
+     * @return sample variance.  0 if fewer than two values were added
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : squaredDifferences / (count - 1);
+    }
+
+    /**
+     * gets the standard error of the mean
+     * @return standard error of the mean
+     */
+    public double getStandardError() {
+        return count == 0 ? 0 : Math.sqrt(getVariance() / count);
+    }
+}
@@ -0,0 +1,118 @@
+package com.wove;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Runs the real terminal game at full speed from a script of inputs, to catch
+ * rendering and I/O slowdowns in the actual user interface.  The script holds
+ * one line per line the user would type.  Pauses are skipped and everything
+ * printed goes to a sink that only counts bytes.
+ */
+class ScriptedDriver {
+
+    /**
+     * plays the game from a script
+     * @param script the user input, exactly as typed
+     * @param seed seed of the deck
+     * @param report where to print the measurements
+     */
+    static void drive(byte script[], long seed, PrintStream report){
+        CountingOutputStream sink = new CountingOutputStream();
+        UserIO.redirect(new ByteArrayInputStream(script), new PrintStream(sink, false), false);
+        long start = System.nanoTime();
+        String ending = "game finished";
+        try {
+            new GameController(new Deck(new Random(seed))).startGame();
+        } catch (NoSuchElementException e) {
+            ending = "script ran out of input";
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report.printf("%s in %.3fs: %d frames rendered (%.0f frames/s), %d bytes written (%.1f MB/s)%n", ending,
+                seconds, UserIO.getFramesRendered(), UserIO.getFramesRendered() / seconds, sink.getCount(),
+                sink.getCount() / seconds / 1e6);
+    }
+
+    /**
+     * writes a script that plays the given number of rounds, betting 1 with
+     * no side bets and standing on every hand.  The script stays in step with the game even
+     * when someone has blackjack, because the game skips lines it does not expect.
+     * @param path where to write the script
+     * @param rounds number of rounds to play
+     * @param players number of players
+     * @throws IOException if the script cannot be written
+     */
+    static void writeScript(Path path, int rounds, int players) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)){
+            //welcome message, number of players and their names
+            writer.write("\n" + players + "\n");
+            for(int i = 1; i <= players; i++){
+                writer.write("Player " + i + "\n");
+            }
+            for(int round = 1; round <= rounds; round++){
+                for(int i = 0; i < players; i++){
+                    writer.write("1\n");
+                    for(int sideBet = 0; sideBet < SideBet.values().length; sideBet++){
+                        writer.write("0\n");
+                    }
+                }
+                for(int i = 0; i < players; i++){
+                    writer.write("STAND\n");
+                }
+                //the dealer draws, then another round or not
+                writer.write("\n" + (round < rounds ? "y" : "n") + "\n");
+            }
+            writer.write("\n");
+        }
+    }
+
+    /**
+     * output stream that throws bytes away and counts them
+     */
+    private static class CountingOutputStream extends OutputStream {
+        /** bytes written so far */
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte b[], int off, int len) {
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * drives the game from the command line.
+     * usage: drive script [seed]
+     * or:    drive-script script [rounds] [players]
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the script cannot be read or written
+     */
+    static void runFromCommandLine(String args[]) throws IOException {
+        Path path = Paths.get(args[1]);
+        if(args[0].equals("drive-script")){
+            int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+            int players = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+            writeScript(path, rounds, players);
+            return;
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.currentTimeMillis();
+        drive(Files.readAllBytes(path), seed, System.out);
+    }
+}
@@ -0,0 +1,152 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded pool of full shoes, shuffled ahead of time by a background thread.
+ *
+ * Rebuilding and shuffling a shoe takes far longer than dealing a card, so a
+ * deck that does it inline stalls the round it happens in.  A deck using a
+ * pool instead swaps in a finished shoe.  If the worker has fallen behind and
+ * the pool is empty the shoe is shuffled by the caller as before, and counted
+ * as a miss.
+ *
+ * Shoes go to whichever deck asks first, so decks sharing a pool do not deal
+ * reproducible shoes even if the pool is seeded.
+ */
+class ShoePool {
+    /** shuffled shoes waiting to be dealt */
+    private final BlockingQueue<List<Card>> shoes;
+    /** source of randomness for every shuffle */
+    private final Random random;
+    /** thread keeping the pool full */
+    private final Thread worker;
+    /** shoes that had to be shuffled by the caller */
+    private final AtomicLong misses;
+
+    /**
+     * creates a pool and starts filling it
+     * @param capacity most shoes kept shuffled ahead
+     * @param random source of randomness for the shuffles
+     */
+    public ShoePool(int capacity, Random random){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("pool capacity must be positive");
+        }
+        this.shoes = new ArrayBlockingQueue<>(capacity);
+        this.random = random;
+        this.misses = new AtomicLong();
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    while(true){
+                        shoes.put(Deck.shuffledShoe(ShoePool.this.random));
+                    }
+                }catch (InterruptedException e){
+                    //closed
+                }
+            }
+        }, "shoe-pool");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * takes a shuffled shoe, shuffling one now if none is ready
+     * @return the shoe, top card first
+     */
+    public List<Card> take(){
+        List<Card> shoe = shoes.poll();
+        if(shoe == null){
+            misses.incrementAndGet();
+            shoe = Deck.shuffledShoe(random);
+        }
+        return shoe;
+    }
+
+    /**
+     * gets the number of shoes that were not ready when taken
+     * @return the number of misses
+     */
+    public long getMisses(){
+        return misses.get();
+    }
+
+    /**
+     * stops the background worker.  Shoes can still be taken but are shuffled by the caller.
+     */
+    public void close(){
+        worker.interrupt();
+    }
+
+    /**
+     * plays rounds and records how long each one took
+     * @param deck deck to deal from
+     * @param rounds number of rounds
+     * @param pauseNanos idle time between rounds, as players would take to bet
+     * @param latencies where the latency of every round is recorded
+     * @param reshuffles where the latency of every round that crossed the cut card is recorded as well
+     */
+    private static void timeRounds(Deck deck, int rounds, long pauseNanos, LatencyHistogram latencies,
+                                   LatencyHistogram reshuffles){
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("Sim", Simulation.SIMULATED_BANKROLL));
+        Table table = new Table(players, deck);
+        Strategy strategies[] = {new BasicStrategy()};
+        int bets[] = {10};
+        for(int i = 0; i < rounds; i++){
+            long shoe = deck.getShoeNumber();
+            long start = System.nanoTime();
+            table.playRound(bets, strategies);
+            long latency = System.nanoTime() - start;
+            latencies.record(latency);
+            if(deck.getShoeNumber() != shoe){
+                reshuffles.record(latency);
+            }
+            players.get(0).addMoney(Simulation.SIMULATED_BANKROLL - players.get(0).getMoney());
+            if(pauseNanos > 0){
+                LockSupport.parkNanos(pauseNanos);
+            }
+        }
+    }
+
+    /**
+     * compares round latency of decks that reshuffle inline and decks that take
+     * shoes from a pool, over every round and over the rounds that crossed the
+     * cut card, which are only a few percent of them.  Without a pause between
+     * rounds the worker can only keep up if it has a core of its own.
+     * usage: reshuffle-latency [rounds] [pause microseconds] [pool capacity]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]){
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        long pauseNanos = (args.length > 2 ? Long.parseLong(args[2]) : 20) * 1000;
+        int capacity = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        ShoePool pool = new ShoePool(capacity, new Random());
+        //warm up both paths so compilation does not land in either histogram
+        timeRounds(new Deck(), rounds / 10, pauseNanos, new LatencyHistogram(), new LatencyHistogram());
+        timeRounds(new Deck(pool), rounds / 10, pauseNanos, new LatencyHistogram(), new LatencyHistogram());
+        LatencyHistogram inline = new LatencyHistogram();
+        LatencyHistogram inlineReshuffles = new LatencyHistogram();
+        timeRounds(new Deck(), rounds, pauseNanos, inline, inlineReshuffles);
+        long missesBefore = pool.getMisses();
+        LatencyHistogram pooled = new LatencyHistogram();
+        LatencyHistogram pooledReshuffles = new LatencyHistogram();
+        timeRounds(new Deck(pool), rounds, pauseNanos, pooled, pooledReshuffles);
+        System.out.println("every round");
+        System.out.println("  inline reshuffle: " + inline.summary());
+        System.out.println("  shoe pool:        " + pooled.summary());
+        System.out.println("rounds that crossed the cut card");
+        System.out.println("  inline reshuffle: " + inlineReshuffles.summary());
+        System.out.println("  shoe pool:        " + pooledReshuffles.summary());
+        System.out.println((pool.getMisses() - missesBefore) + " shoes were shuffled inline because the pool was empty");
+        pool.close();
+    }
+}
@@ -0,0 +1,157 @@
+package com.wove;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every shoe dealt at one real table, together with the bets of
+ * every seat in every round, so ReplayEngine can deal the same shoes to the
+ * same seats later.  The shoe that is in the deck when recording starts is
+ * recorded card by card; the deck then shuffles every later shoe from a seed
+ * of its own (see Deck.seedShoes()) and those shoes are recorded by seed.
+ * A shoe is written to the log once the deck reshuffles or the recording is
+ * finished.  A table is recorded from whichever thread plays it.
+ *
+ * Decks that model a continuous shuffling machine or take their shoes from a
+ * ShoePool cannot be recorded.
+ */
+class ShoeRecorder {
+    /** the deck being recorded */
+    private final Deck deck;
+    /** where finished shoes are written */
+    private final Log log;
+    /** seed of the current shoe, or of the next one while the current shoe is explicit */
+    private long seed;
+    /** explicit cards of the current shoe.  null if it is recorded by seed */
+    private int cardCodes[];
+    /** running count of the deck when the current shoe started */
+    private int runningCount;
+    /** cards in the current shoe when it started */
+    private int shoeSize;
+    /** cards of the current shoe dealt before its first round */
+    private int skip;
+    /** bets of every round dealt from the current shoe */
+    private final List<int[]> bets;
+
+    /**
+     * starts recording a deck, beginning with the cards that are left in it
+     * @param deck the deck
+     * @param log where finished shoes are written
+     */
+    public ShoeRecorder(Deck deck, Log log){
+        this.deck = deck;
+        this.log = log;
+        this.bets = new ArrayList<>();
+        if(!deck.hasSeededShoes()){
+            deck.seedShoes(deck.takeSeed());
+        }
+        startExplicitShoe();
+        deck.setShoeRecorder(this);
+    }
+
+    /**
+     * records the bets of a round about to be dealt.  A round with a
+     * different number of seats than the rounds before it in the same shoe
+     * ends the recorded shoe and starts a new one with the cards that are left.
+     * @param roundBets bet of every seat in seat order
+     */
+    public void roundStarted(int roundBets[]){
+        if(!bets.isEmpty() && bets.get(0).length != roundBets.length){
+            writeShoe();
+            startExplicitShoe();
+        }
+        if(bets.isEmpty()){
+            skip = shoeSize - deck.cardsRemaining();
+        }
+        bets.add(roundBets.clone());
+    }
+
+    /**
+     * called by the deck when it has shuffled a new shoe.  Writes the shoe
+     * that ran out; the round in progress counts towards it.
+     * @param shoeSeed seed the new shoe was shuffled from
+     */
+    void shoeShuffled(long shoeSeed){
+        writeShoe();
+        seed = shoeSeed;
+        cardCodes = null;
+        runningCount = 0;
+        shoeSize = Deck.CARDS_PER_SUPER_DECK;
+    }
+
+    /**
+     * writes the shoe in progress and stops recording.  The rounds already
+     * dealt from it are kept; the rest of the shoe is not.
+     */
+    public void finish(){
+        writeShoe();
+        deck.setShoeRecorder(null);
+    }
+
+    /**
+     * starts recording the cards left in the deck as an explicit shoe
+     */
+    private void startExplicitShoe(){
+        cardCodes = deck.getCardCodes();
+        seed = deck.getNextShoeSeed();
+        runningCount = deck.getRunningCount();
+        shoeSize = cardCodes.length;
+    }
+
+    /**
+     * writes the current shoe if any round was dealt from it and starts over
+     */
+    private void writeShoe(){
+        if(!bets.isEmpty()){
+            log.write(new RecordedShoe(seed, cardCodes, runningCount, skip, bets.toArray(new int[bets.size()][])));
+        }
+        bets.clear();
+        skip = 0;
+    }
+
+    /**
+     * A shoe file that shoes are appended to as they finish, shared by every
+     * recorded table.  Each shoe is flushed as soon as it is written, so the
+     * file holds every finished shoe even if the program is killed.
+     */
+    static class Log implements Closeable {
+        /** writer of the shoe file */
+        private final BufferedWriter writer;
+
+        /**
+         * opens a shoe file for appending, creating it if it does not exist
+         * @param path the file
+         * @throws IOException if the file cannot be opened
+         */
+        public Log(Path path) throws IOException {
+            writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        /**
+         * appends a shoe to the file
+         * @param shoe the shoe
+         */
+        public synchronized void write(RecordedShoe shoe){
+            try {
+                writer.write(shoe.toLine());
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot write shoe file", e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.wove;
+
+import java.util.Arrays;
+
+/**
+ * The side bets a player may place next to their main bet.  Both are settled
+ * as soon as the cards are dealt, on the player's first two cards and, for
+ * 21+3, the dealer's face up card.  Every possible combination of card codes
+ * is looked up once when the class loads, so settling a side bet is a single
+ * array read.
+ */
+enum SideBet {
+    /** pays when the player's first two cards are a pair */
+    PERFECT_PAIRS("Perfect Pairs", false),
+    /** pays when the player's first two cards and the dealer's up card make a three card poker hand */
+    TWENTY_ONE_PLUS_THREE("21+3", true);
+
+    /** number of distinct card codes */
+    private static final int CODES = Card.NUMBER_OF_CODES;
+
+    /** name shown to players */
+    private final String label;
+    /** whether the dealer's up card counts */
+    private final boolean usesUpCard;
+    /** payout to 1 of every combination of card codes.  0 if the bet loses */
+    private final byte payouts[];
+
+    SideBet(String label, boolean usesUpCard){
+        this.label = label;
+        this.usesUpCard = usesUpCard;
+        this.payouts = usesUpCard ? twentyOnePlusThreeTable() : perfectPairsTable();
+    }
+
+    /**
+     * getter for the name shown to players
+     * @return the name
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * looks up what the bet pays
+     * @param firstCard code of the player's first card, see Card.getCode()
+     * @param secondCard code of the player's second card
+     * @param upCard code of the dealer's face up card
+     * @return payout to 1, so a winning stake comes back this many times over plus the stake.  0 if the bet loses
+     */
+    public int payout(int firstCard, int secondCard, int upCard){
+        int index = firstCard * CODES + secondCard;
+        return payouts[usesUpCard ? index * CODES + upCard : index];
+    }
+
+    /**
+     * gets the largest payout of the bet
+     * @return largest payout to 1
+     */
+    public int getMaxPayout(){
+        return usesUpCard ? CasinoRules.SUITED_TRIPS_PAYOUT : CasinoRules.PERFECT_PAIR_PAYOUT;
+    }
+
+    /**
+     * names the hand that earns a payout
+     * @param payout payout to 1 as returned by payout()
+     * @return the name of the hand
+     */
+    public String describePayout(int payout){
+        if(payout == 0){
+            return "no win";
+        }
+        if(usesUpCard){
+            switch (payout) {
+                case CasinoRules.SUITED_TRIPS_PAYOUT:
+                    return "suited trips";
+                case CasinoRules.STRAIGHT_FLUSH_PAYOUT:
+                    return "straight flush";
+                case CasinoRules.THREE_OF_A_KIND_PAYOUT:
+                    return "three of a kind";
+                case CasinoRules.STRAIGHT_PAYOUT:
+                    return "straight";
+                default:
+                    return "flush";
+            }
+        }
+        switch (payout) {
+            case CasinoRules.PERFECT_PAIR_PAYOUT:
+                return "perfect pair";
+            case CasinoRules.COLORED_PAIR_PAYOUT:
+                return "colored pair";
+            default:
+                return "mixed pair";
+        }
+    }
+
+    /**
+     * works out the Perfect Pairs payout of every pair of card codes
+     * @return payouts indexed by first code * 52 + second code
+     */
+    private static byte[] perfectPairsTable(){
+        byte table[] = new byte[CODES * CODES];
+        //card codes run through every suit of a rank before the next rank
+        int suits = Card.Suit.values().length;
+        for(int first = 0; first < CODES; first++){
+            for(int second = 0; second < CODES; second++){
+                int payout = 0;
+                if(first / suits == second / suits){
+                    int firstSuit = first % suits;
+                    int secondSuit = second % suits;
+                    if(firstSuit == secondSuit){
+                        payout = CasinoRules.PERFECT_PAIR_PAYOUT;
+                    }else if(isRed(firstSuit) == isRed(secondSuit)){
+                        payout = CasinoRules.COLORED_PAIR_PAYOUT;
+                    }else{
+                        payout = CasinoRules.MIXED_PAIR_PAYOUT;
+                    }
+                }
+                table[first * CODES + second] = (byte) payout;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * works out the 21+3 payout of every three card codes
+     * @return payouts indexed by (first code * 52 + second code) * 52 + up card code
+     */
+    private static byte[] twentyOnePlusThreeTable(){
+        byte table[] = new byte[CODES * CODES * CODES];
+        int suits = Card.Suit.values().length;
+        int ranks[] = new int[3];
+        for(int first = 0; first < CODES; first++){
+            for(int second = 0; second < CODES; second++){
+                for(int up = 0; up < CODES; up++){
+                    ranks[0] = first / suits;
+                    ranks[1] = second / suits;
+                    ranks[2] = up / suits;
+                    Arrays.sort(ranks);
+                    boolean flush = first % suits == second % suits && second % suits == up % suits;
+                    boolean trips = ranks[0] == ranks[2];
+                    boolean distinct = ranks[0] != ranks[1] && ranks[1] != ranks[2];
+                    //ranks run from ace to king, and an ace may also sit above the king
+                    boolean straight = distinct && (ranks[2] - ranks[0] == 2
+                            || ranks[0] == Card.Rank.ACE.ordinal() && ranks[1] == Card.Rank.QUEEN.ordinal());
+                    int payout = 0;
+                    if(trips && flush){
+                        payout = CasinoRules.SUITED_TRIPS_PAYOUT;
+                    }else if(straight && flush){
+                        payout = CasinoRules.STRAIGHT_FLUSH_PAYOUT;
+                    }else if(trips){
+                        payout = CasinoRules.THREE_OF_A_KIND_PAYOUT;
+                    }else if(straight){
+                        payout = CasinoRules.STRAIGHT_PAYOUT;
+                    }else if(flush){
+                        payout = CasinoRules.FLUSH_PAYOUT;
+                    }
+                    table[(first * CODES + second) * CODES + up] = (byte) payout;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * tells the color of a suit
+     * @param suit ordinal of the suit
+     * @return whether the suit is red
+     */
+    private static boolean isRed(int suit){
+        return suit == Card.Suit.DIAMONDS.ordinal() || suit == Card.Suit.HEARTS.ordinal();
+    }
+}
@@ -0,0 +1,143 @@
+package com.wove;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Works out the exact house edge of every side bet for a shoe of some number
+ * of decks.  The player's two cards and the dealer's up card are the first
+ * three cards of a freshly shuffled shoe in some order, so every ordered
+ * choice of three card codes is weighed by how many ways it can be drawn
+ * without replacement.  The choices are split by the first card and counted
+ * on every core, and all sums are kept as whole numbers so nothing is rounded.
+ */
+class SideBetAnalyzer {
+    /** number of decks in the shoe */
+    private final int decks;
+
+    /**
+     * creates an analyzer
+     * @param decks number of decks in the shoe
+     */
+    public SideBetAnalyzer(int decks){
+        if(decks <= 0){
+            throw new IllegalArgumentException("there must be at least one deck");
+        }
+        this.decks = decks;
+    }
+
+    /**
+     * counts the ways each payout of a side bet can happen
+     * @param sideBet the side bet
+     * @param threads number of threads to count on
+     * @return ways of drawing the three cards that end in each payout, indexed by payout to 1
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public long[] countOutcomes(final SideBet sideBet, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> parts = new ArrayList<>();
+            for(int c = 0; c < Card.NUMBER_OF_CODES; c++){
+                final int first = c;
+                parts.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        return countOutcomesAfter(sideBet, first);
+                    }
+                }));
+            }
+            long ways[] = new long[sideBet.getMaxPayout() + 1];
+            for(Future<long[]> part : parts){
+                long partWays[] = part.get();
+                for(int payout = 0; payout < ways.length; payout++){
+                    ways[payout] += partWays[payout];
+                }
+            }
+            return ways;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * counts the ways each payout can happen when the player's first card is a given card
+     * @param sideBet the side bet
+     * @param first code of the player's first card
+     * @return ways indexed by payout to 1
+     */
+    private long[] countOutcomesAfter(SideBet sideBet, int first){
+        long ways[] = new long[sideBet.getMaxPayout() + 1];
+        for(int second = 0; second < Card.NUMBER_OF_CODES; second++){
+            long secondWays = (long) decks * (decks - (second == first ? 1 : 0));
+            if(secondWays == 0){
+                continue;
+            }
+            for(int up = 0; up < Card.NUMBER_OF_CODES; up++){
+                int left = decks - (up == first ? 1 : 0) - (up == second ? 1 : 0);
+                if(left > 0){
+                    ways[sideBet.payout(first, second, up)] += secondWays * left;
+                }
+            }
+        }
+        return ways;
+    }
+
+    /**
+     * gets the number of ordered ways to draw three cards
+     * @return the number of ways, which the counts of countOutcomes() add up to
+     */
+    public long totalWays(){
+        long cards = (long) decks * Card.NUMBER_OF_CODES;
+        return cards * (cards - 1) * (cards - 2);
+    }
+
+    /**
+     * works out the exact house edge of a side bet from its outcome counts
+     * @param ways ways indexed by payout to 1 as returned by countOutcomes()
+     * @return the house edge as a numerator and denominator in lowest terms, per unit staked
+     */
+    public BigInteger[] houseEdge(long ways[]){
+        BigInteger won = BigInteger.ZERO;
+        for(int payout = 1; payout < ways.length; payout++){
+            won = won.add(BigInteger.valueOf(ways[payout]).multiply(BigInteger.valueOf(payout)));
+        }
+        BigInteger numerator = BigInteger.valueOf(ways[0]).subtract(won);
+        BigInteger denominator = BigInteger.valueOf(totalWays());
+        BigInteger gcd = numerator.gcd(denominator);
+        return new BigInteger[]{numerator.divide(gcd), denominator.divide(gcd)};
+    }
+
+    /**
+     * prints the exact odds of every side bet from the command line.
+     * usage: side-bets [decks] [threads]
+     * @param args command line arguments, starting with the mode
+     * @throws InterruptedException if interrupted while counting
+     */
+    static void runFromCommandLine(String args[]) throws InterruptedException {
+        int decks = args.length > 1 ? Integer.parseInt(args[1]) : CasinoRules.NUMBER_OF_DECKS;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        SideBetAnalyzer analyzer = new SideBetAnalyzer(decks);
+        for(SideBet sideBet : SideBet.values()){
+            long start = System.nanoTime();
+            long ways[] = analyzer.countOutcomes(sideBet, threads);
+            BigInteger edge[] = analyzer.houseEdge(ways);
+            System.out.printf("%s, %d decks: house edge %.4f%% (%s/%s), counted in %.1fms%n", sideBet.getLabel(), decks,
+                    100 * edge[0].doubleValue() / edge[1].doubleValue(), edge[0], edge[1],
+                    (System.nanoTime() - start) / 1e6);
+            for(int payout = ways.length - 1; payout >= 0; payout--){
+                if(ways[payout] > 0){
+                    System.out.printf("  %-16s %3d to 1  probability %.6f%n", sideBet.describePayout(payout), payout,
+                            (double) ways[payout] / analyzer.totalWays());
+                }
+            }
+        }
+    }
+}
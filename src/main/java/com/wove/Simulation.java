@@ -0,0 +1,344 @@
+package com.wove;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the house edge of strategies by playing many headless rounds.
+ *
+ * The unit of sampling is a trial: a freshly shuffled shoe seeded from the
+ * trial number and a fixed number of rounds played from it.  Trials are
+ * independent, so the confidence interval is computed over trial results and
+ * a run stops as soon as that interval is narrower than requested.
+ *
+ * Two variance reduction techniques are supported.  Comparisons of two
+ * strategies use common random numbers: both strategies play the exact same
+ * shoes and only the per-trial differences are sampled.  Single estimates can
+ * use antithetic shoes: each trial is paired with the shoe shuffled from the
+ * mirrored random stream and the pair average is sampled.
+ *
+ * The shoe can also be replaced by a continuous shuffling machine, which
+ * takes back the cards of every round instead of being reshuffled.
+ */
+class Simulation {
+    /** z value of a two sided 95% confidence interval */
+    public static final double Z_95 = 1.959964;
+    /** samples taken before the interval width is trusted for stopping */
+    private static final int MIN_SAMPLES = 100;
+    /** bankroll of simulated players.  Large enough that doubling is never cut short */
+    static final int SIMULATED_BANKROLL = 1000000000;
+
+    /** number of players at the simulated table */
+    private final int numberOfPlayers;
+    /** bet each player places every round */
+    private final int bet;
+    /** rounds played from each shoe */
+    private final int roundsPerTrial;
+    /** z value of the confidence interval */
+    private final double z;
+    /** whether trials are dealt from a continuous shuffling machine instead of a shoe */
+    private final boolean continuousShuffling;
+
+    /**
+     * creates a simulation using 95% confidence intervals
+     * @param numberOfPlayers number of players at the table, each playing the simulated strategy
+     * @param bet bet every player places every round
+     * @param roundsPerTrial rounds played from each shoe
+     */
+    public Simulation(int numberOfPlayers, int bet, int roundsPerTrial){
+        this(numberOfPlayers, bet, roundsPerTrial, Z_95);
+    }
+
+    /**
+     * creates a simulation
+     * @param numberOfPlayers number of players at the table, each playing the simulated strategy
+     * @param bet bet every player places every round
+     * @param roundsPerTrial rounds played from each shoe
+     * @param z z value of the confidence interval
+     */
+    public Simulation(int numberOfPlayers, int bet, int roundsPerTrial, double z){
+        this(numberOfPlayers, bet, roundsPerTrial, z, false);
+    }
+
+    /**
+     * creates a simulation
+     * @param numberOfPlayers number of players at the table, each playing the simulated strategy
+     * @param bet bet every player places every round
+     * @param roundsPerTrial rounds played from each shoe
+     * @param z z value of the confidence interval
+     * @param continuousShuffling whether to deal from a continuous shuffling machine instead of a shoe
+     */
+    public Simulation(int numberOfPlayers, int bet, int roundsPerTrial, double z, boolean continuousShuffling){
+        if(numberOfPlayers < CasinoRules.MIN_NUMBER_PLAYERS || numberOfPlayers > CasinoRules.MAX_NUMBER_PLAYERS){
+            throw new IllegalArgumentException("invalid number of players: " + numberOfPlayers);
+        }
+        if(bet <= 0 || roundsPerTrial <= 0){
+            throw new IllegalArgumentException("bet and rounds per trial must be positive");
+        }
+        this.numberOfPlayers = numberOfPlayers;
+        this.bet = bet;
+        this.roundsPerTrial = roundsPerTrial;
+        this.z = z;
+        this.continuousShuffling = continuousShuffling;
+    }
+
+    /**
+     * derives the seed of a trial from the seed of the run.  Any two runs with
+     * the same seed play the same shoes in the same trials.
+     * @param seed seed of the run
+     * @param trial trial number
+     * @return seed of the trial's shoe
+     */
+    static long trialSeed(long seed, long trial){
+        long mixed = seed + trial * 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    /**
+     * plays one trial: roundsPerTrial rounds from a shoe shuffled by the given random
+     * @param strategy strategy every player follows
+     * @param random source of the shoe's shuffles
+     * @return the house edge of the trial, house winnings divided by money initially bet
+     */
+    public double playTrial(Strategy strategy, Random random){
+        return playTrial(strategy, random, null);
+    }
+
+    /**
+     * plays one trial and records every seat's result of every round
+     * @param strategy strategy every player follows
+     * @param random source of the shoe's shuffles
+     * @param recorder where to record each seat's rounds. null to not record
+     * @return the house edge of the trial, house winnings divided by money initially bet
+     */
+    public double playTrial(Strategy strategy, Random random, StatisticsCollector.Recorder recorder){
+        List<Player> players = new ArrayList<>();
+        Strategy strategies[] = new Strategy[numberOfPlayers];
+        int bets[] = new int[numberOfPlayers];
+        int handTypes[] = new int[numberOfPlayers];
+        for(int i = 0; i < numberOfPlayers; i++){
+            players.add(new Player("Sim " + (i + 1), SIMULATED_BANKROLL));
+            strategies[i] = strategy;
+            bets[i] = bet;
+        }
+        Table table = new Table(players, new Deck(random, continuousShuffling));
+        long houseWinnings = 0;
+        for(int round = 0; round < roundsPerTrial; round++){
+            table.startRound(bets);
+            if(recorder != null){
+                //splitting moves cards around, so classify the starting hands before anyone plays
+                for(int i = 0; i < numberOfPlayers; i++){
+                    handTypes[i] = RoundStatistics.handType(players.get(i).getHands().get(0));
+                }
+            }
+            table.playOut(strategies);
+            for(int i = 0; i < numberOfPlayers; i++){
+                Player player = players.get(i);
+                int net = player.getMoney() - SIMULATED_BANKROLL;
+                houseWinnings -= net;
+                if(recorder != null){
+                    recorder.record(handTypes[i], table.getDealer().getUpCard().getMinValue(), (double) net / bet);
+                }
+                //give back what was won or lost so every round starts with the same bankroll
+                player.addMoney(-net);
+            }
+        }
+        return houseWinnings / ((double) bet * numberOfPlayers * roundsPerTrial);
+    }
+
+    /**
+     * estimates the house edge against a strategy
+     * @param strategy strategy every player follows
+     * @param seed seed of the run
+     * @param targetWidth stop once the confidence interval is at most this wide. 0 to always run maxSamples
+     * @param maxSamples the most samples to take
+     * @param antithetic whether to pair every shoe with its antithetic shoe
+     * @return the estimated house edge
+     */
+    public SimulationResult estimateHouseEdge(Strategy strategy, long seed, double targetWidth, long maxSamples,
+                                              boolean antithetic){
+        long start = System.nanoTime();
+        RunningStatistics samples = new RunningStatistics();
+        RunningStatistics trials = new RunningStatistics();
+        for(long i = 0; i < maxSamples && !isNarrowEnough(samples, targetWidth); i++){
+            long trialSeed = trialSeed(seed, i);
+            double edge = playTrial(strategy, new Random(trialSeed));
+            trials.add(edge);
+            if(antithetic){
+                double mirroredEdge = playTrial(strategy, new AntitheticRandom(trialSeed));
+                trials.add(mirroredEdge);
+                samples.add((edge + mirroredEdge) / 2);
+            }else{
+                samples.add(edge);
+            }
+        }
+        //a naive run with as many shoes as used here would have the variance of a single trial over the trial count
+        double varianceReductionFactor = 1;
+        if(antithetic && samples.getVariance() > 0){
+            varianceReductionFactor = (trials.getVariance() / 2) / samples.getVariance();
+        }
+        String description = "house edge" + (antithetic ? " (antithetic shoes)" : "");
+        return new SimulationResult(description, samples.getMean(), z * samples.getStandardError(),
+                samples.getCount(), trials.getCount() * roundsPerTrial, varianceReductionFactor,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * estimates how much larger the house edge is against strategy a than against
+     * strategy b.  Both strategies play exactly the same shoes.
+     * @param a first strategy
+     * @param b second strategy
+     * @param seed seed of the run
+     * @param targetWidth stop once the confidence interval is at most this wide. 0 to always run maxSamples
+     * @param maxSamples the most samples to take
+     * @return the estimated difference in house edge, a minus b
+     */
+    public SimulationResult compare(Strategy a, Strategy b, long seed, double targetWidth, long maxSamples){
+        long start = System.nanoTime();
+        RunningStatistics differences = new RunningStatistics();
+        RunningStatistics edgesA = new RunningStatistics();
+        RunningStatistics edgesB = new RunningStatistics();
+        for(long i = 0; i < maxSamples && !isNarrowEnough(differences, targetWidth); i++){
+            long trialSeed = trialSeed(seed, i);
+            double edgeA = playTrial(a, new Random(trialSeed));
+            double edgeB = playTrial(b, new Random(trialSeed));
+            edgesA.add(edgeA);
+            edgesB.add(edgeB);
+            differences.add(edgeA - edgeB);
+        }
+        //independent shoes would give the difference the sum of both variances
+        double varianceReductionFactor = 1;
+        if(differences.getVariance() > 0){
+            varianceReductionFactor = (edgesA.getVariance() + edgesB.getVariance()) / differences.getVariance();
+        }
+        return new SimulationResult("house edge difference (common shoes)", differences.getMean(),
+                z * differences.getStandardError(), differences.getCount(), 2 * differences.getCount() * roundsPerTrial,
+                varianceReductionFactor, System.nanoTime() - start);
+    }
+
+    /**
+     * plays trials on several threads, recording every round into the collector.
+     * Trial i is played by thread i modulo threads, so the rounds played only
+     * depend on the seed and not on thread timing.  Returns immediately; the
+     * returned executor finishes once all trials are played.
+     * @param strategy strategy every player follows
+     * @param seed seed of the run
+     * @param trials number of trials to play
+     * @param threads number of worker threads
+     * @param collector where the workers record their rounds
+     * @return the executor running the workers, already shut down
+     */
+    public ExecutorService streamStatistics(final Strategy strategy, final long seed, final long trials, final int threads,
+                                            final StatisticsCollector collector){
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for(int t = 0; t < threads; t++){
+            final int firstTrial = t;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    StatisticsCollector.Recorder recorder = collector.newRecorder();
+                    for(long i = firstTrial; i < trials && !Thread.currentThread().isInterrupted(); i += threads){
+                        playTrial(strategy, new Random(trialSeed(seed, i)), recorder);
+                    }
+                    recorder.publish();
+                }
+            });
+        }
+        executor.shutdown();
+        return executor;
+    }
+
+    /**
+     * determines if enough samples have been taken to stop
+     * @param samples samples taken so far
+     * @param targetWidth requested width of the confidence interval
+     * @return true if the confidence interval is narrow enough
+     */
+    private boolean isNarrowEnough(RunningStatistics samples, double targetWidth){
+        return samples.getCount() >= MIN_SAMPLES && 2 * z * samples.getStandardError() <= targetWidth;
+    }
+
+    /**
+     * looks up a strategy by the name used on the command line
+     * @param name "basic", "dealer" or "deviations=" followed by a deviation table file
+     * @return the strategy
+     * @throws IOException if a deviation table cannot be read
+     */
+    static Strategy strategyNamed(String name) throws IOException {
+        if(name.startsWith("deviations=")){
+            return new DeviationStrategy(DeviationTable.read(Paths.get(name.substring("deviations=".length()))));
+        }
+        switch (name) {
+            case "basic":
+                return new BasicStrategy();
+            case "dealer":
+                return new MimicDealerStrategy();
+            default:
+                throw new IllegalArgumentException("unknown strategy: " + name);
+        }
+    }
+
+    /**
+     * runs a simulation from the command line.
+     * usage: simulate [strategy] [width] [antithetic]
+     * or:    compare [strategyA] [strategyB] [width]
+     * or:    stats [strategy] [trials] [threads]
+     * or:    csm [strategy] [width]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]) throws InterruptedException, IOException {
+        Simulation simulation = new Simulation(1, 10, 100);
+        long seed = System.currentTimeMillis();
+        SimulationResult result;
+        if(args[0].equals("stats")){
+            Strategy strategy = strategyNamed(args.length > 1 ? args[1] : "basic");
+            long trials = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+            int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            StatisticsCollector collector = new StatisticsCollector(10000);
+            ExecutorService executor = simulation.streamStatistics(strategy, seed, trials, threads, collector);
+            //poll the running workers like a dashboard would
+            while(!executor.awaitTermination(1, TimeUnit.SECONDS)){
+                RunningStatistics payout = collector.snapshot().getPayout();
+                System.out.println(payout.getCount() + " rounds, mean net win " + payout.getMean() + " bets");
+            }
+            collector.snapshot().writeReport(System.out);
+            return;
+        }
+        if(args[0].equals("csm")){
+            Strategy strategy = strategyNamed(args.length > 1 ? args[1] : "basic");
+            double width = args.length > 2 ? Double.parseDouble(args[2]) : 0.005;
+            Simulation machine = new Simulation(1, 10, 100, Z_95, true);
+            SimulationResult shoeResult = simulation.estimateHouseEdge(strategy, seed, width, Long.MAX_VALUE, false);
+            SimulationResult machineResult = machine.estimateHouseEdge(strategy, seed, width, Long.MAX_VALUE, false);
+            System.out.println("shoe:                         " + shoeResult);
+            System.out.println("continuous shuffling machine: " + machineResult);
+            //the two runs are independent, so their interval half widths add in quadrature
+            double halfWidth = Math.hypot(shoeResult.getHalfWidth(), machineResult.getHalfWidth());
+            System.out.printf("difference: %.5f +- %.5f, %.0f vs %.0f rounds per second%n",
+                    machineResult.getEstimate() - shoeResult.getEstimate(), halfWidth,
+                    shoeResult.getRounds() / (shoeResult.getElapsedNanos() / 1e9),
+                    machineResult.getRounds() / (machineResult.getElapsedNanos() / 1e9));
+            return;
+        }
+        if(args[0].equals("compare")){
+            Strategy a = strategyNamed(args.length > 1 ? args[1] : "dealer");
+            Strategy b = strategyNamed(args.length > 2 ? args[2] : "basic");
+            double width = args.length > 3 ? Double.parseDouble(args[3]) : 0.002;
+            result = simulation.compare(a, b, seed, width, Long.MAX_VALUE);
+        }else{
+            Strategy strategy = strategyNamed(args.length > 1 ? args[1] : "basic");
+            double width = args.length > 2 ? Double.parseDouble(args[2]) : 0.005;
+            boolean antithetic = args.length > 3 && args[3].equals("antithetic");
+            result = simulation.estimateHouseEdge(strategy, seed, width, Long.MAX_VALUE, antithetic);
+        }
+        System.out.println(result);
+    }
+}
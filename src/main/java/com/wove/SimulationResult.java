@@ -0,0 +1,78 @@
+package com.wove;
+
+/**
+ * The outcome of a simulation run: an estimate with its confidence
+ * interval and how much work the run needed to get there.
+ */
+class SimulationResult {
+    /** what was estimated */
+    private final String description;
+    /** the estimated value */
+    private final double estimate;
+    /** half the width of the confidence interval around the estimate */
+    private final double halfWidth;
+    /** number of independent samples the estimate is built from */
+    private final long samples;
+    /** total rounds of blackjack played */
+    private final long rounds;
+    /** variance of a naive run divided by the variance achieved for the same number of samples */
+    private final double varianceReductionFactor;
+    /** wall time of the run in nanoseconds */
+    private final long elapsedNanos;
+
+    public SimulationResult(String description, double estimate, double halfWidth, long samples, long rounds,
+                            double varianceReductionFactor, long elapsedNanos) {
+        this.description = description;
+        this.estimate = estimate;
+        this.halfWidth = halfWidth;
+        this.samples = samples;
+        this.rounds = rounds;
+        this.varianceReductionFactor = varianceReductionFactor;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getEstimate() {
+        return estimate;
+    }
+
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getRounds() {
+        return rounds;
+    }
+
+    public double getVarianceReductionFactor() {
+        return varianceReductionFactor;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * number of rounds a naive run would have needed for the same interval width.
+     * The difference to getRounds() is the CPU saved.
+     * @return rounds needed without variance reduction
+     */
+    public long getEquivalentNaiveRounds() {
+        return (long)(rounds * varianceReductionFactor);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %.4f%% +/- %.4f%% after %d samples (%d rounds, %.2fs)%n"
+                        + "variance reduction factor %.2f (a naive run would need about %d rounds)",
+                description, estimate * 100, halfWidth * 100, samples, rounds, elapsedNanos / 1e9,
+                varianceReductionFactor, getEquivalentNaiveRounds());
+    }
+}
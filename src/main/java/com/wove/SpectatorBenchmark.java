@@ -0,0 +1,146 @@
+package com.wove;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broadcasts a live table to growing audiences over loopback sockets and
+ * reports the CPU time the publishing thread spends per frame, which should
+ * not grow with the audience.  Most spectators read everything; a tenth never
+ * read at all, to show that they only lose frames and cost no memory.
+ */
+class SpectatorBenchmark {
+    /** audience sizes measured */
+    private static final int AUDIENCES[] = {1, 10, 100, 500};
+
+    /**
+     * reads and discards everything sent to a set of sockets until interrupted
+     */
+    private static class Viewers implements Runnable {
+        /** selector over the sockets */
+        private final Selector selector;
+        /** bytes read */
+        private final AtomicLong bytesRead = new AtomicLong();
+
+        private Viewers(List<SocketChannel> sockets) throws IOException {
+            selector = Selector.open();
+            for(SocketChannel socket : sockets){
+                socket.configureBlocking(false);
+                socket.register(selector, SelectionKey.OP_READ);
+            }
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer discard = ByteBuffer.allocateDirect(65536);
+            try{
+                while(!Thread.currentThread().isInterrupted()){
+                    selector.select(100);
+                    for(SelectionKey key : selector.selectedKeys()){
+                        discard.clear();
+                        int read = ((SocketChannel) key.channel()).read(discard);
+                        if(read < 0){
+                            key.cancel();
+                        }else{
+                            bytesRead.addAndGet(read);
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+                selector.close();
+            }catch (IOException e){
+                //the benchmark is shutting down
+            }
+        }
+    }
+
+    /**
+     * broadcasts frames to one audience
+     * @param audience number of spectators
+     * @param frames number of frames to publish
+     * @return CPU nanoseconds the publishing thread spent per frame
+     */
+    private static double broadcast(int audience, int frames) throws IOException, InterruptedException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        SpectatorChannel channel = new SpectatorChannel();
+        List<SocketChannel> clients = new ArrayList<>();
+        List<SocketChannel> readers = new ArrayList<>();
+        for(int i = 0; i < audience; i++){
+            SocketChannel client = SocketChannel.open(server.getLocalAddress());
+            clients.add(client);
+            //every tenth spectator never reads
+            if(i % 10 != 9){
+                readers.add(client);
+            }
+            channel.subscribe(server.accept());
+        }
+        Viewers viewers = new Viewers(readers);
+        Thread viewerThread = new Thread(viewers, "viewers");
+        viewerThread.start();
+
+        List<Player> players = new ArrayList<>();
+        for(int s = 0; s < 3; s++){
+            players.add(new Player("Seat " + (s + 1), Simulation.SIMULATED_BANKROLL));
+        }
+        Table table = new Table(players, new Deck(new Random(1)));
+        Strategy strategies[] = new Strategy[players.size()];
+        int bets[] = new int[players.size()];
+        Arrays.fill(strategies, new BasicStrategy());
+        Arrays.fill(bets, 10);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long publishCpu = 0;
+        for(int f = 0; f < frames; f++){
+            table.playRound(bets, strategies);
+            long start = threads.getCurrentThreadCpuTime();
+            channel.publish(null, players, table.getDealer());
+            publishCpu += threads.getCurrentThreadCpuTime() - start;
+            //a live table changes a few hundred times a second at most
+            Thread.sleep(1);
+        }
+        Thread.sleep(500);
+        System.out.printf("%4d spectators: %6.1f us publish CPU per frame, %d frames encoded, %d sent, %d dropped, "
+                        + "%d KB read%n", audience, publishCpu / 1e3 / frames, channel.getFramesEncoded(),
+                channel.getFramesSent(), channel.getFramesDropped(), viewers.bytesRead.get() / 1024);
+        viewerThread.interrupt();
+        viewerThread.join();
+        channel.close();
+        for(SocketChannel client : clients){
+            client.close();
+        }
+        server.close();
+        return (double) publishCpu / frames;
+    }
+
+    /**
+     * runs the benchmark.
+     * usage: spectate-benchmark [frames]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]) throws IOException, InterruptedException {
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        //warm up so compilation is not charged to the first audience
+        broadcast(1, frames);
+        System.out.println("measuring");
+        double perFrame = 0;
+        for(int audience : AUDIENCES){
+            perFrame = broadcast(audience, frames);
+        }
+        int largest = AUDIENCES[AUDIENCES.length - 1];
+        System.out.printf("rendering separately for each of %d spectators would take about %.1f ms of CPU per frame%n",
+                largest, perFrame * largest / 1e6);
+    }
+}
@@ -0,0 +1,218 @@
+package com.wove;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broadcasts the frames of one table to any number of spectators.
+ *
+ * Each frame is rendered once by publish(), into a read-only buffer that every
+ * spectator's write shares; only the buffer position is per spectator.  A
+ * frame goes out as a gathering write of a shared clear-screen prefix and the
+ * frame itself.  The writes are done by one selector thread, so publishing
+ * never waits on the network.  A spectator still receiving an older frame
+ * skips straight to the newest one when it is done, so a slow spectator costs
+ * at most one frame of buffering however far behind it falls.
+ */
+class SpectatorChannel implements Closeable {
+    /** moves the cursor home and clears the terminal before each frame */
+    private static final ByteBuffer CLEAR_SCREEN =
+            ByteBuffer.wrap("\033[H\033[2J".getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+
+    /** selector over every spectator's socket */
+    private final Selector selector;
+    /** thread doing all the writes */
+    private final Thread writer;
+    /** sockets subscribed since the writer last looked */
+    private final Queue<SocketChannel> newSpectators;
+    /** newest frame */
+    private volatile Frame latest;
+    /** whether close() has been called */
+    private volatile boolean closed;
+    /** frames rendered */
+    private final AtomicLong framesEncoded;
+    /** frames written in full to a spectator, counted once per spectator */
+    private final AtomicLong framesSent;
+    /** frames spectators skipped because they were still receiving an older one */
+    private final AtomicLong framesDropped;
+
+    /**
+     * creates a channel with no spectators and starts its writer
+     * @throws IOException if a selector cannot be opened
+     */
+    public SpectatorChannel() throws IOException {
+        selector = Selector.open();
+        newSpectators = new ConcurrentLinkedQueue<>();
+        framesEncoded = new AtomicLong();
+        framesSent = new AtomicLong();
+        framesDropped = new AtomicLong();
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    writeLoop();
+                }catch (IOException e){
+                    //the selector itself failed, nothing more can be sent
+                }
+            }
+        }, "spectator-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * adds a spectator.  They receive the newest frame and every frame after it they can keep up with.
+     * @param socket connection to the spectator
+     * @throws IOException if the socket cannot be made non blocking
+     */
+    public void subscribe(SocketChannel socket) throws IOException {
+        socket.configureBlocking(false);
+        newSpectators.add(socket);
+        selector.wakeup();
+    }
+
+    /**
+     * renders the table once and hands the frame to every spectator
+     * @param currentHand the hand to be highlighted. null means nothing is highlighted
+     * @param players the players at the table
+     * @param dealer the dealer
+     */
+    public void publish(Hand currentHand, List<Player> players, Dealer dealer){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        PrintStream frame = new PrintStream(bytes);
+        UserIO.printAllHands(frame, currentHand, players, dealer);
+        frame.flush();
+        Frame previous = latest;
+        long number = previous == null ? 1 : previous.number + 1;
+        latest = new Frame(number, ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer());
+        framesEncoded.incrementAndGet();
+        selector.wakeup();
+    }
+
+    public long getFramesEncoded(){
+        return framesEncoded.get();
+    }
+
+    public long getFramesSent(){
+        return framesSent.get();
+    }
+
+    public long getFramesDropped(){
+        return framesDropped.get();
+    }
+
+    /**
+     * stops the writer and disconnects every spectator
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        try{
+            writer.join();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        for(SelectionKey key : selector.keys()){
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    /**
+     * writes frames to spectators until closed.  Spectators are only
+     * registered for writability while a frame to them is half written.
+     */
+    private void writeLoop() throws IOException {
+        while(!closed){
+            selector.select();
+            selector.selectedKeys().clear();
+            SocketChannel socket;
+            while((socket = newSpectators.poll()) != null){
+                socket.register(selector, 0, new Spectator());
+            }
+            Frame frame = latest;
+            for(SelectionKey key : selector.keys()){
+                if(key.isValid()){
+                    send((Spectator) key.attachment(), key, frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * writes as much as the spectator's socket will take, moving on to the newest frame once one is done
+     * @param spectator the spectator
+     * @param key the spectator's key
+     * @param frame the newest frame
+     */
+    private void send(Spectator spectator, SelectionKey key, Frame frame){
+        SocketChannel socket = (SocketChannel) key.channel();
+        try{
+            while(true){
+                if(spectator.pending == null){
+                    if(frame == null || frame.number <= spectator.lastFrame){
+                        key.interestOps(0);
+                        return;
+                    }
+                    if(spectator.lastFrame > 0){
+                        framesDropped.addAndGet(frame.number - spectator.lastFrame - 1);
+                    }
+                    spectator.lastFrame = frame.number;
+                    spectator.pending = new ByteBuffer[]{CLEAR_SCREEN.duplicate(), frame.body.duplicate()};
+                }
+                socket.write(spectator.pending);
+                if(spectator.pending[1].hasRemaining()){
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                spectator.pending = null;
+                framesSent.incrementAndGet();
+            }
+        }catch (IOException e){
+            //the spectator went away
+            key.cancel();
+            try{
+                socket.close();
+            }catch (IOException ignored){
+                //already gone
+            }
+        }
+    }
+
+    /**
+     * a rendered frame
+     */
+    private static class Frame {
+        /** position of the frame in the broadcast, starting at 1 */
+        private final long number;
+        /** the frame's bytes, shared by every spectator */
+        private final ByteBuffer body;
+
+        private Frame(long number, ByteBuffer body){
+            this.number = number;
+            this.body = body;
+        }
+    }
+
+    /**
+     * what is being sent to one spectator
+     */
+    private static class Spectator {
+        /** number of the frame being or last sent. 0 before the first */
+        private long lastFrame;
+        /** rest of the frame being sent. null if the spectator is up to date */
+        private ByteBuffer pending[];
+    }
+}
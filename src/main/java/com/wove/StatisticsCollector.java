@@ -0,0 +1,81 @@
+package com.wove;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Gathers round statistics from many worker threads.  Every worker records
+ * into its own Recorder without any locking.  A recorder publishes a copy of
+ * its statistics every so many rounds, and snapshot() merges the latest
+ * published copies, so statistics can be read while the workers keep going.
+ */
+class StatisticsCollector {
+    /** rounds a recorder records between publishing its statistics */
+    private final int publishInterval;
+    /** recorders of all workers */
+    private final List<Recorder> recorders;
+
+    /**
+     * creates a collector with no recorders
+     * @param publishInterval rounds a recorder records between publishing its statistics
+     */
+    public StatisticsCollector(int publishInterval){
+        this.publishInterval = publishInterval;
+        this.recorders = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * creates a recorder for a new worker.  A recorder must only be used by one thread
+     * @return the new recorder
+     */
+    public Recorder newRecorder(){
+        Recorder recorder = new Recorder();
+        recorders.add(recorder);
+        return recorder;
+    }
+
+    /**
+     * merges the statistics last published by every recorder
+     * @return the merged statistics
+     */
+    public RoundStatistics snapshot(){
+        RoundStatistics merged = new RoundStatistics();
+        for(Recorder recorder : recorders){
+            merged.merge(recorder.published);
+        }
+        return merged;
+    }
+
+    /**
+     * records the statistics of a single worker
+     */
+    class Recorder {
+        /** statistics only the worker touches */
+        private final RoundStatistics working = new RoundStatistics();
+        /** latest copy of the working statistics that readers may look at */
+        private volatile RoundStatistics published = new RoundStatistics();
+        /** rounds recorded since the last publish */
+        private int roundsSincePublish;
+
+        /**
+         * records the result of one seat for one round
+         * @param handType type of the seat's first two cards, see RoundStatistics.handType()
+         * @param upCard value of the dealer's face up card. 1 is an ace
+         * @param netWin money won by the seat this round in base bets.  Negative if lost
+         */
+        public void record(int handType, int upCard, double netWin){
+            working.record(handType, upCard, netWin);
+            if(++roundsSincePublish >= publishInterval){
+                publish();
+            }
+        }
+
+        /**
+         * makes everything recorded so far visible to snapshot()
+         */
+        public void publish(){
+            published = working.copy();
+            roundsSincePublish = 0;
+        }
+    }
+}
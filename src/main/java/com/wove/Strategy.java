@@ -0,0 +1,20 @@
+package com.wove;
+
+import java.util.Set;
+
+/**
+ * A policy that decides what an automated player does with a hand.
+ * Used by simulations in place of asking the user through UserIO.
+ */
+interface Strategy {
+
+    /**
+     * chooses the action to take on the given hand
+     * @param hand the hand being played
+     * @param dealerUpCard the dealer's face up card
+     * @param trueCount Hi-Lo running count of the cards seen in the shoe per deck remaining
+     * @param availableActions actions the player is allowed to take
+     * @return the chosen action.  Must be one of availableActions
+     */
+    PlayerAction chooseAction(Hand hand, Card dealerUpCard, double trueCount, Set<PlayerAction> availableActions);
+}
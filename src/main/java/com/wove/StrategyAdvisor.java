@@ -0,0 +1,672 @@
+package com.wove;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recommends an action for a hand from the exact composition of the unseen
+ * cards: everything left in the deck plus the dealer's hole card.  The
+ * expected value of standing, hitting, doubling and splitting is worked out
+ * by recursing over every card that could come next, removing it from the
+ * composition as it goes, and the best available action is recommended.
+ *
+ * Values are for this table's rules, including its quirks: the dealer stops
+ * as soon as they beat or tie the player, a double costs twice the extra bet
+ * (see Player.doubleDown), and a split hand is funded by the casino.  Only
+ * the advised hand is considered, as if it were alone at the table, and
+ * split hands are valued without doubling or splitting again.
+ *
+ * Sub-results are memoized by the composition they were computed from, so
+ * later decisions of the same round reuse most of the work of earlier ones.
+ * The memos are allocated at their full size up front and start over when
+ * they fill up, so a decision never waits for one to grow.  If a decision
+ * still takes longer than the budget the advisor answers from a table
+ * computed for a full shoe when it was created.
+ */
+class StrategyAdvisor {
+    /** bits holding the count of one card value from 1 to 9 in a composition key, enough for every deck */
+    private static final int COUNT_BITS = 32 - Integer.numberOfLeadingZeros(4 * CasinoRules.NUMBER_OF_DECKS);
+    /** bits holding the count of tens in a composition key */
+    private static final int TEN_COUNT_BITS = 32 - Integer.numberOfLeadingZeros(16 * CasinoRules.NUMBER_OF_DECKS);
+    /** bit offset of each card value's count in a composition key */
+    private static final int SHIFT[] = new int[11];
+    /** bits of a composition key */
+    private static final int COMPOSITION_BITS = 9 * COUNT_BITS + TEN_COUNT_BITS;
+    /**
+     * bits a memo key needs above the composition: a total of 5 bits, a flag,
+     * then a 4 bit up card or a flag and a 5 bit dealer total
+     */
+    private static final int KEY_BITS_ABOVE_COMPOSITION = 12;
+    /** slots of each memo used for decisions.  A memo is cleared once half of them are taken */
+    private static final int DECISION_MEMO_CAPACITY = 1 << 18;
+    /** slots of each memo used to compute the fallback table for a full shoe */
+    private static final int FULL_SHOE_MEMO_CAPACITY = 1 << 21;
+    /** fewest cards between two decisions for the second to reuse results memoized by the first */
+    private static final int MAX_CARDS_BETWEEN_REUSE = 12;
+    /** recursion steps between checks of the budget */
+    private static final int STEPS_PER_CLOCK_CHECK = 64;
+    /** index of each action's expected value */
+    private static final int STAND = 0, HIT = 1, DOUBLE = 2, SPLIT = 3;
+    /** actions in the order of their expected values */
+    private static final PlayerAction ACTIONS[] = {PlayerAction.STAND, PlayerAction.HIT, PlayerAction.DOUBLE_DOWN,
+            PlayerAction.SPLIT};
+    /** thrown out of the recursion when the budget runs out.  Shared, since it carries no stack trace */
+    private static final RuntimeException OUT_OF_TIME = new RuntimeException("advisor budget exceeded", null,
+            false, false) {};
+
+    static {
+        for(int card = 2; card <= 10; card++){
+            SHIFT[card] = SHIFT[card - 1] + COUNT_BITS;
+        }
+        //up to 7 decks fill the key exactly.  With more, counts would spill into each other and mix up memoized results
+        if(COMPOSITION_BITS + KEY_BITS_ABOVE_COMPOSITION > Long.SIZE){
+            throw new IllegalStateException("the advisor cannot pack the counts of " + CasinoRules.NUMBER_OF_DECKS
+                    + " decks into a memo key");
+        }
+    }
+
+    /** deck whose remaining cards are unseen */
+    private final Deck deck;
+    /** time a decision may take before the fallback table is used */
+    private final long budgetNanos;
+    /** expected value of standing, by dealer state and composition */
+    private Memo dealerMemo;
+    /** expected value of the best play after hitting, by player state and composition */
+    private Memo hitMemo;
+    /** expected values of every action for a full shoe, by hand category and dealer up card */
+    private final double fallback[][][];
+    /** unseen cards of each value, 1 for aces and 10 for tens */
+    private final int counts[];
+    /** total unseen cards */
+    private int unseen;
+    /** unseen cards of each value at the previous decision */
+    private final int previousCounts[];
+    /** counts packed into a long, see SHIFT */
+    private long compositionKey;
+    /** when the current decision has to be answered by */
+    private long deadline;
+    /** recursion steps until the next budget check */
+    private int stepsUntilClockCheck;
+    /** decisions answered from the fallback table */
+    private long fallbacks;
+
+    /**
+     * advice for one decision
+     */
+    static class Advice {
+        /** the recommended action */
+        private final PlayerAction action;
+        /** expected value of the action per unit bet */
+        private final double expectedValue;
+        /** whether the advice came from the fallback table */
+        private final boolean fromTable;
+
+        private Advice(PlayerAction action, double expectedValue, boolean fromTable){
+            this.action = action;
+            this.expectedValue = expectedValue;
+            this.fromTable = fromTable;
+        }
+
+        public PlayerAction getAction() {
+            return action;
+        }
+
+        public double getExpectedValue() {
+            return expectedValue;
+        }
+
+        public boolean isFromTable() {
+            return fromTable;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Hint: %s, expected %+.3f per dollar bet%s", action, expectedValue,
+                    fromTable ? " (from the chart)" : "");
+        }
+    }
+
+    /**
+     * map from long keys to doubles by open addressing, so memoizing a result
+     * allocates nothing.  Each slot is stamped with the generation that filled
+     * it, so clearing is just starting a new generation.  The memo never
+     * grows: once half the slots are taken it is cleared instead.
+     */
+    private static class Memo {
+        /** keys by slot */
+        private final long keys[];
+        /** values by slot */
+        private final double values[];
+        /** generation that filled each slot.  Slots of older generations are empty */
+        private final int generations[];
+        /** the current generation */
+        private int generation = 1;
+        /** number of keys */
+        private int size;
+        /** shift that keeps the top bits of a hash as a slot */
+        private final int shift;
+
+        /**
+         * creates an empty memo
+         * @param capacity number of slots, a power of two
+         */
+        Memo(int capacity){
+            keys = new long[capacity];
+            values = new double[capacity];
+            generations = new int[capacity];
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        /**
+         * finds the slot of a key, or the empty slot where it would go
+         * @param key the key
+         * @return the slot
+         */
+        int find(long key){
+            int mask = keys.length - 1;
+            //the top bits of the product depend on every bit of the key
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> shift);
+            while(generations[slot] == generation && keys[slot] != key){
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        boolean has(int slot){
+            return generations[slot] == generation;
+        }
+
+        double get(int slot){
+            return values[slot];
+        }
+
+        void put(long key, double value){
+            //the slot found before recursing may have been taken or moved since
+            int slot = find(key);
+            if(generations[slot] != generation){
+                if(2 * (size + 1) > keys.length){
+                    clear();
+                    slot = find(key);
+                }
+                generations[slot] = generation;
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        int size(){
+            return size;
+        }
+
+        void clear(){
+            size = 0;
+            if(++generation == 0){
+                Arrays.fill(generations, 0);
+                generation = 1;
+            }
+        }
+    }
+
+    /**
+     * creates an advisor for a deck and computes its fallback table
+     * @param deck deck the table deals from
+     * @param budgetNanos time a decision may take before the fallback table is used
+     */
+    public StrategyAdvisor(Deck deck, long budgetNanos){
+        this.deck = deck;
+        this.budgetNanos = budgetNanos;
+        this.dealerMemo = new Memo(FULL_SHOE_MEMO_CAPACITY);
+        this.hitMemo = new Memo(FULL_SHOE_MEMO_CAPACITY);
+        this.counts = new int[11];
+        this.previousCounts = new int[11];
+        this.fallback = new double[37][11][];
+        deadline = Long.MAX_VALUE;
+        for(int upCard = 1; upCard <= 10; upCard++){
+            for(int category = 0; category < fallback.length; category++){
+                fullShoe();
+                remove(upCard);
+                int pair = category < 10 ? category + 1 : 0;
+                int hard;
+                boolean ace;
+                if(category < 10){
+                    hard = 2 * pair;
+                    ace = pair == 1;
+                }else if(category < 20){
+                    hard = category - 10 + 2;
+                    ace = true;
+                }else{
+                    hard = category - 20 + 4;
+                    ace = false;
+                }
+                fallback[category][upCard] = expectedValues(hard, ace, pair, upCard);
+            }
+        }
+        //the full shoe needed far bigger memos than a decision does
+        dealerMemo = new Memo(DECISION_MEMO_CAPACITY);
+        hitMemo = new Memo(DECISION_MEMO_CAPACITY);
+    }
+
+    /**
+     * recommends an action for a hand
+     * @param hand the hand being played
+     * @param dealer the dealer, whose hole card is still face down
+     * @param availableActions the actions allowed
+     * @return the advice
+     */
+    public Advice advise(Hand hand, Dealer dealer, Set<PlayerAction> availableActions){
+        int upCard = dealer.getUpCard().getMinValue();
+        int hard = 0;
+        boolean ace = false;
+        for(int i = 0; i < hand.numberOfCards(); i++){
+            hard += hand.getCard(i).getMinValue();
+            ace |= hand.getCard(i).isAce();
+        }
+        boolean maySplit = availableActions.contains(PlayerAction.SPLIT);
+        double values[];
+        try{
+            deadline = System.nanoTime() + budgetNanos;
+            stepsUntilClockCheck = STEPS_PER_CLOCK_CHECK;
+            unseenCards(dealer.getHand().getCard(0));
+            forgetUnreachable();
+            checkDeadline();
+            values = expectedValues(hard, ace, maySplit ? hand.getCard(0).getMinValue() : 0, upCard);
+        }catch (RuntimeException e){
+            if(e != OUT_OF_TIME){
+                throw e;
+            }
+            fallbacks++;
+            int category = DeviationTable.handCategory(hand, maySplit);
+            if(category < 0){
+                return new Advice(PlayerAction.STAND, Double.NaN, true);
+            }
+            return best(fallback[category][upCard], availableActions, true);
+        }
+        return best(values, availableActions, false);
+    }
+
+    /**
+     * gets the number of decisions answered from the fallback table
+     * @return the number of fallbacks
+     */
+    public long getFallbacks(){
+        return fallbacks;
+    }
+
+    /**
+     * gets the number of memoized results
+     * @return the memo size
+     */
+    public int getMemoSize(){
+        return dealerMemo.size() + hitMemo.size();
+    }
+
+    /**
+     * picks the allowed action with the highest expected value
+     * @param values expected values, indexed like ACTIONS
+     * @param availableActions actions allowed
+     * @param fromTable whether the values came from the fallback table
+     * @return the advice
+     */
+    private static Advice best(double values[], Set<PlayerAction> availableActions, boolean fromTable){
+        int best = STAND;
+        for(int i = 0; i < ACTIONS.length; i++){
+            if(availableActions.contains(ACTIONS[i]) && !Double.isNaN(values[i]) && values[i] > values[best]){
+                best = i;
+            }
+        }
+        return new Advice(ACTIONS[best], values[best], fromTable);
+    }
+
+    /**
+     * computes the expected value of every action for a hand
+     * @param hard hand total with aces as 1
+     * @param ace whether the hand has an ace
+     * @param pair value of the pair if the hand may be split, otherwise 0
+     * @param upCard dealer's up card
+     * @return expected values indexed like ACTIONS.  NaN where the action makes no sense
+     */
+    private double[] expectedValues(int hard, boolean ace, int pair, int upCard){
+        double values[] = new double[ACTIONS.length];
+        values[STAND] = standValue(total(hard, ace), upCard);
+        values[HIT] = hitValue(hard, ace, upCard);
+        values[DOUBLE] = doubleValue(hard, ace, upCard);
+        values[SPLIT] = pair == 0 ? Double.NaN : splitValue(pair, upCard);
+        return values;
+    }
+
+    /**
+     * expected value of standing
+     * @param total the player's total
+     * @param upCard dealer's up card
+     * @return win chance minus loss chance
+     */
+    private double standValue(int total, int upCard){
+        return dealerOutcome(total, upCard, upCard == 1, true);
+    }
+
+    /**
+     * expected value of hitting and then playing on as well as possible without doubling
+     * @param hard hand total with aces as 1
+     * @param ace whether the hand has an ace
+     * @param upCard dealer's up card
+     * @return the expected value
+     */
+    private double hitValue(int hard, boolean ace, int upCard){
+        long key = compositionKey | ((long) hard << COMPOSITION_BITS) | ((ace ? 1L : 0) << COMPOSITION_BITS + 5)
+                | ((long) upCard << COMPOSITION_BITS + 6);
+        int slot = hitMemo.find(key);
+        if(hitMemo.has(slot)){
+            return hitMemo.get(slot);
+        }
+        step();
+        double value = 0;
+        int total = unseen;
+        for(int card = 1; card <= 10; card++){
+            if(counts[card] == 0){
+                continue;
+            }
+            double chance = (double) counts[card] / total;
+            int newHard = hard + card;
+            if(newHard > 21){
+                value -= chance;
+                continue;
+            }
+            boolean newAce = ace || card == 1;
+            remove(card);
+            value += chance * Math.max(standValue(total(newHard, newAce), upCard), hitValue(newHard, newAce, upCard));
+            putBack(card);
+        }
+        hitMemo.put(key, value);
+        return value;
+    }
+
+    /**
+     * expected value of doubling.  Winning returns the doubled bet, pushing
+     * costs the extra bet and losing costs the original bet and twice the
+     * extra one, since Player.doubleDown takes the new total bet.
+     * @param hard hand total with aces as 1
+     * @param ace whether the hand has an ace
+     * @param upCard dealer's up card
+     * @return the expected value per original bet
+     */
+    private double doubleValue(int hard, boolean ace, int upCard){
+        double value = 0;
+        int total = unseen;
+        for(int card = 1; card <= 10; card++){
+            if(counts[card] == 0){
+                continue;
+            }
+            double chance = (double) counts[card] / total;
+            int newHard = hard + card;
+            if(newHard > 21){
+                value -= 3 * chance;
+                continue;
+            }
+            remove(card);
+            //win - push - 3 lose, and the chances add up to 1
+            value += chance * (2 * standValue(total(newHard, ace || card == 1), upCard) - 1);
+            putBack(card);
+        }
+        return value;
+    }
+
+    /**
+     * expected value of splitting.  Each hand gets one more card and is then
+     * played by standing or hitting; split aces take one card only.  The
+     * casino funds the new hand, so it adds its winnings plus one bet.
+     * @param pair value of the paired cards
+     * @param upCard dealer's up card
+     * @return the expected value per original bet
+     */
+    private double splitValue(int pair, int upCard){
+        double hand = 0;
+        int total = unseen;
+        for(int card = 1; card <= 10; card++){
+            if(counts[card] == 0){
+                continue;
+            }
+            double chance = (double) counts[card] / total;
+            int hard = pair + card;
+            boolean ace = pair == 1 || card == 1;
+            remove(card);
+            double stand = standValue(total(hard, ace), upCard);
+            hand += chance * (pair == 1 ? stand : Math.max(stand, hitValue(hard, ace, upCard)));
+            putBack(card);
+        }
+        return 2 * hand + 1;
+    }
+
+    /**
+     * expected value of standing against the dealer drawing from here
+     * @param playerTotal the player's total
+     * @param dealerHard dealer's total with aces as 1
+     * @param dealerAce whether the dealer has an ace
+     * @param holeCard whether the dealer's hole card is still to come.  It cannot give them blackjack,
+     *                 since the round would have ended
+     * @return the chance of a win minus the chance of a loss
+     */
+    private double dealerOutcome(int playerTotal, int dealerHard, boolean dealerAce, boolean holeCard){
+        if(dealerHard > 21){
+            return 1;
+        }
+        int dealerTotal = total(dealerHard, dealerAce);
+        //see Dealer.mustHit: the dealer stops once they beat or tie every hand, or at 17
+        if(!holeCard && (dealerTotal >= playerTotal || dealerTotal >= 17)){
+            return dealerTotal < playerTotal ? 1 : dealerTotal == playerTotal ? 0 : -1;
+        }
+        long key = compositionKey | ((long) playerTotal << COMPOSITION_BITS)
+                | ((holeCard ? 1L : 0) << COMPOSITION_BITS + 5) | ((dealerAce ? 1L : 0) << COMPOSITION_BITS + 6)
+                | ((long) dealerHard << COMPOSITION_BITS + 7);
+        int slot = dealerMemo.find(key);
+        if(dealerMemo.has(slot)){
+            return dealerMemo.get(slot);
+        }
+        step();
+        int total = unseen;
+        if(holeCard){
+            //leave out the hole cards that would have made a dealer blackjack
+            if(dealerHard == 1){
+                total -= counts[10];
+            }else if(dealerHard == 10){
+                total -= counts[1];
+            }
+        }
+        double outcome = 0;
+        for(int card = 1; card <= 10; card++){
+            if(counts[card] == 0 || (holeCard && dealerHard + card == 11 && (card == 1 || card == 10))){
+                continue;
+            }
+            double chance = (double) counts[card] / total;
+            remove(card);
+            outcome += chance * dealerOutcome(playerTotal, dealerHard + card, dealerAce || card == 1, false);
+            putBack(card);
+        }
+        dealerMemo.put(key, outcome);
+        return outcome;
+    }
+
+    /**
+     * best total of a hand
+     * @param hard total with aces as 1
+     * @param ace whether there is an ace
+     * @return the total, counting one ace as 11 if that does not bust
+     */
+    private static int total(int hard, boolean ace){
+        return ace && hard + 10 <= 21 ? hard + 10 : hard;
+    }
+
+    /**
+     * counts a recursion step, giving up if the budget has run out
+     */
+    private void step(){
+        if(--stepsUntilClockCheck == 0){
+            stepsUntilClockCheck = STEPS_PER_CLOCK_CHECK;
+            checkDeadline();
+        }
+    }
+
+    /**
+     * gives up if the budget has run out
+     */
+    private void checkDeadline(){
+        if(System.nanoTime() > deadline){
+            throw OUT_OF_TIME;
+        }
+    }
+
+    /**
+     * sets the composition to the cards left in the deck plus the hole card
+     * @param holeCard dealer's hole card
+     */
+    private void unseenCards(Card holeCard){
+        clearComposition();
+        deck.countRemaining(counts);
+        for(int card = 1; card <= 10; card++){
+            unseen += counts[card];
+            compositionKey += (long) counts[card] << SHIFT[card];
+        }
+        if(!holeCard.isVisible()){
+            putBack(holeCard.getMinValue());
+        }
+    }
+
+    /**
+     * clears the memo unless the current composition could have been reached
+     * from the previous decision's by dealing a few more cards, since results
+     * memoized from other shoes or rounds would never be looked up again
+     */
+    private void forgetUnreachable(){
+        int dealt = 0;
+        boolean reachable = true;
+        for(int card = 1; card <= 10; card++){
+            reachable &= counts[card] <= previousCounts[card];
+            dealt += previousCounts[card] - counts[card];
+            previousCounts[card] = counts[card];
+        }
+        if(!reachable || dealt > MAX_CARDS_BETWEEN_REUSE){
+            dealerMemo.clear();
+            hitMemo.clear();
+        }
+    }
+
+    /**
+     * sets the composition to a full shoe
+     */
+    private void fullShoe(){
+        clearComposition();
+        for(int card = 1; card <= 10; card++){
+            int count = (card == 10 ? 16 : 4) * CasinoRules.NUMBER_OF_DECKS;
+            for(int i = 0; i < count; i++){
+                putBack(card);
+            }
+        }
+    }
+
+    private void clearComposition(){
+        for(int card = 0; card < counts.length; card++){
+            counts[card] = 0;
+        }
+        unseen = 0;
+        compositionKey = 0;
+    }
+
+    private void remove(int card){
+        counts[card]--;
+        unseen--;
+        compositionKey -= 1L << SHIFT[card];
+    }
+
+    private void putBack(int card){
+        counts[card]++;
+        unseen++;
+        compositionKey += 1L << SHIFT[card];
+    }
+
+    /**
+     * plays rounds at a table with one player following the advisor
+     * @param rounds rounds to play
+     * @param budgetNanos the advisor's budget
+     * @param latencies where the time taken by each decision is recorded
+     * @param cpuTimes where the processor time each decision used is recorded
+     * @param seed seed of the deck
+     * @param advisors where the advisor used is stored
+     * @return the player's money lost per round, in units of the bet
+     */
+    private static double playWithAdvisor(int rounds, long budgetNanos, LatencyHistogram latencies,
+                                          LatencyHistogram cpuTimes, long seed, StrategyAdvisor advisors[]){
+        Deck deck = new Deck(new Random(seed));
+        StrategyAdvisor advisor = new StrategyAdvisor(deck, budgetNanos);
+        advisors[0] = advisor;
+        List<Player> players = new ArrayList<>(Collections.singletonList(new Player("Trainee")));
+        Table table = new Table(players, deck);
+        int bets[] = {1};
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long moneyBefore = players.get(0).getMoney();
+        for(int r = 0; r < rounds; r++){
+            table.startRound(bets);
+            while(!table.isRoundOver()){
+                long cpuStart = threads.getCurrentThreadCpuTime();
+                long start = System.nanoTime();
+                Advice advice = advisor.advise(table.getCurrentHand(), table.getDealer(), table.getAvailableActions());
+                latencies.record(System.nanoTime() - start);
+                cpuTimes.record(threads.getCurrentThreadCpuTime() - cpuStart);
+                table.performAction(advice.getAction());
+            }
+        }
+        return (double) (moneyBefore - players.get(0).getMoney()) / rounds;
+    }
+
+    /**
+     * plays the game with hints, or measures the advisor, from the command line.
+     * usage: training [budget microseconds]
+     * or:    advisor-benchmark [rounds] [budget microseconds]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]){
+        if(args[0].equals("training")){
+            long budget = TimeUnit.MICROSECONDS.toNanos(args.length > 1 ? Long.parseLong(args[1]) : 1000);
+            Deck deck = new Deck();
+            UserIO.setAdvisor(new StrategyAdvisor(deck, budget));
+            new GameController(deck).startGame();
+            return;
+        }
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        long budget = TimeUnit.MICROSECONDS.toNanos(args.length > 2 ? Long.parseLong(args[2]) : 1000);
+        long seed = 1;
+        //warm up so that the measured decisions are compiled
+        playWithAdvisor(Math.min(rounds, 2000), budget, new LatencyHistogram(), new LatencyHistogram(), seed + 1,
+                new StrategyAdvisor[1]);
+        LatencyHistogram latencies = new LatencyHistogram();
+        LatencyHistogram cpuTimes = new LatencyHistogram();
+        StrategyAdvisor advisors[] = new StrategyAdvisor[1];
+        double advisorEdge = playWithAdvisor(rounds, budget, latencies, cpuTimes, seed, advisors);
+
+        Deck deck = new Deck(new Random(seed));
+        List<Player> players = new ArrayList<>(Collections.singletonList(new Player("Basic")));
+        Table table = new Table(players, deck);
+        Strategy strategies[] = {new BasicStrategy()};
+        int bets[] = {1};
+        long moneyBefore = players.get(0).getMoney();
+        for(int r = 0; r < rounds; r++){
+            table.playRound(bets, strategies);
+        }
+        double basicEdge = (double) (moneyBefore - players.get(0).getMoney()) / rounds;
+
+        System.out.printf("%d decisions, budget %dus: %d answered from the chart, %d memoized results%n",
+                latencies.getCount(), TimeUnit.NANOSECONDS.toMicros(budget), advisors[0].getFallbacks(),
+                advisors[0].getMemoSize());
+        System.out.println("latency " + latencies.summary());
+        //time the thread spent descheduled shows up in the latency but not here
+        System.out.println("cpu time " + cpuTimes.summary());
+        System.out.printf("house edge over %d rounds: %.4f following the advisor, %.4f with basic strategy%n",
+                rounds, advisorEdge, basicEdge);
+    }
+}
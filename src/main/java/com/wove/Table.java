@@ -0,0 +1,466 @@
+package com.wove;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A blackjack table played without the terminal.  Follows the same round
+ * as GameController but is driven one step at a time: start a round with
+ * everyone's bets, then perform an action for the current hand until the
+ * round is over.  The dealer draws and collects bets automatically once the
+ * last hand has been played.
+ */
+class Table {
+    /** players seated at the table */
+    private final List<Player> players;
+    /** the dealer of this table */
+    private final Dealer dealer;
+    /** the deck the dealer deals from */
+    private final Deck deck;
+    /** index of the player whose turn it is */
+    private int currentPlayerIndex;
+    /** index of the hand of the current player being played */
+    private int currentHandIndex;
+    /** whether every hand of the round has been settled */
+    private boolean roundOver;
+    /** where events of this table are published. null if nobody is listening */
+    private EventRing events;
+    /** records the shoes dealt at this table. null if they are not recorded */
+    private ShoeRecorder recorder;
+    /** rounds started at this table */
+    private long round;
+    /** money of each player before their bet this round, used to publish settlements */
+    private long moneyBeforeRound[];
+    /** flight recorder event timing the round. null if not recorded */
+    private Object roundEvent;
+    /** flight recorder event timing the wait for the current decision. null if not recorded */
+    private Object decisionEvent;
+
+    /**
+     * creates a table for the given players dealing from the given deck
+     * @param players players at the table. The table keeps this reference
+     * @param deck deck the dealer deals from
+     */
+    public Table(List<Player> players, Deck deck){
+        this.players = players;
+        this.deck = deck;
+        this.dealer = new Dealer(players, deck);
+        this.roundOver = true;
+    }
+
+    /**
+     * getter for the players at this table
+     * @return players at this table
+     */
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    /**
+     * getter for the dealer of this table
+     * @return the dealer
+     */
+    public Dealer getDealer() {
+        return dealer;
+    }
+
+    /**
+     * publishes everything that happens at this table from now on.  Events
+     * are published from whichever thread plays the table.
+     * @param events the started ring to publish to
+     */
+    void setEventRing(EventRing events){
+        this.events = events;
+        this.moneyBeforeRound = new long[players.size()];
+    }
+
+    /**
+     * records every shoe dealt at this table from now on, with the bets of
+     * every round, until finishRecording() is called
+     * @param log where finished shoes are written
+     */
+    void recordShoes(ShoeRecorder.Log log){
+        recorder = new ShoeRecorder(deck, log);
+    }
+
+    /**
+     * writes the shoe in progress, if shoes are being recorded, and stops recording
+     */
+    void finishRecording(){
+        if(recorder != null){
+            recorder.finish();
+            recorder = null;
+        }
+    }
+
+    /**
+     * takes the bets, hands out the cards and pays any natural blackjacks.
+     * If the dealer has blackjack the round is settled immediately.
+     * @param bets bet of each player in seat order
+     */
+    public void startRound(int bets[]){
+        if(deck.isContinuousShuffling()){
+            returnCardsToDeck();
+        }
+        round++;
+        if(recorder != null){
+            recorder.roundStarted(bets);
+        }
+        roundEvent = FlightEvents.begin(FlightEvents.Kind.ROUND);
+        for(int i = 0; i < players.size(); i++){
+            if(events != null){
+                moneyBeforeRound[i] = players.get(i).getMoney();
+                events.publish(GameEvent.Type.BET, round, i, 0, -1, false, null, bets[i]);
+            }
+            players.get(i).newHand(bets[i]);
+        }
+        dealer.startRound();
+        while(!dealer.doneHandingOutCards()){
+            dealer.handOutCard();
+        }
+        if(events != null){
+            publishDeal();
+        }
+        currentPlayerIndex = 0;
+        currentHandIndex = 0;
+        roundOver = false;
+        if(dealer.hasBlackjack()){
+            for(Player player : players){
+                if(player.getHands().get(0).getValue() == 21){
+                    player.getHands().get(0).setNaturalBlackJack();
+                }
+            }
+            if(events != null){
+                publishBlackjacks();
+            }
+            dealer.collectBets();
+            dealer.flipCards();
+            currentPlayerIndex = players.size();
+            roundOver = true;
+            if(events != null){
+                publishHoleCard();
+                publishSettlements();
+            }
+            endRoundEvent();
+            return;
+        }
+        dealer.payPlayersWithBlackJack();
+        if(events != null){
+            publishBlackjacks();
+        }
+        advanceToNextDecision();
+    }
+
+    /**
+     * getter for the deck the dealer deals from
+     * @return the deck
+     */
+    public Deck getDeck() {
+        return deck;
+    }
+
+    /**
+     * puts the table back in the middle of a round, used when a table is
+     * rebuilt from a copy.  The players' hands must already be restored.
+     * @param dealerHand the dealer's hand.  null if no round has been played
+     * @param holeCardFromCurrentShoe false if the hole card was dealt before the deck last reshuffled
+     * @param currentPlayerIndex seat of the player whose turn it is
+     * @param currentHandIndex which of that player's hands is being played
+     * @param roundOver whether the round has been settled
+     */
+    void restoreRound(Hand dealerHand, boolean holeCardFromCurrentShoe, int currentPlayerIndex, int currentHandIndex,
+                      boolean roundOver) {
+        dealer.restoreHand(dealerHand, holeCardFromCurrentShoe);
+        this.currentPlayerIndex = currentPlayerIndex;
+        this.currentHandIndex = currentHandIndex;
+        this.roundOver = roundOver;
+    }
+
+    /**
+     * getter for the number of rounds started at this table
+     * @return rounds started so far
+     */
+    public long getRound() {
+        return round;
+    }
+
+    /**
+     * sets the number of rounds started, used when a table is rebuilt from a copy
+     * @param round rounds started so far
+     */
+    void restoreRoundNumber(long round) {
+        this.round = round;
+    }
+
+    /**
+     * determines if the round has been settled
+     * @return true if there are no more decisions to make this round
+     */
+    public boolean isRoundOver() {
+        return roundOver;
+    }
+
+    /**
+     * getter for the player whose turn it is
+     * @return the current player. null if the round is over
+     */
+    public Player getCurrentPlayer() {
+        return roundOver ? null : players.get(currentPlayerIndex);
+    }
+
+    /**
+     * getter for the seat of the player whose turn it is
+     * @return index of the current player.  Only meaningful while the round is not over
+     */
+    public int getCurrentPlayerIndex() {
+        return currentPlayerIndex;
+    }
+
+    /**
+     * getter for which of the current player's hands is being played
+     * @return index of the current hand among the current player's hands
+     */
+    public int getCurrentHandIndex() {
+        return currentHandIndex;
+    }
+
+    /**
+     * getter for the hand being played
+     * @return the current hand. null if the round is over
+     */
+    public Hand getCurrentHand() {
+        return roundOver ? null : getCurrentPlayer().getHands().get(currentHandIndex);
+    }
+
+    /**
+     * gets the actions allowed on the current hand
+     * @return the allowed actions
+     */
+    public Set<PlayerAction> getAvailableActions() {
+        return GameController.getAvailableActions(getCurrentHand(), getCurrentPlayer());
+    }
+
+    /**
+     * performs an action on the current hand and moves on to the next hand when
+     * this one is finished
+     * @param action action to perform. Must be one of getAvailableActions()
+     */
+    public void performAction(PlayerAction action){
+        if(roundOver || !getAvailableActions().contains(action)){
+            throw new IllegalStateException(action + " is not allowed right now");
+        }
+        Player player = getCurrentPlayer();
+        Hand hand = getCurrentHand();
+        if(decisionEvent != null){
+            FlightEvents.commit(decisionEvent, dealer.getTableId(), currentPlayerIndex, currentHandIndex, action.name());
+            decisionEvent = null;
+        }
+        if(events != null){
+            events.publish(GameEvent.Type.ACTION_TAKEN, round, currentPlayerIndex, currentHandIndex, -1, false,
+                    action, 0);
+        }
+        switch(action){
+            case HIT:
+                dealer.hit(hand);
+                publishLastCard(hand);
+                break;
+            case DOUBLE_DOWN:
+                int betBefore = hand.getBet();
+                player.doubleDown(hand);
+                if(events != null){
+                    events.publish(GameEvent.Type.DOUBLE, round, currentPlayerIndex, currentHandIndex, -1, false,
+                            null, hand.getBet() - betBefore);
+                }
+                dealer.hit(hand);
+                publishLastCard(hand);
+                break;
+            case SPLIT:
+                player.split(hand);
+                if(events != null){
+                    events.publish(GameEvent.Type.SPLIT, round, currentPlayerIndex, player.getHands().size() - 1, -1,
+                            false, null, 0);
+                }
+                break;
+        }
+        if(action == PlayerAction.STAND || action == PlayerAction.DOUBLE_DOWN || hand.isBust()){
+            currentHandIndex++;
+            advanceToNextDecision();
+        }else{
+            decisionEvent = FlightEvents.begin(FlightEvents.Kind.DECISION);
+        }
+    }
+
+    /**
+     * plays a whole round with every player following the given strategy
+     * @param bets bet of each player in seat order
+     * @param strategies strategy of each player in seat order
+     */
+    public void playRound(int bets[], Strategy strategies[]){
+        startRound(bets);
+        playOut(strategies);
+    }
+
+    /**
+     * plays the rest of a started round with every player following the given strategy
+     * @param strategies strategy of each player in seat order
+     */
+    public void playOut(Strategy strategies[]){
+        while(!roundOver){
+            Strategy strategy = strategies[currentPlayerIndex];
+            performAction(strategy.chooseAction(getCurrentHand(), dealer.getUpCard(), getTrueCount(), getAvailableActions()));
+        }
+    }
+
+    /**
+     * gets the Hi-Lo true count a player at this table could know: the running
+     * count of every card seen since the shoe was shuffled divided by the decks
+     * left in the shoe.  The dealer's hole card is not counted while face down,
+     * unless it was dealt before the shoe was shuffled and so was never counted.
+     * @return the true count
+     */
+    public double getTrueCount(){
+        int runningCount = deck.getRunningCount();
+        int unseenCards = deck.cardsRemaining();
+        Hand dealerHand = dealer.getHand();
+        if(dealerHand != null && dealerHand.numberOfCards() > 0 && !dealerHand.getCard(0).isVisible()
+                && dealer.isHoleCardFromCurrentShoe()){
+            runningCount -= dealerHand.getCard(0).getHiLoValue();
+            unseenCards++;
+        }
+        return runningCount / ((double) unseenCards / Deck.CARDS_PER_SINGLE_DECK);
+    }
+
+    /**
+     * puts the cards of the last round back into the continuous shuffling machine
+     */
+    private void returnCardsToDeck(){
+        for(Player player : players){
+            for(Hand hand : player.getHands()){
+                for(int i = 0; i < hand.numberOfCards(); i++){
+                    deck.returnCard(hand.getCard(i));
+                }
+            }
+        }
+        Hand dealerHand = dealer.getHand();
+        if(dealerHand != null){
+            for(int i = 0; i < dealerHand.numberOfCards(); i++){
+                deck.returnCard(dealerHand.getCard(i));
+            }
+        }
+    }
+
+    /**
+     * skips past natural blackjacks and finished players to the next hand
+     * needing a decision.  If there are none the dealer finishes the round.
+     */
+    private void advanceToNextDecision(){
+        while(currentPlayerIndex < players.size()){
+            List<Hand> hands = players.get(currentPlayerIndex).getHands();
+            if(currentHandIndex >= hands.size()){
+                currentPlayerIndex++;
+                currentHandIndex = 0;
+            }else if(hands.get(currentHandIndex).isNaturalBlackJack()){
+                currentHandIndex++;
+            }else{
+                decisionEvent = FlightEvents.begin(FlightEvents.Kind.DECISION);
+                return;
+            }
+        }
+        dealer.flipCards();
+        if(events != null){
+            publishHoleCard();
+        }
+        Object drawEvent = FlightEvents.begin(FlightEvents.Kind.DEALER_DRAW);
+        int cardsBefore = dealer.getHand().numberOfCards();
+        while(dealer.mustHit()){
+            dealer.hitDealer();
+            if(events != null){
+                Hand dealerHand = dealer.getHand();
+                events.publish(GameEvent.Type.DEALER_DRAW, round, GameEvent.DEALER_SEAT, 0,
+                        dealerHand.getCard(dealerHand.numberOfCards() - 1).getCode(), false, null, 0);
+            }
+        }
+        if(drawEvent != null){
+            FlightEvents.commit(drawEvent, dealer.getTableId(), dealer.getHand().numberOfCards() - cardsBefore,
+                    dealer.getHand().getValue());
+        }
+        dealer.collectBets();
+        roundOver = true;
+        if(events != null){
+            publishSettlements();
+        }
+        endRoundEvent();
+    }
+
+    /**
+     * records the flight recorder event of a settled round
+     */
+    private void endRoundEvent(){
+        if(roundEvent != null){
+            FlightEvents.commit(roundEvent, dealer.getTableId(), round, players.size());
+            roundEvent = null;
+        }
+    }
+
+    /**
+     * publishes the cards dealt at the start of the round, the players' first
+     */
+    private void publishDeal(){
+        for(int i = 0; i < players.size(); i++){
+            Hand hand = players.get(i).getHands().get(0);
+            for(int c = 0; c < hand.numberOfCards(); c++){
+                events.publish(GameEvent.Type.CARD_DEALT, round, i, 0, hand.getCard(c).getCode(), false, null, 0);
+            }
+        }
+        Hand dealerHand = dealer.getHand();
+        for(int c = 0; c < dealerHand.numberOfCards(); c++){
+            Card card = dealerHand.getCard(c);
+            events.publish(GameEvent.Type.CARD_DEALT, round, GameEvent.DEALER_SEAT, 0, card.getCode(),
+                    !card.isVisible(), null, 0);
+        }
+    }
+
+    /**
+     * publishes every natural blackjack of the deal, the dealer's last
+     */
+    private void publishBlackjacks(){
+        for(int i = 0; i < players.size(); i++){
+            Hand hand = players.get(i).getHands().get(0);
+            if(hand.isNaturalBlackJack()){
+                events.publish(GameEvent.Type.BLACKJACK, round, i, 0, -1, false, null, hand.getBet());
+            }
+        }
+        if(dealer.getHand().isNaturalBlackJack()){
+            events.publish(GameEvent.Type.BLACKJACK, round, GameEvent.DEALER_SEAT, 0, -1, false, null, 0);
+        }
+    }
+
+    /**
+     * publishes the dealer's hole card once it has been turned over
+     */
+    private void publishHoleCard(){
+        events.publish(GameEvent.Type.HOLE_CARD_TURNED, round, GameEvent.DEALER_SEAT, 0,
+                dealer.getHand().getCard(0).getCode(), false, null, 0);
+    }
+
+    /**
+     * publishes the card just hit onto the current hand
+     * @param hand the current hand
+     */
+    private void publishLastCard(Hand hand){
+        if(events != null){
+            events.publish(GameEvent.Type.CARD_DEALT, round, currentPlayerIndex, currentHandIndex,
+                    hand.getCard(hand.numberOfCards() - 1).getCode(), false, null, 0);
+        }
+    }
+
+    /**
+     * publishes what every player won or lost this round
+     */
+    private void publishSettlements(){
+        for(int i = 0; i < players.size(); i++){
+            events.publish(GameEvent.Type.SETTLEMENT, round, i, -1, -1, false, null,
+                    players.get(i).getMoney() - moneyBeforeRound[i]);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how much heap idle tables retain, as full Table objects and as
+ * CompactTable copies.  Many tables are created and played for a round, and
+ * the growth of the used heap is divided by the number of tables.  Doing that
+ * with one seat and with a full table gives the cost of each extra seat.
+ * Each is measured several times after a round of tables that is thrown
+ * away, and the median is reported.
+ */
+class TableFootprint {
+    /** fewest tables the heap can be measured over.  Below this the noise of the heap swamps a table */
+    private static final int MIN_TABLES = 1000;
+    /** times each footprint is measured.  The median is reported */
+    private static final int REPETITIONS = 5;
+
+    /**
+     * creates tables that have each played one round
+     * @param count number of tables
+     * @param seats players at each table
+     * @return the tables
+     */
+    private static Table[] playedTables(int count, int seats){
+        Table tables[] = new Table[count];
+        Strategy strategies[] = new Strategy[seats];
+        int bets[] = new int[seats];
+        Arrays.fill(strategies, new BasicStrategy());
+        Arrays.fill(bets, 10);
+        for(int t = 0; t < count; t++){
+            List<Player> players = new ArrayList<>();
+            for(int s = 0; s < seats; s++){
+                players.add(new Player("Seat " + (s + 1)));
+            }
+            tables[t] = new Table(players, new Deck(new Random(t)));
+            tables[t].playRound(bets, strategies);
+        }
+        return tables;
+    }
+
+    /**
+     * gets the heap in use after collecting garbage
+     * @return bytes of heap in use
+     */
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 5; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * measures the bytes retained per table with the given number of seats
+     * @param count number of tables to measure over
+     * @param seats players at each table
+     * @return bytes per full table and bytes per compact table
+     */
+    private static double[] measure(int count, int seats){
+        long baseline = usedHeap();
+        Table tables[] = playedTables(count, seats);
+        double full = (double)(usedHeap() - baseline) / count;
+        //check that packing loses nothing by comparing what a client would be shown
+        JsonWriter before = new JsonWriter();
+        TableServer.writeTable(before, 0, tables[0]);
+        CompactTable compact[] = new CompactTable[count];
+        for(int t = 0; t < count; t++){
+            compact[t] = new CompactTable(tables[t]);
+            tables[t] = null;
+        }
+        double packed = (double)(usedHeap() - baseline) / count;
+        JsonWriter after = new JsonWriter();
+        TableServer.writeTable(after, 0, compact[0].inflate());
+        if(!Arrays.equals(before.toByteArray(), after.toByteArray())){
+            throw new IllegalStateException("inflated table differs from the original");
+        }
+        return new double[]{full, packed};
+    }
+
+    /**
+     * measures the bytes retained per table several times and takes the median of each
+     * @param count number of tables to measure over
+     * @param seats players at each table
+     * @return median bytes per full table and per compact table
+     */
+    private static double[] medianOf(int count, int seats){
+        double full[] = new double[REPETITIONS];
+        double packed[] = new double[REPETITIONS];
+        for(int r = 0; r < REPETITIONS; r++){
+            double bytes[] = measure(count, seats);
+            full[r] = bytes[0];
+            packed[r] = bytes[1];
+        }
+        Arrays.sort(full);
+        Arrays.sort(packed);
+        return new double[]{full[REPETITIONS / 2], packed[REPETITIONS / 2]};
+    }
+
+    /**
+     * measures table footprints from the command line.
+     * usage: footprint [tables]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]){
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        if(count < MIN_TABLES){
+            throw new IllegalArgumentException("footprint needs at least " + MIN_TABLES + " tables to measure");
+        }
+        //the first tables also load classes and fill caches that every later table shares
+        measure(MIN_TABLES, CasinoRules.MAX_NUMBER_PLAYERS);
+        double oneSeat[] = medianOf(count, 1);
+        double fullTable[] = medianOf(count, CasinoRules.MAX_NUMBER_PLAYERS);
+        int extraSeats = CasinoRules.MAX_NUMBER_PLAYERS - 1;
+        System.out.printf("%-8s %14s %14s %14s%n", "", "1 seat table", "7 seat table", "per extra seat");
+        System.out.printf("%-8s %14.0f %14.0f %14.0f%n", "Table", oneSeat[0], fullTable[0],
+                (fullTable[0] - oneSeat[0]) / extraSeats);
+        System.out.printf("%-8s %14.0f %14.0f %14.0f%n", "Compact", oneSeat[1], fullTable[1],
+                (fullTable[1] - oneSeat[1]) / extraSeats);
+    }
+}
@@ -0,0 +1,402 @@
+package com.wove;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves headless blackjack tables over HTTP so a front end can play without
+ * the terminal.  Every response is the JSON state of the table.
+ *
+ *   POST /tables?names=Ann,Bob         create a table with those players
+ *   GET  /tables/{id}                  get the state of a table
+ *   POST /tables/{id}/bets?amounts=5,10 start a round with those bets
+ *   POST /tables/{id}/actions?action=HIT perform an action on the current hand
+ *   GET  /tables/{id}/decisions        get how long each seat takes to decide
+ *
+ * Requests for one table are handled one at a time; different tables are
+ * handled in parallel on the server's executor.
+ *
+ * With decision deadlines set, a seat that does not act in time has the
+ * default action played for it, and the table state includes the time left.
+ * With a shoe log set, every shoe dealt at every table is recorded with the
+ * bets of its rounds so the play can be replayed later.
+ */
+class TableServer {
+    /** path all requests start with */
+    private static final String TABLES_PATH = "/tables";
+
+    /** every table by id */
+    private final Map<Long, Table> tables;
+    /** id of the next table created */
+    private final AtomicLong nextId;
+    /** the underlying HTTP server */
+    private final HttpServer server;
+    /** decision clock of every table by id.  Empty without decision deadlines */
+    private final Map<Long, DecisionClock> clocks;
+    /** wheel the decision deadlines run on.  null for no deadlines */
+    private TimerWheel wheel;
+    /** time a seat has to decide */
+    private long timeoutMillis;
+    /** how long before the deadline a seat is warned */
+    private long warningMillis;
+    /** what is played for a seat that runs out of time */
+    private DecisionClock.DefaultAction defaultAction;
+    /** where the shoes dealt at every table are recorded.  null to not record them */
+    private ShoeRecorder.Log shoeLog;
+
+    /**
+     * creates a server on the given port.  Call start() to begin serving
+     * @param port port to listen on.  0 picks a free port
+     * @param executor executor the requests are handled on
+     * @throws IOException if the port cannot be bound
+     */
+    public TableServer(int port, ExecutorService executor) throws IOException {
+        //responses are small, so waiting to coalesce packets only adds latency.  Must be set before the first server is created
+        if(System.getProperty("sun.net.httpserver.nodelay") == null){
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        tables = new ConcurrentHashMap<>();
+        clocks = new ConcurrentHashMap<>();
+        nextId = new AtomicLong(1);
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.setExecutor(executor);
+        server.createContext(TABLES_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleRequest(exchange);
+            }
+        });
+    }
+
+    public void start(){
+        server.start();
+    }
+
+    /**
+     * gives every table created from now on a deadline for each decision
+     * @param wheel wheel to run the deadlines on
+     * @param timeoutMillis time a seat has to decide
+     * @param warningMillis how long before the deadline a seat is warned
+     * @param defaultAction what is played for a seat that runs out of time
+     */
+    public void setDecisionDeadlines(TimerWheel wheel, long timeoutMillis, long warningMillis,
+                                     DecisionClock.DefaultAction defaultAction){
+        this.wheel = wheel;
+        this.timeoutMillis = timeoutMillis;
+        this.warningMillis = warningMillis;
+        this.defaultAction = defaultAction;
+    }
+
+    /**
+     * records every shoe dealt at every table created from now on
+     * @param shoeLog where finished shoes are written.  Stays open when the server stops
+     */
+    public void setShoeLog(ShoeRecorder.Log shoeLog){
+        this.shoeLog = shoeLog;
+    }
+
+    /**
+     * stops serving, waiting up to a second for requests in progress, and
+     * writes the shoe in progress at every recorded table
+     */
+    public void stop(){
+        server.stop(1);
+        for(Table table : tables.values()){
+            synchronized (table){
+                table.finishRecording();
+            }
+        }
+    }
+
+    /**
+     * getter for the port the server listens on
+     * @return the port
+     */
+    public int getPort(){
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * routes a request and writes the response
+     * @param exchange the request
+     * @throws IOException if the response cannot be written
+     */
+    private void handleRequest(HttpExchange exchange) throws IOException {
+        JsonWriter json = new JsonWriter();
+        int status;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            //the context also hands over paths that merely start with /tables, such as /tablesfoo
+            if(path.length() > TABLES_PATH.length() && path.charAt(TABLES_PATH.length()) != '/'){
+                throw new NoSuchTableException(path);
+            }
+            String parts[] = path.substring(TABLES_PATH.length()).split("/");
+            if(parts.length <= 1){
+                requireMethod(method, "POST");
+                long id = createTable(parameters.get("names"));
+                writeTable(json, id, tables.get(id), clocks.get(id));
+            }else{
+                long id = Long.parseLong(parts[1]);
+                Table table = tables.get(id);
+                if(table == null){
+                    throw new NoSuchTableException(id);
+                }
+                DecisionClock clock = clocks.get(id);
+                synchronized (table){
+                    if(parts.length == 3 && parts[2].equals("decisions") && clock != null){
+                        requireMethod(method, "GET");
+                        clock.writeLatencies(json);
+                    }else{
+                        if(parts.length == 2){
+                            requireMethod(method, "GET");
+                        }else if(parts.length == 3 && parts[2].equals("bets")){
+                            requireMethod(method, "POST");
+                            placeBets(table, parameters.get("amounts"));
+                            if(clock != null){
+                                clock.rearm();
+                            }
+                        }else if(parts.length == 3 && parts[2].equals("actions")){
+                            requireMethod(method, "POST");
+                            String action = parameters.get("action");
+                            table.performAction(PlayerAction.valueOf(action == null ? "" : action.toUpperCase()));
+                            if(clock != null){
+                                clock.decided();
+                            }
+                        }else{
+                            throw new NoSuchTableException(id);
+                        }
+                        writeTable(json, id, table, clock);
+                    }
+                }
+            }
+            status = 200;
+        } catch (NoSuchTableException e) {
+            status = 404;
+            writeError(json, e.getMessage());
+        } catch (IllegalStateException e) {
+            status = 409;
+            writeError(json, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            writeError(json, e.getMessage());
+        } catch (RuntimeException e) {
+            //a bug must not leave the client without a response
+            status = 500;
+            writeError(json, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.size());
+        try(OutputStream body = exchange.getResponseBody()){
+            json.writeTo(body);
+        }
+    }
+
+    /**
+     * creates a table with a fresh deck
+     * @param names comma separated player names.  null for a single player
+     * @return id of the new table
+     */
+    private long createTable(String names){
+        String playerNames[] = names == null || names.isEmpty() ? new String[]{"Player 1"} : names.split(",");
+        if(playerNames.length < CasinoRules.MIN_NUMBER_PLAYERS || playerNames.length > CasinoRules.MAX_NUMBER_PLAYERS){
+            throw new IllegalArgumentException("a table seats " + CasinoRules.MIN_NUMBER_PLAYERS + " to "
+                    + CasinoRules.MAX_NUMBER_PLAYERS + " players");
+        }
+        List<Player> players = new ArrayList<>();
+        for(String name : playerNames){
+            players.add(new Player(name));
+        }
+        long id = nextId.getAndIncrement();
+        Table table = new Table(players, new Deck(new Random()));
+        if(shoeLog != null){
+            table.recordShoes(shoeLog);
+        }
+        if(wheel != null){
+            //the clock must exist before the table can be seen by other requests
+            clocks.put(id, new DecisionClock(table, wheel, timeoutMillis, warningMillis, defaultAction));
+        }
+        tables.put(id, table);
+        return id;
+    }
+
+    /**
+     * checks the bets and starts a round
+     * @param table the table
+     * @param amounts comma separated bets in seat order
+     */
+    private static void placeBets(Table table, String amounts){
+        if(!table.isRoundOver()){
+            throw new IllegalStateException("the round is still being played");
+        }
+        List<Player> players = table.getPlayers();
+        String values[] = amounts == null ? new String[0] : amounts.split(",");
+        if(values.length != players.size()){
+            throw new IllegalArgumentException("expected " + players.size() + " bets");
+        }
+        int bets[] = new int[values.length];
+        for(int i = 0; i < bets.length; i++){
+            bets[i] = Integer.parseInt(values[i].trim());
+            int max = Math.min(players.get(i).getMoney(), CasinoRules.MAX_BET);
+            if(bets[i] < CasinoRules.MIN_BET || bets[i] > max){
+                throw new IllegalArgumentException("bet of seat " + i + " must be between " + CasinoRules.MIN_BET
+                        + " and " + max);
+            }
+        }
+        table.startRound(bets);
+    }
+
+    /**
+     * writes the state of a table.  The dealer's hole card and total are
+     * hidden while the card is face down.
+     * @param json where to write it
+     * @param id id of the table
+     * @param table the table
+     */
+    static void writeTable(JsonWriter json, long id, Table table){
+        writeTable(json, id, table, null);
+    }
+
+    /**
+     * writes the state of a table, including the deadline of the current decision
+     * @param json where to write it
+     * @param id id of the table
+     * @param table the table
+     * @param clock decision clock of the table. null if it has none
+     */
+    private static void writeTable(JsonWriter json, long id, Table table, DecisionClock clock){
+        json.beginObject();
+        json.name("id").value(id);
+        json.name("roundOver").value(table.isRoundOver());
+        Dealer dealer = table.getDealer();
+        json.name("dealer").beginObject();
+        if(dealer.getHand() != null){
+            writeHand(json, dealer.getHand(), false);
+        }
+        json.endObject();
+        json.name("players").beginArray();
+        for(Player player : table.getPlayers()){
+            json.beginObject();
+            json.name("name").value(player.getName());
+            json.name("money").value(player.getMoney());
+            json.name("hands").beginArray();
+            for(Hand hand : player.getHands()){
+                json.beginObject();
+                writeHand(json, hand, true);
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+        if(!table.isRoundOver()){
+            json.name("currentPlayer").value(table.getCurrentPlayerIndex());
+            json.name("currentHand").value(table.getCurrentHandIndex());
+            json.name("actions").beginArray();
+            for(PlayerAction action : table.getAvailableActions()){
+                json.value(action.name());
+            }
+            json.endArray();
+            if(clock != null){
+                clock.writeDeadline(json);
+            }
+        }
+        json.endObject();
+    }
+
+    /**
+     * writes the members describing a hand
+     * @param json where to write them
+     * @param hand the hand
+     * @param withBet whether to include the bet
+     */
+    private static void writeHand(JsonWriter json, Hand hand, boolean withBet){
+        boolean hidden = false;
+        json.name("cards").beginArray();
+        for(int i = 0; i < hand.numberOfCards(); i++){
+            Card card = hand.getCard(i);
+            if(card.isVisible()){
+                json.value(String.valueOf(card.getRank().getChar()) + card.getSuit().name().charAt(0));
+            }else{
+                json.value("??");
+                hidden = true;
+            }
+        }
+        json.endArray();
+        if(!hidden){
+            json.name("value").value(hand.getValue());
+            json.name("bust").value(hand.isBust());
+            json.name("blackjack").value(hand.isNaturalBlackJack());
+        }
+        if(withBet){
+            json.name("bet").value(hand.getBet());
+        }
+    }
+
+    private static void writeError(JsonWriter json, String message){
+        json.reset();
+        json.beginObject().name("error").value(message).endObject();
+    }
+
+    private static void requireMethod(String method, String required){
+        if(!method.equals(required)){
+            throw new IllegalArgumentException("use " + required);
+        }
+    }
+
+    /**
+     * splits a raw query string into decoded parameters
+     * @param query the raw query.  May be null
+     * @return parameters by name
+     */
+    private static Map<String, String> parseQuery(String query){
+        Map<String, String> parameters = new HashMap<>();
+        if(query == null){
+            return parameters;
+        }
+        try {
+            for(String pair : query.split("&")){
+                int equals = pair.indexOf('=');
+                if(equals > 0){
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return parameters;
+    }
+
+    /**
+     * thrown when a request names a table or path that does not exist
+     */
+    private static class NoSuchTableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NoSuchTableException(long id){
+            super("no such table or path for table " + id);
+        }
+
+        NoSuchTableException(String path){
+            super("no such path " + path);
+        }
+    }
+}
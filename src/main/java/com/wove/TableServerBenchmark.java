@@ -0,0 +1,134 @@
+package com.wove;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures requests per second and latency of a TableServer on localhost.
+ * Many tables are created, then client threads keep playing rounds on them:
+ * each client owns every clientCount-th table, bets when a round is over and
+ * stands otherwise.
+ */
+class TableServerBenchmark {
+
+    /**
+     * sends one request to the server
+     * @param method HTTP method
+     * @param url the url
+     * @return the response body
+     * @throws IOException if the request fails
+     */
+    static String request(String method, String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte buffer[] = new byte[1024];
+        for(int read = body.read(buffer); read >= 0; read = body.read(buffer)){
+            bytes.write(buffer, 0, read);
+        }
+        body.close();
+        if(status >= 400){
+            throw new IOException("status " + status + ": " + bytes.toString("US-ASCII"));
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * serves tables or benchmarks a server from the command line.
+     * usage: serve [port] [threads] [decision timeout seconds] [shoe file]
+     * or:    server-benchmark [tables] [clients] [seconds] [threads]
+     * @param args command line arguments, starting with the mode
+     * @throws IOException if the server cannot be started
+     * @throws InterruptedException if interrupted while benchmarking
+     */
+    static void runFromCommandLine(String args[]) throws IOException, InterruptedException {
+        if(args[0].equals("serve")){
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            ExecutorService executor = args.length > 2 ? Executors.newFixedThreadPool(Integer.parseInt(args[2]))
+                    : Executors.newCachedThreadPool();
+            final TableServer server = new TableServer(port, executor);
+            if(args.length > 3 && Long.parseLong(args[3]) > 0){
+                long timeoutMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(args[3]));
+                server.setDecisionDeadlines(new TimerWheel(100, TimeUnit.MILLISECONDS, 512), timeoutMillis,
+                        timeoutMillis / 3, DecisionClock.DefaultAction.STAND);
+            }
+            if(args.length > 4){
+                final ShoeRecorder.Log shoes = new ShoeRecorder.Log(Paths.get(args[4]));
+                server.setShoeLog(shoes);
+                //the shoes still being dealt are written when the server is shut down
+                Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        server.stop();
+                        try {
+                            shoes.close();
+                        } catch (IOException e) {
+                            System.err.println("could not close shoe file: " + e.getMessage());
+                        }
+                    }
+                }));
+            }
+            server.start();
+            System.out.println("Serving tables on http://localhost:" + server.getPort() + "/tables");
+            return;
+        }
+        final int numberOfTables = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        final int clients = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        ExecutorService serverExecutor = args.length > 4 ? Executors.newFixedThreadPool(Integer.parseInt(args[4]))
+                : Executors.newCachedThreadPool();
+        TableServer server = new TableServer(0, serverExecutor);
+        server.start();
+        final String base = "http://localhost:" + server.getPort() + "/tables";
+        for(int i = 0; i < numberOfTables; i++){
+            request("POST", base + "?names=Bench");
+        }
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final AtomicLong failures = new AtomicLong();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(clients);
+        for(int c = 0; c < clients; c++){
+            final int client = c;
+            clientExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean roundOver[] = new boolean[numberOfTables];
+                    Arrays.fill(roundOver, true);
+                    for(int id = client + 1; System.nanoTime() < end; id += clients){
+                        if(id > numberOfTables){
+                            id = client + 1;
+                        }
+                        String url = roundOver[id - 1] ? base + "/" + id + "/bets?amounts=1" : base + "/" + id + "/actions?action=STAND";
+                        long start = System.nanoTime();
+                        try {
+                            roundOver[id - 1] = request("POST", url).contains("\"roundOver\":true");
+                            latencies.record(System.nanoTime() - start);
+                        } catch (IOException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        clientExecutor.shutdown();
+        clientExecutor.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        server.stop();
+        serverExecutor.shutdown();
+        long requests = latencies.getCount();
+        System.out.printf("%d tables, %d clients: %d requests in %ds (%.0f requests/s), %d failed%n", numberOfTables,
+                clients, requests, seconds, (double) requests / seconds, failures.get());
+        System.out.println("latency " + latencies.summary());
+    }
+}
@@ -0,0 +1,402 @@
+package com.wove;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes the complete state of a table to a compact binary snapshot and
+ * rebuilds a table from one, so that tables can be checkpointed every round
+ * and picked up again after a restart.  Unlike CompactTable a snapshot leaves
+ * the table it was taken from playable, and it is a flat run of bytes that
+ * can go straight to a file or a socket.
+ *
+ * A snapshot starts with MAGIC, VERSION and whether it holds a Table or a
+ * GameController, then every value in order:
+ *
+ *   deck      byte   CONTINUOUS_SHUFFLING and SEEDED_SHOES flags
+ *             long   seed of the next shoe, only if SEEDED_SHOES is set
+ *             int    Hi-Lo running count
+ *             long   seed of the deck's source of randomness
+ *             short  cards left, then a byte per card code from the top down
+ *   seats     byte   number of seats, then for each seat:
+ *             short  length of the name, then the name in UTF-8
+ *             int    money
+ *             byte   splits this round
+ *             int    stake and int money returned of each side bet, -1 while open
+ *             byte   number of hands, then each hand
+ *   dealer    int    id of the table in flight recorder events
+ *             byte   1 if the dealer has a hand, EARLIER_SHOE if it has one
+ *                    whose hole card was dealt before the deck last
+ *                    reshuffled, then the hand
+ *   position  long   rounds started
+ *             byte   seat whose turn it is
+ *             byte   hand of that seat being played
+ *             byte   ROUND_OVER and GAME_DONE flags
+ *
+ * A hand is its bet as an int, its SPLIT and NATURAL flags as a byte, its
+ * number of cards as a byte and then a byte per card code with FACE_DOWN
+ * set on cards that are not visible, such as the dealer's hole card.
+ *
+ * The deck's source of randomness is reseeded as the snapshot is taken, so
+ * the table it was taken from and every table restored from it shuffle the
+ * same cards from then on.  A deck using an AntitheticRandom or a ShoePool
+ * is restored as a plain deck.  Version 1 snapshots, which predate seeded
+ * shoes, and version 2 snapshots, which predate table ids, are still read.
+ * A table restored from one of those gets a new id.
+ */
+class TableSnapshot {
+    /** marks the start of a snapshot */
+    public static final int MAGIC = 0x424A5453;
+    /** version of the layout described above */
+    public static final int VERSION = 3;
+    /** byte order of every value in a snapshot */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    /** kind of a snapshot of a Table */
+    public static final int TABLE = 1;
+    /** kind of a snapshot of a GameController */
+    public static final int GAME = 2;
+    /** deck flag for a continuous shuffling machine */
+    public static final int CONTINUOUS_SHUFFLING = 1;
+    /** deck flag for a deck that shuffles every shoe from a seed of its own */
+    public static final int SEEDED_SHOES = 2;
+    /** bit set on a card code while the card is face down */
+    public static final int FACE_DOWN = 0x80;
+    /** hand flag for hands that came from a split */
+    public static final int SPLIT = 1;
+    /** hand flag for natural blackjacks */
+    public static final int NATURAL = 2;
+    /** dealer value for a hand whose hole card came from the shoe before the current one */
+    public static final int EARLIER_SHOE = 2;
+    /** position flag for a round that has been settled, or not started yet */
+    public static final int ROUND_OVER = 1;
+    /** position flag for a game the players have left */
+    public static final int GAME_DONE = 2;
+    /** bytes a snapshot of a table takes at most unless its players have very long names */
+    public static final int TYPICAL_MAX_SIZE = 4096;
+
+    /**
+     * takes a snapshot of a table
+     * @param table the table.  Stays playable
+     * @return the snapshot
+     */
+    public static byte[] snapshot(Table table){
+        ByteBuffer out = ByteBuffer.allocate(TYPICAL_MAX_SIZE).order(BYTE_ORDER);
+        write(table, out);
+        byte bytes[] = new byte[out.position()];
+        out.flip();
+        out.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * writes a snapshot of a table at the position of a buffer, so that many
+     * tables can be checkpointed into one buffer back to back
+     * @param table the table.  Stays playable
+     * @param out buffer in BYTE_ORDER.  Its position is moved past the snapshot
+     * @throws java.nio.BufferOverflowException if the buffer has no room for the snapshot
+     */
+    public static void write(Table table, ByteBuffer out){
+        writeHeader(out, TABLE);
+        writeDeck(table.getDeck(), out);
+        writeSeats(table.getPlayers(), out);
+        writeDealer(table.getDealer(), out);
+        writePosition(out, table.getRound(), table.getCurrentPlayerIndex(), table.getCurrentHandIndex(),
+                table.isRoundOver() ? ROUND_OVER : 0);
+    }
+
+    /**
+     * rebuilds a table from a snapshot
+     * @param in buffer in BYTE_ORDER at the start of a snapshot.  Its position is moved past the snapshot
+     * @return the table, in exactly the state it was in when the snapshot was taken
+     * @throws IllegalArgumentException if the buffer does not hold a snapshot of a table
+     */
+    public static Table readTable(ByteBuffer in){
+        int version = readHeader(in, TABLE);
+        Deck deck = readDeck(in);
+        List<Player> players = new ArrayList<>();
+        readSeats(in, players);
+        Table table = new Table(players, deck);
+        Dealer dealer = table.getDealer();
+        readDealer(in, dealer, version);
+        long round = in.getLong();
+        int currentPlayer = in.get();
+        int currentHand = in.get();
+        int flags = in.get();
+        table.restoreRound(dealer.getHand(), dealer.isHoleCardFromCurrentShoe(), currentPlayer, currentHand,
+                (flags & ROUND_OVER) != 0);
+        table.restoreRoundNumber(round);
+        return table;
+    }
+
+    /**
+     * plays many tables, checkpointing all of them into one buffer in the
+     * middle of every round and restoring a copy of each from it.  The copies
+     * play the rest of the round next to the originals and must end up with
+     * identical snapshots.  Half the tables deal from a continuous shuffling machine.
+     * usage: snapshot-benchmark [tables] [rounds]
+     * @param args command line arguments, starting with the mode
+     */
+    static void runFromCommandLine(String args[]){
+        int tableCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int seats = 3;
+        int warmupRounds = Math.min(20, rounds / 4);
+        Random seeds = new Random(1);
+        Table tables[] = new Table[tableCount];
+        for(int t = 0; t < tableCount; t++){
+            List<Player> players = new ArrayList<>();
+            for(int s = 0; s < seats; s++){
+                players.add(new Player("Seat " + (s + 1), Simulation.SIMULATED_BANKROLL));
+            }
+            tables[t] = new Table(players, new Deck(new Random(seeds.nextLong()), t % 2 == 1));
+        }
+        Strategy strategies[] = new Strategy[seats];
+        Arrays.fill(strategies, new BasicStrategy());
+        int bets[] = {10, 25, 5};
+        ByteBuffer checkpoint = ByteBuffer.allocate(tableCount * TYPICAL_MAX_SIZE).order(BYTE_ORDER);
+        Table copies[] = new Table[tableCount];
+        long snapshotNanos = 0;
+        long restoreNanos = 0;
+        long bytes = 0;
+        long mismatches = 0;
+        for(int r = 0; r < rounds; r++){
+            for(Table table : tables){
+                table.startRound(bets);
+            }
+            checkpoint.clear();
+            long start = System.nanoTime();
+            for(Table table : tables){
+                write(table, checkpoint);
+            }
+            long written = System.nanoTime();
+            checkpoint.flip();
+            for(int t = 0; t < tableCount; t++){
+                copies[t] = readTable(checkpoint);
+            }
+            long restored = System.nanoTime();
+            if(r >= warmupRounds){
+                snapshotNanos += written - start;
+                restoreNanos += restored - written;
+                bytes += checkpoint.limit();
+            }
+            for(int t = 0; t < tableCount; t++){
+                tables[t].playOut(strategies);
+                copies[t].playOut(strategies);
+                if(!Arrays.equals(snapshot(tables[t]), snapshot(copies[t]))){
+                    mismatches++;
+                }
+            }
+        }
+        long measured = (long) tableCount * (rounds - warmupRounds);
+        System.out.printf("%d tables, %d rounds, checkpointed mid-round every round%n", tableCount, rounds);
+        System.out.printf("snapshot: %.2fus per table, %d bytes per table%n", snapshotNanos / 1e3 / measured,
+                bytes / Math.max(1, measured));
+        System.out.printf("restore:  %.2fus per table%n", restoreNanos / 1e3 / measured);
+        System.out.printf("whole checkpoint of all tables: %.2fms%n",
+                (snapshotNanos / 1e6) / Math.max(1, rounds - warmupRounds));
+        System.out.println(mismatches == 0 ? "every restored table finished its round exactly like the original"
+                : mismatches + " restored tables finished their round differently from the original");
+    }
+
+    /**
+     * writes the magic number, version and kind of a snapshot
+     * @param out where to write
+     * @param kind TABLE or GAME
+     */
+    static void writeHeader(ByteBuffer out, int kind){
+        out.putInt(MAGIC).put((byte) VERSION).put((byte) kind);
+    }
+
+    /**
+     * checks the magic number, version and kind of a snapshot
+     * @param in where to read
+     * @param kind TABLE or GAME
+     * @return the version
+     * @throws IllegalArgumentException if they are not the expected ones
+     */
+    static int readHeader(ByteBuffer in, int kind){
+        if(in.getInt() != MAGIC){
+            throw new IllegalArgumentException("not a table snapshot");
+        }
+        int version = in.get();
+        if(version < 1 || version > VERSION){
+            throw new IllegalArgumentException("unsupported table snapshot version " + version);
+        }
+        int actualKind = in.get();
+        if(actualKind != kind){
+            throw new IllegalArgumentException("snapshot holds " + (actualKind == GAME ? "a game" : "a table")
+                    + ", not " + (kind == GAME ? "a game" : "a table"));
+        }
+        return version;
+    }
+
+    /**
+     * writes the shoe of a deck and a seed for its source of randomness
+     * @param deck the deck.  Its source of randomness is reseeded
+     * @param out where to write
+     */
+    static void writeDeck(Deck deck, ByteBuffer out){
+        out.put((byte) ((deck.isContinuousShuffling() ? CONTINUOUS_SHUFFLING : 0)
+                | (deck.hasSeededShoes() ? SEEDED_SHOES : 0)));
+        if(deck.hasSeededShoes()){
+            out.putLong(deck.getNextShoeSeed());
+        }
+        out.putInt(deck.getRunningCount());
+        out.putLong(deck.forkSeed());
+        int codes[] = deck.getCardCodes();
+        out.putShort((short) codes.length);
+        for(int code : codes){
+            out.put((byte) code);
+        }
+    }
+
+    /**
+     * reads a deck written by writeDeck()
+     * @param in where to read
+     * @return a deck that deals and shuffles exactly like the one written
+     */
+    static Deck readDeck(ByteBuffer in){
+        int flags = in.get();
+        boolean seededShoes = (flags & SEEDED_SHOES) != 0;
+        long nextShoeSeed = seededShoes ? in.getLong() : 0;
+        int runningCount = in.getInt();
+        long seed = in.getLong();
+        int codes[] = new int[in.getShort()];
+        for(int i = 0; i < codes.length; i++){
+            codes[i] = in.get();
+        }
+        Deck deck = new Deck(codes, runningCount, new Random(seed), (flags & CONTINUOUS_SHUFFLING) != 0);
+        if(seededShoes){
+            deck.seedShoes(nextShoeSeed);
+        }
+        return deck;
+    }
+
+    /**
+     * writes every player with their hands and side bets
+     * @param players players in seat order
+     * @param out where to write
+     */
+    static void writeSeats(List<Player> players, ByteBuffer out){
+        out.put((byte) players.size());
+        for(Player player : players){
+            byte name[] = player.getName().getBytes(StandardCharsets.UTF_8);
+            out.putShort((short) name.length).put(name);
+            out.putInt(player.getMoney());
+            out.put((byte) player.getNumberOfSplits());
+            for(SideBet sideBet : SideBet.values()){
+                out.putInt(player.getSideBet(sideBet)).putInt(player.getSideBetReturn(sideBet));
+            }
+            out.put((byte) player.getHands().size());
+            for(Hand hand : player.getHands()){
+                writeHand(hand, out);
+            }
+        }
+    }
+
+    /**
+     * reads players written by writeSeats()
+     * @param in where to read
+     * @param players list to add the players to in seat order
+     */
+    static void readSeats(ByteBuffer in, List<Player> players){
+        for(int seats = in.get(); seats > 0; seats--){
+            byte name[] = new byte[in.getShort()];
+            in.get(name);
+            Player player = new Player(new String(name, StandardCharsets.UTF_8), in.getInt());
+            int splits = in.get();
+            for(SideBet sideBet : SideBet.values()){
+                player.restoreSideBet(sideBet, in.getInt(), in.getInt());
+            }
+            List<Hand> hands = new ArrayList<>();
+            for(int h = in.get(); h > 0; h--){
+                hands.add(readHand(in));
+            }
+            player.restoreHands(hands, splits);
+            players.add(player);
+        }
+    }
+
+    /**
+     * writes the dealer's table id and hand
+     * @param dealer the dealer
+     * @param out where to write
+     */
+    static void writeDealer(Dealer dealer, ByteBuffer out){
+        out.putInt(dealer.getTableId());
+        Hand hand = dealer.getHand();
+        out.put((byte) (hand == null ? 0 : dealer.isHoleCardFromCurrentShoe() ? 1 : EARLIER_SHOE));
+        if(hand != null){
+            writeHand(hand, out);
+        }
+    }
+
+    /**
+     * reads a dealer's table id and hand written by writeDealer() and gives them to a dealer
+     * @param in where to read
+     * @param dealer the dealer, whose deck must already be restored
+     * @param version version of the snapshot.  Before version 3 the dealer keeps its own table id
+     */
+    static void readDealer(ByteBuffer in, Dealer dealer, int version){
+        if(version >= 3){
+            dealer.restoreTableId(in.getInt());
+        }
+        int kind = in.get();
+        dealer.restoreHand(kind == 0 ? null : readHand(in), kind != EARLIER_SHOE);
+    }
+
+    /**
+     * writes the round number and whose turn it is
+     * @param out where to write
+     * @param round rounds started
+     * @param seat seat whose turn it is
+     * @param hand hand of that seat being played
+     * @param flags ROUND_OVER and GAME_DONE flags
+     */
+    static void writePosition(ByteBuffer out, long round, int seat, int hand, int flags){
+        out.putLong(round).put((byte) seat).put((byte) hand).put((byte) flags);
+    }
+
+    /**
+     * writes a hand
+     * @param hand the hand
+     * @param out where to write
+     */
+    private static void writeHand(Hand hand, ByteBuffer out){
+        out.putInt(hand.getBet());
+        out.put((byte) ((hand.isSplitHand() ? SPLIT : 0) | (hand.isNaturalBlackJack() ? NATURAL : 0)));
+        out.put((byte) hand.numberOfCards());
+        for(int i = 0; i < hand.numberOfCards(); i++){
+            Card card = hand.getCard(i);
+            out.put((byte) (card.getCode() | (card.isVisible() ? 0 : FACE_DOWN)));
+        }
+    }
+
+    /**
+     * reads a hand written by writeHand()
+     * @param in where to read
+     * @return the hand
+     */
+    private static Hand readHand(ByteBuffer in){
+        Hand hand = new Hand(in.getInt());
+        int flags = in.get();
+        for(int cards = in.get(); cards > 0; cards--){
+            int code = in.get() & 0xff;
+            Card card = Card.fromCode(code & ~FACE_DOWN);
+            card.setVisibility((code & FACE_DOWN) == 0);
+            hand.addCard(card);
+        }
+        if((flags & SPLIT) != 0){
+            hand.setSplitHand();
+        }
+        if((flags & NATURAL) != 0){
+            hand.setNaturalBlackJack();
+        }
+        return hand;
+    }
+}
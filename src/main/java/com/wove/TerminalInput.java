@@ -0,0 +1,192 @@
+package com.wove;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the user types, read a line at a time by a thread of its own so a
+ * prompt can stop waiting when its deadline passes.  Lines are split into
+ * whitespace separated tokens the way a Scanner splits them: reading a number
+ * leaves the rest of its line for the next nextLine().  Like a Scanner it
+ * throws NoSuchElementException once the input has ended.
+ */
+class TerminalInput {
+    /** put on the queue once the input has ended.  Compared by identity */
+    private static final String END = new String("end of input");
+
+    /** where the input is read from */
+    private final InputStream in;
+    /** lines read but not yet taken */
+    private final BlockingQueue<String> lines;
+    /** what is left of the line the last token was taken from.  null at the start of a line */
+    private String rest;
+    /** whether the reading thread has been started */
+    private boolean started;
+    /** whether the input has ended */
+    private boolean ended;
+
+    /**
+     * creates input that reads from a stream.  Nothing is read until it is asked for
+     * @param in the stream
+     */
+    public TerminalInput(InputStream in){
+        this.in = in;
+        this.lines = new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * gets the rest of the current line, or the next line
+     * @return the line without its line separator
+     * @throws NoSuchElementException if the input has ended
+     */
+    public String nextLine(){
+        if(rest != null){
+            String line = rest;
+            rest = null;
+            return line;
+        }
+        return take(0);
+    }
+
+    /**
+     * gets the rest of the current line, or the next line if it is typed in time
+     * @param timeout how long to wait for a line
+     * @param unit unit of the timeout
+     * @return the line without its line separator, or null if none was typed in time
+     * @throws NoSuchElementException if the input has ended
+     */
+    public String pollLine(long timeout, TimeUnit unit){
+        if(rest != null){
+            return nextLine();
+        }
+        return take(Math.max(1, unit.toNanos(timeout)));
+    }
+
+    /**
+     * determines if there is another line, waiting for one to be typed if necessary
+     * @return false only if the input has ended
+     */
+    public boolean hasNextLine(){
+        if(rest != null){
+            return true;
+        }
+        try {
+            rest = take(0);
+            return true;
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+    }
+
+    /**
+     * determines if the next token is a whole number, waiting for one to be typed if necessary
+     * @return whether nextInt() would succeed
+     * @throws NoSuchElementException if the input has ended
+     */
+    public boolean hasNextInt(){
+        skipBlankLines();
+        try {
+            Integer.parseInt(firstToken());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * gets the next token, on this line or a later one
+     * @return the token
+     * @throws NoSuchElementException if the input has ended
+     */
+    public String next(){
+        skipBlankLines();
+        String token = firstToken();
+        rest = rest.substring(rest.indexOf(token) + token.length());
+        return token;
+    }
+
+    /**
+     * gets the next token as a whole number
+     * @return the number
+     * @throws NumberFormatException if the token is not a whole number.  It is consumed anyway
+     * @throws NoSuchElementException if the input has ended
+     */
+    public int nextInt(){
+        return Integer.parseInt(next());
+    }
+
+    /**
+     * moves past lines, and the rest of the current line, that hold no token
+     */
+    private void skipBlankLines(){
+        while(rest == null || rest.trim().isEmpty()){
+            rest = take(0);
+        }
+    }
+
+    /**
+     * gets the first token of the rest of the line, which must hold one
+     * @return the token
+     */
+    private String firstToken(){
+        return rest.trim().split("\\s+", 2)[0];
+    }
+
+    /**
+     * takes the next line from the reading thread, starting it if need be
+     * @param timeoutNanos how long to wait.  0 waits for as long as it takes
+     * @return the line, or null if none came in time
+     * @throws NoSuchElementException if the input has ended
+     */
+    private String take(long timeoutNanos){
+        if(ended){
+            throw new NoSuchElementException("the input has ended");
+        }
+        if(!started){
+            startReading();
+        }
+        String line;
+        try {
+            line = timeoutNanos == 0 ? lines.take() : lines.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoSuchElementException("interrupted while waiting for input");
+        }
+        if(line == END){
+            ended = true;
+            throw new NoSuchElementException("the input has ended");
+        }
+        return line;
+    }
+
+    /**
+     * starts the thread that reads lines from the stream until it ends
+     */
+    private void startReading(){
+        started = true;
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    String line;
+                    while((line = reader.readLine()) != null){
+                        lines.add(line);
+                    }
+                } catch (IOException e) {
+                    //a broken terminal ends the input like a closed one
+                } finally {
+                    lines.add(END);
+                }
+            }
+        }, "terminal input");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
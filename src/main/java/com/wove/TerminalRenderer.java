@@ -0,0 +1,170 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws the terminal game from the events its table publishes, on the
+ * renderer's own thread, so the deal and the dealer's draws are animated
+ * without holding up the game.  The renderer keeps a copy of the table of
+ * its own, built up from the events, since the game goes on changing the
+ * real one while a frame is drawn.
+ *
+ * Only the frames between decisions are drawn here.  Prompts are still
+ * shown by the game, which waits for the renderer to catch up first.
+ */
+class TerminalRenderer implements EventRing.Handler {
+    /** milliseconds every card of the deal and every card the dealer draws stays on the screen */
+    private static final int CARD_PAUSE = 800;
+
+    /** copy of the players, with their names and hands */
+    private final List<Player> seats;
+    /** copy of the dealer, dealing to the copied players */
+    private final Dealer dealer;
+    /** round the copy is in */
+    private long round;
+    /** whether cards are still being handed out at the start of the round */
+    private boolean dealing;
+    /** last action taken.  null once its frame has been drawn */
+    private PlayerAction pendingAction;
+    /** hand the last action was taken on */
+    private Hand actingHand;
+
+    /**
+     * creates a renderer starting from the table as it is now
+     * @param players the players of the game
+     * @param tableDealer the dealer of the game
+     */
+    public TerminalRenderer(List<Player> players, Dealer tableDealer){
+        seats = new ArrayList<>();
+        for(Player player : players){
+            Player seat = new Player(player.getName(), player.getMoney());
+            List<Hand> hands = new ArrayList<>();
+            for(Hand hand : player.getHands()){
+                hands.add(copy(hand));
+            }
+            seat.restoreHands(hands, player.getNumberOfSplits());
+            seats.add(seat);
+        }
+        dealer = new Dealer(seats, tableDealer.getHand() == null ? null : copy(tableDealer.getHand()));
+    }
+
+    /**
+     * copies a hand card by card, so the game's cards are never read while it turns them over
+     * @param hand the hand
+     * @return the copy
+     */
+    private static Hand copy(Hand hand){
+        Hand copy = new Hand(hand.getBet());
+        for(int i = 0; i < hand.numberOfCards(); i++){
+            Card card = Card.fromCode(hand.getCard(i).getCode());
+            card.setVisibility(hand.getCard(i).isVisible());
+            copy.addCard(card);
+        }
+        if(hand.isSplitHand()){
+            copy.setSplitHand();
+        }
+        if(hand.isNaturalBlackJack()){
+            copy.setNaturalBlackJack();
+        }
+        return copy;
+    }
+
+    @Override
+    public void onEvent(GameEvent event, boolean endOfBatch) {
+        switch(event.getType()){
+            case BET:
+                if(event.getRound() != round){
+                    round = event.getRound();
+                    dealer.startRound();
+                    dealing = true;
+                }
+                seats.get(event.getSeat()).newHand((int) event.getAmount());
+                break;
+            case CARD_DEALT:
+                Card card = Card.fromCode(event.getCardCode());
+                card.setVisibility(!event.isFaceDown());
+                handOf(event).addCard(card);
+                if(dealing){
+                    //the dealer's up card is the last card of the deal
+                    dealing = dealer.getHand().numberOfCards() < 2;
+                    UserIO.clearScreen();
+                    UserIO.printAllHands(null, seats, dealer);
+                    UserIO.printEmptyLine();
+                    UserIO.pause(CARD_PAUSE);
+                }else if(pendingAction == PlayerAction.HIT || pendingAction == PlayerAction.DOUBLE_DOWN){
+                    drawAction();
+                }
+                break;
+            case ACTION_TAKEN:
+                pendingAction = event.getAction();
+                actingHand = handOf(event);
+                if(pendingAction == PlayerAction.STAND){
+                    drawAction();
+                }
+                break;
+            case SPLIT:
+                seats.get(event.getSeat()).split(actingHand);
+                drawAction();
+                break;
+            case DOUBLE:
+                handOf(event).addToBet((int) event.getAmount());
+                break;
+            case BLACKJACK:
+                Hand natural = handOf(event);
+                natural.setNaturalBlackJack();
+                natural.addToBet((int) event.getAmount() - natural.getBet());
+                break;
+            case HOLE_CARD_TURNED:
+                dealer.flipCards();
+                UserIO.clearScreen();
+                if(dealer.getHand().isNaturalBlackJack()){
+                    //the bets have been collected, and only a natural of their own kept a player's
+                    for(Player seat : seats){
+                        if(!seat.getHands().get(0).isNaturalBlackJack()){
+                            seat.getHands().get(0).loseBet();
+                        }
+                    }
+                    UserIO.printAllHands(null, seats, dealer);
+                }else{
+                    UserIO.printAllHands(dealer.getHand(), seats, dealer);
+                    UserIO.printEmptyLine();
+                }
+                break;
+            case DEALER_DRAW:
+                UserIO.pause(CARD_PAUSE);
+                dealer.getHand().addCard(Card.fromCode(event.getCardCode()));
+                UserIO.clearScreen();
+                UserIO.printAllHands(dealer.getHand(), seats, dealer);
+                UserIO.printEmptyLine();
+                break;
+            case SETTLEMENT:
+                //leave the dealer's last card on the screen before the results
+                if(event.getSeat() == 0 && !dealer.getHand().isNaturalBlackJack()){
+                    UserIO.pause(CARD_PAUSE);
+                }
+                break;
+        }
+    }
+
+    /**
+     * finds the copy of the hand an event is about
+     * @param event the event
+     * @return the hand
+     */
+    private Hand handOf(GameEvent event){
+        if(event.getSeat() == GameEvent.DEALER_SEAT){
+            return dealer.getHand();
+        }
+        return seats.get(event.getSeat()).getHands().get(event.getHand());
+    }
+
+    /**
+     * draws the table once the last action has been carried out, with its hand highlighted
+     */
+    private void drawAction(){
+        UserIO.clearScreen();
+        UserIO.printAllHands(actingHand, seats, dealer);
+        pendingAction = null;
+    }
+}
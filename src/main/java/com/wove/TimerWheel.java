@@ -0,0 +1,139 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs tasks after a delay on one shared thread, however many are pending.
+ * Timeouts hash into a ring of buckets by the tick they expire on, so
+ * scheduling and cancelling are constant time and each tick only looks at
+ * one bucket.  Tasks run late by up to one tick and must be short, since
+ * they all run on the wheel's thread.
+ */
+class TimerWheel {
+    /** length of a tick in nanoseconds */
+    private final long tickNanos;
+    /** timeouts by the tick they expire on, modulo the number of buckets.  Only the wheel's thread touches these */
+    private final List<List<Timeout>> buckets;
+    /** timeouts scheduled since the wheel's thread last looked */
+    private final Queue<Timeout> scheduled;
+    /** time the wheel started */
+    private final long startNanos;
+    /** the wheel's thread */
+    private final Thread worker;
+    /** false once stopped */
+    private volatile boolean running = true;
+
+    /**
+     * a scheduled task
+     */
+    static class Timeout {
+        /** what to run */
+        private final Runnable task;
+        /** tick the task runs on */
+        private final long tick;
+        /** whether cancel() has been called */
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long tick){
+            this.task = task;
+            this.tick = tick;
+        }
+
+        /**
+         * stops the task from running if it has not started yet
+         */
+        public void cancel(){
+            cancelled = true;
+        }
+    }
+
+    /**
+     * creates a wheel and starts its thread
+     * @param tick length of a tick
+     * @param unit unit of the tick
+     * @param numberOfBuckets buckets in the ring.  Timeouts further off than this many ticks wait for more turns
+     */
+    public TimerWheel(long tick, TimeUnit unit, int numberOfBuckets){
+        if(tick <= 0 || numberOfBuckets <= 0){
+            throw new IllegalArgumentException("tick and number of buckets must be positive");
+        }
+        tickNanos = unit.toNanos(tick);
+        buckets = new ArrayList<>(numberOfBuckets);
+        for(int i = 0; i < numberOfBuckets; i++){
+            buckets.add(new ArrayList<Timeout>());
+        }
+        scheduled = new ConcurrentLinkedQueue<>();
+        startNanos = System.nanoTime();
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                turn();
+            }
+        }, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * runs a task after a delay.  Safe to call from any thread
+     * @param task the task
+     * @param delay how long to wait
+     * @param unit unit of the delay
+     * @return the timeout, to cancel it with
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit){
+        long elapsed = System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay));
+        //round up so a task never runs early
+        Timeout timeout = new Timeout(task, (elapsed + tickNanos - 1) / tickNanos);
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * stops the wheel.  Pending tasks never run
+     */
+    public void stop(){
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * advances one tick at a time, running the tasks that are due
+     */
+    private void turn(){
+        long tick = 0;
+        while(running){
+            long tickEnd = startNanos + (tick + 1) * tickNanos;
+            for(long wait = tickEnd - System.nanoTime(); wait > 0 && running; wait = tickEnd - System.nanoTime()){
+                LockSupport.parkNanos(wait);
+            }
+            Timeout timeout;
+            while((timeout = scheduled.poll()) != null){
+                //anything already due goes in the current bucket
+                long due = Math.max(timeout.tick, tick);
+                buckets.get((int) (due % buckets.size())).add(timeout);
+            }
+            Iterator<Timeout> bucket = buckets.get((int) (tick % buckets.size())).iterator();
+            while(bucket.hasNext()){
+                timeout = bucket.next();
+                if(timeout.cancelled){
+                    bucket.remove();
+                }else if(timeout.tick <= tick){
+                    bucket.remove();
+                    try{
+                        timeout.task.run();
+                    }catch (RuntimeException e){
+                        //one failing task must not stop the others
+                    }
+                }
+            }
+            tick++;
+        }
+    }
+}
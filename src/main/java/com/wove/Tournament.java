@@ -0,0 +1,309 @@
+package com.wove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * An elimination tournament between automated entrants.
+ *
+ * The tournament is played in stages.  At the start of a stage the remaining
+ * entrants are seated at as few tables as possible, and every table plays the
+ * stage's rounds with its own dealer and deck.  All tables of a stage run at
+ * the same time on a work-stealing pool and the stage ends once every table is
+ * done.  Busted entrants are then out, the best of the rest by money advance
+ * and are reseated for the next stage, until one final table is left.
+ *
+ * Within a stage the tables meet at a sync point every ROUNDS_PER_SYNC rounds.
+ * There busted entrants leave their seats, and a table left with fewer than
+ * BREAK_BELOW entrants is broken if the others have room: its entrants move to
+ * the emptiest tables and play the rest of the stage there.
+ */
+class Tournament {
+    /** rounds every table plays between two sync points */
+    static final int ROUNDS_PER_SYNC = 10;
+    /** a table with fewer entrants than this is broken at the next sync point if the others have room */
+    static final int BREAK_BELOW = CasinoRules.MAX_NUMBER_PLAYERS / 2;
+
+    /** the entrants still in the tournament */
+    private final List<Entrant> entrants;
+    /** bet every entrant places each round, or all their money if they have less */
+    private final int bet;
+    /** rounds each table plays per stage */
+    private final int roundsPerStage;
+    /** fraction of the surviving entrants that advance after a stage */
+    private final double advancingFraction;
+    /** seed the decks of every stage and table are derived from */
+    private final long seed;
+
+    /**
+     * creates a tournament
+     * @param entrants everyone taking part
+     * @param bet bet every entrant places each round
+     * @param roundsPerStage rounds each table plays per stage
+     * @param advancingFraction fraction of the surviving entrants that advance after a stage
+     * @param seed seed the decks are derived from
+     */
+    public Tournament(List<Entrant> entrants, int bet, int roundsPerStage, double advancingFraction, long seed){
+        this.entrants = new ArrayList<>(entrants);
+        this.bet = bet;
+        this.roundsPerStage = roundsPerStage;
+        this.advancingFraction = advancingFraction;
+        this.seed = seed;
+    }
+
+    /**
+     * plays stages until a final table has played its stage
+     * @param pool pool the tables are played on
+     * @return the entrants of the final table, richest first
+     * @throws InterruptedException if interrupted while a stage is played
+     */
+    public List<Entrant> play(ForkJoinPool pool) throws InterruptedException {
+        long totalRounds = 0;
+        long start = System.nanoTime();
+        for(int stage = 1; ; stage++){
+            List<List<Entrant>> tables = seat(entrants);
+            int startingTables = tables.size();
+            long stageStart = System.nanoTime();
+            long rounds = playStage(stage, tables, pool);
+            double seconds = (System.nanoTime() - stageStart) / 1e9;
+            totalRounds += rounds;
+            System.out.printf("stage %d: %d entrants at %d tables, %d broken, %d table rounds in %.2fs (%.0f rounds/s)%n",
+                    stage, entrants.size(), startingTables, startingTables - tables.size(), rounds, seconds,
+                    rounds / seconds);
+            Collections.sort(entrants, BY_MONEY);
+            if(tables.size() <= 1){
+                break;
+            }
+            advance();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("tournament: %d table rounds in %.2fs (%.0f rounds/s)%n", totalRounds, seconds,
+                totalRounds / seconds);
+        return entrants;
+    }
+
+    /**
+     * plays one stage on every table at once, breaking short tables at every
+     * sync point, and waits until all are done
+     * @param stage stage number
+     * @param tables the entrants of every table.  Broken tables are removed
+     * @param pool pool the tables are played on
+     * @return number of table rounds played
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private long playStage(int stage, List<List<Entrant>> tables, ForkJoinPool pool) throws InterruptedException {
+        List<Deck> decks = new ArrayList<>();
+        for(int t = 0; t < tables.size(); t++){
+            decks.add(new Deck(new Random(Simulation.trialSeed(seed, (long) stage << 32 | t))));
+        }
+        long rounds = 0;
+        for(int played = 0; played < roundsPerStage; played += ROUNDS_PER_SYNC){
+            final int segment = Math.min(ROUNDS_PER_SYNC, roundsPerStage - played);
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for(int t = 0; t < tables.size(); t++){
+                final List<Entrant> seated = tables.get(t);
+                final Deck deck = decks.get(t);
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return playTable(seated, deck, segment);
+                    }
+                });
+            }
+            long segmentRounds = 0;
+            try {
+                for(Future<Integer> tableRounds : pool.invokeAll(tasks)){
+                    segmentRounds += tableRounds.get();
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("table failed", e.getCause());
+            }
+            rounds += segmentRounds;
+            breakShortTables(tables, decks);
+            if(segmentRounds == 0 || tables.isEmpty()){
+                break;
+            }
+        }
+        return rounds;
+    }
+
+    /**
+     * the sync point between two runs of rounds.  Busted entrants leave their
+     * seats and empty tables close.  Then, shortest first, every table with
+     * fewer than BREAK_BELOW entrants is broken as long as the other tables
+     * have a free seat for each of its entrants, who are moved one by one to
+     * the table with the fewest entrants.
+     * @param tables the entrants of every table
+     * @param decks the deck of every table, removed along with its table
+     */
+    static void breakShortTables(List<List<Entrant>> tables, List<Deck> decks){
+        for(int t = tables.size() - 1; t >= 0; t--){
+            Iterator<Entrant> seated = tables.get(t).iterator();
+            while(seated.hasNext()){
+                if(seated.next().getPlayer().getMoney() == 0){
+                    seated.remove();
+                }
+            }
+            if(tables.get(t).isEmpty()){
+                tables.remove(t);
+                decks.remove(t);
+            }
+        }
+        while(tables.size() > 1){
+            int shortest = smallestTable(tables, -1);
+            List<Entrant> moving = tables.get(shortest);
+            int freeSeats = (tables.size() - 1) * CasinoRules.MAX_NUMBER_PLAYERS;
+            for(List<Entrant> seated : tables){
+                freeSeats -= seated == moving ? 0 : seated.size();
+            }
+            if(moving.size() >= BREAK_BELOW || moving.size() > freeSeats){
+                return;
+            }
+            for(Entrant entrant : moving){
+                tables.get(smallestTable(tables, shortest)).add(entrant);
+            }
+            tables.remove(shortest);
+            decks.remove(shortest);
+        }
+    }
+
+    /**
+     * finds the table with the fewest entrants, the first one on ties
+     * @param tables the entrants of every table
+     * @param skip index of a table to leave out, or -1
+     * @return index of the table
+     */
+    private static int smallestTable(List<List<Entrant>> tables, int skip){
+        int smallest = -1;
+        for(int t = 0; t < tables.size(); t++){
+            if(t != skip && (smallest < 0 || tables.get(t).size() < tables.get(smallest).size())){
+                smallest = t;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * plays rounds at one table.  Only touches the entrants seated there
+     * @param seated entrants at the table
+     * @param deck the table's deck, which carries over between sync points
+     * @param maxRounds rounds to play unless nobody can bet
+     * @return number of rounds played
+     */
+    private int playTable(List<Entrant> seated, Deck deck, int maxRounds){
+        List<Player> players = new ArrayList<>();
+        Strategy strategies[] = new Strategy[seated.size()];
+        for(int i = 0; i < seated.size(); i++){
+            players.add(seated.get(i).getPlayer());
+            strategies[i] = seated.get(i).getStrategy();
+        }
+        Table table = new Table(players, deck);
+        int bets[] = new int[players.size()];
+        int rounds = 0;
+        while(rounds < maxRounds){
+            boolean anyoneBetting = false;
+            for(int i = 0; i < bets.length; i++){
+                bets[i] = Math.min(bet, players.get(i).getMoney());
+                anyoneBetting |= bets[i] > 0;
+            }
+            if(!anyoneBetting){
+                break;
+            }
+            table.playRound(bets, strategies);
+            rounds++;
+        }
+        return rounds;
+    }
+
+    /**
+     * removes busted entrants and those that ranked too low to advance.
+     * The entrants must already be sorted richest first.
+     */
+    private void advance(){
+        int survivors = 0;
+        while(survivors < entrants.size() && entrants.get(survivors).getPlayer().getMoney() > 0){
+            survivors++;
+        }
+        int advancing = Math.max(1, (int) Math.ceil(survivors * advancingFraction));
+        entrants.subList(advancing, entrants.size()).clear();
+    }
+
+    /**
+     * spreads entrants as evenly as possible over as few tables as possible.
+     * Entrants are dealt out like cards so every table gets a similar mix of ranks.
+     * @param entrants the entrants to seat
+     * @return the entrants of every table
+     */
+    static List<List<Entrant>> seat(List<Entrant> entrants){
+        int numberOfTables = (entrants.size() + CasinoRules.MAX_NUMBER_PLAYERS - 1) / CasinoRules.MAX_NUMBER_PLAYERS;
+        List<List<Entrant>> tables = new ArrayList<>();
+        for(int t = 0; t < numberOfTables; t++){
+            tables.add(new ArrayList<Entrant>());
+        }
+        for(int i = 0; i < entrants.size(); i++){
+            tables.get(i % numberOfTables).add(entrants.get(i));
+        }
+        return tables;
+    }
+
+    /** orders entrants richest first */
+    private static final Comparator<Entrant> BY_MONEY = new Comparator<Entrant>() {
+        @Override
+        public int compare(Entrant a, Entrant b) {
+            return Integer.compare(b.getPlayer().getMoney(), a.getPlayer().getMoney());
+        }
+    };
+
+    /**
+     * a player taking part in the tournament together with how they play
+     */
+    static class Entrant {
+        /** the entrant's player, whose money carries over between stages */
+        private final Player player;
+        /** how the entrant plays */
+        private final Strategy strategy;
+
+        public Entrant(Player player, Strategy strategy){
+            this.player = player;
+            this.strategy = strategy;
+        }
+
+        public Player getPlayer() {
+            return player;
+        }
+
+        public Strategy getStrategy() {
+            return strategy;
+        }
+    }
+
+    /**
+     * runs a tournament of automated entrants from the command line.
+     * usage: tournament [entrants] [rounds per stage] [threads]
+     * @param args command line arguments, starting with the mode
+     * @throws InterruptedException if interrupted while playing
+     */
+    static void runFromCommandLine(String args[]) throws InterruptedException {
+        int numberOfEntrants = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int roundsPerStage = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        List<Entrant> entrants = new ArrayList<>();
+        for(int i = 0; i < numberOfEntrants; i++){
+            Strategy strategy = i % 2 == 0 ? new BasicStrategy() : new MimicDealerStrategy();
+            entrants.add(new Entrant(new Player("Bot " + (i + 1)), strategy));
+        }
+        Tournament tournament = new Tournament(entrants, 50, roundsPerStage, 0.5, System.currentTimeMillis());
+        List<Entrant> finalists = tournament.play(new ForkJoinPool(threads));
+        for(Entrant finalist : finalists){
+            System.out.println(finalist.getPlayer().getName() + " $" + finalist.getPlayer().getMoney());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.wove;
 
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
@@ -14,8 +16,53 @@ class UserIO {
     /** the smallest the console can be in terms of width */
     private static final int MIN_CONSOLE_WIDTH = 79;
 
-    /** Scanner object for user input */
-    private static final Scanner scanner = new Scanner(System.in);
+    /** what the user types */
+    private static TerminalInput userInput = new TerminalInput(System.in);
+    /** where everything shown to the user is printed */
+    private static PrintStream out = System.out;
+    /** whether pause() actually waits */
+    private static boolean pausesEnabled = true;
+    /** number of times the table has been drawn */
+    private static long framesRendered = 0;
+    /** gives a hint before every decision.  null if no hints are shown */
+    private static StrategyAdvisor advisor = null;
+
+    /**
+     * replaces the terminal with other streams, for example to drive the game
+     * from a script.  Must be called before the game starts.
+     * @param in where user input is read from
+     * @param output where everything shown to the user is printed
+     * @param pauses whether pause() should wait
+     */
+    static void redirect(InputStream in, PrintStream output, boolean pauses){
+        userInput = new TerminalInput(in);
+        out = output;
+        pausesEnabled = pauses;
+        framesRendered = 0;
+    }
+
+    /**
+     * shows a hint from the given advisor before every decision
+     * @param strategyAdvisor the advisor. null to stop showing hints
+     */
+    static void setAdvisor(StrategyAdvisor strategyAdvisor){
+        advisor = strategyAdvisor;
+    }
+
+    /**
+     * getter for the number of times the table has been drawn
+     * @return the number of times printAllHands() was called
+     */
+    static long getFramesRendered(){
+        return framesRendered;
+    }
+
+    /**
+     * prints an empty line
+     */
+    static void printEmptyLine(){
+        out.println();
+    }
 
 
     /**
@@ -23,18 +70,20 @@ class UserIO {
      */
     public static void printWelcomeMessage(){
         clearScreen();
-        System.out.println("Hi, Welcome to Wove Casino.");
-        System.out.println("Let's play Blackjack!");
-        System.out.println();
-        System.out.println("These are the table rules:");
-        System.out.println("     " + CasinoRules.MIN_MAX_BET_STRING);
-        System.out.println("     " + CasinoRules.BLACKJACK_PAYOUT_STRING);
-        System.out.println("     " + CasinoRules.DEALER_STAND_RULE_STRING);
-        System.out.println("     " + CasinoRules.DOUBLE_DOWN_RULE);
-        System.out.println("     " + CasinoRules.SPLIT_RULE_STRING);
-        System.out.println("     " + CasinoRules.NUMBER_OF_DECKS_STRING);
-        System.out.println();
-        System.out.print("<Press enter to continue>");
+        out.println("Hi, Welcome to Wove Casino.");
+        out.println("Let's play Blackjack!");
+        out.println();
+        out.println("These are the table rules:");
+        out.println("     " + CasinoRules.MIN_MAX_BET_STRING);
+        out.println("     " + CasinoRules.BLACKJACK_PAYOUT_STRING);
+        out.println("     " + CasinoRules.DEALER_STAND_RULE_STRING);
+        out.println("     " + CasinoRules.DOUBLE_DOWN_RULE);
+        out.println("     " + CasinoRules.SPLIT_RULE_STRING);
+        out.println("     " + CasinoRules.NUMBER_OF_DECKS_STRING);
+        out.println("     " + CasinoRules.PERFECT_PAIRS_STRING);
+        out.println("     " + CasinoRules.TWENTY_ONE_PLUS_THREE_STRING);
+        out.println();
+        out.print("<Press enter to continue>");
         waitForEnter();
     }
 
@@ -44,19 +93,19 @@ class UserIO {
      */
     public static List<String> getNames() {
         clearScreen();
-        System.out.println("Only 1 to 7 players may play at this table.");
-        System.out.print("How many players would like to play?: ");
+        out.println("Only 1 to 7 players may play at this table.");
+        out.print("How many players would like to play?: ");
         Integer numberOfPlayers = getInteger(CasinoRules.MIN_NUMBER_PLAYERS , CasinoRules.MAX_NUMBER_PLAYERS);
         List<String> names = new LinkedList<>();
         clearScreen();
-        System.out.println("Great! " + numberOfPlayers + " players will be at this table.");
-        System.out.println();
-        if(scanner.hasNextLine()) {
-            scanner.nextLine();
+        out.println("Great! " + numberOfPlayers + " players will be at this table.");
+        out.println();
+        if(userInput.hasNextLine()) {
+            userInput.nextLine();
         }
         for(int i = 1; i <= numberOfPlayers; i++){
-            System.out.print("Player " + i + ", please enter your name: ");
-            String name = scanner.nextLine();
+            out.print("Player " + i + ", please enter your name: ");
+            String name = userInput.nextLine();
             if(name.length() > MAX_NAME_LENGTH){
                 name = name.substring(0,MAX_NAME_LENGTH);
             }
@@ -76,13 +125,13 @@ class UserIO {
     private static int getInteger(int min, int max){
         int input = 0;
         do{
-            while(!scanner.hasNextInt()){
-                scanner.next();
-                System.out.print("Not a number.  Please Enter a number between "+min+" and "+max+":");
+            while(!userInput.hasNextInt()){
+                userInput.next();
+                out.print("Not a number.  Please Enter a number between "+min+" and "+max+":");
             }
-            input = scanner.nextInt();
+            input = userInput.nextInt();
             if(input < min || input > max){
-                System.out.print("Invalid number. Please enter a number between "+min+" and "+max+":");
+                out.print("Invalid number. Please enter a number between "+min+" and "+max+":");
             }
         }while(input < min || input > max);
 
@@ -94,6 +143,9 @@ class UserIO {
      * @param milliSeconds number of milliseconds to pause for
      */
     static void pause(int milliSeconds){
+        if(!pausesEnabled){
+            return;
+        }
         try{
             TimeUnit.MILLISECONDS.sleep(milliSeconds);
         } catch (InterruptedException e){
@@ -104,7 +156,7 @@ class UserIO {
      * Pauses the game until the user presses enter.
      */
     static void waitForEnter(){
-        scanner.nextLine();
+        userInput.nextLine();
     }
 
     /**
@@ -114,10 +166,10 @@ class UserIO {
     public static boolean isPlayerDone(List<Player> players, Dealer dealer) {
         clearScreen();
         printAllHands(null, players, dealer);
-        System.out.println("The dealer is done drawing.  Here are the results.");
-        System.out.print("Would you like to play another round?(y/n): ");
+        out.println("The dealer is done drawing.  Here are the results.");
+        out.print("Would you like to play another round?(y/n): ");
         while(true){
-            String input = scanner.nextLine();
+            String input = userInput.nextLine();
             if(input.toLowerCase().equals("y")){
                 return false;
             }else if(input.toLowerCase().equals("n")){
@@ -127,38 +179,82 @@ class UserIO {
     }
 
     /**
-     * Asks what the player would like to do next
+     * Asks what the player would like to do next.  With a decision clock the
+     * player is warned when the deadline is near, and once it passes the
+     * clock's default action is played for them.
      * @param player current player being polled
+     * @param seat seat of the player
      * @param hand current hand being polled
      * @param players all players
      * @param dealer the dealer
      * @param availableActions available actions to the user
+     * @param clock deadline of the decision.  null to wait for as long as it takes
      * @return the chosen action
      */
-    public static PlayerAction getPlayerAction(Player player, Hand hand, List<Player> players, Dealer dealer, Set<PlayerAction> availableActions) {
+    public static PlayerAction getPlayerAction(Player player, int seat, Hand hand, List<Player> players, Dealer dealer,
+                                               Set<PlayerAction> availableActions, DecisionClock clock) {
         clearScreen();
         printAllHands(hand, players, dealer);
-        System.out.println(player.getName() + ", you may do the following. ");
-        System.out.print("Choose one of these(");
+        if(advisor != null){
+            out.println(advisor.advise(hand, dealer, availableActions));
+        }
+        if(clock != null){
+            clock.start(seat);
+            out.println(player.getName() + ", you have " + toSeconds(clock.getMillisLeft()) + " seconds to decide.");
+        }
+        out.println(player.getName() + ", you may do the following. ");
+        out.print("Choose one of these(");
         for(PlayerAction action : availableActions){
-            System.out.print(" <" + action + ">");
+            out.print(" <" + action + ">");
         }
-        System.out.print("): ");
+        out.print("): ");
         PlayerAction chosenAction = null;
+        boolean warned = false;
         while (chosenAction == null){
+            String line;
+            if(clock == null){
+                line = userInput.nextLine();
+            }else{
+                long left = clock.getMillisLeft();
+                if(left == 0){
+                    chosenAction = clock.runOut(hand, dealer.getUpCard(), 0, availableActions);
+                    out.println();
+                    out.println(player.getName() + " ran out of time.  " + chosenAction + " was played for them.");
+                    break;
+                }
+                if(!warned && left <= clock.getWarningMillis()){
+                    warned = true;
+                    out.println();
+                    out.print(player.getName() + ", " + toSeconds(left) + " seconds left to decide: ");
+                }
+                //wake up for the warning if it is still to come
+                line = userInput.pollLine(warned ? left : left - clock.getWarningMillis(), TimeUnit.MILLISECONDS);
+                if(line == null){
+                    continue;
+                }
+            }
             try{
-                chosenAction = PlayerAction.valueOf(scanner.nextLine().toUpperCase());
+                chosenAction = PlayerAction.valueOf(line.toUpperCase());
             }catch(Exception e){
-                System.out.println("Not a valid action.  Please choose one from the list given.");
-                System.out.print("Choose one of these(");
+                out.println("Not a valid action.  Please choose one from the list given.");
+                out.print("Choose one of these(");
                 for(PlayerAction action : availableActions){
-                    System.out.print(" <" + action + ">");
+                    out.print(" <" + action + ">");
                 }
             }
         }
         return chosenAction;
     }
 
+    /**
+     * rounds a time up to whole seconds for the players
+     * @param millis the time in milliseconds
+     * @return the time in seconds
+     */
+    private static long toSeconds(long millis){
+        return (millis + 999) / 1000;
+    }
+
     /**
      * prints the dealer's hand and all of the player's hands
      * @param currentHand the hand to be highlighted. null means nothing is highlighted
@@ -166,6 +262,19 @@ class UserIO {
      * @param dealer the dealer
      */
     public static void printAllHands(Hand currentHand, List<Player> players, Dealer dealer) {
+        framesRendered++;
+        printAllHands(out, currentHand, players, dealer);
+    }
+
+    /**
+     * prints the dealer's hand and all of the player's hands to the given stream
+     * rather than the screen.  Used to render frames for spectators.
+     * @param out where to print
+     * @param currentHand the hand to be highlighted. null means nothing is highlighted
+     * @param players the players of the game.
+     * @param dealer the dealer
+     */
+    static void printAllHands(PrintStream out, Hand currentHand, List<Player> players, Dealer dealer) {
 
         char lineBuffer[][] = new char[HandHolder.ASCII_REPRESENTATION_HEIGHT][MIN_CONSOLE_WIDTH];
 
@@ -175,15 +284,15 @@ class UserIO {
                 lineBuffer[r][c] = dealerBuffer[r][c];
             }
         }
-        printBuffer(lineBuffer);
+        printBuffer(out, lineBuffer);
         lineBuffer = new char[HandHolder.ASCII_REPRESENTATION_HEIGHT][MIN_CONSOLE_WIDTH];
         int column = 0;
         for(Player player : players){
             char playerBuffer[][] = player.getAsciiRepresentation(currentHand);
             if(column + playerBuffer[0].length > MIN_CONSOLE_WIDTH){
-                printBuffer(lineBuffer);
+                printBuffer(out, lineBuffer);
                 lineBuffer = new char[Player.ASCII_REPRESENTATION_HEIGHT][MIN_CONSOLE_WIDTH];
-                System.out.println();
+                out.println();
                 column = 0;
             }
             for(int r = 0; r < playerBuffer.length; r++){
@@ -194,16 +303,17 @@ class UserIO {
             column += playerBuffer[0].length;
 
         }
-        printBuffer(lineBuffer);
+        printBuffer(out, lineBuffer);
     }
 
     /**
      * printes the buffer to the screen
+     * @param out where to print
      * @param buffer buffer to be print
      */
-    private static void printBuffer(char buffer[][]){
+    private static void printBuffer(PrintStream out, char buffer[][]){
         for(int r = 0; r < buffer.length; r++){
-            System.out.println(buffer[r]);
+            out.println(buffer[r]);
         }
     }
 
@@ -215,17 +325,38 @@ class UserIO {
     public static void timeForDealerToDraw(List<Player> players, Dealer dealer) {
         clearScreen();
         printAllHands(null, players, dealer);
-        System.out.println("All player actions are done.  Time for the dealer to draw.");
-        System.out.print("<Enter to continue>");
+        out.println("All player actions are done.  Time for the dealer to draw.");
+        out.print("<Enter to continue>");
         waitForEnter();
     }
 
+    /**
+     * tells each player who placed side bets this round what they won
+     * @param players players of the game
+     * @return whether anything was printed
+     */
+    public static boolean printSideBetResults(List<Player> players) {
+        boolean printed = false;
+        for(Player player : players){
+            for(SideBet sideBet : SideBet.values()){
+                int stake = player.getSideBet(sideBet);
+                if(stake > 0){
+                    int returned = player.getSideBetReturn(sideBet);
+                    out.println(player.getName() + ": " + sideBet.getLabel() + (returned > 0 ? " wins $" + (returned - stake)
+                            : " loses $" + stake));
+                    printed = true;
+                }
+            }
+        }
+        return printed;
+    }
+
     /**
      * tells the players that the round is starting
      */
     public static void beginRound() {
-        System.out.println("Ok, let's start this round.");
-        System.out.println();
+        out.println("Ok, let's start this round.");
+        out.println();
     }
 
     /**
@@ -236,19 +367,24 @@ class UserIO {
      */
     public static Map<Player, Integer> getBets(List<Player> players) {
         Map<Player, Integer> bets = new HashMap<>();
-        System.out.println("This is how much money everyone has.");
-        System.out.println();
+        out.println("This is how much money everyone has.");
+        out.println();
         for(Player player : players){
             printMoney(players, player);
-            System.out.println();
-            System.out.print(player.getName() + ", please enter your bet:");
+            out.println();
+            out.print(player.getName() + ", please enter your bet:");
             int bet = getInteger(CasinoRules.MIN_BET, Math.min(player.getMoney(),CasinoRules.MAX_BET));
             bets.put(player, bet);
+            for(SideBet sideBet : SideBet.values()){
+                out.print(player.getName() + ", please enter your " + sideBet.getLabel() + " side bet (0 for none):");
+                //the main bet is only taken from the player's money once the cards are handed out
+                player.placeSideBet(sideBet, getInteger(0, Math.min(player.getMoney() - bet, CasinoRules.MAX_BET)));
+            }
             clearScreen();
         }
-        System.out.println("Great, all bets have been collected.");
-        System.out.println();
-        System.out.print("<Press enter to begin handing out cards>");
+        out.println("Great, all bets have been collected.");
+        out.println();
+        out.print("<Press enter to begin handing out cards>");
         waitForEnter();
         return bets;
     }
@@ -259,42 +395,42 @@ class UserIO {
      * @param currrentPlayer player to highlight.  null if none
      */
     private static void printMoney(List<Player> players, Player currrentPlayer){
-        System.out.print("|");
+        out.print("|");
         for(Player player : players){
             int nameLength = player.getName().length();
             int nameStart = (MAX_NAME_LENGTH - nameLength)/2;
             for(int i = 0; i < nameStart; i++){
-                System.out.print(" ");
+                out.print(" ");
             }
-            System.out.print(player.getName());
+            out.print(player.getName());
             for(int i = 0; i < MAX_NAME_LENGTH - (nameLength + nameStart); i++){
-                System.out.print(" ");
+                out.print(" ");
             }
-            System.out.print("|");
+            out.print("|");
         }
-        System.out.println();
-        System.out.print("|");
+        out.println();
+        out.print("|");
         for(Player player : players){
             int moneyLength = String.valueOf(player.getMoney()).length() + 1;
             int moneyStart = (MAX_NAME_LENGTH - moneyLength)/2;
             for(int i = 0; i < moneyStart; i++){
-                System.out.print(" ");
+                out.print(" ");
             }
-            System.out.print("$" + player.getMoney());
+            out.print("$" + player.getMoney());
             for(int i = 0; i < MAX_NAME_LENGTH - (moneyLength + moneyStart); i++){
-                System.out.print(" ");
+                out.print(" ");
             }
-            System.out.print("|");
+            out.print("|");
         }
-        System.out.println();
+        out.println();
         if(currrentPlayer == null){
-            System.out.println();
+            out.println();
         }else{
             int arrowStart = players.indexOf(currrentPlayer) * (MAX_NAME_LENGTH+1) + MAX_NAME_LENGTH/2;
             for(int i = 0; i < arrowStart; i++){
-                System.out.print(" ");
+                out.print(" ");
             }
-            System.out.println("^");
+            out.println("^");
         }
     }
 
@@ -306,7 +442,7 @@ class UserIO {
         for(int i = 0; i < MAX_CONSOLE_HEIGHT; i++){
             newLines.append('\n');
         }
-        System.out.println(newLines.toString());
+        out.println(newLines.toString());
     }
 
     /**
@@ -315,10 +451,10 @@ class UserIO {
      * @return users are done playing
      */
     public static boolean dealerHasBlackjack() {
-        System.out.println("The dealer has Blackjack.  Thus the round is over and money has been collected.");
-        System.out.print("Would you like to play another round?(y/n): ");
+        out.println("The dealer has Blackjack.  Thus the round is over and money has been collected.");
+        out.print("Would you like to play another round?(y/n): ");
         while(true){
-            String input = scanner.nextLine();
+            String input = userInput.nextLine();
             if(input.toLowerCase().equals("y")){
                 return false;
             }else if(input.toLowerCase().equals("n")){
@@ -330,12 +466,18 @@ class UserIO {
     /**
      * prints the exit message
      * @param players all players
+     * @param clock decision clock of the game, whose decision times are shown.  null for none
      */
-    public static void thanksForPlaying(List<Player> players) {UserIO.clearScreen();
+    public static void thanksForPlaying(List<Player> players, DecisionClock clock) {UserIO.clearScreen();
         printMoney(players, null);
-        System.out.println();
-        System.out.println("Thank you for playing today.  Here are the results.");
-        System.out.print("<Press Enter to Exit>");
+        out.println();
+        if(clock != null){
+            out.println("This is how long everyone took to decide.");
+            clock.printLatencies(out);
+            out.println();
+        }
+        out.println("Thank you for playing today.  Here are the results.");
+        out.print("<Press Enter to Exit>");
         waitForEnter();
     }
 }
@@ -0,0 +1,81 @@
+package com.wove;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.wove.Card.Rank.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that DeviationOptimizer files every result under the true count a
+ * player at the table would see: the count of the cards gone from the shoe
+ * together with the three cards dealt face up.
+ */
+class DeviationOptimizerTest {
+
+    /**
+     * gets the code of a card
+     * @param rank rank of the card
+     * @param suit suit of the card
+     * @return the code
+     */
+    private static int code(Card.Rank rank, Card.Suit suit){
+        return new Card(rank, suit).getCode();
+    }
+
+    /**
+     * builds a shoe at every true count and checks the running count of what
+     * a player has seen.  A full shoe counts to zero, so the cards gone from
+     * it count to minus what is left in it, table cards included.
+     * @param first rank of the player's first card
+     * @param second rank of the player's second card
+     * @param upCard rank of the dealer's face up card
+     */
+    private static void assertCountIncludesTable(Card.Rank first, Card.Rank second, Card.Rank upCard){
+        int playerCodes[] = {code(first, Card.Suit.DIAMONDS), code(second, Card.Suit.HEARTS)};
+        int upCode = code(upCard, Card.Suit.SPADES);
+        DeviationOptimizer optimizer = new DeviationOptimizer(1, 1);
+        Random random = new Random(42);
+        for(int count = DeviationTable.MIN_TRUE_COUNT; count <= DeviationTable.MAX_TRUE_COUNT; count++){
+            int shoe[] = optimizer.conditionedShoe(playerCodes, upCode, count, random);
+            int left = 0;
+            for(int code : shoe){
+                left += Card.fromCode(code).getHiLoValue();
+            }
+            int table = 0;
+            for(int code : new int[]{playerCodes[0], playerCodes[1], upCode}){
+                table += Card.fromCode(code).getHiLoValue();
+            }
+            //the shoe still holds the table cards, which are seen
+            int seen = -left + table;
+            assertEquals(count * DeviationOptimizer.DECKS_REMAINING, seen,
+                    first + "," + second + " vs " + upCard + " at true count " + count);
+        }
+    }
+
+    @Test
+    void countIncludesTheCardsOnTheTable(){
+        assertCountIncludesTable(TEN, SIX, TEN);
+        assertCountIncludesTable(TEN, TWO, THREE);
+        assertCountIncludesTable(TWO, TWO, SIX);
+        assertCountIncludesTable(ACE, SEVEN, NINE);
+        assertCountIncludesTable(EIGHT, NINE, SEVEN);
+    }
+
+    @Test
+    void sixteenAgainstTenHitsUpToACountOfZero(){
+        //under this table's rules the dealer goes on hitting until they beat or tie the
+        //player, which makes hitting a 16 worth more than in the usual game and moves
+        //the point where standing takes over well above the usual 0
+        DeviationTable table = new DeviationTable();
+        new DeviationOptimizer(10000, 7).optimizeCell(10, 6, 10, table);
+        Hand sixteen = new Hand(10);
+        sixteen.addCard(new Card(TEN, Card.Suit.DIAMONDS));
+        sixteen.addCard(new Card(SIX, Card.Suit.HEARTS));
+        int category = DeviationTable.handCategory(sixteen, false);
+        for(int count = DeviationTable.MIN_TRUE_COUNT; count <= 0; count++){
+            assertEquals(PlayerAction.HIT, table.get(category, 10, count), "16 vs 10 at true count " + count);
+        }
+    }
+}
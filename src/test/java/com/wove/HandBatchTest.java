@@ -0,0 +1,153 @@
+package com.wove;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.wove.Card.Rank.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that every result of HandBatch matches the Hand it was built from.
+ * A natural is a two card 21 on a hand that did not come from a split.
+ */
+class HandBatchTest {
+
+    /**
+     * builds an unsplit hand from ranks
+     * @param ranks ranks of the cards in the order dealt
+     * @return the hand
+     */
+    private static Hand hand(Card.Rank... ranks){
+        Hand hand = new Hand(10);
+        for(Card.Rank rank : ranks){
+            hand.addCard(new Card(rank, Card.Suit.SPADES));
+        }
+        return hand;
+    }
+
+    /**
+     * splits a pair and deals one more card to the first hand
+     * @param pair rank of the pair
+     * @param third rank of the card dealt to the first hand after the split
+     * @return the first hand of the split
+     */
+    private static Hand splitHand(Card.Rank pair, Card.Rank third){
+        Hand hand = hand(pair, pair);
+        hand.split(new Hand(10));
+        hand.addCard(new Card(third, Card.Suit.SPADES));
+        return hand;
+    }
+
+    /**
+     * adds every hand to a batch, evaluates it and compares each hand's results
+     * @param batch the batch, which may already hold hands
+     * @param hands the hands
+     */
+    private static void assertMatches(HandBatch batch, List<Hand> hands){
+        int first = batch.size();
+        for(Hand hand : hands){
+            batch.add(hand);
+        }
+        batch.evaluate();
+        for(int i = 0; i < hands.size(); i++){
+            Hand hand = hands.get(i);
+            int index = first + i;
+            String cards = describe(hand);
+            assertEquals(hand.getValue(), batch.getValue(index), "value of " + cards);
+            assertEquals(hand.isSoft(), batch.isSoft(index), "softness of " + cards);
+            assertEquals(hand.isBust(), batch.isBust(index), "bust of " + cards);
+            boolean natural = hand.numberOfCards() == 2 && hand.getValue() == 21 && !hand.isSplitHand();
+            assertEquals(natural, batch.isNatural(index), "natural of " + cards);
+        }
+    }
+
+    /**
+     * lists the ranks of a hand for failure messages
+     * @param hand the hand
+     * @return the ranks, and whether the hand came from a split
+     */
+    private static String describe(Hand hand){
+        StringBuilder description = new StringBuilder();
+        for(int i = 0; i < hand.numberOfCards(); i++){
+            description.append(i == 0 ? "" : ",").append(hand.getCard(i).getRank());
+        }
+        return description.append(hand.isSplitHand() ? " (split)" : "").toString();
+    }
+
+    @Test
+    void multipleAcesTurnFromSoftToHard(){
+        List<Hand> hands = new ArrayList<>();
+        hands.add(hand(ACE));
+        hands.add(hand(ACE, ACE));
+        hands.add(hand(ACE, ACE, NINE));
+        hands.add(hand(ACE, ACE, NINE, KING));
+        hands.add(hand(ACE, ACE, ACE));
+        hands.add(hand(ACE, SIX, ACE));
+        hands.add(hand(ACE, SIX, ACE, FIVE));
+        hands.add(hand(ACE, ACE, ACE, ACE, SEVEN));
+        hands.add(hand(ACE, ACE, ACE, ACE, EIGHT));
+        hands.add(hand(ACE, FIVE, FIVE));
+        hands.add(hand(ACE, TEN));
+        hands.add(hand(TEN, ACE));
+        hands.add(hand(ACE, QUEEN, ACE));
+        assertMatches(new HandBatch(16), hands);
+    }
+
+    @Test
+    void handsOfFiveOrMoreCards(){
+        List<Hand> hands = new ArrayList<>();
+        hands.add(hand(TWO, THREE, FOUR, TWO, TEN));
+        hands.add(hand(TWO, THREE, FOUR, TWO, KING, TWO));
+        hands.add(hand(TWO, TWO, TWO, TWO, TWO, TWO, TWO, TWO, TWO, THREE));
+        hands.add(hand(ACE, TWO, ACE, TWO, ACE, TWO, ACE, TWO));
+        hands.add(hand(ACE, ACE, ACE, ACE, ACE, ACE, ACE, ACE, ACE, ACE, ACE, ACE));
+        hands.add(hand(FIVE, FIVE, FIVE, FIVE, ACE));
+        hands.add(hand(THREE, THREE, THREE, THREE, THREE, THREE, THREE, THREE));
+        assertMatches(new HandBatch(16), hands);
+    }
+
+    @Test
+    void twentyOnesFromSplitsAreNotNaturals(){
+        List<Hand> hands = new ArrayList<>();
+        hands.add(splitHand(ACE, KING));
+        hands.add(splitHand(ACE, TEN));
+        hands.add(splitHand(KING, ACE));
+        hands.add(splitHand(ACE, ACE));
+        hands.add(splitHand(EIGHT, THREE));
+        //the same cards without a split are naturals
+        hands.add(hand(ACE, KING));
+        hands.add(hand(KING, ACE));
+        assertMatches(new HandBatch(16), hands);
+    }
+
+    @Test
+    void growsPastItsInitialCapacity(){
+        Random random = new Random(42);
+        Card.Rank ranks[] = Card.Rank.values();
+        List<Hand> hands = new ArrayList<>();
+        for(int i = 0; i < 5000; i++){
+            Hand hand;
+            if(random.nextInt(10) == 0){
+                hand = splitHand(ranks[random.nextInt(ranks.length)], ranks[random.nextInt(ranks.length)]);
+            }else{
+                hand = new Hand(10);
+            }
+            //short hands most of the time, now and then a long one that adds card columns
+            int cards = random.nextInt(50) == 0 ? 6 + random.nextInt(6) : 1 + random.nextInt(4);
+            while(hand.numberOfCards() < cards){
+                hand.addCard(new Card(ranks[random.nextInt(ranks.length)], Card.Suit.SPADES));
+            }
+            hands.add(hand);
+        }
+        HandBatch batch = new HandBatch(3);
+        assertMatches(batch, hands.subList(0, 2500));
+        //hands added after an evaluation are evaluated along with the earlier ones
+        assertMatches(batch, hands.subList(2500, hands.size()));
+        assertEquals(hands.size(), batch.size());
+        batch.clear();
+        assertMatches(batch, hands.subList(1000, 1100));
+    }
+}